@@ -40,10 +40,17 @@ class LocalSnippetRepository implements ReadSnippetsUseCase, ReadSnippetUseCase,
     private static final String FILTER_TAGS_PARAM = "filter[tags]";
     private static final String FILTER_LANGUAGE_PARAM = "filter[language]";
     private static final String SORT_PARAM = "sort";
+    private static final String FIELDS_PARAM = "fields[snippet]";
+    private static final String SEARCH_ID_PARAM = "searchId";
+    private static final String LIST_ITEM_FIELDS = "title";
 
     private final HttpClient client;
     private final LocalTagRepository tagRepository;
     private final LocalLanguageRepository languageRepository;
+    /**
+     * Passed with every search, so that the core cancels a running search as soon as the next one starts.
+     */
+    private final String searchId = UUID.randomUUID().toString();
 
     LocalSnippetRepository(HttpClient client, LocalTagRepository tagRepository, LocalLanguageRepository languageRepository) {
         this.client = client;
@@ -75,6 +82,8 @@ class LocalSnippetRepository implements ReadSnippetsUseCase, ReadSnippetUseCase,
         String sortValue = sortProperties.desc() ? "-" : "";
         sortValue += sortProperties.property().name().toLowerCase();
         uriBuilder.queryParam(SORT_PARAM, sortValue);
+        uriBuilder.queryParam(FIELDS_PARAM, LIST_ITEM_FIELDS);
+        uriBuilder.queryParam(SEARCH_ID_PARAM, searchId);
 
         url = uriBuilder.build().encode().toUri().toString();
         return getPage(url);
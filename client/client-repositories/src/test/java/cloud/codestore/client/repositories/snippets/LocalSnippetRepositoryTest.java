@@ -33,6 +33,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.List;
 import java.util.Set;
@@ -149,6 +150,25 @@ class LocalSnippetRepositoryTest {
         verify(client).getCollection(argThat(url -> url.contains("searchQuery=test")), any());
     }
 
+    @Test
+    @DisplayName("passes the same search ID with every search")
+    void passSearchId() {
+        var resourceCollection = new ResourceCollectionDocument<>(testSnippets());
+        when(client.getCollection(anyString(), eq(SnippetResource.class))).thenReturn(resourceCollection);
+
+        repository.getPage("first", new FilterProperties(), new SortProperties());
+        repository.getPage("second", new FilterProperties(), new SortProperties());
+
+        var urls = ArgumentCaptor.forClass(String.class);
+        verify(client, times(2)).getCollection(urls.capture(), any());
+        List<String> searchIds = urls.getAllValues()
+                                     .stream()
+                                     .map(url -> UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst("searchId"))
+                                     .toList();
+        assertThat(searchIds.getFirst()).isNotBlank();
+        assertThat(searchIds).containsOnly(searchIds.getFirst());
+    }
+
     @Test
     @DisplayName("passes the provided filter properties to the core")
     void filterSnippets() {
@@ -166,6 +186,16 @@ class LocalSnippetRepositoryTest {
         );
     }
 
+    @Test
+    @DisplayName("requests only the attributes which are shown in the list")
+    void requestListItemFields() {
+        var resourceCollection = new ResourceCollectionDocument<>(testSnippets());
+        when(client.getCollection(anyString(), eq(SnippetResource.class))).thenReturn(resourceCollection);
+
+        repository.getPage("", new FilterProperties(), new SortProperties());
+        verify(client).getCollection(argThat(url -> url.contains("fields%5Bsnippet%5D=title")), any());
+    }
+
     @ParameterizedTest
     @MethodSource("sortParamStream")
     @DisplayName("passes the provided sort properties to the core")
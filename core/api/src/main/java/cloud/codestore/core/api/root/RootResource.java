@@ -3,6 +3,7 @@ package cloud.codestore.core.api.root;
 import cloud.codestore.core.api.UriFactory;
 import cloud.codestore.core.api.languages.LanguageCollectionResource;
 import cloud.codestore.core.api.snippets.SnippetCollectionResource;
+import cloud.codestore.core.api.suggestions.SuggestionCollectionResource;
 import cloud.codestore.core.api.tags.TagCollectionResource;
 import cloud.codestore.jsonapi.relationship.Relationship;
 import cloud.codestore.jsonapi.resource.ResourceObject;
@@ -53,4 +54,9 @@ class RootResource extends ResourceObject {
     Relationship getTags() {
         return new Relationship(TagCollectionResource.getLink());
     }
+
+    @JsonGetter("suggestions")
+    Relationship getSuggestions() {
+        return new Relationship(SuggestionCollectionResource.getLink());
+    }
 }
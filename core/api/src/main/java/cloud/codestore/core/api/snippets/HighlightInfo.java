@@ -0,0 +1,45 @@
+package cloud.codestore.core.api.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.Highlight;
+import com.fasterxml.jackson.annotation.JsonGetter;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * A fragment of the description or code of a code snippet which matches the search.
+ * It is part of the {@link SnippetCollectionMetaInfo}.
+ */
+class HighlightInfo {
+    private final Highlight highlight;
+
+    HighlightInfo(@Nonnull Highlight highlight) {
+        this.highlight = highlight;
+    }
+
+    @JsonGetter("text")
+    public String getText() {
+        return highlight.text();
+    }
+
+    @JsonGetter("offset")
+    public int getOffset() {
+        return highlight.startOffset();
+    }
+
+    @JsonGetter("line")
+    public int getLine() {
+        return highlight.line();
+    }
+
+    /**
+     * @return the start and end offsets of every matching term within the whole property.
+     */
+    @JsonGetter("matches")
+    public List<int[]> getMatches() {
+        return highlight.matches()
+                        .stream()
+                        .map(match -> new int[]{match.startOffset(), match.endOffset()})
+                        .toList();
+    }
+}
@@ -2,14 +2,20 @@ package cloud.codestore.core.api.snippets;
 
 import cloud.codestore.core.api.InvalidParameterException;
 import cloud.codestore.core.api.Operation;
-import cloud.codestore.core.api.ResourceMetaInfo;
+import cloud.codestore.core.usecases.listsnippets.DateRange;
+import cloud.codestore.core.usecases.listsnippets.Facet;
 import cloud.codestore.core.usecases.listsnippets.FilterProperties;
 import cloud.codestore.core.usecases.listsnippets.ListSnippets;
 import cloud.codestore.core.usecases.listsnippets.PageNotExistsException;
+import cloud.codestore.core.usecases.listsnippets.SearchBudget;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import cloud.codestore.core.usecases.listsnippets.SnippetListPage;
+import cloud.codestore.core.usecases.listsnippets.SnippetListRequest;
 import cloud.codestore.core.usecases.listsnippets.SortProperties;
 import cloud.codestore.jsonapi.document.JsonApiDocument;
 import cloud.codestore.jsonapi.link.Link;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,7 +25,15 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import static cloud.codestore.core.api.snippets.SnippetCollectionResource.PATH;
 import static cloud.codestore.core.api.snippets.SnippetCollectionResource.getLink;
@@ -28,35 +42,95 @@ import static cloud.codestore.core.usecases.listsnippets.SortProperties.SnippetP
 @RestController
 @RequestMapping(path = PATH, produces = JsonApiDocument.MEDIA_TYPE)
 public class ReadSnippetCollectionController {
+    private static final Set<String> ATTRIBUTES = Set.of(
+            "title", "description", "code", "language", "tags", "created", "modified"
+    );
+    private static final Set<String> FILE_ATTRIBUTES = Set.of("description", "code");
+
     private ListSnippets listSnippetsUseCase;
+    private Duration defaultTimeout;
+    private final RunningSearches runningSearches = new RunningSearches();
 
+    /**
+     * @param defaultTimeout the time in milliseconds after which a search returns the snippets it found so far,
+     *                       if the request does not specify a timeout.
+     */
     @Autowired
-    public ReadSnippetCollectionController(@Nonnull ListSnippets listSnippetsUseCase) {
+    public ReadSnippetCollectionController(
+            @Nonnull ListSnippets listSnippetsUseCase,
+            @Value("${codestore.search.timeout:2000}") long defaultTimeout
+    ) {
         this.listSnippetsUseCase = listSnippetsUseCase;
+        this.defaultTimeout = Duration.ofMillis(defaultTimeout);
     }
 
     @GetMapping
     public JsonApiDocument getSnippets(
             @RequestParam(value = "searchQuery", required = false, defaultValue = "") String search,
+            @RequestParam(value = "searchMode", required = false, defaultValue = "") String searchModeParam,
             @RequestParam(value = "sort", required = false, defaultValue = "") String sort,
             @RequestParam(value = "page[number]", required = false, defaultValue = "1") String pageParam,
             @RequestParam(value = "filter[language]", required = false, defaultValue = "") String languageName,
-            @RequestParam(value = "filter[tags]", required = false, defaultValue = "") String tagCsvList
+            @RequestParam(value = "filter[tags]", required = false, defaultValue = "") String tagCsvList,
+            @RequestParam(value = "filter[created][gte]", required = false, defaultValue = "") String createdFrom,
+            @RequestParam(value = "filter[created][lte]", required = false, defaultValue = "") String createdUntil,
+            @RequestParam(value = "filter[modified][gte]", required = false, defaultValue = "") String modifiedFrom,
+            @RequestParam(value = "filter[modified][lte]", required = false, defaultValue = "") String modifiedUntil,
+            @RequestParam(value = "fields[snippet]", required = false, defaultValue = "") String fields,
+            @RequestParam(value = "facets", required = false, defaultValue = "") String facetCsvList,
+            @RequestParam(value = "timeout", required = false, defaultValue = "") String timeoutParam,
+            @RequestParam(value = "searchId", required = false, defaultValue = "") String searchId
     ) throws InvalidParameterException, PageNotExistsException {
         var tags = getTagsFromCsv(tagCsvList);
-        var filterProperties = new FilterProperties(languageName, tags);
+        var created = parseDateRange("filter[created]", createdFrom, createdUntil);
+        var modified = parseDateRange("filter[modified]", modifiedFrom, modifiedUntil);
+        var filterProperties = new FilterProperties(languageName, tags, created, modified);
         var sortProperties = parseSortParameter(sort);
         var pageNumber = parsePageNumber(pageParam);
+        var facets = parseFacetsParameter(facetCsvList);
+        var searchMode = parseSearchModeParameter(searchModeParam);
+        validateSearch(search, searchMode);
+        var timeout = parseTimeoutParameter(timeoutParam);
+        var readSnippetFiles = requiresSnippetFiles(parseFieldsParameter(fields));
 
-        var page = listSnippetsUseCase.list(search, filterProperties, sortProperties, pageNumber);
-        var document = new SnippetCollectionResource(page.snippets()).setMeta(createMetaInfo());
+        int totalPages;
+        SnippetCollectionResource document;
+        boolean cancellable = StringUtils.hasText(searchId);
+        SearchBudget budget = cancellable ? runningSearches.start(searchId, timeout) : SearchBudget.of(timeout);
+        try {
+            var request = new SnippetListRequest(search, searchMode, filterProperties, sortProperties, pageNumber, facets, budget);
+            if (readSnippetFiles) {
+                var page = listSnippetsUseCase.list(request);
+                document = new SnippetCollectionResource(page.snippets());
+                document.setMeta(createMetaInfo(page));
+                totalPages = page.totalPages();
+            } else {
+                var page = listSnippetsUseCase.listSummaries(request);
+                document = SnippetCollectionResource.ofSummaries(page.snippets());
+                document.setMeta(createMetaInfo(page));
+                totalPages = page.totalPages();
+            }
+        } finally {
+            if (cancellable) {
+                runningSearches.finish(searchId, budget);
+            }
+        }
 
-        var urlParameters = new HashMap<String, Object>(5);
+        var urlParameters = new HashMap<String, Object>(12);
         urlParameters.put("searchQuery", search);
+        urlParameters.put("searchMode", searchModeParam);
         urlParameters.put("sort", sort);
         urlParameters.put("filter[language]", languageName);
         urlParameters.put("filter[tags]", tagCsvList);
-        addPaginationLinks(document, urlParameters, pageNumber, page.totalPages());
+        urlParameters.put("filter[created][gte]", createdFrom);
+        urlParameters.put("filter[created][lte]", createdUntil);
+        urlParameters.put("filter[modified][gte]", modifiedFrom);
+        urlParameters.put("filter[modified][lte]", modifiedUntil);
+        urlParameters.put("fields[snippet]", fields);
+        urlParameters.put("facets", facetCsvList);
+        urlParameters.put("timeout", timeoutParam);
+        urlParameters.put("searchId", searchId);
+        addPaginationLinks(document, urlParameters, pageNumber, totalPages);
 
         return document;
     }
@@ -66,6 +140,43 @@ public class ReadSnippetCollectionController {
         return StringUtils.hasText(csvString) ? Set.of(csvString.split(",")) : Collections.emptySet();
     }
 
+    /**
+     * Parses the bounds of a time range. A bound is either a date-time like {@code 2023-01-01T10:00:00Z}
+     * or a date like {@code 2023-01-01}. A date includes the whole day in UTC.
+     *
+     * @param parameterName the name of the filter without the operator.
+     * @return the range or {@link DateRange#UNBOUNDED} if neither bound is given.
+     */
+    @Nonnull
+    private DateRange parseDateRange(String parameterName, String from, String until)
+            throws InvalidParameterException {
+        if (!StringUtils.hasText(from) && !StringUtils.hasText(until))
+            return DateRange.UNBOUNDED;
+
+        return new DateRange(
+                parseDateBound(parameterName + "[gte]", from, false),
+                parseDateBound(parameterName + "[lte]", until, true)
+        );
+    }
+
+    @Nullable
+    private OffsetDateTime parseDateBound(String parameterName, String bound, boolean endOfDay)
+            throws InvalidParameterException {
+        if (!StringUtils.hasText(bound))
+            return null;
+
+        try {
+            if (bound.contains("T"))
+                return OffsetDateTime.parse(bound);
+
+            LocalDate date = LocalDate.parse(bound);
+            LocalTime time = endOfDay ? LocalTime.MAX : LocalTime.MIN;
+            return date.atTime(time).atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException exception) {
+            throw new InvalidParameterException(parameterName);
+        }
+    }
+
     @Nullable
     private SortProperties parseSortParameter(String sortParameter) throws InvalidParameterException {
         if (StringUtils.hasText(sortParameter)) {
@@ -82,6 +193,104 @@ public class ReadSnippetCollectionController {
         return null;
     }
 
+    /**
+     * Parses the sparse fieldset of the snippet resources.
+     *
+     * @return the requested attributes or an empty set if all attributes are requested.
+     */
+    @Nonnull
+    private Set<String> parseFieldsParameter(String fieldsParameter) throws InvalidParameterException {
+        if (!StringUtils.hasText(fieldsParameter))
+            return Collections.emptySet();
+
+        Set<String> fields = Set.copyOf(Arrays.asList(fieldsParameter.split(",")));
+        if (!ATTRIBUTES.containsAll(fields))
+            throw new InvalidParameterException("fields[snippet]");
+
+        return fields;
+    }
+
+    /**
+     * Parses the facets whose counts are returned in the meta information of the collection.
+     *
+     * @return the requested facets or an empty set if no facet is requested.
+     */
+    @Nonnull
+    private Set<Facet> parseFacetsParameter(String facetsParameter) throws InvalidParameterException {
+        if (!StringUtils.hasText(facetsParameter))
+            return Collections.emptySet();
+
+        try {
+            Set<Facet> facets = EnumSet.noneOf(Facet.class);
+            for (String facet : facetsParameter.split(",")) {
+                facets.add(Facet.valueOf(facet.toUpperCase()));
+            }
+
+            return facets;
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidParameterException("facets");
+        }
+    }
+
+    /**
+     * Parses how the search query is matched.
+     *
+     * @return the requested search mode or {@link SearchMode#DEFAULT} if no search mode is requested.
+     */
+    @Nonnull
+    private SearchMode parseSearchModeParameter(String searchModeParameter) throws InvalidParameterException {
+        if (!StringUtils.hasText(searchModeParameter))
+            return SearchMode.DEFAULT;
+
+        try {
+            return SearchMode.valueOf(searchModeParameter.toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidParameterException("searchMode");
+        }
+    }
+
+    /**
+     * Makes sure that a regular expression can be compiled before it is searched.
+     */
+    private void validateSearch(String search, SearchMode searchMode) throws InvalidParameterException {
+        if (searchMode == SearchMode.REGEX) {
+            try {
+                Pattern.compile(search);
+            } catch (PatternSyntaxException exception) {
+                throw new InvalidParameterException("searchQuery");
+            }
+        }
+    }
+
+    /**
+     * Parses the time in milliseconds after which the search returns the snippets it found so far.
+     *
+     * @return the requested timeout or the default timeout if no timeout is requested.
+     */
+    @Nonnull
+    private Duration parseTimeoutParameter(String timeoutParameter) throws InvalidParameterException {
+        if (!StringUtils.hasText(timeoutParameter))
+            return defaultTimeout;
+
+        try {
+            long timeout = Long.parseLong(timeoutParameter);
+            if (timeout <= 0)
+                throw new InvalidParameterException("timeout");
+
+            return Duration.ofMillis(timeout);
+        } catch (NumberFormatException exception) {
+            throw new InvalidParameterException("timeout");
+        }
+    }
+
+    /**
+     * The description and the code are only available in the snippet files.
+     * All other attributes are read from the index.
+     */
+    private boolean requiresSnippetFiles(Set<String> fields) {
+        return fields.isEmpty() || fields.stream().anyMatch(FILE_ATTRIBUTES::contains);
+    }
+
     private int parsePageNumber(String pageNumber) throws InvalidParameterException {
         try {
             return Integer.parseInt(pageNumber);
@@ -112,8 +321,8 @@ public class ReadSnippetCollectionController {
         }
     }
 
-    private ResourceMetaInfo createMetaInfo() {
+    private SnippetCollectionMetaInfo createMetaInfo(SnippetListPage<?> page) {
         Operation createSnippetOperation = new Operation("createSnippet", HttpMethod.POST.name(), getLink());
-        return new ResourceMetaInfo(List.of(createSnippetOperation));
+        return new SnippetCollectionMetaInfo(List.of(createSnippetOperation), page.facets(), page.highlights(), page.partial());
     }
 }
@@ -0,0 +1,54 @@
+package cloud.codestore.core.api.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.SearchBudget;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the search which is currently running for each search ID.
+ * While the user types, the client sends a new search before the previous one is finished and no longer needs the
+ * result of the previous search. As the server only notices that a client disconnected when it writes the response,
+ * the client passes the same search ID with every search of a search field, and the previous search with this ID
+ * is cancelled as soon as the next one starts. Searches without a search ID are never cancelled.
+ */
+class RunningSearches {
+    private final Map<String, SearchBudget> searches = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a new search and cancels the search which is still running with the same ID.
+     *
+     * @param searchId the ID which the client passed with the search.
+     * @param timeBudget the time which the new search may take.
+     * @return the budget of the new search.
+     */
+    @Nonnull
+    SearchBudget start(@Nonnull String searchId, @Nonnull Duration timeBudget) {
+        SearchBudget budget = SearchBudget.of(timeBudget);
+        SearchBudget previousBudget = searches.put(searchId, budget);
+        if (previousBudget != null) {
+            previousBudget.cancel();
+        }
+
+        return budget;
+    }
+
+    /**
+     * Removes the given search unless a new search with the same ID was already started.
+     *
+     * @param searchId the ID which the client passed with the search.
+     * @param budget the budget of the finished search.
+     */
+    void finish(@Nonnull String searchId, @Nonnull SearchBudget budget) {
+        searches.remove(searchId, budget);
+    }
+
+    /**
+     * @return the number of searches which are currently running.
+     */
+    int size() {
+        return searches.size();
+    }
+}
@@ -0,0 +1,71 @@
+package cloud.codestore.core.api.snippets;
+
+import cloud.codestore.core.api.Operation;
+import cloud.codestore.core.api.ResourceMetaInfo;
+import cloud.codestore.core.usecases.listsnippets.Facet;
+import cloud.codestore.core.usecases.listsnippets.Highlight;
+import cloud.codestore.core.usecases.listsnippets.SnippetHighlights;
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The meta information of the snippet collection which additionally contains the requested facet counts,
+ * the fragments of the snippets which match the search and whether the search stopped early.
+ */
+class SnippetCollectionMetaInfo extends ResourceMetaInfo {
+    private final Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+    private final Map<String, Map<String, List<HighlightInfo>>> highlights = new LinkedHashMap<>();
+    private final boolean partial;
+
+    SnippetCollectionMetaInfo(@Nonnull List<Operation> operations, @Nonnull Map<Facet, Map<String, Integer>> facets) {
+        this(operations, facets, Map.of(), false);
+    }
+
+    SnippetCollectionMetaInfo(
+            @Nonnull List<Operation> operations,
+            @Nonnull Map<Facet, Map<String, Integer>> facets,
+            @Nonnull Map<String, SnippetHighlights> highlights,
+            boolean partial
+    ) {
+        super(operations);
+        this.partial = partial;
+        facets.forEach((facet, counts) -> this.facets.put(facet.name().toLowerCase(), counts));
+        highlights.forEach((snippetId, snippetHighlights) -> this.highlights.put(snippetId, Map.of(
+                "description", toInfo(snippetHighlights.description()),
+                "code", toInfo(snippetHighlights.code())
+        )));
+    }
+
+    @JsonGetter("facets")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+
+    /**
+     * @return the fragments of the description and the code which match the search by the IDs of the snippets.
+     */
+    @JsonGetter("highlights")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, Map<String, List<HighlightInfo>>> getHighlights() {
+        return highlights;
+    }
+
+    /**
+     * @return whether the search stopped early, so that the collection may lack some snippets.
+     */
+    @JsonGetter("partial")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isPartial() {
+        return partial;
+    }
+
+    private static List<HighlightInfo> toInfo(List<Highlight> highlights) {
+        return highlights.stream().map(HighlightInfo::new).toList();
+    }
+}
@@ -3,17 +3,31 @@ package cloud.codestore.core.api.snippets;
 import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
 import cloud.codestore.core.api.UriFactory;
+import cloud.codestore.core.usecases.listsnippets.SnippetSummary;
 import cloud.codestore.jsonapi.document.ResourceCollectionDocument;
 
 import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 public class SnippetCollectionResource extends ResourceCollectionDocument<SnippetResource> {
     static final String PATH = "/snippets";
 
     SnippetCollectionResource(@Nonnull List<Snippet> snippets) {
-        super(convertToSnippetResource(snippets));
+        this(convertToSnippetResource(snippets, SnippetResource::new));
+    }
+
+    private SnippetCollectionResource(SnippetResource[] snippets) {
+        super(snippets);
+    }
+
+    /**
+     * @param summaries the summaries of the code snippets. Must not be {@code null}.
+     * @return a collection resource which contains neither the description nor the code of the snippets.
+     */
+    static SnippetCollectionResource ofSummaries(@Nonnull List<SnippetSummary> summaries) {
+        return new SnippetCollectionResource(convertToSnippetResource(summaries, SnippetResource::new));
     }
 
     /**
@@ -47,9 +61,12 @@ public class SnippetCollectionResource extends ResourceCollectionDocument<Snippe
         return UriFactory.createUri(PATH, urlParameters);
     }
 
-    private static SnippetResource[] convertToSnippetResource(List<Snippet> snippets) {
+    private static <T> SnippetResource[] convertToSnippetResource(
+            List<T> snippets,
+            Function<T, SnippetResource> converter
+    ) {
         return snippets.stream()
-                       .map(SnippetResource::new)
+                       .map(converter)
                        .toArray(SnippetResource[]::new);
     }
 }
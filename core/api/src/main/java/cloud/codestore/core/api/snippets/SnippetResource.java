@@ -7,10 +7,12 @@ import cloud.codestore.core.api.ResourceMetaInfo;
 import cloud.codestore.core.api.UriFactory;
 import cloud.codestore.core.api.languages.LanguageResource;
 import cloud.codestore.core.api.tags.TagCollectionResource;
+import cloud.codestore.core.usecases.listsnippets.SnippetSummary;
 import cloud.codestore.jsonapi.relationship.Relationship;
 import cloud.codestore.jsonapi.resource.ResourceObject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.http.HttpMethod;
 
@@ -46,6 +48,18 @@ public class SnippetResource extends ResourceObject {
         this.tags = new Relationship(TagCollectionResource.getLink(getId()));
     }
 
+    SnippetResource(@Nonnull SnippetSummary summary) {
+        super(RESOURCE_TYPE, summary.id());
+        setSelfLink(getLink(getId()));
+        setMeta(createPermissionsMetaInfo(summary.permissions()));
+
+        this.title = summary.title();
+        this.created = summary.created();
+        this.modified = summary.modified();
+        this.language = new Relationship(LanguageResource.getLink(summary.language()));
+        this.tags = new Relationship(TagCollectionResource.getLink(getId()));
+    }
+
     @JsonCreator
     private SnippetResource(
             @JsonProperty("title") String title,
@@ -66,11 +80,13 @@ public class SnippetResource extends ResourceObject {
     }
 
     @JsonGetter("description")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public String getDescription() {
         return description;
     }
 
     @JsonGetter("code")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public String getCode() {
         return code;
     }
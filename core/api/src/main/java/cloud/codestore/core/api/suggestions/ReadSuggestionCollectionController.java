@@ -0,0 +1,25 @@
+package cloud.codestore.core.api.suggestions;
+
+import cloud.codestore.core.usecases.readsuggestions.ReadSuggestions;
+import cloud.codestore.jsonapi.document.JsonApiDocument;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = SuggestionCollectionResource.PATH, produces = JsonApiDocument.MEDIA_TYPE)
+public class ReadSuggestionCollectionController {
+    private final ReadSuggestions readSuggestionsUseCase;
+
+    public ReadSuggestionCollectionController(ReadSuggestions readSuggestionsUseCase) {
+        this.readSuggestionsUseCase = readSuggestionsUseCase;
+    }
+
+    @GetMapping
+    public JsonApiDocument getSuggestions(
+            @RequestParam(value = "prefix", required = false, defaultValue = "") String prefix
+    ) {
+        return new SuggestionCollectionResource(readSuggestionsUseCase.read(prefix));
+    }
+}
@@ -0,0 +1,29 @@
+package cloud.codestore.core.api.suggestions;
+
+import cloud.codestore.core.api.UriFactory;
+import cloud.codestore.core.usecases.readsuggestions.Suggestion;
+import cloud.codestore.jsonapi.document.ResourceCollectionDocument;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+public class SuggestionCollectionResource extends ResourceCollectionDocument<SuggestionResource> {
+    static final String PATH = "/suggestions";
+
+    SuggestionCollectionResource(@Nonnull List<Suggestion> suggestions) {
+        super(convertToSuggestionResource(suggestions));
+    }
+
+    /**
+     * @return the URI to the suggestion collection resource.
+     */
+    public static String getLink() {
+        return UriFactory.createUri(PATH);
+    }
+
+    private static SuggestionResource[] convertToSuggestionResource(List<Suggestion> suggestions) {
+        return suggestions.stream()
+                          .map(SuggestionResource::new)
+                          .toArray(SuggestionResource[]::new);
+    }
+}
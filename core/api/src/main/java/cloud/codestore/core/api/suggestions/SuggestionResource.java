@@ -0,0 +1,33 @@
+package cloud.codestore.core.api.suggestions;
+
+import cloud.codestore.core.usecases.readsuggestions.Suggestion;
+import cloud.codestore.jsonapi.resource.ResourceObject;
+import com.fasterxml.jackson.annotation.JsonGetter;
+
+import javax.annotation.Nonnull;
+
+public class SuggestionResource extends ResourceObject {
+    public static final String RESOURCE_TYPE = "suggestion";
+
+    private final String text;
+    private final String property;
+
+    SuggestionResource(@Nonnull Suggestion suggestion) {
+        super(RESOURCE_TYPE, suggestion.type().name().toLowerCase() + ":" + suggestion.text());
+        text = suggestion.text();
+        property = suggestion.type() == Suggestion.Type.TAG ? "tags" : "title";
+    }
+
+    @JsonGetter("text")
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the attribute of the snippet resources which contains the suggested text.
+     */
+    @JsonGetter("property")
+    public String getProperty() {
+        return property;
+    }
+}
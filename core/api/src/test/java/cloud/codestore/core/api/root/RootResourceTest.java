@@ -49,6 +49,11 @@ class RootResourceTest extends AbstractControllerTest {
                                  "related": "http://localhost:8080/snippets"
                                }
                              },
+                             "suggestions": {
+                               "links": {
+                                 "related": "http://localhost:8080/suggestions"
+                               }
+                             },
                              "tags": {
                                "links": {
                                  "related": "http://localhost:8080/tags"
@@ -0,0 +1,58 @@
+package cloud.codestore.core.api.snippets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The running searches")
+class RunningSearchesTest {
+    private static final Duration TIME_BUDGET = Duration.ofMinutes(1);
+
+    private final RunningSearches runningSearches = new RunningSearches();
+
+    @Test
+    @DisplayName("cancel the previous search with the same ID")
+    void cancelPreviousSearch() {
+        var previousSearch = runningSearches.start("search", TIME_BUDGET);
+        var search = runningSearches.start("search", TIME_BUDGET);
+
+        assertThat(previousSearch.isCancelled()).isTrue();
+        assertThat(search.isCancelled()).isFalse();
+    }
+
+    @Test
+    @DisplayName("do not cancel the searches with other IDs")
+    void keepSearchesOfOtherClients() {
+        var search = runningSearches.start("search", TIME_BUDGET);
+        runningSearches.start("other search", TIME_BUDGET);
+
+        assertThat(search.isCancelled()).isFalse();
+        assertThat(runningSearches.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("forget a finished search")
+    void finishSearch() {
+        var search = runningSearches.start("search", TIME_BUDGET);
+        runningSearches.finish("search", search);
+
+        assertThat(runningSearches.size()).isZero();
+        assertThat(runningSearches.start("search", TIME_BUDGET)).isNotNull();
+        assertThat(search.isCancelled()).isFalse();
+    }
+
+    @Test
+    @DisplayName("keep the newer search if a cancelled search finishes")
+    void finishCancelledSearch() {
+        var previousSearch = runningSearches.start("search", TIME_BUDGET);
+        var search = runningSearches.start("search", TIME_BUDGET);
+        runningSearches.finish("search", previousSearch);
+
+        assertThat(runningSearches.size()).isEqualTo(1);
+        runningSearches.start("search", TIME_BUDGET);
+        assertThat(search.isCancelled()).isTrue();
+    }
+}
@@ -1,5 +1,6 @@
 package cloud.codestore.core.api.snippets;
 
+import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
 import cloud.codestore.core.usecases.listsnippets.*;
 import cloud.codestore.jsonapi.document.JsonApiDocument;
@@ -7,21 +8,32 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
+import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static cloud.codestore.core.usecases.listsnippets.SortProperties.SnippetProperty;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.Every.everyItem;
+import static org.hamcrest.core.StringContains.containsString;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,8 +49,10 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
 
     @BeforeEach
     void setUp() throws PageNotExistsException {
-        var page = new SnippetListPage(PAGE_NUMBER, TOTAL_PAGES, snippetList());
-        lenient().when(listSnippetsUseCase.list(any(), any(), any(), anyInt())).thenReturn(page);
+        var page = new SnippetListPage<>(PAGE_NUMBER, TOTAL_PAGES, snippetList(), Map.of(), Map.of(), false);
+        lenient().when(listSnippetsUseCase.list(any())).thenReturn(page);
+        var summaryPage = new SnippetListPage<>(PAGE_NUMBER, TOTAL_PAGES, summaryList(), Map.of(), Map.of(), false);
+        lenient().when(listSnippetsUseCase.listSummaries(any())).thenReturn(summaryPage);
     }
 
     @Test
@@ -56,7 +70,7 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
                 .andExpect(jsonPath("$.meta.operations[0].method", is("POST")))
                 .andExpect(jsonPath("$.meta.operations[0].href", is("http://localhost:8080/snippets")));
 
-        verify(listSnippetsUseCase).list(eq(""), eq(new FilterProperties()), isNull(), eq(1));
+        assertDefaultRequest(listRequest());
     }
 
     @Test
@@ -65,18 +79,57 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         GET("/snippets?filter[language]=Java").andExpect(status().isOk());
 
         var filterProperties = new FilterProperties("Java", Collections.emptySet());
-        verify(listSnippetsUseCase).list(any(), eq(filterProperties), any(), anyInt());
+        verify(listSnippetsUseCase).list(argThat(request -> request.filterProperties().equals(filterProperties)));
     }
 
     @Test
     @DisplayName("filters the snippets by tags")
     void filterByTags() throws Exception {
-        var argument = ArgumentCaptor.forClass(FilterProperties.class);
-
         GET("/snippets?filter[tags]=TagA,TagB,TagC").andExpect(status().isOk());
 
-        verify(listSnippetsUseCase).list(any(), argument.capture(), any(), anyInt());
-        assertThat(argument.getValue().tags()).containsExactlyInAnyOrder("TagA", "TagB", "TagC");
+        assertThat(listRequest().filterProperties().tags()).containsExactlyInAnyOrder("TagA", "TagB", "TagC");
+    }
+
+    @Nested
+    @DisplayName("with date filters")
+    class DateFilter {
+        @Test
+        @DisplayName("filters the snippets by the whole days of the creation time")
+        void filterByCreationDate() throws Exception {
+            GET("/snippets?filter[created][gte]=2023-01-01&filter[created][lte]=2023-12-31").andExpect(status().isOk());
+
+            var created = new DateRange(
+                    OffsetDateTime.parse("2023-01-01T00:00:00Z"),
+                    OffsetDateTime.parse("2023-12-31T23:59:59.999999999Z")
+            );
+            var filterProperties = new FilterProperties("", Set.of(), created, DateRange.UNBOUNDED);
+            verify(listSnippetsUseCase).list(argThat(request -> request.filterProperties().equals(filterProperties)));
+        }
+
+        @Test
+        @DisplayName("filters the snippets by the modification time")
+        void filterByModificationTime() throws Exception {
+            GET("/snippets?filter[modified][gte]=2024-05-06T08:30:00Z").andExpect(status().isOk());
+
+            var modified = new DateRange(OffsetDateTime.parse("2024-05-06T08:30:00Z"), null);
+            var filterProperties = new FilterProperties("", Set.of(), DateRange.UNBOUNDED, modified);
+            verify(listSnippetsUseCase).list(argThat(request -> request.filterProperties().equals(filterProperties)));
+        }
+
+        @Test
+        @DisplayName("keeps the date filters in the pagination links")
+        void keepDateFilterInLinks() throws Exception {
+            GET("/snippets?filter[modified][lte]=2024-05-06&page[number]=" + PAGE_NUMBER)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.links.next", containsString("2024-05-06")));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"filter[created][gte]", "filter[created][lte]", "filter[modified][gte]", "filter[modified][lte]"})
+        @DisplayName("fails if a date is invalid")
+        void failForInvalidDate(String parameter) throws Exception {
+            GET("/snippets?" + parameter + "=yesterday").andExpect(status().isBadRequest());
+        }
     }
 
     @Nested
@@ -87,11 +140,11 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         void sortByTitle() throws Exception {
             GET("/snippets?sort=title").andExpect(status().isOk());
             var expectedSortProperties = new SortProperties(SnippetProperty.TITLE, true);
-            verify(listSnippetsUseCase).list(any(), any(), eq(expectedSortProperties), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.sortProperties().equals(expectedSortProperties)));
 
             GET("/snippets?sort=-title").andExpect(status().isOk());
             expectedSortProperties = new SortProperties(SnippetProperty.TITLE, false);
-            verify(listSnippetsUseCase).list(any(), any(), eq(expectedSortProperties), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.sortProperties().equals(expectedSortProperties)));
         }
 
         @Test
@@ -99,11 +152,11 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         void sortByCreationTime() throws Exception {
             GET("/snippets?sort=created").andExpect(status().isOk());
             SortProperties expectedSortProperties = new SortProperties(SnippetProperty.CREATED, true);
-            verify(listSnippetsUseCase).list(any(), any(), eq(expectedSortProperties), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.sortProperties().equals(expectedSortProperties)));
 
             GET("/snippets?sort=-created").andExpect(status().isOk());
             expectedSortProperties = new SortProperties(SnippetProperty.CREATED, false);
-            verify(listSnippetsUseCase).list(any(), any(), eq(expectedSortProperties), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.sortProperties().equals(expectedSortProperties)));
         }
 
         @Test
@@ -111,11 +164,11 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         void sortByModificationTime() throws Exception {
             GET("/snippets?sort=modified").andExpect(status().isOk());
             SortProperties expectedSortProperties = new SortProperties(SnippetProperty.MODIFIED, true);
-            verify(listSnippetsUseCase).list(any(), any(), eq(expectedSortProperties), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.sortProperties().equals(expectedSortProperties)));
 
             GET("/snippets?sort=-modified").andExpect(status().isOk());
             expectedSortProperties = new SortProperties(SnippetProperty.MODIFIED, false);
-            verify(listSnippetsUseCase).list(any(), any(), eq(expectedSortProperties), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.sortProperties().equals(expectedSortProperties)));
         }
 
         @Test
@@ -132,7 +185,75 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         @DisplayName("passes the parameter to the list-snippets use-case")
         void searchSnippets() throws Exception {
             GET("/snippets?searchQuery=test").andExpect(status().isOk());
-            verify(listSnippetsUseCase).list(eq("test"), any(), isNull(), anyInt());
+            verify(listSnippetsUseCase).list(argThat(request -> request.search().equals("test") && request.searchMode() == SearchMode.DEFAULT));
+        }
+
+        @Test
+        @DisplayName("passes the search mode to the list-snippets use-case")
+        void searchFuzzy() throws Exception {
+            GET("/snippets?searchQuery=dokcer&searchMode=fuzzy").andExpect(status().isOk());
+            verify(listSnippetsUseCase).list(argThat(request -> request.search().equals("dokcer") && request.searchMode() == SearchMode.FUZZY));
+        }
+
+        @Test
+        @DisplayName("keeps the search mode in the pagination links")
+        void keepSearchModeInPaginationLinks() throws Exception {
+            GET("/snippets?searchQuery=dokcer&searchMode=fuzzy&page[number]=" + PAGE_NUMBER)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.links.prev", containsString("searchMode=fuzzy")));
+        }
+
+        @Test
+        @DisplayName("fails if an unknown search mode is requested")
+        void failForUnknownSearchMode() throws Exception {
+            GET("/snippets?searchQuery=test&searchMode=unknown").andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("passes an exact code fragment to the use case")
+        void searchLiteral() throws Exception {
+            GET("/snippets?searchQuery=->getId()&searchMode=literal").andExpect(status().isOk());
+            verify(listSnippetsUseCase).list(argThat(request -> request.search().equals("->getId()") && request.searchMode() == SearchMode.LITERAL));
+        }
+
+        @Test
+        @DisplayName("passes a regular expression to the use case")
+        void searchRegex() throws Exception {
+            GET("/snippets?searchQuery=SELECT .* FROM users&searchMode=regex").andExpect(status().isOk());
+            verify(listSnippetsUseCase).list(argThat(request -> request.search().equals("SELECT .* FROM users") && request.searchMode() == SearchMode.REGEX));
+        }
+
+        @Test
+        @DisplayName("fails if the regular expression is invalid")
+        void failForInvalidRegex() throws Exception {
+            GET("/snippets?searchQuery=getId(&searchMode=regex").andExpect(status().isBadRequest());
+            verify(listSnippetsUseCase, never()).list(any());
+        }
+
+        @Test
+        @DisplayName("returns the fragments which match the search")
+        void returnHighlights() throws Exception {
+            var highlight = new Highlight("var file = new File();", 42, 3, List.of(new Highlight.Range(46, 50)));
+            var highlights = Map.of("1", new SnippetHighlights(List.of(), List.of(highlight)));
+            var page = new SnippetListPage<>(1, 1, snippetList(), Map.of(), highlights, false);
+            when(listSnippetsUseCase.list(any())).thenReturn(page);
+
+            GET("/snippets?searchQuery=file")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.meta.highlights.1.description", empty()))
+                    .andExpect(jsonPath("$.meta.highlights.1.code[0].text", is("var file = new File();")))
+                    .andExpect(jsonPath("$.meta.highlights.1.code[0].offset", is(42)))
+                    .andExpect(jsonPath("$.meta.highlights.1.code[0].line", is(3)))
+                    .andExpect(jsonPath("$.meta.highlights.1.code[0].matches[0][0]", is(46)))
+                    .andExpect(jsonPath("$.meta.highlights.1.code[0].matches[0][1]", is(50)));
+        }
+
+        @Test
+        @DisplayName("omits the highlights if nothing is searched")
+        void noHighlights() throws Exception {
+            GET("/snippets")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.meta.highlights").doesNotExist());
         }
     }
 
@@ -143,7 +264,7 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         @DisplayName("reads the corresponding page of code snippets")
         void getPage() throws Exception {
             GET("/snippets?page[number]=" + PAGE_NUMBER).andExpect(status().isOk());
-            verify(listSnippetsUseCase).list(eq(""), any(), isNull(), eq(PAGE_NUMBER));
+            verify(listSnippetsUseCase).list(argThat(request -> request.page() == PAGE_NUMBER));
         }
 
         @Test
@@ -182,8 +303,8 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         @Test
         @DisplayName("omits all pagination links if there is only one page")
         void onlyOnePage() throws Exception {
-            var page = new SnippetListPage(1, 1, Collections.emptyList());
-            lenient().when(listSnippetsUseCase.list(any(), any(), any(), anyInt())).thenReturn(page);
+            var page = new SnippetListPage<Snippet>(1, 1, Collections.emptyList(), Map.of(), Map.of(), false);
+            lenient().when(listSnippetsUseCase.list(any())).thenReturn(page);
 
             GET("/snippets?page[number]=1")
                     .andExpect(status().isOk())
@@ -196,7 +317,7 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         @Test
         @DisplayName("returns 404 if the client passes an invalid page number")
         void pageOutOfBounds() throws Exception {
-            when(listSnippetsUseCase.list(any(), any(), any(), anyInt())).thenThrow(PageNotExistsException.class);
+            when(listSnippetsUseCase.list(any())).thenThrow(PageNotExistsException.class);
             GET("/snippets?page[number]=0").andExpect(status().isNotFound());
         }
 
@@ -211,6 +332,240 @@ class SnippetCollectionResourceTest extends SnippetControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("with timeout parameter")
+    class TimeoutParameter {
+        @Test
+        @DisplayName("limits the time of the search")
+        void passTimeout() throws Exception {
+            GET("/snippets?searchQuery=test&timeout=1").andExpect(status().isOk());
+
+            SearchBudget budget = listRequest().budget();
+            Thread.sleep(2);
+            assertThat(budget.isExhausted()).isTrue();
+        }
+
+        @Test
+        @DisplayName("limits the time of the search by default")
+        void defaultTimeout() throws Exception {
+            GET("/snippets?searchQuery=test").andExpect(status().isOk());
+
+            assertThat(listRequest().budget().isExhausted()).isFalse();
+        }
+
+        @Test
+        @DisplayName("marks a partial collection in the meta information")
+        void returnPartialCollection() throws Exception {
+            var page = new SnippetListPage<>(1, 1, snippetList(), Map.of(), Map.of(), true);
+            when(listSnippetsUseCase.list(any())).thenReturn(page);
+
+            GET("/snippets?searchQuery=test&timeout=100")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.meta.partial", is(true)));
+        }
+
+        @Test
+        @DisplayName("omits the partial flag if the search is complete")
+        void returnCompleteCollection() throws Exception {
+            GET("/snippets?searchQuery=test")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.meta.partial").doesNotExist());
+        }
+
+        @Test
+        @DisplayName("keeps the timeout in the pagination links")
+        void keepTimeoutInPaginationLinks() throws Exception {
+            GET("/snippets?searchQuery=test&timeout=500&page[number]=" + PAGE_NUMBER)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.links.prev", containsString("timeout=500")));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"0", "-1", "1s", "99999999999999999999"})
+        @DisplayName("fails if the timeout is not a positive number of milliseconds")
+        void failForInvalidTimeout(String timeout) throws Exception {
+            GET("/snippets?searchQuery=test&timeout=" + timeout).andExpect(status().isBadRequest());
+            verify(listSnippetsUseCase, never()).list(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("with searchId parameter")
+    class SearchIdParameter {
+        @Test
+        @DisplayName("cancels the running search with the same ID")
+        void cancelPreviousSearch() throws Exception {
+            assertThat(isCancelledByNextSearch("searchId=1", "searchId=1")).isTrue();
+        }
+
+        @Test
+        @DisplayName("does not cancel the running search with another ID")
+        void keepSearchWithOtherId() throws Exception {
+            assertThat(isCancelledByNextSearch("searchId=1", "searchId=2")).isFalse();
+        }
+
+        @Test
+        @DisplayName("does not cancel running searches without ID")
+        void keepSearchWithoutId() throws Exception {
+            assertThat(isCancelledByNextSearch("searchQuery=test", "searchQuery=test")).isFalse();
+        }
+
+        @Test
+        @DisplayName("keeps the search ID in the pagination links")
+        void keepSearchIdInPaginationLinks() throws Exception {
+            GET("/snippets?searchQuery=test&searchId=1&page[number]=" + PAGE_NUMBER)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.links.prev", containsString("searchId=1")));
+        }
+
+        /**
+         * Starts a search which waits until a second search was started.
+         *
+         * @return whether the first search was cancelled by the second one.
+         */
+        private boolean isCancelledByNextSearch(String firstParameters, String nextParameters) throws Exception {
+            var page = new SnippetListPage<>(PAGE_NUMBER, TOTAL_PAGES, snippetList(), Map.of(), Map.of(), false);
+            var budgets = new CopyOnWriteArrayList<SearchBudget>();
+            var firstSearchStarted = new CountDownLatch(1);
+            var nextSearchFinished = new CountDownLatch(1);
+            when(listSnippetsUseCase.list(any())).thenAnswer(invocation -> {
+                budgets.add(invocation.<SnippetListRequest>getArgument(0).budget());
+                if (budgets.size() == 1) {
+                    firstSearchStarted.countDown();
+                    nextSearchFinished.await();
+                }
+
+                return page;
+            });
+
+            try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+                Future<?> firstSearch = executor.submit(() -> GET("/snippets?" + firstParameters).andExpect(status().isOk()));
+                firstSearchStarted.await();
+                GET("/snippets?" + nextParameters).andExpect(status().isOk());
+                nextSearchFinished.countDown();
+                firstSearch.get();
+            }
+
+            return budgets.getFirst().isCancelled();
+        }
+    }
+
+    @Nested
+    @DisplayName("with facets parameter")
+    class FacetsParameter {
+        @Test
+        @DisplayName("returns the counts of the requested facets")
+        void returnFacets() throws Exception {
+            var facets = Map.of(Facet.LANGUAGE, Map.of("Java", 5), Facet.CREATED, Map.of("2024-05", 5));
+            var page = new SnippetListPage<>(1, 1, snippetList(), facets, Map.of(), false);
+            when(listSnippetsUseCase.list(any())).thenReturn(page);
+
+            GET("/snippets?facets=language,created")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.meta.operations[0].operation", is("createSnippet")))
+                    .andExpect(jsonPath("$.meta.facets.language.Java", is(5)))
+                    .andExpect(jsonPath("$.meta.facets.created.2024-05", is(5)));
+
+            assertThat(listRequest().facets()).isEqualTo(Set.of(Facet.LANGUAGE, Facet.CREATED));
+        }
+
+        @Test
+        @DisplayName("omits the facets if none are requested")
+        void noFacets() throws Exception {
+            GET("/snippets")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.meta.facets").doesNotExist());
+        }
+
+        @Test
+        @DisplayName("keeps the parameter in the pagination links")
+        void keepParameterInPaginationLinks() throws Exception {
+            GET("/snippets?facets=tags&page[number]=" + PAGE_NUMBER)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.links.prev", containsString("facets=tags")));
+        }
+
+        @Test
+        @DisplayName("fails if an unknown facet is requested")
+        void failForUnknownFacet() throws Exception {
+            GET("/snippets?facets=language,unknown").andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("with fields[snippet] parameter")
+    class SparseFieldset {
+        @Test
+        @DisplayName("returns only the summaries if neither the description nor the code is requested")
+        void returnSummaries() throws Exception {
+            GET("/snippets?fields[snippet]=title,language,tags")
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.length()", is(5)))
+                    .andExpect(jsonPath("$.data[0].attributes.title", is("Title 1")))
+                    .andExpect(jsonPath("$.data[0].attributes.description").doesNotExist())
+                    .andExpect(jsonPath("$.data[0].attributes.code").doesNotExist());
+
+            var request = ArgumentCaptor.forClass(SnippetListRequest.class);
+            verify(listSnippetsUseCase).listSummaries(request.capture());
+            assertDefaultRequest(request.getValue());
+            verify(listSnippetsUseCase, never()).list(any());
+        }
+
+        @Test
+        @DisplayName("returns the complete snippets if the description or the code is requested")
+        void returnSnippets() throws Exception {
+            GET("/snippets?fields[snippet]=title,code").andExpect(status().isOk());
+
+            assertDefaultRequest(listRequest());
+            verify(listSnippetsUseCase, never()).listSummaries(any());
+        }
+
+        @Test
+        @DisplayName("keeps the parameter in the pagination links")
+        void keepParameterInPaginationLinks() throws Exception {
+            GET("/snippets?fields[snippet]=title&page[number]=" + PAGE_NUMBER)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.links.next", containsString("fields%5Bsnippet%5D=title")));
+        }
+
+        @Test
+        @DisplayName("fails if an unknown attribute is requested")
+        void failForUnknownAttribute() throws Exception {
+            GET("/snippets?fields[snippet]=title,unknown").andExpect(status().isBadRequest());
+        }
+    }
+
+    /**
+     * @return the request which was passed to the list-snippets use case.
+     */
+    private SnippetListRequest listRequest() throws PageNotExistsException {
+        var request = ArgumentCaptor.forClass(SnippetListRequest.class);
+        verify(listSnippetsUseCase).list(request.capture());
+        return request.getValue();
+    }
+
+    private void assertDefaultRequest(SnippetListRequest request) {
+        assertThat(request.search()).isEmpty();
+        assertThat(request.searchMode()).isEqualTo(SearchMode.DEFAULT);
+        assertThat(request.filterProperties()).isEqualTo(new FilterProperties());
+        assertThat(request.sortProperties()).isEqualTo(new SortProperties());
+        assertThat(request.page()).isEqualTo(1);
+        assertThat(request.facets()).isEmpty();
+    }
+
+    private List<SnippetSummary> summaryList() {
+        return Stream.of(1, 2, 3, 4, 5)
+                     .map(id -> new SnippetSummary(
+                             String.valueOf(id),
+                             "Title " + id,
+                             Language.JAVA,
+                             List.of(),
+                             OffsetDateTime.now(),
+                             null
+                     ))
+                     .toList();
+    }
+
     private List<Snippet> snippetList() {
         return Stream.of(1, 2, 3, 4, 5)
                      .map(id -> Snippet.builder().id(String.valueOf(id)).build())
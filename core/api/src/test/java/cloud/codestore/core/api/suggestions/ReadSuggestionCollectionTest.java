@@ -0,0 +1,71 @@
+package cloud.codestore.core.api.suggestions;
+
+import cloud.codestore.core.api.AbstractControllerTest;
+import cloud.codestore.core.usecases.readsuggestions.ReadSuggestions;
+import cloud.codestore.core.usecases.readsuggestions.Suggestion;
+import cloud.codestore.jsonapi.document.JsonApiDocument;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReadSuggestionCollectionController.class)
+@Import(ReadSuggestionCollectionController.class)
+@DisplayName("GET /suggestions")
+class ReadSuggestionCollectionTest extends AbstractControllerTest {
+    @MockitoBean
+    private ReadSuggestions readSuggestionsUseCase;
+
+    @Test
+    @DisplayName("returns the suggestions for the given prefix")
+    void returnSuggestions() throws Exception {
+        when(readSuggestionsUseCase.read("ja")).thenReturn(List.of(
+                new Suggestion("java", Suggestion.Type.TAG),
+                new Suggestion("Javadoc template", Suggestion.Type.TITLE)
+        ));
+
+        mockMvc.perform(get("/suggestions?prefix=ja"))
+               .andExpect(status().isOk())
+               .andExpect(content().contentType(JsonApiDocument.MEDIA_TYPE))
+               .andExpect(content().json("""
+                       {
+                           "data": [ {
+                                   "type": "suggestion",
+                                   "id": "tag:java",
+                                   "attributes": {
+                                       "text": "java",
+                                       "property": "tags"
+                                   }
+                               }, {
+                                   "type": "suggestion",
+                                   "id": "title:Javadoc template",
+                                   "attributes": {
+                                       "text": "Javadoc template",
+                                       "property": "title"
+                                   }
+                               }
+                           ]
+                       }"""));
+    }
+
+    @Test
+    @DisplayName("returns an empty collection without a prefix")
+    void noPrefix() throws Exception {
+        when(readSuggestionsUseCase.read("")).thenReturn(List.of());
+
+        mockMvc.perform(get("/suggestions"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.data.length()", is(0)));
+
+        verify(readSuggestionsUseCase).read("");
+    }
+}
@@ -2,13 +2,21 @@ package cloud.codestore.core.repositories;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -109,15 +117,74 @@ public record Directory(Path path) {
      * The list is empty if there are no files in this directory, or if the directory does not exist.
      */
     public List<File> getFiles() throws RepositoryException {
-        try (Stream<Path> files = Files.list(path)) {
-            return files.filter(Files::isRegularFile)
-                        .map(File::new)
-                        .collect(Collectors.toList());
-        } catch (NoSuchFileException exception) {
-            return Collections.emptyList();
+        try (Stream<File> files = walkFiles(1)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Enumerates the files inside this directory and its subdirectories up to the given depth.
+     * The directories are walked by {@link Files#walkFileTree}. The attributes which the walk reads for every entry
+     * distinguish files from directories and are kept by the {@link File}s, so no entry is accessed twice.
+     * Symbolic links are followed. Entries which are deleted during the walk are skipped.
+     *
+     * @param maxDepth the maximum depth of the files, where {@code 1} only includes the files of this directory.
+     * @return a stream of the {@link File}s. The stream is empty if the directory does not exist.
+     * @throws RepositoryException if a directory could not be accessed.
+     */
+    public Stream<File> walkFiles(int maxDepth) throws RepositoryException {
+        var visitor = new FileCollector();
+        try {
+            Files.walkFileTree(path, Set.of(FileVisitOption.FOLLOW_LINKS), maxDepth, visitor);
         } catch (IOException exception) {
             throw new RepositoryException(exception, "directory.couldNotAccess", path);
         }
+
+        return visitor.files.stream();
+    }
+
+    /**
+     * Collects the regular files which are visited while walking a directory tree.
+     */
+    private static class FileCollector extends SimpleFileVisitor<Path> {
+        private final List<File> files = new ArrayList<>();
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            if (attributes.isRegularFile())
+                files.add(File.of(file, attributes));
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exception) {
+            if (exception instanceof NoSuchFileException || exception instanceof FileSystemLoopException)
+                return FileVisitResult.CONTINUE;
+
+            throw new RepositoryException(exception, "directory.couldNotAccess", file);
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path directory, IOException exception) {
+            if (exception == null || exception instanceof NoSuchFileException)
+                return FileVisitResult.CONTINUE;
+
+            throw new RepositoryException(exception, "directory.couldNotAccess", directory);
+        }
+    }
+
+    /**
+     * Forces the entries of this directory to the storage device, so that created, renamed and deleted files
+     * survive a crash of the operating system. Not every operating system allows to open a directory,
+     * in which case the entries become durable on their own and nothing happens.
+     */
+    public void force() {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException exception) {
+            // the directory cannot be opened, for example on Windows
+        }
     }
 
     /**
@@ -4,17 +4,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.Objects;
 
+import static java.nio.file.StandardOpenOption.*;
+
 /**
  * Encapsulates the access to a file.
  */
-public record File(Path path) {
+public final class File {
     private static final Logger LOGGER = LoggerFactory.getLogger(File.class);
 
+    /**
+     * The extension of the temporary files which replace existing files when they are saved.
+     */
+    public static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private final Path path;
+    @Nullable
+    private final BasicFileAttributes attributes;
+
     /**
      * Creates a new {@link File} which is represented by the given {@link Path}.
      *
@@ -22,16 +40,33 @@ public record File(Path path) {
      * @throws IllegalArgumentException if the path is an existing directory.
      */
     public File(@Nonnull Path path) {
-        if (Files.isDirectory(path))
+        this(path, Files.isDirectory(path), null);
+    }
+
+    private File(Path path, boolean directory, BasicFileAttributes attributes) {
+        if (directory)
             throw new IllegalArgumentException(path.toAbsolutePath() + " is a directory.");
 
         this.path = path;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Creates a new {@link File} from a path whose attributes were already read, for example while enumerating
+     * a directory, so the file system is not accessed again. The attributes are kept as {@link #attributes()}.
+     *
+     * @param path the location and name of this file.
+     * @param attributes the attributes of the file.
+     * @return a {@link File} object representing the file.
+     * @throws IllegalArgumentException if the attributes describe a directory.
+     */
+    static File of(@Nonnull Path path, @Nonnull BasicFileAttributes attributes) {
+        return new File(path, attributes.isDirectory(), attributes);
     }
 
     /**
      * @return the {@link Path} of this file.
      */
-    @Override
     public Path path() {
         return path;
     }
@@ -67,6 +102,53 @@ public record File(Path path) {
         }
     }
 
+    /**
+     * Reads the raw content of this file.
+     *
+     * @return the content of this file as bytes.
+     * @throws RepositoryException if the file could not be read.
+     */
+    @Nonnull
+    public byte[] readBytes() throws RepositoryException {
+        try {
+            return Files.readAllBytes(path);
+        } catch (NoSuchFileException exception) {
+            throw new RepositoryException(exception, "file.notExists", path);
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.couldNotRead", path);
+        }
+    }
+
+    /**
+     * Reads the basic attributes like size and last modification time of this file.
+     *
+     * @return the attributes of this file.
+     * @throws RepositoryException if the attributes could not be read.
+     */
+    @Nonnull
+    public BasicFileAttributes readAttributes() throws RepositoryException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException exception) {
+            throw new RepositoryException(exception, "file.notExists", path);
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.couldNotRead", path);
+        }
+    }
+
+    /**
+     * Returns the attributes which were read when this file was enumerated, so that enumerated files can be
+     * compared without accessing the file system again. Otherwise, the attributes are read like
+     * {@link #readAttributes()}.
+     *
+     * @return the attributes of this file.
+     * @throws RepositoryException if the attributes could not be read.
+     */
+    @Nonnull
+    public BasicFileAttributes attributes() throws RepositoryException {
+        return attributes == null ? readAttributes() : attributes;
+    }
+
     /**
      * Reads this file.
      * If it cannot be read or the file is empty, this method returns the given fallback-content.
@@ -87,22 +169,93 @@ public record File(Path path) {
         }
     }
 
+    /**
+     * Opens this file for reading its content as a stream, without reading the whole file into memory first.
+     * If the file cannot be opened, the returned stream is empty.
+     *
+     * @return an {@link InputStream} of the content of this file, which must be closed after use.
+     */
+    @Nonnull
+    public InputStream openOrEmpty() {
+        try {
+            return Files.newInputStream(path);
+        } catch (IOException exception) {
+            return InputStream.nullInputStream();
+        }
+    }
+
     /**
      * Saves this file.
+     * The content is written to a temporary file in the same directory, which then replaces this file.
+     * So this file keeps either its previous or its new content if the application crashes while writing.
      * All parent directories will be created if necessary.
      *
      * @param content the content of the file.
      * @throws RepositoryException if the file could not be saved.
      */
     public void write(@Nonnull String content) throws RepositoryException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        write(outputStream -> outputStream.write(bytes), null, false);
+    }
+
+    /**
+     * Same as {@link #write(String)} but the content is written by the given {@link Content} directly to the
+     * file, so it does not need to be created in memory first.
+     *
+     * @param content writes the content of the file.
+     * @throws RepositoryException if the file could not be saved.
+     */
+    public void write(@Nonnull Content content) throws RepositoryException {
+        write(content, null, false);
+    }
+
+    /**
+     * Same as {@link #write(String)} but forces the content to the storage device before this file is replaced,
+     * so that the new content also survives a crash of the operating system.
+     *
+     * @param content the content of the file.
+     * @param lastModifiedTime the modification time of the new file.
+     * @throws RepositoryException if the file could not be saved.
+     */
+    public void writeDurably(@Nonnull byte[] content, @Nonnull FileTime lastModifiedTime) throws RepositoryException {
+        write(outputStream -> outputStream.write(content), lastModifiedTime, true);
+    }
+
+    private void write(Content content, FileTime lastModifiedTime, boolean force) throws RepositoryException {
+        Path temporaryFile = null;
         try {
             Files.createDirectories(path.getParent());
-            Files.writeString(path, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            // a unique name, so that concurrent writes of the same file do not share their temporary file
+            temporaryFile = Files.createTempFile(path.getParent(), "." + getName() + ".", TEMPORARY_FILE_EXTENSION);
+            try (FileChannel channel = FileChannel.open(temporaryFile, TRUNCATE_EXISTING, WRITE)) {
+                content.writeTo(Channels.newOutputStream(channel));
+
+                if (force) {
+                    channel.force(true);
+                }
+            }
+
+            if (lastModifiedTime != null) {
+                Files.setLastModifiedTime(temporaryFile, lastModifiedTime);
+            }
+
+            replace(temporaryFile, path);
         } catch (IOException exception) {
+            if (temporaryFile != null) {
+                new File(temporaryFile).deleteSilently();
+            }
             throw new RepositoryException(exception, "file.couldNotSave", path);
         }
     }
 
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Deletes this file.
      * If the file does not exist, nothing happens.
@@ -170,4 +323,26 @@ public record File(Path path) {
         return Objects.equals(path, file.path);
     }
 
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "File[path=" + path + "]";
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    public interface Content {
+        /**
+         * @param outputStream the stream of the file, which must not be closed. As it is not buffered,
+         *                     the content should be written in chunks.
+         * @throws IOException if the content could not be written.
+         */
+        void writeTo(@Nonnull OutputStream outputStream) throws IOException;
+    }
 }
@@ -13,6 +13,7 @@ import org.springframework.context.annotation.Configuration;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 
 @Configuration
 class RepositoryConfiguration {
@@ -24,6 +25,9 @@ class RepositoryConfiguration {
     @Value("${codestore.bin:..}")
     private String binaryPath;
 
+    @Value("${codestore.storage:files}")
+    private String storage;
+
     /**
      * @return an {@link ObjectMapper} for serializing and deserializing code snippets.
      */
@@ -61,6 +65,42 @@ class RepositoryConfiguration {
         return dataDirectory.getSubDirectory("snippets");
     }
 
+    /**
+     * @return the {@link Directory} where the segment files of the code snippets are located,
+     * if they are stored by the {@link StorageEngine#SEGMENTS segments engine}.
+     */
+    @Bean("segments")
+    public Directory segmentsDirectory(@Qualifier("data") Directory dataDirectory) {
+        return dataDirectory.getSubDirectory("segments");
+    }
+
+    /**
+     * @return the {@link StorageEngine} which stores the code snippets, either {@code files} or {@code segments}.
+     * @throws IllegalArgumentException if the configured engine is unknown.
+     */
+    @Bean
+    public StorageEngine storageEngine() {
+        StorageEngine storageEngine = StorageEngine.valueOf(storage.trim().toUpperCase(Locale.ROOT));
+        LOGGER.info("Storage engine: {}", storageEngine);
+        return storageEngine;
+    }
+
+    /**
+     * @return the {@link Directory} where the search index of the code snippets is persisted.
+     */
+    @Bean("index")
+    public Directory indexDirectory(@Qualifier("data") Directory dataDirectory) {
+        return dataDirectory.getSubDirectory("index");
+    }
+
+    /**
+     * @return the {@link Directory} where the journal of the changed snippet files is located.
+     */
+    @Bean("journal")
+    public Directory journalDirectory(@Qualifier("data") Directory dataDirectory) {
+        return dataDirectory.getSubDirectory("journal");
+    }
+
     /**
      * @return the {@link Directory} where the binary executables of {CodeStore} are located.
      */
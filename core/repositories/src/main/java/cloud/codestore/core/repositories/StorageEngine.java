@@ -0,0 +1,17 @@
+package cloud.codestore.core.repositories;
+
+/**
+ * The engines which store the code snippets.
+ * The engine is selected by the property {@code codestore.storage}.
+ */
+public enum StorageEngine {
+    /**
+     * Every code snippet is stored in a separate JSON file.
+     */
+    FILES,
+
+    /**
+     * The code snippets are appended to large, memory-mapped segment files.
+     */
+    SEGMENTS
+}
@@ -0,0 +1,138 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.SnippetNotExistsException;
+import cloud.codestore.core.repositories.RepositoryException;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * A decorator around a {@link SnippetStorage} which keeps recently read code snippets in a {@link SnippetCache}.
+ * Created and updated code snippets are written through to the cache, deleted ones are removed from it.
+ * A cached code snippet is only returned if the storage reports it as unchanged, so code snippets which were changed
+ * outside the application, for example by editing the snippet file, are read again.
+ */
+class CachedSnippetStorage implements SnippetStorage {
+    private final SnippetStorage storage;
+    private final SnippetCache cache;
+
+    CachedSnippetStorage(@Nonnull SnippetStorage storage, @Nonnull SnippetCache cache) {
+        this.storage = storage;
+        this.cache = cache;
+    }
+
+    @Override
+    public Stream<StoredSnippet> snippets() {
+        return storage.snippets();
+    }
+
+    @Override
+    public boolean contains(@Nonnull String snippetId) {
+        return storage.contains(snippetId);
+    }
+
+    @Override
+    public boolean isUnchanged(@Nonnull String snippetId, @Nonnull FileFingerprint fingerprint) {
+        return storage.isUnchanged(snippetId, fingerprint);
+    }
+
+    @Override
+    public FileFingerprint fingerprint(@Nonnull String snippetId) {
+        return storage.fingerprint(snippetId);
+    }
+
+    @Override
+    public FileFingerprint attributeFingerprint(@Nonnull String snippetId) {
+        return storage.attributeFingerprint(snippetId);
+    }
+
+    @Override
+    public boolean hasPendingChange(@Nonnull String snippetId) {
+        return storage.hasPendingChange(snippetId);
+    }
+
+    /**
+     * Code snippets are only read this way for indexing, which reads every code snippet once.
+     * So the result is not added to the cache.
+     */
+    @Override
+    public Snippet readSnippet(@Nonnull String snippetId) {
+        Snippet snippet = cached(snippetId);
+        return snippet == null ? storage.readSnippet(snippetId) : snippet;
+    }
+
+    /**
+     * Code snippets which were deleted in the meantime are skipped.
+     */
+    @Override
+    public Stream<Snippet> readSnippets(@Nonnull Stream<String> snippetIds) {
+        return snippetIds.map(snippetId -> {
+                             Snippet snippet = cached(snippetId);
+                             if (snippet == null && storage.contains(snippetId)) {
+                                 snippet = load(snippetId);
+                             }
+
+                             return snippet;
+                         })
+                         .filter(Objects::nonNull);
+    }
+
+    @Override
+    public void create(@Nonnull Snippet snippet) {
+        storage.create(snippet);
+        cache.put(snippet, storage.attributeFingerprint(snippet.getId()));
+    }
+
+    @Override
+    public Snippet read(@Nonnull String snippetId) throws SnippetNotExistsException {
+        Snippet snippet = cached(snippetId);
+        if (snippet != null)
+            return snippet;
+
+        if (!storage.contains(snippetId))
+            throw new SnippetNotExistsException();
+
+        return load(snippetId);
+    }
+
+    @Override
+    public void update(@Nonnull Snippet snippet) throws SnippetNotExistsException {
+        cache.invalidate(snippet.getId());
+        storage.update(snippet);
+        cache.put(snippet, storage.attributeFingerprint(snippet.getId()));
+    }
+
+    @Override
+    public void delete(@Nonnull String snippetId) throws SnippetNotExistsException {
+        cache.invalidate(snippetId);
+        storage.delete(snippetId);
+    }
+
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    private Snippet cached(String snippetId) {
+        return cache.get(snippetId, fingerprint -> {
+            try {
+                return storage.isUnchanged(snippetId, fingerprint);
+            } catch (RepositoryException exception) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Reads a code snippet from the storage and adds it to the cache. The fingerprint is determined first,
+     * so that a concurrent change results in an outdated fingerprint rather than an outdated code snippet.
+     */
+    private Snippet load(String snippetId) {
+        FileFingerprint fingerprint = storage.attributeFingerprint(snippetId);
+        Snippet snippet = storage.readSnippet(snippetId);
+        cache.put(snippet, fingerprint);
+        return snippet;
+    }
+}
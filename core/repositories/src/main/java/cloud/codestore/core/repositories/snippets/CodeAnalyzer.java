@@ -0,0 +1,86 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Language;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.FlattenGraphFilter;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter;
+import org.apache.lucene.analysis.util.CharTokenizer;
+
+import javax.annotation.Nonnull;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter.*;
+
+/**
+ * Splits source code into identifiers and their subwords.
+ * An identifier consists of letters, digits and the characters which connect identifiers in the respective
+ * programming language, like {@code _} and {@code .}. Every identifier is emitted as a whole and split at
+ * case changes and connecting characters, so that {@code readSnippetsQuery} is found by {@code snippets} and
+ * {@code MAX_CODE_LENGTH} by {@code length}. All tokens are lower case.
+ * <p>
+ * The connecting characters depend on the programming language. For example, {@code -} is part of shell flags
+ * like {@code --no-cache} and of CSS properties like {@code background-color}, whereas it is an operator in most
+ * other languages.
+ */
+class CodeAnalyzer extends Analyzer {
+    private static final String DEFAULT_CONNECTORS = "_.$";
+    private static final int WORD_DELIMITER_FLAGS = GENERATE_WORD_PARTS
+                                                    | GENERATE_NUMBER_PARTS
+                                                    | SPLIT_ON_CASE_CHANGE
+                                                    | PRESERVE_ORIGINAL;
+    private static final Map<Language, CodeAnalyzer> ANALYZERS = new EnumMap<>(Language.class);
+
+    static {
+        for (Language language : Language.values()) {
+            ANALYZERS.put(language, new CodeAnalyzer(DEFAULT_CONNECTORS + connectors(language)));
+        }
+    }
+
+    private final String connectors;
+
+    private CodeAnalyzer(String connectors) {
+        this.connectors = connectors;
+    }
+
+    /**
+     * @return the analyzer for code of the given programming language.
+     */
+    @Nonnull
+    static Analyzer forLanguage(@Nonnull Language language) {
+        return ANALYZERS.get(language);
+    }
+
+    /**
+     * @return the analyzer for code of an unknown programming language and for searching code.
+     */
+    @Nonnull
+    static Analyzer forAnyLanguage() {
+        return ANALYZERS.get(Language.getDefault());
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = CharTokenizer.fromTokenCharPredicate(
+                character -> Character.isLetterOrDigit(character) || connectors.indexOf(character) >= 0
+        );
+
+        TokenStream tokens = new WordDelimiterGraphFilter(tokenizer, WORD_DELIMITER_FLAGS, null);
+        tokens = new LowerCaseFilter(tokens);
+        tokens = new FlattenGraphFilter(tokens);
+        return new TokenStreamComponents(tokenizer, tokens);
+    }
+
+    private static String connectors(Language language) {
+        return switch (language) {
+            case SHELL, DOCKERFILE, HTML, XML, CSS, LISP, YAML -> "-";
+            case BATCH -> "-/";
+            case CPP, RUBY, PERL, PHP -> ":";
+            case SQL -> "@";
+            default -> "";
+        };
+    }
+}
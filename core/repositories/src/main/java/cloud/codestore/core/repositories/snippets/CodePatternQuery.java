@@ -0,0 +1,250 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.CODE;
+
+/**
+ * Matches the code snippets whose code contains a match of a regular expression.
+ * The regular expression is only applied to the candidates which are found by another query, usually a
+ * {@link TrigramQueryBuilder trigram query}. When this query is rewritten, the code of the candidates is read from
+ * the stored fields and matched in parallel. All other stored fields are skipped.
+ * <p>
+ * The rewritten query only applies to the {@link IndexSearcher} which rewrote it. All matches get the same score.
+ * If the timeout of the searcher is exceeded, the remaining candidates are no longer verified and do not match.
+ */
+class CodePatternQuery extends Query {
+    /**
+     * The number of candidates which are verified by a single task.
+     */
+    private static final int CANDIDATES_PER_TASK = 256;
+
+    private final Query candidates;
+    private final Pattern pattern;
+
+    /**
+     * @param candidates a query which matches at least all code snippets that contain a match of the pattern.
+     * @param pattern the pattern which is searched in the code.
+     */
+    CodePatternQuery(@Nonnull Query candidates, @Nonnull Pattern pattern) {
+        this.candidates = candidates;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @return the pattern which is searched in the code.
+     */
+    @Nonnull
+    Pattern pattern() {
+        return pattern;
+    }
+
+    @Override
+    public Query rewrite(IndexSearcher searcher) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        List<Task> tasks = tasks(searcher, leaves);
+        QueryTimeout timeout = searcher.getTimeout();
+        List<int[]> matches;
+        try {
+            matches = tasks.parallelStream()
+                           .map(task -> timeout != null && timeout.shouldExit() ? new int[0] : verify(task))
+                           .toList();
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+
+        FixedBitSet[] matchesPerLeaf = new FixedBitSet[leaves.size()];
+        boolean matchesAny = false;
+        for (int i = 0; i < tasks.size(); i++) {
+            LeafReaderContext leaf = tasks.get(i).leaf();
+            for (int doc : matches.get(i)) {
+                if (matchesPerLeaf[leaf.ord] == null) {
+                    matchesPerLeaf[leaf.ord] = new FixedBitSet(leaf.reader().maxDoc());
+                }
+
+                matchesPerLeaf[leaf.ord].set(doc);
+                matchesAny = true;
+            }
+        }
+
+        return matchesAny ? new VerifiedQuery(matchesPerLeaf) : new MatchNoDocsQuery("No code matches " + pattern);
+    }
+
+    /**
+     * Splits the live candidates into tasks of at most {@link #CANDIDATES_PER_TASK} documents of the same segment.
+     */
+    private List<Task> tasks(IndexSearcher searcher, List<LeafReaderContext> leaves) throws IOException {
+        Weight weight = searcher.createWeight(searcher.rewrite(candidates), ScoreMode.COMPLETE_NO_SCORES, 1);
+        List<Task> tasks = new ArrayList<>();
+        for (LeafReaderContext leaf : leaves) {
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null)
+                continue;
+
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            DocIdSetIterator iterator = scorer.iterator();
+            int[] docs = new int[CANDIDATES_PER_TASK];
+            int count = 0;
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    docs[count++] = doc;
+                    if (count == docs.length) {
+                        tasks.add(new Task(leaf, docs));
+                        docs = new int[CANDIDATES_PER_TASK];
+                        count = 0;
+                    }
+                }
+            }
+
+            if (count > 0) {
+                tasks.add(new Task(leaf, Arrays.copyOf(docs, count)));
+            }
+        }
+
+        return tasks;
+    }
+
+    /**
+     * @return the candidates of the given task whose code contains a match of the pattern.
+     */
+    private int[] verify(Task task) {
+        try {
+            // stored fields must not be shared between threads
+            StoredFields storedFields = task.leaf().reader().storedFields();
+            Matcher matcher = pattern.matcher("");
+            int[] matches = new int[task.docs().length];
+            int count = 0;
+            for (int doc : task.docs()) {
+                var visitor = new CodeVisitor();
+                storedFields.document(doc, visitor);
+                if (visitor.code != null && matcher.reset(visitor.code).find()) {
+                    matches[count++] = doc;
+                }
+            }
+
+            return Arrays.copyOf(matches, count);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(CODE)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    @Override
+    public String toString(String field) {
+        return "CodePattern(" + pattern + " in " + candidates.toString(field) + ")";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) &&
+               candidates.equals(((CodePatternQuery) other).candidates) &&
+               pattern.pattern().equals(((CodePatternQuery) other).pattern.pattern()) &&
+               pattern.flags() == ((CodePatternQuery) other).pattern.flags();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), candidates, pattern.pattern(), pattern.flags());
+    }
+
+    /**
+     * @param leaf the segment which contains the candidates.
+     * @param docs the candidates relative to the segment.
+     */
+    private record Task(LeafReaderContext leaf, int[] docs) {}
+
+    /**
+     * Loads the code and skips all other stored fields.
+     */
+    private static class CodeVisitor extends StoredFieldVisitor {
+        private String code;
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            if (code != null)
+                return Status.STOP;
+
+            return CODE.equals(fieldInfo.name) ? Status.YES : Status.NO;
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, String value) {
+            code = value;
+        }
+    }
+
+    /**
+     * Matches the verified documents of every segment.
+     */
+    private static class VerifiedQuery extends Query {
+        private final FixedBitSet[] matchesPerLeaf;
+
+        private VerifiedQuery(FixedBitSet[] matchesPerLeaf) {
+            this.matchesPerLeaf = matchesPerLeaf;
+        }
+
+        @Override
+        public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+            return new ConstantScoreWeight(this, boost) {
+                @Override
+                public Scorer scorer(LeafReaderContext context) {
+                    FixedBitSet matches = matchesPerLeaf[context.ord];
+                    if (matches == null)
+                        return null;
+
+                    var iterator = new BitSetIterator(matches, matches.cardinality());
+                    return new ConstantScoreScorer(this, score(), scoreMode, iterator);
+                }
+
+                @Override
+                public boolean isCacheable(LeafReaderContext context) {
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public void visit(QueryVisitor visitor) {
+            visitor.visitLeaf(this);
+        }
+
+        @Override
+        public String toString(String field) {
+            return "VerifiedCodePattern";
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.AnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Describes the prefixes of every token which are indexed to support search-as-you-type.
+ * A search token whose length lies within the gram sizes is looked up as a single term instead of
+ * expanding a prefix query into all matching terms of the index.
+ *
+ * @param minGram the length of the shortest indexed prefix.
+ * @param maxGram the length of the longest indexed prefix.
+ */
+record EdgeNGrams(int minGram, int maxGram) {
+    static final EdgeNGrams DEFAULT = new EdgeNGrams(1, 4);
+
+    /**
+     * @throws IllegalArgumentException if the gram sizes do not describe a valid range.
+     */
+    EdgeNGrams {
+        if (minGram < 1 || maxGram < minGram)
+            throw new IllegalArgumentException("Invalid edge n-gram sizes: " + minGram + " to " + maxGram);
+    }
+
+    /**
+     * @return whether the given search token is indexed as a prefix.
+     */
+    boolean contains(@Nonnull String token) {
+        return token.length() >= minGram && token.length() <= maxGram;
+    }
+
+    /**
+     * @param analyzer the analyzer which splits a text into tokens.
+     * @return an analyzer which emits the prefixes of the tokens of the given analyzer instead of the tokens.
+     */
+    @Nonnull
+    Analyzer analyzer(@Nonnull Analyzer analyzer) {
+        return new AnalyzerWrapper(analyzer.getReuseStrategy()) {
+            @Override
+            protected Analyzer getWrappedAnalyzer(String fieldName) {
+                return analyzer;
+            }
+
+            @Override
+            protected TokenStreamComponents wrapComponents(String fieldName, TokenStreamComponents components) {
+                var prefixes = new EdgeNGramTokenFilter(components.getTokenStream(), minGram, maxGram, false);
+                return new TokenStreamComponents(components.getSource(), prefixes);
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.File;
+
+import javax.annotation.Nonnull;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32C;
+
+/**
+ * Describes the state of a snippet file at the time it was indexed.
+ * The size and modification time are compared first, since they are available without reading the file.
+ * The checksum of the content is only required if the attributes differ.
+ *
+ * @param size         the size of the file in bytes.
+ * @param lastModified the last modification time of the file in milliseconds since the epoch.
+ * @param checksum     a CRC32C checksum of the file content.
+ */
+record FileFingerprint(long size, long lastModified, long checksum) {
+    /**
+     * Creates the fingerprint of the given file by reading its attributes and its content.
+     *
+     * @param file an existing file.
+     * @return the fingerprint of the file.
+     */
+    @Nonnull
+    static FileFingerprint of(@Nonnull File file) {
+        BasicFileAttributes attributes = file.readAttributes();
+        return new FileFingerprint(
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                checksum(file.readBytes())
+        );
+    }
+
+    /**
+     * Creates the fingerprint of a file which will be written with the given content and modification time.
+     *
+     * @param content the content of the file.
+     * @param lastModified the modification time of the file in milliseconds since the epoch.
+     * @return the fingerprint of the file once it is written.
+     */
+    @Nonnull
+    static FileFingerprint of(@Nonnull byte[] content, long lastModified) {
+        return new FileFingerprint(content.length, lastModified, checksum(content));
+    }
+
+    /**
+     * Creates a fingerprint from the attributes of a file without reading its content.
+     * As it lacks the checksum, it must only be compared by {@link #matches(BasicFileAttributes)}.
+     *
+     * @param attributes the attributes of a file.
+     * @return the fingerprint of the file without checksum.
+     */
+    @Nonnull
+    static FileFingerprint of(@Nonnull BasicFileAttributes attributes) {
+        return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), 0);
+    }
+
+    /**
+     * @param attributes the current attributes of the corresponding file.
+     * @return whether the size and the modification time of the file are unchanged.
+     */
+    boolean matches(@Nonnull BasicFileAttributes attributes) {
+        return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * @param current the current fingerprint of the corresponding file, which may lack the checksum.
+     * @return whether the size, the modification time and, if known, the checksum of the file are unchanged.
+     */
+    boolean matches(@Nonnull FileFingerprint current) {
+        return size == current.size && lastModified == current.lastModified &&
+               (current.checksum == 0 || checksum == current.checksum);
+    }
+
+    /**
+     * @param other another fingerprint of the same file.
+     * @return whether both fingerprints describe the same file content.
+     */
+    boolean hasSameContent(@Nonnull FileFingerprint other) {
+        return size == other.size && checksum == other.checksum;
+    }
+
+    private static long checksum(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
@@ -4,89 +4,205 @@ import cloud.codestore.core.Snippet;
 import cloud.codestore.core.SnippetNotExistsException;
 import cloud.codestore.core.repositories.Directory;
 import cloud.codestore.core.repositories.File;
-import cloud.codestore.core.usecases.createsnippet.CreateSnippetQuery;
-import cloud.codestore.core.usecases.deletesnippet.DeleteSnippetQuery;
-import cloud.codestore.core.usecases.readsnippet.ReadSnippetQuery;
-import cloud.codestore.core.usecases.updatesnippet.UpdateSnippetQuery;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.stream.Stream;
 
 /**
- * Represents a repository which loads/saves the code snippets on the file system.
+ * Represents a repository which loads/saves the code snippets on the file system. Every code snippet is stored
+ * in a separate JSON file, whose location is determined by the {@link SnippetFileLayout}.
+ * If a {@link SnippetJournal} is available, changes are recorded in the journal and written to the snippet files
+ * in the background. Until then, the code snippets are read from the journal.
  */
-@Component
-class FileSystemRepository implements CreateSnippetQuery, UpdateSnippetQuery, DeleteSnippetQuery, ReadSnippetQuery {
+class FileSystemRepository implements SnippetStorage {
     static final String JSON_FILE_EXTENSION = ".json";
 
     private final Directory snippetsDirectory;
     private final SnippetReader snippetReader;
     private final SnippetWriter snippetWriter;
+    private final SnippetJournal journal;
+    private final SnippetFileLayout layout;
 
+    /**
+     * Creates a repository which writes the snippet files directly.
+     */
     FileSystemRepository(
-            @Qualifier("snippets") Directory snippetsDirectory,
+            Directory snippetsDirectory,
             SnippetReader snippetReader,
             SnippetWriter snippetWriter
+    ) {
+        this(snippetsDirectory, snippetReader, snippetWriter, null);
+    }
+
+    FileSystemRepository(
+            Directory snippetsDirectory,
+            SnippetReader snippetReader,
+            SnippetWriter snippetWriter,
+            @Nullable SnippetJournal journal
+    ) {
+        this(snippetsDirectory, snippetReader, snippetWriter, journal, SnippetFileLayout.FLAT);
+    }
+
+    FileSystemRepository(
+            Directory snippetsDirectory,
+            SnippetReader snippetReader,
+            SnippetWriter snippetWriter,
+            @Nullable SnippetJournal journal,
+            SnippetFileLayout layout
     ) {
         this.snippetsDirectory = snippetsDirectory;
         this.snippetReader = snippetReader;
         this.snippetWriter = snippetWriter;
+        this.journal = journal;
+        this.layout = layout;
     }
 
     /**
-     * @return all available code snippets as stream.
+     * @return the files of all available code snippets as lazy stream, which must be closed after use.
+     * Temporary files which are about to replace a snippet file are not included.
      */
-    Stream<Snippet> readSnippets() {
-        return snippetsDirectory.getFiles()
-                                .stream()
-                                .map(snippetReader::read);
+    Stream<File> readSnippetFiles() {
+        return layout.snippetFiles(snippetsDirectory);
     }
 
     /**
-     * Loads all snippets defined by the given IDs.
-     * @param snippetIds a stream of snippet IDs.
-     * @return the corresponding code snippets.
+     * The size and the modification time are read while the snippets directory is enumerated.
+     * A pending change is not considered, as such a code snippet is not synchronized anyway.
      */
-    Stream<Snippet> readSnippets(@Nonnull Stream<String> snippetIds) {
-        return snippetIds.map(this::file)
-                         .map(snippetReader::read);
+    @Override
+    public Stream<StoredSnippet> snippets() {
+        return readSnippetFiles().map(file -> new StoredSnippet(
+                getSnippetId(file),
+                FileFingerprint.of(file.attributes())
+        ));
+    }
+
+    @Override
+    public boolean contains(@Nonnull String snippetId) {
+        SnippetJournal.Change change = pendingChange(snippetId);
+        return change == null ? file(snippetId).exists() : !change.isDeletion();
+    }
+
+    /**
+     * Compares the size and the modification time of the snippet file with the fingerprint.
+     * A pending change is compared instead, as it determines the size and the modification time of the snippet file
+     * once it is written.
+     */
+    @Override
+    public boolean isUnchanged(@Nonnull String snippetId, @Nonnull FileFingerprint fingerprint) {
+        SnippetJournal.Change change = pendingChange(snippetId);
+        if (change != null) {
+            return !change.isDeletion() &&
+                   fingerprint.size() == change.content().length &&
+                   fingerprint.lastModified() == change.lastModified();
+        }
+
+        return fingerprint.matches(file(snippetId).readAttributes());
+    }
+
+    @Override
+    public FileFingerprint fingerprint(@Nonnull String snippetId) {
+        SnippetJournal.Change change = pendingChange(snippetId);
+        if (change != null && !change.isDeletion()) {
+            return FileFingerprint.of(change.content(), change.lastModified());
+        }
+
+        return FileFingerprint.of(file(snippetId));
+    }
+
+    /**
+     * Only reads the attributes of the snippet file.
+     */
+    @Override
+    public FileFingerprint attributeFingerprint(@Nonnull String snippetId) {
+        SnippetJournal.Change change = pendingChange(snippetId);
+        if (change != null && !change.isDeletion()) {
+            return new FileFingerprint(change.content().length, change.lastModified(), 0);
+        }
+
+        return FileFingerprint.of(file(snippetId).readAttributes());
+    }
+
+    /**
+     * A change is pending if it is recorded in the journal but not written to the snippet file yet.
+     */
+    @Override
+    public boolean hasPendingChange(@Nonnull String snippetId) {
+        return pendingChange(snippetId) != null;
+    }
+
+    /**
+     * @param file a snippet file.
+     * @return the ID of the code snippet which is stored in the given file.
+     */
+    static String getSnippetId(@Nonnull File file) {
+        String fileName = file.getName();
+        return fileName.substring(0, fileName.length() - JSON_FILE_EXTENSION.length());
+    }
+
+    @Override
+    public Stream<Snippet> readSnippets(@Nonnull Stream<String> snippetIds) {
+        return snippetIds.map(this::readSnippet);
     }
 
     @Override
     public void create(@Nonnull Snippet snippet) {
-        File file = file(snippet.getId());
-        snippetWriter.write(snippet, file);
+        save(snippet);
     }
 
     @Override
     public Snippet read(@Nonnull String snippetId) throws SnippetNotExistsException {
-        File file = existingFile(snippetId);
-        return snippetReader.read(file);
+        verifyExists(snippetId);
+        return readSnippet(snippetId);
     }
 
     @Override
     public void update(@Nonnull Snippet snippet) throws SnippetNotExistsException {
-        File file = existingFile(snippet.getId());
-        snippetWriter.write(snippet, file);
+        verifyExists(snippet.getId());
+        save(snippet);
     }
 
     @Override
     public void delete(@Nonnull String snippetId) throws SnippetNotExistsException {
-        existingFile(snippetId).delete();
+        verifyExists(snippetId);
+        if (journal == null) {
+            file(snippetId).delete();
+        } else {
+            journal.delete(snippetId);
+        }
+    }
+
+    private void save(Snippet snippet) {
+        if (journal == null) {
+            snippetWriter.write(snippet, file(snippet.getId()));
+        } else {
+            journal.put(snippet.getId(), snippetWriter.toJson(snippet));
+        }
     }
 
-    private File existingFile(String snippetId) throws SnippetNotExistsException {
-        File file = file(snippetId);
-        if (!file.exists()) {
+    @Override
+    public Snippet readSnippet(@Nonnull String snippetId) {
+        SnippetJournal.Change change = pendingChange(snippetId);
+        if (change != null && !change.isDeletion()) {
+            return snippetReader.read(snippetId, change.content());
+        }
+
+        return snippetReader.read(file(snippetId));
+    }
+
+    private void verifyExists(String snippetId) throws SnippetNotExistsException {
+        if (!contains(snippetId)) {
             throw new SnippetNotExistsException();
         }
+    }
 
-        return file;
+    @Nullable
+    private SnippetJournal.Change pendingChange(String snippetId) {
+        return journal == null ? null : journal.pending(snippetId);
     }
 
     private File file(String snippetId) {
-        return snippetsDirectory.getFile(snippetId + JSON_FILE_EXTENSION);
+        return layout.file(snippetsDirectory, snippetId);
     }
 }
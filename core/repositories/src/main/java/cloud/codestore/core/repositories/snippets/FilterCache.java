@@ -0,0 +1,198 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.*;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the documents which match the language and tag filters of the {@link FilterQueryBuilder}.
+ * The matches are cached per segment, so they remain valid when the index is reopened after a change.
+ * <p>
+ * Unlike the default policy of Lucene, which caches a query only after it was used several times and never caches
+ * term queries, the filters are cached on their first use. The other queries are cached as usual.
+ * The cache also counts how often every filter is used, so that the most used filters can be computed for the
+ * segments of a reopened index before the first search needs them.
+ */
+class FilterCache implements QueryCachingPolicy {
+    private static final int MAX_CACHED_QUERIES = 256;
+    private static final long MAX_RAM_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Small segments are filtered faster than their matches could be looked up.
+     * Besides, they are merged soon, which would discard their cached matches.
+     */
+    static final int MIN_SEGMENT_DOCS = 1000;
+
+    /**
+     * The factor by which a filter may match more documents than the search which it restricts
+     * and is still cached. The default of Lucene is 10.
+     */
+    private static final float SKIP_CACHE_FACTOR = 50;
+
+    /**
+     * The number of filters whose usage is counted. If more filters are used, all counts are halved
+     * and the filters which were used only once are forgotten, so that recently used filters win.
+     */
+    private static final int MAX_TRACKED_FILTERS = 512;
+    private static final int DEFAULT_WARMED_FILTERS = 16;
+
+    private final LRUQueryCache cache;
+    private final QueryCachingPolicy defaultPolicy = new UsageTrackingQueryCachingPolicy();
+    private final Map<Query, AtomicInteger> usage = new ConcurrentHashMap<>();
+    private final int warmedFilters;
+
+    FilterCache() {
+        this(DEFAULT_WARMED_FILTERS, MIN_SEGMENT_DOCS);
+    }
+
+    /**
+     * @param warmedFilters the number of most used filters which are computed whenever the index is reopened.
+     * @param minSegmentDocs the number of documents from which the matches of a segment are cached.
+     */
+    FilterCache(int warmedFilters, int minSegmentDocs) {
+        this.warmedFilters = warmedFilters;
+        this.cache = new LRUQueryCache(
+                MAX_CACHED_QUERIES,
+                MAX_RAM_BYTES,
+                leaf -> leaf.reader().maxDoc() >= minSegmentDocs,
+                SKIP_CACHE_FACTOR
+        );
+    }
+
+    /**
+     * Lets the given searcher cache its filters in this cache.
+     */
+    void configure(@Nonnull IndexSearcher searcher) {
+        searcher.setQueryCache(cache);
+        searcher.setQueryCachingPolicy(this);
+    }
+
+    /**
+     * Computes the matches of the most used filters for the segments of the given reader which are not cached yet.
+     * Called whenever the index was reopened, before the new reader is used by any search.
+     */
+    void warm(@Nonnull IndexReader reader) throws IOException {
+        List<Query> filters = mostUsed(warmedFilters);
+        if (filters.isEmpty())
+            return;
+
+        // a separate searcher, so that warming up neither counts as usage nor runs on the search threads
+        var searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(cache);
+        searcher.setQueryCachingPolicy(AlwaysCache.INSTANCE);
+        for (Query filter : filters) {
+            searcher.search(filter, MatchVisitor.MANAGER);
+        }
+    }
+
+    /**
+     * @return the given number of filters which were used most often, the most used filter first.
+     */
+    @Nonnull
+    List<Query> mostUsed(int limit) {
+        return usage.entrySet()
+                    .stream()
+                    .sorted(Map.Entry.<Query, AtomicInteger>comparingByValue(
+                            (a, b) -> Integer.compare(b.get(), a.get())
+                    ))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+    }
+
+    /**
+     * @return the number of times a cached match set was used instead of evaluating a query.
+     */
+    long hitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * @return the number of match sets which were computed and cached.
+     */
+    long cacheCount() {
+        return cache.getCacheCount();
+    }
+
+    @Override
+    public void onUse(Query query) {
+        if (isFilter(query)) {
+            if (usage.size() >= MAX_TRACKED_FILTERS && !usage.containsKey(query)) {
+                decay();
+            }
+
+            usage.computeIfAbsent(query, key -> new AtomicInteger()).incrementAndGet();
+        } else {
+            defaultPolicy.onUse(query);
+        }
+    }
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+        return isFilter(query) || defaultPolicy.shouldCache(query);
+    }
+
+    /**
+     * @return whether the given query is a single filter which was created by the {@link FilterQueryBuilder}.
+     */
+    static boolean isFilter(Query query) {
+        if (query instanceof TermQuery termQuery)
+            return termQuery.getTerm().field().equals(SnippetIndex.SnippetField.TAG);
+        if (query instanceof PointRangeQuery pointRangeQuery)
+            return pointRangeQuery.getField().equals(SnippetIndex.SnippetField.LANGUAGE_ID);
+
+        return false;
+    }
+
+    private synchronized void decay() {
+        usage.values().removeIf(count -> count.updateAndGet(value -> value / 2) == 0);
+    }
+
+    /**
+     * Caches every query, which Lucene does not provide out of the box.
+     */
+    private static final class AlwaysCache implements QueryCachingPolicy {
+        private static final QueryCachingPolicy INSTANCE = new AlwaysCache();
+
+        @Override
+        public void onUse(Query query) {}
+
+        @Override
+        public boolean shouldCache(Query query) {
+            return true;
+        }
+    }
+
+    /**
+     * Visits all matches without scoring them, so that the caching searcher computes the complete match set.
+     * Counting the hits would not suffice, as a term query is counted from the index statistics.
+     */
+    private static final class MatchVisitor extends SimpleCollector {
+        private static final CollectorManager<MatchVisitor, Void> MANAGER = new CollectorManager<>() {
+            @Override
+            public MatchVisitor newCollector() {
+                return new MatchVisitor();
+            }
+
+            @Override
+            public Void reduce(Collection<MatchVisitor> collectors) {
+                return null;
+            }
+        };
+
+        @Override
+        public void collect(int doc) {}
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
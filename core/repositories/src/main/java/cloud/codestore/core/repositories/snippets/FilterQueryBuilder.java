@@ -1,14 +1,21 @@
 package cloud.codestore.core.repositories.snippets;
 
+import cloud.codestore.core.Language;
+import cloud.codestore.core.usecases.listsnippets.DateRange;
 import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 
 import java.util.Collection;
 
-import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.LANGUAGE;
-import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.TAG;
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.*;
 
+/**
+ * Builds the query which restricts the code snippets to the filtered language, tags and time ranges.
+ * The filters do not contribute to the score, so their matches are cached by the {@link FilterCache}.
+ */
 class FilterQueryBuilder {
     private final FilterProperties filterProperties;
     private final BooleanQuery.Builder filterQuery = new BooleanQuery.Builder();
@@ -24,29 +31,51 @@ class FilterQueryBuilder {
 
         filterByLanguage(filterProperties.languageName());
         filterByTags(filterProperties.tags());
+        filterByDate(CREATED, filterProperties.created());
+        filterByDate(MODIFIED, filterProperties.modified());
         return filterQuery.build();
     }
 
+    /**
+     * The language is filtered by its ID. It can be provided either as ID or as name.
+     */
     private void filterByLanguage(String languageName) {
         if (!languageName.isBlank()) {
-            languageName = languageName.toLowerCase();
-            if (languageName.equals("shell script"))
-                languageName = "shell";
-            else if (languageName.equals("batch script"))
-                languageName = "batch";
-
-            addFilter(LANGUAGE, languageName);
+            Language language = language(languageName);
+            addFilter(language == null ? new MatchNoDocsQuery() : IntPoint.newExactQuery(LANGUAGE_ID, language.getId()));
         }
     }
 
     private void filterByTags(Collection<String> tags) {
         for (String tag : tags) {
-            addFilter(TAG, SnippetIndex.normalize(tag));
+            addFilter(new TermQuery(new Term(TAG, SnippetIndex.normalize(tag))));
+        }
+    }
+
+    /**
+     * The timestamps are indexed in seconds, so the bounds of the range are truncated to seconds.
+     * The range is matched through the points of the field, which are organized in a BKD tree.
+     */
+    private void filterByDate(String field, DateRange range) {
+        if (!range.isUnbounded()) {
+            long from = range.from() == null ? Long.MIN_VALUE : range.from().toEpochSecond();
+            long until = range.until() == null ? Long.MAX_VALUE : range.until().toEpochSecond();
+            addFilter(LongPoint.newRangeQuery(field, from, until));
         }
     }
 
-    private void addFilter(String field, String value) {
-        Query query = new TermQuery(new Term(field, value));
-        filterQuery.add(query, BooleanClause.Occur.MUST);
+    private void addFilter(Query query) {
+        filterQuery.add(query, BooleanClause.Occur.FILTER);
+    }
+
+    private static Language language(String languageName) {
+        String normalizedName = SnippetIndex.normalizeLanguage(languageName);
+        for (Language language : Language.values()) {
+            if (String.valueOf(language.getId()).equals(languageName) ||
+                SnippetIndex.normalizeLanguage(language.getName()).equals(normalizedName))
+                return language;
+        }
+
+        return null;
     }
 }
@@ -2,98 +2,307 @@ package cloud.codestore.core.repositories.snippets;
 
 import cloud.codestore.core.Snippet;
 import cloud.codestore.core.SnippetNotExistsException;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.snippets.SnippetStorage.StoredSnippet;
 import cloud.codestore.core.repositories.tags.TagRepository;
 import cloud.codestore.core.usecases.createsnippet.CreateSnippetQuery;
 import cloud.codestore.core.usecases.deletesnippet.DeleteSnippetQuery;
-import cloud.codestore.core.usecases.listsnippets.FilterProperties;
 import cloud.codestore.core.usecases.listsnippets.ReadSnippetsQuery;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
 import cloud.codestore.core.usecases.listsnippets.SearchResult;
+import cloud.codestore.core.usecases.listsnippets.SnippetListRequest;
+import cloud.codestore.core.usecases.listsnippets.SnippetSummary;
 import cloud.codestore.core.usecases.listsnippets.SortProperties;
 import cloud.codestore.core.usecases.readsnippet.ReadSnippetQuery;
 import cloud.codestore.core.usecases.updatesnippet.UpdateSnippetQuery;
-import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
-import java.util.List;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField;
 
 /**
- * A decorator around the {@link FileSystemRepository} which stores code snippets in the {@link SnippetIndex}.
+ * A decorator around the {@link SnippetStorage} which stores code snippets in the {@link SnippetIndex}.
  */
 @Primary
 @Component
 class IndexedSnippetRepository implements CreateSnippetQuery, UpdateSnippetQuery, DeleteSnippetQuery, ReadSnippetQuery, ReadSnippetsQuery {
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexedSnippetRepository.class);
 
+    /**
+     * The number of exact hits below which the {@link SearchMode#FUZZY fuzzy search} also matches similar terms.
+     */
+    private static final int MIN_EXACT_HITS = 5;
+
     private SnippetIndex index;
-    private FileSystemRepository fsRepo;
+    private SnippetStorage storage;
     private TagRepository tagRepository;
+    private QueryCache queryCache;
+    private IndexingPipeline pipeline;
+    private final LongAdder timedOutSearches = new LongAdder();
+    private final LongAdder cancelledSearches = new LongAdder();
 
-    IndexedSnippetRepository(SnippetIndex index, FileSystemRepository fsRepo, TagRepository tagRepository) {
+    /**
+     * @param indexingWorkers the number of threads which read and index the snippet files when synchronizing
+     *                        the index or {@code 0} to use one thread per available processor.
+     */
+    IndexedSnippetRepository(
+            SnippetIndex index,
+            SnippetStorage storage,
+            TagRepository tagRepository,
+            QueryCache queryCache,
+            @Value("${codestore.indexing.workers:0}") int indexingWorkers
+    ) {
         this.index = index;
-        this.fsRepo = fsRepo;
+        this.storage = storage;
         this.tagRepository = tagRepository;
-        indexAllSnippets();
+        this.queryCache = queryCache;
+        this.pipeline = new IndexingPipeline(indexingWorkers);
+        synchronizeIndex();
     }
 
     @Override
     public void create(@Nonnull Snippet snippet) {
-        fsRepo.create(snippet);
-        index.add(snippet);
+        storage.create(snippet);
+        index.add(snippet, storage.fingerprint(snippet.getId()));
     }
 
     @Override
     public void update(@Nonnull Snippet snippet) throws SnippetNotExistsException {
-        fsRepo.update(snippet);
-        index.update(snippet);
+        storage.update(snippet);
+        index.update(snippet, storage.fingerprint(snippet.getId()));
     }
 
     @Override
     public void delete(@Nonnull String snippetId) throws SnippetNotExistsException {
-        fsRepo.delete(snippetId);
+        storage.delete(snippetId);
         index.remove(snippetId);
     }
 
+    /**
+     * Reads the IDs of the found snippets from the {@link QueryCache} as long as the index is unchanged.
+     * The snippets themselves are always read from the storage.
+     * The matches of the search are highlighted for the snippets of the requested page only.
+     */
+    @Override
+    public SearchResult<Snippet> readSnippets(@Nonnull SnippetListRequest request, int pageSize) {
+        var key = QueryCache.Key.of(request, pageSize, String.class);
+        SnippetIndex.SearchHits<String> hits = queryCache.get(key, index.generation(), () -> search(
+                request,
+                queryBuilder -> index.query(searchRequest(queryBuilder, request, pageSize))
+        ), result -> !result.partial());
+        return new SearchResult<>(
+                hits.totalCount(),
+                storage.readSnippets(hits.hits().stream()),
+                hits.facets(),
+                hits.highlights(),
+                hits.partial()
+        );
+    }
+
+    /**
+     * Reads the summaries directly from the index, so that no snippet file has to be read.
+     * The summaries are cached like the IDs of {@link #readSnippets}.
+     */
     @Override
-    public SearchResult readSnippets(
-            @Nonnull String search,
-            @Nonnull FilterProperties filterProperties,
-            @Nonnull SortProperties sortProperties
+    public SearchResult<SnippetSummary> readSnippetSummaries(@Nonnull SnippetListRequest request, int pageSize) {
+        var key = QueryCache.Key.of(request, pageSize, SnippetSummary.class);
+        SnippetIndex.SearchHits<SnippetSummary> hits = queryCache.get(key, index.generation(), () -> search(
+                request,
+                queryBuilder -> index.querySummaries(searchRequest(queryBuilder, request, pageSize))
+        ), result -> !result.partial());
+        return new SearchResult<>(hits.totalCount(), hits.hits().stream(), hits.facets(), hits.highlights(), hits.partial());
+    }
+
+    /**
+     * Executes the given search. In the {@link SearchMode#FUZZY fuzzy mode}, the search is repeated with similar
+     * terms if fewer than {@link #MIN_EXACT_HITS} code snippets match exactly. As the decision depends on the
+     * total number of hits only, all pages of a result are read from the same query.
+     * A search which exhausted its budget is not repeated, as its total number of hits is incomplete.
+     */
+    private <T> SnippetIndex.SearchHits<T> search(
+            SnippetListRequest request,
+            Function<QueryBuilder, SnippetIndex.SearchHits<T>> searchAction
     ) {
-        Query query = new QueryBuilder(search, filterProperties).build();
-        SortField sortField = toSortFields(sortProperties);
-        List<String> snippetIds = index.query(query, sortField);
-        return new SearchResult(snippetIds.size(), fsRepo.readSnippets(snippetIds.stream()));
+        String search = request.search();
+        SearchMode searchMode = request.searchMode();
+        var queryBuilder = new QueryBuilder(search, searchMode, request.filterProperties(), index.edgeNGrams());
+        SnippetIndex.SearchHits<T> hits = searchAction.apply(queryBuilder);
+        if (searchMode == SearchMode.FUZZY && !search.isBlank() && !hits.partial() && hits.totalCount() < MIN_EXACT_HITS) {
+            queryBuilder.matchSimilarTerms();
+            hits = searchAction.apply(queryBuilder);
+        }
+
+        if (hits.partial()) {
+            if (request.budget().isCancelled()) {
+                cancelledSearches.increment();
+                LOGGER.debug("Search \"{}\" was cancelled ({} cancelled searches).", search, cancelledSearches);
+            } else {
+                timedOutSearches.increment();
+                LOGGER.info("Search \"{}\" timed out ({} timed out searches).", search, timedOutSearches);
+            }
+        }
+
+        return hits;
+    }
+
+    private SnippetIndex.SearchRequest searchRequest(QueryBuilder queryBuilder, SnippetListRequest request, int pageSize) {
+        return new SnippetIndex.SearchRequest(
+                queryBuilder.build(),
+                toSortFields(request.sortProperties()),
+                request.offset(pageSize),
+                pageSize,
+                request.facets(),
+                queryBuilder.buildHighlightQuery(),
+                request.budget()::isExhausted
+        );
+    }
+
+    /**
+     * @return how often a search exhausted its time budget and returned a partial result.
+     */
+    long timedOutSearches() {
+        return timedOutSearches.sum();
+    }
+
+    /**
+     * @return how often a search was cancelled before it was finished.
+     */
+    long cancelledSearches() {
+        return cancelledSearches.sum();
     }
 
     @Override
     public Snippet read(@Nonnull String snippetId) throws SnippetNotExistsException {
-        return fsRepo.read(snippetId);
+        return storage.read(snippetId);
     }
 
-    private void indexAllSnippets() {
-        long startTime = System.currentTimeMillis();
+    /**
+     * Applies changes of the given snippet files which were made outside the application.
+     * Files which no longer exist are removed from the index. Files which cannot be read, for example because
+     * they are still being written, are skipped until they change again. Files with a pending change in the
+     * {@link SnippetJournal} are skipped, as the index already contains the change.
+     *
+     * @param files the changed snippet files.
+     */
+    void synchronize(@Nonnull Collection<File> files) {
+        Map<String, FileFingerprint> indexedFiles = new ConcurrentHashMap<>(index.fingerprints());
+        Stream<String> snippetIds = files.stream().map(FileSystemRepository::getSnippetId);
+        index.batch(batch -> pipeline.process(snippetIds, skipUnreadableSnippets(snippetId -> {
+            if (storage.hasPendingChange(snippetId)) {
+                return;
+            }
+
+            if (storage.contains(snippetId)) {
+                synchronize(snippetId, indexedFiles, batch);
+            } else if (indexedFiles.containsKey(snippetId)) {
+                batch.remove(snippetId);
+            }
+        }, Function.identity())));
+        tagRepository.add(index.tags());
+    }
 
-        Stream<Snippet> snippetStream = fsRepo.readSnippets();
-        snippetStream = snippetStream.peek(snippet -> tagRepository.add(snippet.getTags()));
-        index.add(snippetStream);
+    /**
+     * Compares all stored code snippets with the index and applies the differences, like on startup.
+     * This is necessary if single changes of the snippet files were missed.
+     * Code snippets which cannot be read are skipped until they change again.
+     */
+    void synchronizeDirectory() {
+        synchronizeAll(action -> skipUnreadableSnippets(action, StoredSnippet::snippetId));
+    }
 
+    /**
+     * Brings the persisted index up to date with the stored code snippets.
+     * Only the code snippets which were added, changed or removed since the index was last updated are processed.
+     * The code snippets are read, parsed and analyzed by the workers of the pipeline.
+     */
+    private void synchronizeIndex() {
+        long startTime = System.currentTimeMillis();
+        synchronizeAll(Function.identity());
         long endTime = System.currentTimeMillis();
-        LOGGER.info("Indexing finished after {}ms", endTime - startTime);
+        LOGGER.info("Indexing finished after {}ms using {} workers", endTime - startTime, pipeline.workers());
+    }
+
+    private void synchronizeAll(Function<Consumer<StoredSnippet>, Consumer<StoredSnippet>> errorHandling) {
+        Map<String, FileFingerprint> indexedFiles = new ConcurrentHashMap<>(index.fingerprints());
+        index.batch(batch -> {
+            Consumer<StoredSnippet> action = storedSnippet -> synchronize(storedSnippet, indexedFiles, batch);
+            try (Stream<StoredSnippet> storedSnippets = storage.snippets()) {
+                pipeline.process(storedSnippets, errorHandling.apply(action));
+            }
+
+            indexedFiles.keySet()
+                        .stream()
+                        .filter(snippetId -> !storage.hasPendingChange(snippetId))
+                        .forEach(batch::remove);
+        });
+        tagRepository.add(index.tags());
+    }
+
+    /**
+     * Compares the fingerprint which was determined while enumerating the stored code snippets,
+     * so the storage is not accessed again for unchanged code snippets.
+     */
+    private void synchronize(StoredSnippet storedSnippet, Map<String, FileFingerprint> indexedFiles, SnippetIndex.Batch batch) {
+        String snippetId = storedSnippet.snippetId();
+        FileFingerprint indexedFingerprint = indexedFiles.remove(snippetId);
+        if (storage.hasPendingChange(snippetId))
+            return;
+
+        if (indexedFingerprint != null && indexedFingerprint.matches(storedSnippet.fingerprint()))
+            return;
+
+        reindex(snippetId, indexedFingerprint, batch);
+    }
+
+    private void synchronize(String snippetId, Map<String, FileFingerprint> indexedFiles, SnippetIndex.Batch batch) {
+        FileFingerprint indexedFingerprint = indexedFiles.remove(snippetId);
+        if (storage.hasPendingChange(snippetId))
+            return;
+
+        if (indexedFingerprint != null && storage.isUnchanged(snippetId, indexedFingerprint))
+            return;
+
+        reindex(snippetId, indexedFingerprint, batch);
+    }
+
+    private void reindex(String snippetId, @Nullable FileFingerprint indexedFingerprint, SnippetIndex.Batch batch) {
+        FileFingerprint fingerprint = storage.fingerprint(snippetId);
+        if (indexedFingerprint != null && indexedFingerprint.hasSameContent(fingerprint)) {
+            batch.updateFingerprint(snippetId, fingerprint);
+        } else {
+            batch.put(storage.readSnippet(snippetId), fingerprint);
+        }
+    }
+
+    private static <T> Consumer<T> skipUnreadableSnippets(Consumer<T> action, Function<T, String> snippetId) {
+        return item -> {
+            try {
+                action.accept(item);
+            } catch (RuntimeException exception) {
+                LOGGER.warn("The code snippet {} could not be indexed.", snippetId.apply(item), exception);
+            }
+        };
     }
 
     private SortField toSortFields(SortProperties sortProperties) {
         return switch(sortProperties.property())
         {
             case RELEVANCE -> SortField.FIELD_SCORE;
-            case TITLE -> new SortField(SnippetField.TITLE, SortField.Type.STRING, sortProperties.desc());
+            case TITLE -> new SortField(SnippetField.TITLE_SORT, SortField.Type.STRING, sortProperties.desc());
             case CREATED -> new SortField(SnippetField.CREATED, SortField.Type.LONG, sortProperties.desc());
             case MODIFIED -> new SortField(SnippetField.MODIFIED, SortField.Type.LONG, sortProperties.desc());
         };
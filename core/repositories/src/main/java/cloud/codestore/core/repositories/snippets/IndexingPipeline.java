@@ -0,0 +1,70 @@
+package cloud.codestore.core.repositories.snippets;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Processes stored code snippets on a fixed number of worker threads.
+ * The calling thread lists the snippets and hands them over to the workers. It blocks as soon as a bounded number
+ * of snippets is waiting to be processed, so that the listing never gets ahead of the workers.
+ * If a snippet cannot be processed, no further snippets are handed over and the first exception is rethrown.
+ */
+class IndexingPipeline {
+    private static final int PENDING_ITEMS_PER_WORKER = 16;
+
+    private final int workers;
+
+    /**
+     * @param workers the number of worker threads or {@code 0} to use one worker per available processor.
+     */
+    IndexingPipeline(int workers) {
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the number of worker threads.
+     */
+    int workers() {
+        return workers;
+    }
+
+    /**
+     * Applies the given action to every item and waits until all items are processed.
+     *
+     * @param items the items to process, for example snippet files or snippet IDs.
+     * @param action the action to apply. It is called concurrently and must therefore be thread-safe.
+     */
+    <T> void process(@Nonnull Stream<T> items, @Nonnull Consumer<T> action) {
+        var pendingItems = new Semaphore(workers * PENDING_ITEMS_PER_WORKER);
+        var failure = new AtomicReference<RuntimeException>();
+        var threadFactory = Thread.ofPlatform().name("snippet-indexer-", 1).daemon().factory();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers, threadFactory)) {
+            Iterator<T> iterator = items.iterator();
+            while (iterator.hasNext() && failure.get() == null) {
+                T item = iterator.next();
+                pendingItems.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            action.accept(item);
+                        }
+                    } catch (RuntimeException exception) {
+                        failure.compareAndSet(null, exception);
+                    } finally {
+                        pendingItems.release();
+                    }
+                });
+            }
+        }
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+}
@@ -0,0 +1,60 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the last hit of recently returned pages.
+ * This allows to collect the following page with {@code IndexSearcher#searchAfter} instead of collecting
+ * all hits of the previous pages again. A cursor is only valid for the {@link IndexReader} it was created on,
+ * so all cursors are discarded as soon as a different reader is used.
+ */
+class PageCursors {
+    private static final int MAX_CURSORS = 100;
+
+    private final Map<Key, ScoreDoc> cursors = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ScoreDoc> eldest) {
+            return size() > MAX_CURSORS;
+        }
+    };
+    private IndexReader reader;
+
+    /**
+     * @return the last hit before the given offset or {@code null} if it is unknown.
+     */
+    @Nullable
+    synchronized ScoreDoc get(@Nonnull IndexReader reader, @Nonnull Query query, @Nonnull Sort sort, int offset) {
+        if (this.reader != reader)
+            return null;
+
+        return cursors.get(new Key(query, sort, offset));
+    }
+
+    /**
+     * Remembers the last hit before the given offset.
+     */
+    synchronized void put(
+            @Nonnull IndexReader reader,
+            @Nonnull Query query,
+            @Nonnull Sort sort,
+            int offset,
+            @Nonnull ScoreDoc lastHit
+    ) {
+        if (this.reader != reader) {
+            this.reader = reader;
+            cursors.clear();
+        }
+
+        cursors.put(new Key(query, sort, offset), lastHit);
+    }
+
+    private record Key(Query query, Sort sort, int offset) {}
+}
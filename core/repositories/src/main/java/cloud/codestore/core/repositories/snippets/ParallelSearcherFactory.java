@@ -0,0 +1,128 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the searchers of the {@link SnippetIndex}. If the index contains enough code snippets, a searcher
+ * splits its segments into slices which are searched in parallel on a bounded number of threads.
+ * Small indexes are searched by the calling thread only, as their segments are searched faster than
+ * the slices could be handed over to other threads.
+ * <p>
+ * The executor queues a bounded number of slices per thread. If the queue is full, the calling thread searches
+ * the slice itself, so that concurrent searches slow down instead of failing.
+ * <p>
+ * All searchers share a {@link FilterCache}. The most used filters are computed for the segments of a reopened
+ * index before the searcher is published, so that filtering does not slow down after a change.
+ */
+class ParallelSearcherFactory extends SearcherFactory implements Closeable {
+    /**
+     * The default number of documents from which the index is searched in parallel.
+     */
+    static final int DEFAULT_MIN_DOCS = 50_000;
+
+    /**
+     * By default, a slice contains either a single large segment or several small segments which together
+     * contain up to this number of documents.
+     */
+    static final int DEFAULT_MAX_DOCS_PER_SLICE = 25_000;
+    private static final int MAX_SEGMENTS_PER_SLICE = 5;
+    private static final int PENDING_SLICES_PER_THREAD = 8;
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private final int threads;
+    private final int minDocs;
+    private final int maxDocsPerSlice;
+    private final ThreadPoolExecutor executor;
+    private final FilterCache filterCache = new FilterCache();
+
+    /**
+     * @param threads the number of threads which search the slices of a single search
+     *                or {@code 0} to use one thread per available processor.
+     * @param minDocs the number of documents from which the index is searched in parallel.
+     */
+    ParallelSearcherFactory(int threads, int minDocs) {
+        this(threads, minDocs, DEFAULT_MAX_DOCS_PER_SLICE);
+    }
+
+    /**
+     * @param maxDocsPerSlice the number of documents up to which small segments are searched by the same thread.
+     */
+    ParallelSearcherFactory(int threads, int minDocs, int maxDocsPerSlice) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.minDocs = minDocs;
+        this.maxDocsPerSlice = maxDocsPerSlice;
+        this.executor = new ThreadPoolExecutor(
+                this.threads,
+                this.threads,
+                IDLE_THREAD_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(this.threads * PENDING_SLICES_PER_THREAD),
+                Thread.ofPlatform().name("snippet-search-", 1).daemon().factory(),
+                // unlike the CallerRunsPolicy, it also runs the slices after shutdown, as the searcher waits for them
+                (slice, pool) -> slice.run()
+        );
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the number of threads which search the slices of a single search.
+     */
+    int threads() {
+        return threads;
+    }
+
+    /**
+     * @return the cache of the language and tag filters which is shared by all searchers.
+     */
+    @Nonnull
+    FilterCache filterCache() {
+        return filterCache;
+    }
+
+    @Override
+    public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+        filterCache.warm(reader);
+        return newSearcher(reader);
+    }
+
+    /**
+     * @return a searcher which searches the given reader in parallel if it contains enough documents.
+     */
+    @Nonnull
+    IndexSearcher newSearcher(@Nonnull IndexReader reader) {
+        IndexSearcher searcher;
+        if (threads == 1 || reader.maxDoc() < minDocs) {
+            searcher = new IndexSearcher(reader);
+        } else {
+            searcher = new IndexSearcher(reader, executor) {
+                @Override
+                protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                    return slices(leaves, maxDocsPerSlice, MAX_SEGMENTS_PER_SLICE);
+                }
+            };
+        }
+
+        filterCache.configure(searcher);
+        return searcher;
+    }
+
+    /**
+     * Stops the threads of this factory. Searchers which were created by this factory
+     * search on the calling thread afterward.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
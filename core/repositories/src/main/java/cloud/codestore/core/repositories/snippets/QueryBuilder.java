@@ -1,23 +1,73 @@
 package cloud.codestore.core.repositories.snippets;
 
 import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 
 class QueryBuilder {
     private SearchQueryBuilder searchQueryBuilder;
+    private TrigramQueryBuilder trigramQueryBuilder;
     private FilterQueryBuilder filterQueryBuilder;
 
-    QueryBuilder(String search, FilterProperties filterProperties) {
-        searchQueryBuilder = new SearchQueryBuilder(search);
+    QueryBuilder(String search, FilterProperties filterProperties, EdgeNGrams edgeNGrams) {
+        this(search, SearchMode.DEFAULT, filterProperties, edgeNGrams);
+    }
+
+    /**
+     * In the {@link SearchMode#LITERAL literal} and {@link SearchMode#REGEX regex} mode, only the code is searched.
+     *
+     * @throws java.util.regex.PatternSyntaxException if the search is not a valid regular expression.
+     */
+    QueryBuilder(String search, SearchMode searchMode, FilterProperties filterProperties, EdgeNGrams edgeNGrams) {
+        if (!search.isBlank() && (searchMode == SearchMode.LITERAL || searchMode == SearchMode.REGEX)) {
+            trigramQueryBuilder = new TrigramQueryBuilder(search, searchMode);
+        } else {
+            searchQueryBuilder = new SearchQueryBuilder(search, edgeNGrams);
+        }
+
         filterQueryBuilder = new FilterQueryBuilder(filterProperties);
     }
 
+    /**
+     * Additionally matches terms which are similar to the searched terms.
+     *
+     * @see SearchQueryBuilder#matchSimilarTerms()
+     */
+    void matchSimilarTerms() {
+        if (searchQueryBuilder != null) {
+            searchQueryBuilder.matchSimilarTerms();
+        }
+    }
+
     Query build() {
+        if (trigramQueryBuilder != null) {
+            // the filters reduce the candidates whose code is matched against the pattern
+            Query candidates = new BooleanQuery.Builder()
+                    .add(trigramQueryBuilder.build(), BooleanClause.Occur.FILTER)
+                    .add(filterQueryBuilder.build(), BooleanClause.Occur.FILTER)
+                    .build();
+            return new CodePatternQuery(candidates, trigramQueryBuilder.pattern());
+        }
+
         return new BooleanQuery.Builder()
                 .add(searchQueryBuilder.build(), BooleanClause.Occur.MUST)
-                .add(filterQueryBuilder.build(), BooleanClause.Occur.MUST)
+                // the filters do not affect the score, so their matches can be cached
+                .add(filterQueryBuilder.build(), BooleanClause.Occur.FILTER)
                 .build();
     }
+
+    /**
+     * In the literal and regex mode, the matches of the {@link CodePatternQuery} are highlighted in the code only.
+     *
+     * @return the query for highlighting the matches of the search or {@code null} if nothing is searched.
+     */
+    Query buildHighlightQuery() {
+        if (trigramQueryBuilder != null) {
+            return new CodePatternQuery(trigramQueryBuilder.build(), trigramQueryBuilder.pattern());
+        }
+
+        return searchQueryBuilder.highlightQuery();
+    }
 }
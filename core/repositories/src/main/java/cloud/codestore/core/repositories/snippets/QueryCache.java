@@ -0,0 +1,205 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.Facet;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import cloud.codestore.core.usecases.listsnippets.SnippetListRequest;
+import cloud.codestore.core.usecases.listsnippets.SortProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of recently executed searches.
+ * A result is only valid for the {@link SnippetIndex#generation() generation} of the index it was read from,
+ * so all results are discarded as soon as the index changed. If several threads request the same result
+ * at once, only one of them executes the search and the others wait for its result. If that result is incomplete,
+ * because the search was cancelled or ran out of time, the waiting threads execute the search themselves.
+ * <p>
+ * The hits and misses are logged whenever the results are discarded and when the application is closed,
+ * so that the number of cached results can be tuned with the {@code codestore.search.cacheSize} property.
+ */
+@Component
+class QueryCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCache.class);
+
+    private final Map<Key, CompletableFuture<?>> results;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long generation;
+
+    /**
+     * @param maxResults the maximum number of cached search results.
+     */
+    QueryCache(@Value("${codestore.search.cacheSize:256}") int maxResults) {
+        results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<?>> eldest) {
+                return size() > maxResults;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result of the given search or executes the search if no result is cached.
+     *
+     * @param key identifies the search.
+     * @param generation the current generation of the index.
+     * @param search executes the search if the result is not cached.
+     * @return the search result.
+     */
+    @Nonnull
+    <T> T get(@Nonnull Key key, long generation, @Nonnull Supplier<T> search) {
+        return get(key, generation, search, result -> true);
+    }
+
+    /**
+     * Same as {@link #get(Key, long, Supplier)} but only keeps the result in the cache if it is complete.
+     * Concurrent identical searches which are waiting for an incomplete result execute the search again
+     * instead of taking over the incomplete result.
+     *
+     * @param isComplete whether the result may be cached.
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    <T> T get(@Nonnull Key key, long generation, @Nonnull Supplier<T> search, @Nonnull Predicate<T> isComplete) {
+        CompletableFuture<T> result;
+        CompletableFuture<T> newResult = new CompletableFuture<>();
+        synchronized (this) {
+            if (generation < this.generation) {
+                misses.increment();
+                return search.get();
+            }
+
+            if (generation > this.generation) {
+                LOGGER.debug("Discarding {} search results ({} hits, {} misses).", results.size(), hits, misses);
+                this.generation = generation;
+                results.clear();
+            }
+
+            result = (CompletableFuture<T>) results.putIfAbsent(key, newResult);
+        }
+
+        if (result != null) {
+            T cachedResult = join(result);
+            if (!isComplete.test(cachedResult))
+                return get(key, generation, search, isComplete);
+
+            hits.increment();
+            return cachedResult;
+        }
+
+        misses.increment();
+        try {
+            T searchResult = search.get();
+            if (!isComplete.test(searchResult)) {
+                synchronized (this) {
+                    results.remove(key, newResult);
+                }
+            }
+
+            newResult.complete(searchResult);
+            return searchResult;
+        } catch (RuntimeException exception) {
+            synchronized (this) {
+                results.remove(key, newResult);
+            }
+            newResult.completeExceptionally(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * @return how often a search result was taken from the cache or from a concurrent identical search.
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how often a search was executed.
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Logs the statistics of the cache.
+     * Called by Spring when the application context is closed.
+     */
+    @PreDestroy
+    void logStatistics() {
+        LOGGER.info("Query cache: {} hits, {} misses", hits(), misses());
+    }
+
+    private static <T> T join(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause)
+                throw cause;
+
+            throw exception;
+        }
+    }
+
+    /**
+     * Identifies a search.
+     *
+     * @param search the search term.
+     * @param searchMode how the search term is matched.
+     * @param filter the filter criteria.
+     * @param sort the order of the result.
+     * @param offset the number of skipped hits.
+     * @param limit the maximum number of hits.
+     * @param facets the counted facets.
+     * @param hitType the representation of a single hit, as the same search may return IDs or summaries.
+     */
+    record Key(
+            @Nonnull String search,
+            @Nonnull SearchMode searchMode,
+            @Nonnull FilterProperties filter,
+            @Nonnull SortProperties sort,
+            int offset,
+            int limit,
+            @Nonnull Set<Facet> facets,
+            @Nonnull Class<?> hitType
+    ) {
+        Key {
+            filter = new FilterProperties(filter.languageName(), Set.copyOf(filter.tags()), filter.created(), filter.modified());
+            facets = Set.copyOf(facets);
+        }
+
+        /**
+         * @param request the requested page of code snippets.
+         * @param pageSize the maximum number of code snippets per page.
+         * @param hitType the representation of a single hit.
+         * @return the key which identifies the search for the requested page. The budget of the request is not part of the key.
+         */
+        @Nonnull
+        static Key of(@Nonnull SnippetListRequest request, int pageSize, @Nonnull Class<?> hitType) {
+            return new Key(
+                    request.search(),
+                    request.searchMode(),
+                    request.filterProperties(),
+                    request.sortProperties(),
+                    request.offset(pageSize),
+                    pageSize,
+                    request.facets(),
+                    hitType
+            );
+        }
+    }
+}
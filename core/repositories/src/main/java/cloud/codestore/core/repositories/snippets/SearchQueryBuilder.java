@@ -1,5 +1,6 @@
 package cloud.codestore.core.repositories.snippets;
 
+import cloud.codestore.core.repositories.snippets.SearchQueryParser.Clause;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.SimpleAnalyzer;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
@@ -10,27 +11,75 @@ import org.apache.lucene.search.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
 import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.*;
 
+/**
+ * Builds the query for a search which is entered by the user. The search is parsed by the {@link SearchQueryParser}
+ * and every clause is matched against all properties of the code snippets or against the one it is restricted to.
+ */
 class SearchQueryBuilder {
     private static final float LANGUAGE_WEIGHT = 1.5f;
     private static final float TITLE_WEIGHT = 1.5f;
     private static final float TAG_WEIGHT = 1.5f;
+    private static final float FUZZY_WEIGHT = 0.5f;
 
-    private String searchTerm;
-    private List<String> whitespaceSeparatedTokens;
-    private List<String> simpleSeparatedTokens;
-    private BooleanQuery.Builder searchQuery;
+    /**
+     * Shorter terms are never matched fuzzily, as almost any other short term is within their edit distance.
+     */
+    private static final int MIN_FUZZY_LENGTH = 3;
 
-    SearchQueryBuilder(String searchTerm) {
+    /**
+     * Terms of up to this length may differ by a single edit, longer terms by two edits.
+     */
+    private static final int MAX_SINGLE_EDIT_LENGTH = 5;
+
+    /**
+     * The number of leading characters which must match exactly. Typos at the beginning of a term are rare
+     * and the fixed prefix restricts the terms which are compared to the automaton of the fuzzy query.
+     */
+    private static final int FUZZY_PREFIX_LENGTH = 1;
+
+    /**
+     * The maximum number of similar terms which are matched for every term of the search.
+     */
+    private static final int MAX_FUZZY_EXPANSIONS = 50;
+
+    /**
+     * The maximum number of clauses of a query, where a fuzzy query counts as many clauses as it matches similar
+     * terms. Further optional terms and similar terms are omitted, so that very long search queries, like pasted
+     * code, stay within the clause limit of Lucene. Required and excluded terms are never omitted, as the search
+     * would otherwise match code snippets which the user asked to exclude.
+     */
+    private static final int MAX_CLAUSES = 512;
+
+    private static final List<String> FIELDS = List.of(LANGUAGE, TITLE, DESCRIPTION, CODE, TAG);
+    private static final List<String> HIGHLIGHTED_FIELDS = List.of(DESCRIPTION, CODE);
+    private static final Analyzer WHITESPACE_ANALYZER = new WhitespaceAnalyzer();
+    private static final Analyzer SIMPLE_ANALYZER = new SimpleAnalyzer();
+    private static final Analyzer CODE_ANALYZER = CodeAnalyzer.forAnyLanguage();
+    private static final org.apache.lucene.util.QueryBuilder TITLE_PHRASES = new org.apache.lucene.util.QueryBuilder(WHITESPACE_ANALYZER);
+    private static final org.apache.lucene.util.QueryBuilder DESCRIPTION_PHRASES = new org.apache.lucene.util.QueryBuilder(SIMPLE_ANALYZER);
+    private static final org.apache.lucene.util.QueryBuilder CODE_PHRASES = new org.apache.lucene.util.QueryBuilder(CODE_ANALYZER);
+
+    private final String searchTerm;
+    private final EdgeNGrams edgeNGrams;
+    private final List<Clause> clauses;
+    private boolean matchSimilarTerms;
+    private int clauseCount;
+
+    SearchQueryBuilder(String searchTerm, EdgeNGrams edgeNGrams) {
         this.searchTerm = searchTerm;
-        if (!searchTerm.isBlank()) {
-            whitespaceSeparatedTokens = tokenize(searchTerm, new WhitespaceAnalyzer());
-            simpleSeparatedTokens = tokenize(searchTerm, new SimpleAnalyzer());
-            searchQuery = new BooleanQuery.Builder();
-        }
+        this.edgeNGrams = edgeNGrams;
+        this.clauses = SearchQueryParser.parse(searchTerm);
+    }
+
+    /**
+     * Additionally matches terms which differ by one or two characters from the searched terms,
+     * so that code snippets are found despite typos. These matches are scored lower than exact matches.
+     */
+    void matchSimilarTerms() {
+        matchSimilarTerms = true;
     }
 
     Query build() {
@@ -38,45 +87,198 @@ class SearchQueryBuilder {
             return new MatchAllDocsQuery();
         }
 
-        for (String field : new String[]{LANGUAGE, TITLE, DESCRIPTION, CODE, TAG}) {
-            switch (field) {
-                case LANGUAGE -> tokenStream(field).forEach(token -> addTermQuery(field, token, LANGUAGE_WEIGHT));
-                case TAG -> tokenStream(field).forEach(token -> addTermQuery(field, token, TAG_WEIGHT));
-                case TITLE -> tokenStream(field).forEach(token -> addPrefixQuery(field, token, TITLE_WEIGHT));
-                case DESCRIPTION, CODE -> tokenStream(field).forEach(token -> addPrefixQuery(field, token));
+        // the required and excluded clauses are built first, so that they are never omitted due to the clause limit
+        clauseCount = 0;
+        BooleanQuery[] clauseQueries = new BooleanQuery[clauses.size()];
+        for (int i = 0; i < clauses.size(); i++) {
+            if (clauses.get(i).occur() != BooleanClause.Occur.SHOULD)
+                clauseQueries[i] = clauseQuery(clauses.get(i));
+        }
+        for (int i = 0; i < clauses.size(); i++) {
+            if (clauses.get(i).occur() == BooleanClause.Occur.SHOULD)
+                clauseQueries[i] = clauseQuery(clauses.get(i));
+        }
+
+        var searchQuery = new BooleanQuery.Builder();
+        boolean excludesOnly = true;
+        for (int i = 0; i < clauses.size(); i++) {
+            BooleanClause.Occur occur = clauses.get(i).occur();
+            if (!clauseQueries[i].clauses().isEmpty()) {
+                searchQuery.add(clauseQueries[i], occur);
+                excludesOnly &= occur == BooleanClause.Occur.MUST_NOT;
             }
         }
 
+        if (excludesOnly) {
+            searchQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        }
+
         return searchQuery.build();
     }
 
-    private Stream<String> tokenStream(String field) {
+    /**
+     * Builds the query which matches a single clause of the search in all fields or in the one it is restricted to.
+     */
+    private BooleanQuery clauseQuery(Clause clause) {
+        boolean optional = clause.occur() == BooleanClause.Occur.SHOULD;
+        var clauseQuery = new BooleanQuery.Builder();
+        for (String field : clause.field() == null ? FIELDS : List.of(clause.field())) {
+            if (clause.phrase()) {
+                add(clauseQuery, phraseQuery(field, clause.text()), weight(field), 1, optional);
+            } else {
+                addTermQueries(clauseQuery, field, clause, optional);
+            }
+        }
+
+        return clauseQuery.build();
+    }
+
+    /**
+     * Builds a query which matches the searched terms and phrases in the description and the code.
+     * Unlike the search query, it always expands prefixes into the indexed terms, because only those
+     * carry the positions of the matches.
+     *
+     * @return the query for highlighting the matches or {@code null} if nothing is searched.
+     */
+    Query highlightQuery() {
+        if (searchTerm.isBlank()) {
+            return null;
+        }
+
+        clauseCount = 0;
+        var highlightQuery = new BooleanQuery.Builder();
+        for (Clause clause : clauses) {
+            if (clause.occur() == BooleanClause.Occur.MUST_NOT)
+                continue;
+
+            for (String field : HIGHLIGHTED_FIELDS) {
+                if (clause.field() != null && !clause.field().equals(field))
+                    continue;
+
+                if (clause.phrase()) {
+                    add(highlightQuery, phraseQuery(field, clause.text()), 1, 1, true);
+                } else {
+                    for (String token : tokens(field, clause)) {
+                        add(highlightQuery, new PrefixQuery(new Term(field, token)), 1, 1, true);
+                        if (matchSimilarTerms) {
+                            addFuzzyQuery(highlightQuery, field, token, 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        return highlightQuery.build();
+    }
+
+    private void addTermQueries(BooleanQuery.Builder query, String field, Clause clause, boolean optional) {
+        for (String token : tokens(field, clause)) {
+            Query termQuery = switch (field) {
+                case LANGUAGE, TAG -> new TermQuery(new Term(field, token));
+                default -> prefixQuery(field, token);
+            };
+
+            add(query, termQuery, weight(field), 1, optional);
+            if (matchSimilarTerms && clause.occur() != BooleanClause.Occur.MUST_NOT) {
+                addFuzzyQuery(query, field, token, FUZZY_WEIGHT);
+            }
+        }
+    }
+
+    /**
+     * Adds the given query. An optional query is omitted if the clauses of the query would exceed {@link #MAX_CLAUSES}.
+     *
+     * @param optional whether the query may be omitted, which is the case for the terms of optional clauses
+     *                 and for all similar terms.
+     */
+    private void add(BooleanQuery.Builder query, Query clause, float boost, int cost, boolean optional) {
+        if (clause == null || optional && clauseCount + cost > MAX_CLAUSES)
+            return;
+
+        clauseCount += cost;
+        query.add(boost == 1 ? clause : new BoostQuery(clause, boost), BooleanClause.Occur.SHOULD);
+    }
+
+    private float weight(String field) {
         return switch (field) {
-            case TITLE, LANGUAGE, TAG -> whitespaceSeparatedTokens.stream();
-            case DESCRIPTION, CODE -> simpleSeparatedTokens.stream();
-            default -> Stream.empty();
+            case LANGUAGE -> LANGUAGE_WEIGHT;
+            case TITLE -> TITLE_WEIGHT;
+            case TAG -> TAG_WEIGHT;
+            default -> 1;
         };
     }
 
-    private void addTermQuery(String field, String token) {
-        searchQuery.add(new TermQuery(new Term(field, token)), BooleanClause.Occur.SHOULD);
+    /**
+     * Splits the text of a clause into the terms of the given field. A term which is restricted to the language
+     * or a tag is normalized like the indexed languages and tags.
+     */
+    private List<String> tokens(String field, Clause clause) {
+        String text = clause.text();
+        return switch (field) {
+            case LANGUAGE -> clause.field() == null ? tokenize(text, WHITESPACE_ANALYZER) : List.of(SnippetIndex.normalizeLanguage(text));
+            case TAG -> clause.field() == null ? tokenize(text, WHITESPACE_ANALYZER) : List.of(SnippetIndex.normalize(text));
+            case TITLE -> tokenize(text.toLowerCase(), WHITESPACE_ANALYZER);
+            case DESCRIPTION -> tokenize(text, SIMPLE_ANALYZER);
+            case CODE -> tokenize(text, CODE_ANALYZER).stream().distinct().toList();
+            default -> List.of();
+        };
     }
 
-    private void addTermQuery(String field, String token, float boost) {
-        searchQuery.add(new BoostQuery(new TermQuery(new Term(field, token)), boost), BooleanClause.Occur.SHOULD);
+    /**
+     * Builds a query which matches the words of the phrase at consecutive positions. As the language and the tags
+     * are indexed as a whole, a phrase must match them exactly.
+     *
+     * @return the query or {@code null} if the phrase does not contain any word.
+     */
+    private Query phraseQuery(String field, String phrase) {
+        return switch (field) {
+            case LANGUAGE -> new TermQuery(new Term(field, SnippetIndex.normalizeLanguage(phrase)));
+            case TAG -> new TermQuery(new Term(field, SnippetIndex.normalize(phrase)));
+            case TITLE -> TITLE_PHRASES.createPhraseQuery(field, phrase.toLowerCase());
+            case DESCRIPTION -> DESCRIPTION_PHRASES.createPhraseQuery(field, phrase);
+            case CODE -> CODE_PHRASES.createPhraseQuery(field, phrase);
+            default -> null;
+        };
     }
 
-    private void addPrefixQuery(String field, String token) {
-        searchQuery.add(new PrefixQuery(new Term(field, token)), BooleanClause.Occur.SHOULD);
+    /**
+     * Looks up tokens which are indexed as edge n-grams as a single term instead of expanding them into all
+     * terms with the same prefix. Longer tokens fall back to a {@link PrefixQuery}.
+     * Both queries assign a constant score, just like the rewritten prefix query.
+     */
+    private Query prefixQuery(String field, String token) {
+        if (edgeNGrams.contains(token))
+            return new ConstantScoreQuery(new TermQuery(new Term(prefixField(field), token)));
+
+        return new PrefixQuery(new Term(field, token));
     }
 
-    private void addPrefixQuery(String field, String token, float boost) {
-        searchQuery.add(new BoostQuery(new PrefixQuery(new Term(field, token)), boost), BooleanClause.Occur.SHOULD);
+    /**
+     * Adds a {@link FuzzyQuery} for the given token unless it is too short.
+     * The query is rewritten into the {@link #MAX_FUZZY_EXPANSIONS most similar terms} only,
+     * so that its cost is bounded regardless of the size of the index.
+     */
+    private void addFuzzyQuery(BooleanQuery.Builder query, String field, String token, float boost) {
+        if (token.length() < MIN_FUZZY_LENGTH)
+            return;
+
+        int maxEdits = token.length() <= MAX_SINGLE_EDIT_LENGTH ? 1 : 2;
+        var fuzzyQuery = new FuzzyQuery(new Term(field, token), maxEdits, FUZZY_PREFIX_LENGTH, MAX_FUZZY_EXPANSIONS, true);
+        add(query, fuzzyQuery, boost, MAX_FUZZY_EXPANSIONS, true);
+    }
+
+    private String prefixField(String field) {
+        return switch (field) {
+            case TITLE -> TITLE_PREFIX;
+            case DESCRIPTION -> DESCRIPTION_PREFIX;
+            case CODE -> CODE_PREFIX;
+            default -> throw new IllegalArgumentException("No prefix field for " + field);
+        };
     }
 
-    private List<String> tokenize(String searchTerms, Analyzer analyzer) {
+    private static List<String> tokenize(String text, Analyzer analyzer) {
         List<String> tokens = new ArrayList<>();
-        try (var tokenStream = analyzer.tokenStream("", searchTerms)) {
+        try (var tokenStream = analyzer.tokenStream("", text)) {
             CharTermAttribute attribute = tokenStream.addAttribute(CharTermAttribute.class);
             tokenStream.reset();
             while (tokenStream.incrementToken())
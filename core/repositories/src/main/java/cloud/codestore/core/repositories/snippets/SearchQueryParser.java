@@ -0,0 +1,160 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.search.BooleanClause;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.*;
+
+/**
+ * Parses the search query which is entered by the user. The query consists of terms which are separated by
+ * whitespace and supports the following syntax:
+ * <ul>
+ *     <li>{@code "exact phrase"} matches the words of the phrase in the given order,</li>
+ *     <li>{@code title:}, {@code tag:}, {@code lang:} and {@code code:} restrict a term or phrase to a single
+ *     property of the code snippets,</li>
+ *     <li>{@code -term} excludes the code snippets which match the term and</li>
+ *     <li>{@code AND} requires the terms on both of its sides.</li>
+ * </ul>
+ * All other terms are optional, but the more terms a code snippet matches, the higher it is ranked.
+ * Characters without a special meaning, like the colons of {@code std::vector}, are part of the term.
+ * The query is parsed in a single pass and never fails.
+ */
+final class SearchQueryParser {
+    private static final Map<String, String> QUALIFIERS = Map.of(
+            "title", TITLE,
+            "tag", TAG,
+            "lang", LANGUAGE,
+            "code", CODE
+    );
+    private static final String AND = "AND";
+
+    private final String search;
+    private int position;
+
+    private SearchQueryParser(String search) {
+        this.search = search;
+    }
+
+    /**
+     * @return the distinct clauses of the given search query in the order of their occurrence.
+     */
+    @Nonnull
+    static List<Clause> parse(@Nonnull String search) {
+        return new SearchQueryParser(search).parse();
+    }
+
+    private List<Clause> parse() {
+        List<Clause> clauses = new ArrayList<>();
+        boolean required = false;
+        while (skipWhitespace()) {
+            boolean excluded = search.charAt(position) == '-'
+                               && position + 1 < search.length()
+                               && !Character.isWhitespace(search.charAt(position + 1));
+            if (excluded) {
+                position++;
+            }
+
+            String field = parseQualifier();
+            boolean phrase = position < search.length() && search.charAt(position) == '"';
+            String text = phrase ? parsePhrase() : parseTerm();
+
+            if (!excluded && field == null && !phrase && text.equals(AND)) {
+                // the preceding clause is required as well
+                int last = clauses.size() - 1;
+                if (last >= 0 && clauses.get(last).occur() == BooleanClause.Occur.SHOULD) {
+                    clauses.set(last, clauses.get(last).require());
+                }
+
+                required = !clauses.isEmpty();
+                continue;
+            }
+
+            if (!text.isBlank()) {
+                BooleanClause.Occur occur = excluded ? BooleanClause.Occur.MUST_NOT
+                                                     : required ? BooleanClause.Occur.MUST
+                                                                : BooleanClause.Occur.SHOULD;
+                clauses.add(new Clause(occur, field, text, phrase));
+            }
+
+            required = false;
+        }
+
+        return List.copyOf(new LinkedHashSet<>(clauses));
+    }
+
+    /**
+     * @return whether there are any characters left after the whitespace.
+     */
+    private boolean skipWhitespace() {
+        while (position < search.length() && Character.isWhitespace(search.charAt(position))) {
+            position++;
+        }
+
+        return position < search.length();
+    }
+
+    /**
+     * Consumes a known qualifier which is directly followed by a term or phrase.
+     *
+     * @return the field of the qualifier or {@code null} if the term has no qualifier.
+     */
+    private String parseQualifier() {
+        int end = position;
+        while (end < search.length() && Character.isLetter(search.charAt(end))) {
+            end++;
+        }
+
+        boolean qualified = end < search.length() - 1
+                            && search.charAt(end) == ':'
+                            && !Character.isWhitespace(search.charAt(end + 1));
+        if (!qualified)
+            return null;
+
+        String field = QUALIFIERS.get(search.substring(position, end).toLowerCase(Locale.ROOT));
+        if (field != null) {
+            position = end + 1;
+        }
+
+        return field;
+    }
+
+    /**
+     * Consumes a phrase. A phrase without a closing quote extends to the end of the search query.
+     */
+    private String parsePhrase() {
+        int end = search.indexOf('"', position + 1);
+        String phrase = search.substring(position + 1, end < 0 ? search.length() : end);
+        position = end < 0 ? search.length() : end + 1;
+        return phrase;
+    }
+
+    private String parseTerm() {
+        int start = position;
+        while (position < search.length() && !Character.isWhitespace(search.charAt(position))) {
+            position++;
+        }
+
+        return search.substring(start, position);
+    }
+
+    /**
+     * A single term or phrase of the search query.
+     *
+     * @param occur whether the clause is optional, required or excluded.
+     * @param field the field to which the clause is restricted or {@code null} to match any field.
+     * @param text the term or the words of the phrase.
+     * @param phrase whether the words must occur in the given order.
+     */
+    record Clause(@Nonnull BooleanClause.Occur occur, @Nullable String field, @Nonnull String text, boolean phrase) {
+        private Clause require() {
+            return new Clause(BooleanClause.Occur.MUST, field, text, phrase);
+        }
+    }
+}
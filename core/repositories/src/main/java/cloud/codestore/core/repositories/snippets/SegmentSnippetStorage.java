@@ -0,0 +1,719 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.SnippetNotExistsException;
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A {@link SnippetStorage} which appends the code snippets to large segment files instead of storing every code
+ * snippet in a separate file. This avoids listing, opening and reading a file per code snippet, which dominates
+ * the startup of large collections.
+ * <p>
+ * Every change is appended as a record of the {@link SnippetRecords} format to the active segment and forced
+ * to the storage device before it returns. As soon as the active segment exceeds its maximum size, a new segment
+ * is started. The segments are memory-mapped for reading. An offset table in memory maps every snippet ID to the
+ * location of its latest record, so a code snippet is read without accessing the file system.
+ * The table is built by scanning the segments on startup.
+ * <p>
+ * Updated and deleted code snippets leave dead records behind. As soon as at least half of all records are dead,
+ * the segments are compacted in the background: the live records of all previous segments are copied to the active
+ * segment and the previous segments are deleted. The manifest contains the number of the first valid segment,
+ * so that older segments which could not be deleted are ignored on the next start.
+ */
+class SegmentSnippetStorage implements SnippetStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentSnippetStorage.class);
+
+    static final String SEGMENT_FILE_EXTENSION = ".segment";
+    static final String MANIFEST_FILE_NAME = "manifest";
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long MIN_GARBAGE_SIZE = 16 * 1024 * 1024;
+
+    private final Directory segmentsDirectory;
+    private final SnippetReader snippetReader;
+    private final SnippetWriter snippetWriter;
+    private final int maxSegmentSize;
+    private final long minGarbageSize;
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong totalSize = new AtomicLong();
+    private final AtomicLong liveSize = new AtomicLong();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ExecutorService compactor;
+    private Segment activeSegment;
+
+    SegmentSnippetStorage(
+            @Nonnull Directory segmentsDirectory,
+            @Nonnull SnippetReader snippetReader,
+            @Nonnull SnippetWriter snippetWriter
+    ) {
+        this(segmentsDirectory, snippetReader, snippetWriter, MAX_SEGMENT_SIZE, MIN_GARBAGE_SIZE);
+    }
+
+    /**
+     * @param maxSegmentSize the size in bytes after which a new segment is started.
+     * @param minGarbageSize the minimum size of all dead records in bytes before the segments are compacted.
+     */
+    SegmentSnippetStorage(
+            @Nonnull Directory segmentsDirectory,
+            @Nonnull SnippetReader snippetReader,
+            @Nonnull SnippetWriter snippetWriter,
+            int maxSegmentSize,
+            long minGarbageSize
+    ) {
+        this.segmentsDirectory = segmentsDirectory;
+        this.snippetReader = snippetReader;
+        this.snippetWriter = snippetWriter;
+        this.maxSegmentSize = maxSegmentSize;
+        this.minGarbageSize = minGarbageSize;
+        this.compactor = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("snippet-segment-compactor").daemon().factory()
+        );
+
+        long startTime = System.currentTimeMillis();
+        open();
+        long endTime = System.currentTimeMillis();
+        LOGGER.info("Loaded {} code snippets from {} segments after {}ms", locations.size(), segments.size(), endTime - startTime);
+    }
+
+    @Override
+    public Stream<StoredSnippet> snippets() {
+        return locations.entrySet()
+                        .stream()
+                        .map(entry -> new StoredSnippet(entry.getKey(), entry.getValue().fingerprint()));
+    }
+
+    @Override
+    public boolean contains(@Nonnull String snippetId) {
+        return locations.containsKey(snippetId);
+    }
+
+    /**
+     * The fingerprint is part of the offset table, so this method never accesses the segments.
+     */
+    @Override
+    public boolean isUnchanged(@Nonnull String snippetId, @Nonnull FileFingerprint fingerprint) {
+        Location location = locations.get(snippetId);
+        return location != null && location.fingerprint().equals(fingerprint);
+    }
+
+    /**
+     * The fingerprint consists of the length of the content, the time of the change and the checksum of the record.
+     */
+    @Override
+    public FileFingerprint fingerprint(@Nonnull String snippetId) {
+        return existingLocation(snippetId).fingerprint();
+    }
+
+    @Override
+    public Snippet readSnippet(@Nonnull String snippetId) {
+        return read(snippetId, existingLocation(snippetId));
+    }
+
+    /**
+     * Code snippets which were deleted in the meantime are skipped.
+     */
+    @Override
+    public Stream<Snippet> readSnippets(@Nonnull Stream<String> snippetIds) {
+        return snippetIds.map(snippetId -> {
+                             Location location = locations.get(snippetId);
+                             return location == null ? null : read(snippetId, location);
+                         })
+                         .filter(Objects::nonNull);
+    }
+
+    @Override
+    public void create(@Nonnull Snippet snippet) {
+        put(snippet);
+    }
+
+    @Override
+    public Snippet read(@Nonnull String snippetId) throws SnippetNotExistsException {
+        Location location = locations.get(snippetId);
+        if (location == null)
+            throw new SnippetNotExistsException();
+
+        return read(snippetId, location);
+    }
+
+    @Override
+    public void update(@Nonnull Snippet snippet) throws SnippetNotExistsException {
+        verifyExists(snippet.getId());
+        put(snippet);
+    }
+
+    @Override
+    public void delete(@Nonnull String snippetId) throws SnippetNotExistsException {
+        verifyExists(snippetId);
+        append(new SnippetJournal.Change(snippetId, null, System.currentTimeMillis()), true);
+        compactIfNecessary();
+    }
+
+    /**
+     * @return whether no code snippet was ever stored.
+     */
+    boolean isEmpty() {
+        return totalSize.get() == 0;
+    }
+
+    /**
+     * @return the number of segments.
+     */
+    int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the size of all dead records in bytes.
+     */
+    long garbageSize() {
+        return totalSize.get() - liveSize.get();
+    }
+
+    /**
+     * Imports the snippet files of the {@link FileSystemRepository} from the given directory.
+     * The content and the modification time of the files are kept, so the files are not parsed.
+     * Once the code snippets are durably stored in the segments, the snippet files are deleted,
+     * so that the segments are the only copy of the code snippets.
+     *
+     * @param snippetsDirectory the directory of the snippet files.
+     * @param layout the layout of the snippet files.
+     * @return the number of imported code snippets.
+     */
+    int importFrom(@Nonnull Directory snippetsDirectory, @Nonnull SnippetFileLayout layout) {
+        List<File> importedFiles = new ArrayList<>();
+        try (Stream<File> files = layout.snippetFiles(snippetsDirectory)) {
+            for (File file : (Iterable<File>) files::iterator) {
+                long lastModified = file.readAttributes().lastModifiedTime().toMillis();
+                String snippetId = FileSystemRepository.getSnippetId(file);
+                append(new SnippetJournal.Change(snippetId, file.readBytes(), lastModified), false);
+                importedFiles.add(file);
+            }
+        }
+
+        force();
+        importedFiles.forEach(File::deleteSilently);
+        return importedFiles.size();
+    }
+
+    /**
+     * Writes every code snippet to a separate snippet file in the given directory, which is the layout of the
+     * {@link FileSystemRepository}. Snippet files of code snippets which are not stored are deleted.
+     *
+     * @param snippetsDirectory the directory of the snippet files.
+     * @param layout the layout of the snippet files.
+     * @return the number of exported code snippets.
+     */
+    int exportTo(@Nonnull Directory snippetsDirectory, @Nonnull SnippetFileLayout layout) {
+        try (Stream<File> files = layout.snippetFiles(snippetsDirectory)) {
+            files.filter(file -> !locations.containsKey(FileSystemRepository.getSnippetId(file)))
+                 .forEach(File::delete);
+        }
+
+        Set<Path> directories = new HashSet<>();
+        locations.forEach((snippetId, location) -> {
+            File file = layout.file(snippetsDirectory, snippetId);
+            file.writeDurably(location.content(), FileTime.fromMillis(location.fingerprint().lastModified()));
+            directories.add(file.path().getParent());
+        });
+
+        directories.forEach(directory -> new Directory(directory).force());
+        snippetsDirectory.force();
+        return locations.size();
+    }
+
+    /**
+     * Waits for a running compaction and closes the segments.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        writeLock.lock();
+        try {
+            segments.forEach(Segment::close);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The location of the latest record of a code snippet.
+     *
+     * @param segment the segment which contains the record.
+     * @param position the position of the record within the segment.
+     * @param size the size of the record including its header.
+     * @param contentOffset the offset of the content relative to the position of the record.
+     * @param fingerprint the fingerprint of the stored code snippet.
+     */
+    private record Location(Segment segment, int position, int size, int contentOffset, FileFingerprint fingerprint) {
+        byte[] content() {
+            byte[] content = new byte[(int) fingerprint.size()];
+            segment.buffer(position + size).get(position + contentOffset, content);
+            return content;
+        }
+
+        static Location of(Segment segment, int position, int size, SnippetRecords.Metadata metadata, int checksum) {
+            var fingerprint = new FileFingerprint(
+                    metadata.contentLength(),
+                    metadata.lastModified(),
+                    Integer.toUnsignedLong(checksum)
+            );
+            return new Location(segment, position, size, metadata.contentOffset(), fingerprint);
+        }
+    }
+
+    private Snippet read(String snippetId, Location location) {
+        return snippetReader.read(snippetId, location.content());
+    }
+
+    private Location existingLocation(String snippetId) {
+        Location location = locations.get(snippetId);
+        if (location == null)
+            throw new RepositoryException("file.notExists", snippetId);
+
+        return location;
+    }
+
+    private void verifyExists(String snippetId) throws SnippetNotExistsException {
+        if (!contains(snippetId))
+            throw new SnippetNotExistsException();
+    }
+
+    private void put(Snippet snippet) {
+        byte[] content = snippetWriter.toJson(snippet);
+        append(new SnippetJournal.Change(snippet.getId(), content, System.currentTimeMillis()), true);
+        compactIfNecessary();
+    }
+
+    /**
+     * Appends a change to the active segment and updates the offset table accordingly.
+     */
+    private void append(SnippetJournal.Change change, boolean force) {
+        ByteBuffer record = SnippetRecords.encode(List.of(change));
+        writeLock.lock();
+        try {
+            Location location = write(record, force);
+            Location previous = change.isDeletion() ?
+                    locations.remove(change.snippetId()) :
+                    locations.put(change.snippetId(), location);
+
+            if (previous != null) {
+                liveSize.addAndGet(-previous.size());
+            }
+
+            if (!change.isDeletion()) {
+                liveSize.addAndGet(location.size());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a single record to the end of the active segment. Must be called while holding the write lock.
+     * If the record cannot be written completely, the segment is truncated, as an incomplete record would hide
+     * all subsequent records on the next start.
+     */
+    private Location write(ByteBuffer record, boolean force) {
+        Segment segment = activeSegment;
+        int position = segment.size();
+        int size = record.remaining();
+        SnippetRecords.Metadata metadata = SnippetRecords.metadata(record, record.position());
+        Location location = Location.of(segment, position, size, metadata, SnippetRecords.checksum(record, record.position()));
+        try {
+            segment.append(record.duplicate());
+            if (force) {
+                segment.force();
+            }
+        } catch (IOException exception) {
+            segment.truncateSilently(position);
+            throw new RepositoryException(exception, "file.couldNotSave", segment.path());
+        }
+
+        totalSize.addAndGet(size);
+        if (segment.size() >= maxSegmentSize) {
+            try {
+                roll();
+            } catch (IOException exception) {
+                LOGGER.warn("A new snippet segment could not be started.", exception);
+            }
+        }
+
+        return location;
+    }
+
+    private void force() {
+        writeLock.lock();
+        try {
+            activeSegment.force();
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.couldNotSave", activeSegment.path());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment and seals the previous one. Must be called while holding the write lock.
+     */
+    private void roll() throws IOException {
+        int number = activeSegment == null ? 0 : activeSegment.number() + 1;
+        Segment segment = Segment.create(segmentsDirectory.path().resolve(segmentFileName(number)), number);
+        segmentsDirectory.force();
+        if (activeSegment != null) {
+            activeSegment.seal();
+        }
+
+        activeSegment = segment;
+        segments.add(segment);
+    }
+
+    /**
+     * Starts a compaction if at least half of all records are dead.
+     */
+    private void compactIfNecessary() {
+        long garbageSize = garbageSize();
+        if (garbageSize >= minGarbageSize && 2 * garbageSize >= totalSize.get() && compacting.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } catch (RuntimeException | IOException exception) {
+                        LOGGER.error("The snippet segments could not be compacted.", exception);
+                    } finally {
+                        compacting.set(false);
+                    }
+                });
+            } catch (RuntimeException exception) {
+                // the storage was closed
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Copies the live records of all sealed segments to the active segment and deletes the sealed segments.
+     * The compacted segments are the oldest ones, so they contain any older record of a deleted code snippet
+     * and its deletion can be discarded.
+     */
+    void compact() throws IOException {
+        List<Segment> compactedSegments;
+        int firstSegment;
+        writeLock.lock();
+        try {
+            roll();
+            compactedSegments = new ArrayList<>(segments.subList(0, segments.size() - 1));
+            firstSegment = activeSegment.number();
+        } finally {
+            writeLock.unlock();
+        }
+
+        long startTime = System.currentTimeMillis();
+        for (Segment segment : compactedSegments) {
+            ByteBuffer records = segment.buffer(segment.size());
+            int position = 0;
+            int size;
+            while (position < segment.size() && (size = SnippetRecords.recordSize(records, position)) > 0) {
+                copyIfLive(segment, records, position, size);
+                position += size;
+            }
+        }
+
+        writeLock.lock();
+        try {
+            activeSegment.force();
+            File manifest = segmentsDirectory.getFile(MANIFEST_FILE_NAME);
+            manifest.writeDurably(
+                    String.valueOf(firstSegment).getBytes(StandardCharsets.UTF_8),
+                    FileTime.fromMillis(System.currentTimeMillis())
+            );
+            segmentsDirectory.force();
+
+            segments.removeAll(compactedSegments);
+            for (Segment segment : compactedSegments) {
+                totalSize.addAndGet(-segment.size());
+                segment.close();
+                segment.deleteSilently();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        long endTime = System.currentTimeMillis();
+        LOGGER.info("Compacted {} snippet segments after {}ms", compactedSegments.size(), endTime - startTime);
+    }
+
+    /**
+     * Copies a record to the active segment if it is the latest record of its code snippet.
+     * The record is copied unchanged, so the fingerprint of the code snippet does not change.
+     */
+    private void copyIfLive(Segment segment, ByteBuffer records, int position, int size) {
+        String snippetId = SnippetRecords.metadata(records, position).snippetId();
+        writeLock.lock();
+        try {
+            Location location = locations.get(snippetId);
+            if (location != null && location.segment() == segment && location.position() == position) {
+                locations.put(snippetId, write(records.slice(position, size), false));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the offset table from the segments. Segments which precede the first valid segment of the manifest
+     * were already compacted and are deleted.
+     */
+    private void open() {
+        Path directory = segmentsDirectory.path();
+        try {
+            Files.createDirectories(directory);
+            int firstSegment = Integer.parseInt(segmentsDirectory.getFile(MANIFEST_FILE_NAME).readOrElse("0").trim());
+            List<Path> segmentFiles;
+            try (Stream<Path> files = Files.list(directory)) {
+                segmentFiles = files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_FILE_EXTENSION))
+                                    .sorted(Comparator.comparing(SegmentSnippetStorage::segmentNumber))
+                                    .toList();
+            }
+
+            for (int i = 0; i < segmentFiles.size(); i++) {
+                Path segmentFile = segmentFiles.get(i);
+                int number = segmentNumber(segmentFile);
+                if (number < firstSegment) {
+                    new File(segmentFile).deleteSilently();
+                } else {
+                    Segment segment = Segment.open(segmentFile, number);
+                    segments.add(segment);
+                    load(segment, i == segmentFiles.size() - 1);
+                }
+            }
+
+            writeLock.lock();
+            try {
+                activeSegment = segments.isEmpty() ? null : segments.getLast();
+                if (activeSegment == null || activeSegment.size() >= maxSegmentSize) {
+                    roll();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException | NumberFormatException exception) {
+            throw new RepositoryException(exception, "directory.couldNotAccess", directory);
+        }
+    }
+
+    /**
+     * Adds the records of a segment to the offset table. An incomplete record at the end of the last segment
+     * is the result of a crash while writing, so it is discarded.
+     */
+    private void load(Segment segment, boolean last) throws IOException {
+        ByteBuffer records = segment.buffer(segment.size());
+        int position = 0;
+        int size;
+        while ((size = SnippetRecords.recordSize(records, position)) > 0) {
+            SnippetRecords.Metadata metadata = SnippetRecords.metadata(records, position);
+            Location previous;
+            if (metadata.deletion()) {
+                previous = locations.remove(metadata.snippetId());
+            } else {
+                int checksum = SnippetRecords.checksum(records, position);
+                Location location = Location.of(segment, position, size, metadata, checksum);
+                previous = locations.put(metadata.snippetId(), location);
+                liveSize.addAndGet(size);
+            }
+
+            if (previous != null) {
+                liveSize.addAndGet(-previous.size());
+            }
+
+            position += size;
+        }
+
+        if (position < segment.size()) {
+            if (last) {
+                LOGGER.warn("The snippet segment {} ends with an incomplete record, which is discarded.", segment.path());
+                segment.truncate(position);
+            } else {
+                LOGGER.error("The snippet segment {} is corrupt after position {}.", segment.path(), position);
+            }
+        }
+
+        totalSize.addAndGet(segment.size());
+    }
+
+    private static String segmentFileName(int number) {
+        return String.format("%010d%s", number, SEGMENT_FILE_EXTENSION);
+    }
+
+    private static int segmentNumber(Path segmentFile) {
+        String fileName = segmentFile.getFileName().toString();
+        return Integer.parseInt(fileName.substring(0, fileName.length() - SEGMENT_FILE_EXTENSION.length()));
+    }
+
+    /**
+     * A segment file. Records are appended through its channel and read through a read-only mapping,
+     * which is extended whenever a record beyond its end is read. A sealed segment is mapped completely
+     * and its channel is closed.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final int number;
+        private final FileChannel channel;
+        private volatile MappedByteBuffer mapping;
+        private volatile int size;
+
+        private Segment(Path path, int number, FileChannel channel) throws IOException {
+            this.path = path;
+            this.number = number;
+            this.channel = channel;
+            this.size = (int) channel.size();
+            this.mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        static Segment open(Path path, int number) throws IOException {
+            return new Segment(path, number, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        static Segment create(Path path, int number) throws IOException {
+            return new Segment(path, number, FileChannel.open(
+                    path,
+                    StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE
+            ));
+        }
+
+        Path path() {
+            return path;
+        }
+
+        int number() {
+            return number;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @param end the end of the requested range.
+         * @return a read-only buffer which contains the segment at least up to the given end.
+         * It must only be accessed with absolute positions.
+         */
+        ByteBuffer buffer(int end) {
+            MappedByteBuffer buffer = mapping;
+            return buffer.capacity() >= end ? buffer : remap();
+        }
+
+        private synchronized MappedByteBuffer remap() {
+            if (mapping.capacity() < size) {
+                try {
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                } catch (IOException exception) {
+                    throw new RepositoryException(exception, "file.couldNotRead", path);
+                }
+            }
+
+            return mapping;
+        }
+
+        void append(ByteBuffer records) throws IOException {
+            int position = size;
+            while (records.hasRemaining()) {
+                position += channel.write(records, position);
+            }
+
+            size = position;
+        }
+
+        void force() throws IOException {
+            channel.force(false);
+        }
+
+        void truncate(int size) throws IOException {
+            channel.truncate(size);
+            this.size = size;
+        }
+
+        void truncateSilently(int size) {
+            try {
+                truncate(size);
+            } catch (IOException exception) {
+                LOGGER.error("The snippet segment {} could not be truncated.", path, exception);
+            }
+        }
+
+        /**
+         * Maps the whole segment and closes its channel, as no more records are appended.
+         */
+        void seal() throws IOException {
+            force();
+            remap();
+            channel.close();
+        }
+
+        void close() {
+            try {
+                if (channel.isOpen()) {
+                    channel.force(false);
+                    channel.close();
+                }
+            } catch (IOException exception) {
+                LOGGER.warn("The snippet segment {} could not be closed.", path, exception);
+            }
+        }
+
+        /**
+         * Deletes the segment file. The mapping stays valid for concurrent readers. If the operating system does
+         * not allow to delete a mapped file, the segment is deleted on the next start.
+         */
+        void deleteSilently() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException exception) {
+                LOGGER.debug("The snippet segment {} could not be deleted.", path, exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A size-bounded cache of parsed code snippets. The weight of a code snippet is the length of its code and its
+ * description, which make up most of its memory.
+ * <p>
+ * The eviction follows the W-TinyLFU policy of Caffeine, so code snippets which are read only once,
+ * like all code snippets during indexing, do not push frequently read code snippets out of the cache.
+ * <p>
+ * Every cached code snippet is stored along with the fingerprint of the version it was read from, which is checked
+ * on every lookup. An outdated code snippet is removed and counted as a miss.
+ * <p>
+ * The hit rate and the evictions are logged when the application is closed, so that the maximum weight
+ * can be tuned with the {@code codestore.snippets.cacheSize} property.
+ */
+@Component
+class SnippetCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetCache.class);
+
+    private final Cache<String, Entry> cache;
+    private final long maximumWeight;
+    private final LongAdder outdated = new LongAdder();
+
+    /**
+     * @param maximumWeight the maximum number of characters of the code and the description of all cached snippets.
+     */
+    SnippetCache(@Value("${codestore.snippets.cacheSize:33554432}") long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+        // evictions are carried out by the calling thread rather than the common pool
+        this.cache = Caffeine.newBuilder()
+                             .maximumWeight(maximumWeight)
+                             .weigher((String snippetId, Entry entry) -> weight(entry.snippet()))
+                             .executor(Runnable::run)
+                             .recordStats()
+                             .build();
+    }
+
+    /**
+     * Returns the cached code snippet if its fingerprint is still current. An outdated code snippet is removed.
+     *
+     * @param snippetId the ID of a code snippet.
+     * @param isCurrent checks whether the fingerprint of the cached code snippet is still current.
+     * @return the cached code snippet or {@code null} if it is not cached or outdated.
+     */
+    @Nullable
+    Snippet get(@Nonnull String snippetId, @Nonnull Predicate<FileFingerprint> isCurrent) {
+        Entry entry = cache.getIfPresent(snippetId);
+        if (entry != null && !isCurrent.test(entry.fingerprint())) {
+            outdated.increment();
+            cache.asMap().remove(snippetId, entry);
+            return null;
+        }
+
+        return entry == null ? null : entry.snippet();
+    }
+
+    /**
+     * Adds a code snippet to the cache or replaces the cached version.
+     *
+     * @param snippet the code snippet.
+     * @param fingerprint the fingerprint of the version the code snippet was read from or written to.
+     */
+    void put(@Nonnull Snippet snippet, @Nonnull FileFingerprint fingerprint) {
+        if (weight(snippet) > maximumWeight) {
+            invalidate(snippet.getId());
+            return;
+        }
+
+        cache.put(snippet.getId(), new Entry(snippet, fingerprint));
+    }
+
+    /**
+     * Removes a code snippet from the cache.
+     *
+     * @param snippetId the ID of the code snippet.
+     */
+    void invalidate(@Nonnull String snippetId) {
+        cache.invalidate(snippetId);
+    }
+
+    /**
+     * @return how often a code snippet was taken from the cache.
+     */
+    long hits() {
+        return cache.stats().hitCount() - outdated.sum();
+    }
+
+    /**
+     * @return how often a code snippet was not cached or outdated.
+     */
+    long misses() {
+        return cache.stats().missCount() + outdated.sum();
+    }
+
+    /**
+     * @return how often a code snippet was evicted to keep the maximum weight.
+     */
+    long evictions() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * @return the share of lookups which were answered from the cache, or {@code 0} if there was no lookup yet.
+     */
+    double hitRate() {
+        long hits = hits();
+        long requests = hits + misses();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @return the total weight of all cached code snippets.
+     */
+    long weight() {
+        cache.cleanUp();
+        return cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+
+    /**
+     * Logs the statistics of the cache.
+     * Called by Spring when the application context is closed.
+     */
+    @PreDestroy
+    void logStatistics() {
+        LOGGER.info(
+                "Snippet cache: {} hits, {} misses, hit rate {}, {} evictions, weight {} of {}",
+                hits(), misses(), String.format(Locale.ROOT, "%.2f", hitRate()), evictions(), weight(), maximumWeight
+        );
+    }
+
+    private static int weight(Snippet snippet) {
+        return Math.max(1, snippet.getCode().length() + snippet.getDescription().length());
+    }
+
+    /**
+     * A cached code snippet along with the fingerprint of the version it was read from.
+     */
+    private record Entry(Snippet snippet, FileFingerprint fingerprint) {}
+}
@@ -0,0 +1,223 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.RepositoryException;
+import cloud.codestore.core.repositories.StorageEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the snippets directory for changes which are made outside the application,
+ * for example by file synchronization tools or git, and applies them to the index.
+ * <p>
+ * Events are collected until no further event occurred for a short quiet period, so that a burst of changes
+ * is applied as a single batch and multiple events of the same file are coalesced. If the operating system
+ * dropped events, the whole directory is compared with the index instead. Changes made by the application
+ * itself are recognized by their unchanged fingerprint and therefore not indexed twice.
+ * <p>
+ * The subdirectories of the {@link SnippetFileLayout#SHARDED sharded layout} are watched as well. A new
+ * subdirectory is watched as soon as it is reported, and the files which were created in it before are added
+ * to the changes.
+ * <p>
+ * The watcher only exists if the code snippets are stored by the {@link StorageEngine#FILES files engine}.
+ */
+@Component
+@ConditionalOnProperty(name = "codestore.storage", havingValue = "files", matchIfMissing = true)
+class SnippetDirectoryWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetDirectoryWatcher.class);
+    private static final Duration QUIET_PERIOD = Duration.ofMillis(300);
+    private static final Duration MAX_DELAY = Duration.ofSeconds(3);
+
+    private final Path directory;
+    private final IndexedSnippetRepository repository;
+    private final long quietPeriodMillis;
+    private final long maxDelayMillis;
+    private WatchService watchService;
+
+    @Autowired
+    SnippetDirectoryWatcher(
+            @Qualifier("snippets") Directory snippetsDirectory,
+            IndexedSnippetRepository repository
+    ) {
+        this(snippetsDirectory, repository, QUIET_PERIOD, MAX_DELAY);
+    }
+
+    /**
+     * @param quietPeriod the time without any event after which the collected changes are applied.
+     * @param maxDelay the maximum time after which collected changes are applied during an ongoing burst of events.
+     */
+    SnippetDirectoryWatcher(
+            @Nonnull Directory snippetsDirectory,
+            @Nonnull IndexedSnippetRepository repository,
+            @Nonnull Duration quietPeriod,
+            @Nonnull Duration maxDelay
+    ) {
+        this.directory = snippetsDirectory.path();
+        this.repository = repository;
+        this.quietPeriodMillis = quietPeriod.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+    }
+
+    /**
+     * Starts watching the snippets directory in a background thread.
+     * Called by Spring once the watcher is created.
+     */
+    @PostConstruct
+    void start() {
+        try {
+            Files.createDirectories(directory);
+            watchService = directory.getFileSystem().newWatchService();
+            register(directory);
+            try (DirectoryStream<Path> subdirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+                for (Path subdirectory : subdirectories) {
+                    register(subdirectory);
+                }
+            }
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "directory.couldNotAccess", directory);
+        }
+
+        Thread.ofPlatform().name("snippet-directory-watcher").daemon().start(this::watch);
+    }
+
+    /**
+     * Stops watching the snippets directory.
+     * Called by Spring when the application context is closed.
+     */
+    @PreDestroy
+    void close() {
+        if (watchService == null)
+            return;
+
+        try {
+            watchService.close();
+        } catch (IOException exception) {
+            LOGGER.warn("The watcher of the snippets directory could not be closed.", exception);
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+
+    private void watch() {
+        // changes between the initial indexing and the registration of the watcher are not reported
+        synchronize(repository::synchronizeDirectory);
+
+        try {
+            while (true) {
+                Changes changes = new Changes();
+                boolean valid = changes.collect(watchService.take());
+                long deadline = System.currentTimeMillis() + maxDelayMillis;
+
+                while (valid && !changes.overflow) {
+                    long timeout = Math.min(quietPeriodMillis, deadline - System.currentTimeMillis());
+                    WatchKey key = timeout > 0 ? watchService.poll(timeout, TimeUnit.MILLISECONDS) : null;
+                    if (key == null)
+                        break;
+
+                    valid = changes.collect(key);
+                }
+
+                apply(changes);
+                if (!valid) {
+                    LOGGER.warn("The snippets directory {} is no longer accessible and not watched anymore.", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+            // the watcher was closed
+        }
+    }
+
+    private void apply(Changes changes) {
+        if (changes.overflow) {
+            synchronize(repository::synchronizeDirectory);
+        } else if (!changes.files.isEmpty()) {
+            List<File> files = changes.files.stream().map(File::new).toList();
+            synchronize(() -> repository.synchronize(files));
+        }
+    }
+
+    private void synchronize(Runnable synchronization) {
+        try {
+            synchronization.run();
+        } catch (RuntimeException exception) {
+            LOGGER.error("The changes in the snippets directory could not be indexed.", exception);
+        }
+    }
+
+    /**
+     * The snippet files which changed during a burst of events.
+     */
+    private class Changes {
+        private final Set<Path> files = new HashSet<>();
+        private boolean overflow;
+
+        /**
+         * @return whether the snippets directory is still watched. A subdirectory which is no longer watched,
+         * for example because it was deleted, is ignored.
+         */
+        private boolean collect(WatchKey key) {
+            Path watchedDirectory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    overflow = true;
+                } else {
+                    Path file = watchedDirectory.resolve((Path) event.context());
+                    if (Files.isDirectory(file)) {
+                        if (event.kind() == ENTRY_CREATE && watchedDirectory.equals(directory)) {
+                            watchSubdirectory(file);
+                        }
+                    } else if (file.toString().endsWith(FileSystemRepository.JSON_FILE_EXTENSION)) {
+                        files.add(file);
+                    }
+                }
+            }
+
+            return key.reset() || !watchedDirectory.equals(directory);
+        }
+
+        /**
+         * Watches a new subdirectory. The files which were created in it before are added as changes.
+         */
+        private void watchSubdirectory(Path subdirectory) {
+            try {
+                register(subdirectory);
+                try (Stream<File> subdirectoryFiles = new Directory(subdirectory).walkFiles(1)) {
+                    subdirectoryFiles.map(File::path)
+                                     .filter(file -> file.toString().endsWith(FileSystemRepository.JSON_FILE_EXTENSION))
+                                     .forEach(files::add);
+                }
+            } catch (IOException | RepositoryException exception) {
+                LOGGER.warn("The snippet directory {} could not be watched.", subdirectory, exception);
+                overflow = true;
+            }
+        }
+    }
+}
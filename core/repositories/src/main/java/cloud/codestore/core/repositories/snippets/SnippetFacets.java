@@ -0,0 +1,144 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.usecases.listsnippets.Facet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Counts the found code snippets per {@link Facet} in the same pass as the search.
+ * The language and the tags are indexed as {@link SortedSetDocValuesFacetField}s, so that all their values
+ * are counted at once. The months of the creation and modification times are derived from the doc values
+ * which are also used for sorting.
+ */
+class SnippetFacets {
+    private static final String LANGUAGE_DIMENSION = "language";
+    private static final String TAG_DIMENSION = "tag";
+    private static final FacetsConfig CONFIG = createConfig();
+    private static final Comparator<LabelAndValue> BY_COUNT =
+            Comparator.<LabelAndValue>comparingInt(labelAndValue -> labelAndValue.value.intValue())
+                      .reversed()
+                      .thenComparing(labelAndValue -> labelAndValue.label);
+
+    private SortedSetDocValuesReaderState state;
+
+    /**
+     * Adds the facet fields of the given code snippet to its document.
+     *
+     * @return the document to be indexed.
+     */
+    @Nonnull
+    static Document build(@Nonnull Document document, @Nonnull Snippet snippet) {
+        document.add(new SortedSetDocValuesFacetField(LANGUAGE_DIMENSION, snippet.getLanguage().getName()));
+        for (String tag : snippet.getTags()) {
+            document.add(new SortedSetDocValuesFacetField(TAG_DIMENSION, tag));
+        }
+
+        try {
+            return CONFIG.build(document);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * @param reader the reader which was searched.
+     * @param collector the collector which collected all hits of the search.
+     * @param facets the facets to count.
+     * @return the number of hits per value of the given facets.
+     * The languages and tags are ordered by their count, the months chronologically.
+     */
+    @Nonnull
+    Map<Facet, Map<String, Integer>> count(
+            @Nonnull IndexReader reader,
+            @Nonnull FacetsCollector collector,
+            @Nonnull Set<Facet> facets
+    ) throws IOException {
+        Map<Facet, Map<String, Integer>> counts = new EnumMap<>(Facet.class);
+        if (facets.contains(Facet.LANGUAGE) || facets.contains(Facet.TAGS)) {
+            var facetCounts = new SortedSetDocValuesFacetCounts(state(reader), collector);
+            if (facets.contains(Facet.LANGUAGE))
+                counts.put(Facet.LANGUAGE, valueCounts(facetCounts.getAllChildren(LANGUAGE_DIMENSION)));
+            if (facets.contains(Facet.TAGS))
+                counts.put(Facet.TAGS, valueCounts(facetCounts.getAllChildren(TAG_DIMENSION)));
+        }
+
+        if (facets.contains(Facet.CREATED))
+            counts.put(Facet.CREATED, monthCounts(collector, SnippetIndex.SnippetField.CREATED));
+        if (facets.contains(Facet.MODIFIED))
+            counts.put(Facet.MODIFIED, monthCounts(collector, SnippetIndex.SnippetField.MODIFIED));
+
+        return counts;
+    }
+
+    /**
+     * Returns the ordinals of the facet values of the given reader.
+     * They are only read once per reader, since reading them requires to visit all facet values.
+     */
+    private synchronized SortedSetDocValuesReaderState state(IndexReader reader) throws IOException {
+        if (state == null || state.getReader() != reader) {
+            state = new DefaultSortedSetDocValuesReaderState(reader, CONFIG);
+        }
+
+        return state;
+    }
+
+    private static Map<String, Integer> valueCounts(FacetResult result) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        if (result != null) {
+            Arrays.stream(result.labelValues)
+                  .sorted(BY_COUNT)
+                  .forEach(labelAndValue -> counts.put(labelAndValue.label, labelAndValue.value.intValue()));
+        }
+
+        return counts;
+    }
+
+    private static Map<String, Integer> monthCounts(FacetsCollector collector, String field) throws IOException {
+        Map<YearMonth, Integer> counts = new TreeMap<>();
+        for (FacetsCollector.MatchingDocs matchingDocs : collector.getMatchingDocs()) {
+            NumericDocValues epochSeconds = DocValues.getNumeric(matchingDocs.context.reader(), field);
+            DocIdSetIterator docs = matchingDocs.bits.iterator();
+            for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                if (epochSeconds.advanceExact(doc)) {
+                    Instant instant = Instant.ofEpochSecond(epochSeconds.longValue());
+                    counts.merge(YearMonth.from(instant.atOffset(ZoneOffset.UTC)), 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<String, Integer> monthCounts = new LinkedHashMap<>();
+        counts.forEach((month, count) -> monthCounts.put(month.toString(), count));
+        return monthCounts;
+    }
+
+    private static FacetsConfig createConfig() {
+        var config = new FacetsConfig();
+        config.setMultiValued(TAG_DIMENSION, true);
+        return config;
+    }
+}
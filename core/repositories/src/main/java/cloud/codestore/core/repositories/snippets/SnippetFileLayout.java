@@ -0,0 +1,204 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Describes where the snippet files are located inside the snippets directory.
+ * The layout is selected by the property {@code codestore.snippets.layout}.
+ */
+enum SnippetFileLayout {
+    /**
+     * All snippet files are located directly inside the snippets directory.
+     */
+    FLAT {
+        @Override
+        Path path(@Nonnull Path snippetsDirectory, @Nonnull String snippetId) {
+            return snippetsDirectory.resolve(snippetId + FileSystemRepository.JSON_FILE_EXTENSION);
+        }
+
+        @Override
+        File file(@Nonnull Directory snippetsDirectory, @Nonnull String snippetId) {
+            return snippetsDirectory.getFile(snippetId + FileSystemRepository.JSON_FILE_EXTENSION);
+        }
+
+        @Override
+        Stream<File> snippetFiles(@Nonnull Directory snippetsDirectory) {
+            return snippetsDirectory.walkFiles(1)
+                                    .filter(file -> file.getName().endsWith(FileSystemRepository.JSON_FILE_EXTENSION));
+        }
+    },
+
+    /**
+     * The snippet files are distributed over up to 1296 subdirectories which are named after the first two
+     * characters of the snippet IDs, for example {@code snippets/ab/abcd….json}. As the IDs are random UUIDs,
+     * no directory grows large, which keeps listing and looking up a file fast on every file system.
+     */
+    SHARDED {
+        @Override
+        Path path(@Nonnull Path snippetsDirectory, @Nonnull String snippetId) {
+            return snippetsDirectory.resolve(shard(snippetId))
+                                    .resolve(snippetId + FileSystemRepository.JSON_FILE_EXTENSION);
+        }
+
+        @Override
+        File file(@Nonnull Directory snippetsDirectory, @Nonnull String snippetId) {
+            return new File(path(snippetsDirectory.path(), snippetId));
+        }
+
+        /**
+         * Snippet files which are not located in their shard directory are not included.
+         */
+        @Override
+        Stream<File> snippetFiles(@Nonnull Directory snippetsDirectory) {
+            return snippetsDirectory.walkFiles(2)
+                                    .filter(file -> file.getName().endsWith(FileSystemRepository.JSON_FILE_EXTENSION))
+                                    .filter(file -> file.path().equals(path(
+                                            snippetsDirectory.path(),
+                                            FileSystemRepository.getSnippetId(file)
+                                    )));
+        }
+    };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetFileLayout.class);
+    private static final String FALLBACK_SHARD = "_";
+
+    /**
+     * @param snippetsDirectory the path of the snippets directory.
+     * @param snippetId the ID of a code snippet.
+     * @return the path of the corresponding snippet file.
+     */
+    abstract Path path(@Nonnull Path snippetsDirectory, @Nonnull String snippetId);
+
+    /**
+     * @param snippetsDirectory the snippets directory.
+     * @param snippetId the ID of a code snippet.
+     * @return the corresponding snippet file.
+     */
+    abstract File file(@Nonnull Directory snippetsDirectory, @Nonnull String snippetId);
+
+    /**
+     * Lazily enumerates the snippet files of this layout. Temporary files which are about to replace a snippet file
+     * are not included.
+     *
+     * @param snippetsDirectory the snippets directory.
+     * @return the snippet files as stream, which must be closed after use.
+     */
+    abstract Stream<File> snippetFiles(@Nonnull Directory snippetsDirectory);
+
+    /**
+     * Moves the snippet files of the other layout to their location in this layout. A snippet file is moved
+     * atomically, so an interrupted migration is simply continued on the next start. If a snippet file already
+     * exists in both layouts, the one of this layout is kept. Shard directories which became empty are deleted.
+     *
+     * @param snippetsDirectory the snippets directory.
+     * @return the number of moved snippet files.
+     */
+    int migrate(@Nonnull Directory snippetsDirectory) {
+        SnippetFileLayout other = this == FLAT ? SHARDED : FLAT;
+        List<File> files;
+        try (Stream<File> snippetFiles = other.snippetFiles(snippetsDirectory)) {
+            files = snippetFiles.toList();
+        }
+
+        Set<Path> targetDirectories = new HashSet<>();
+        int count = 0;
+        for (File file : files) {
+            Path target = path(snippetsDirectory.path(), FileSystemRepository.getSnippetId(file));
+            if (Files.exists(target)) {
+                LOGGER.warn("The snippet file {} is not moved, as {} already exists.", file.path(), target);
+            } else {
+                move(file.path(), target);
+                targetDirectories.add(target.getParent());
+                count++;
+            }
+        }
+
+        if (this == FLAT) {
+            deleteEmptyShards(snippetsDirectory);
+        }
+
+        if (count > 0) {
+            targetDirectories.forEach(directory -> new Directory(directory).force());
+            snippetsDirectory.force();
+            LOGGER.info("Moved {} snippet files to the {} layout", count, name().toLowerCase(Locale.ROOT));
+        }
+
+        return count;
+    }
+
+    /**
+     * @param snippetId the ID of a code snippet.
+     * @return the name of the shard directory of the code snippet.
+     */
+    static String shard(@Nonnull String snippetId) {
+        if (snippetId.length() < 2 || !isShardCharacter(snippetId.charAt(0)) || !isShardCharacter(snippetId.charAt(1)))
+            return FALLBACK_SHARD;
+
+        return snippetId.substring(0, 2).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param layout the name of a layout, either {@code flat} or {@code sharded}.
+     * @return the corresponding layout.
+     * @throws IllegalArgumentException if the layout is unknown.
+     */
+    static SnippetFileLayout of(@Nonnull String layout) {
+        return valueOf(layout.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static boolean isShard(String directoryName) {
+        return directoryName.equals(shard(directoryName));
+    }
+
+    private static boolean isShardCharacter(char character) {
+        return (character >= '0' && character <= '9') || (character >= 'a' && character <= 'z') ||
+               (character >= 'A' && character <= 'Z');
+    }
+
+    private static void move(Path source, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(source, target);
+            }
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.couldNotSave", target);
+        }
+    }
+
+    private static void deleteEmptyShards(Directory snippetsDirectory) {
+        try (Stream<Path> entries = Files.list(snippetsDirectory.path())) {
+            entries.filter(entry -> isShard(entry.getFileName().toString()) && Files.isDirectory(entry))
+                   .forEach(shard -> {
+                       try {
+                           Files.deleteIfExists(shard);
+                       } catch (IOException exception) {
+                           // the directory is not empty
+                       }
+                   });
+        } catch (NoSuchFileException exception) {
+            // there are no snippet files yet
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "directory.couldNotAccess", snippetsDirectory);
+        }
+    }
+}
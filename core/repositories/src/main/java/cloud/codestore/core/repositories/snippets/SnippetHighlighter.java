@@ -0,0 +1,175 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.Highlight;
+import cloud.codestore.core.usecases.listsnippets.SnippetHighlights;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.uhighlight.CustomSeparatorBreakIterator;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.CODE;
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.DESCRIPTION;
+
+/**
+ * Determines the fragments of the description and the code which match a search.
+ * The positions of the matching terms are read from the postings of the index, so the stored texts are not
+ * analyzed again. The description is split into sentences and the code into lines.
+ * The matches of a {@link CodePatternQuery} are determined by matching the stored code against its pattern.
+ */
+class SnippetHighlighter extends UnifiedHighlighter {
+    /**
+     * The maximum number of fragments per property of a code snippet.
+     */
+    static final int MAX_FRAGMENTS = 3;
+
+    private static final String[] FIELDS = {DESCRIPTION, CODE};
+
+    SnippetHighlighter(@Nonnull IndexSearcher searcher, @Nonnull Analyzer analyzer) {
+        super(UnifiedHighlighter.builder(searcher, analyzer)
+                                .withFormatter(new HighlightFormatter())
+                                .withMaxNoHighlightPassages(0)
+                                .withWeightMatches(false)
+                                .withMaxLength(Integer.MAX_VALUE - 1));
+    }
+
+    /**
+     * @param query the query which only matches the highlighted terms.
+     * @param hits the documents to highlight.
+     * @return the highlights of the given documents in the same order.
+     */
+    @Nonnull
+    List<SnippetHighlights> highlight(@Nonnull Query query, @Nonnull ScoreDoc[] hits) throws IOException {
+        if (query instanceof CodePatternQuery codePatternQuery)
+            return highlight(codePatternQuery.pattern(), hits);
+
+        int[] docIds = new int[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            docIds[i] = hits[i].doc;
+        }
+
+        int[] maxPassages = new int[FIELDS.length];
+        Arrays.fill(maxPassages, MAX_FRAGMENTS);
+        var fragments = highlightFieldsAsObjects(FIELDS, query, docIds, maxPassages);
+
+        List<SnippetHighlights> highlights = new ArrayList<>(hits.length);
+        for (int i = 0; i < hits.length; i++) {
+            highlights.add(new SnippetHighlights(
+                    fragments(fragments.get(DESCRIPTION)[i]),
+                    fragments(fragments.get(CODE)[i])
+            ));
+        }
+
+        return highlights;
+    }
+
+    /**
+     * Highlights the lines of the code which contain a match of the given pattern.
+     */
+    private List<SnippetHighlights> highlight(Pattern pattern, ScoreDoc[] hits) throws IOException {
+        StoredFields storedFields = searcher.storedFields();
+        var formatter = new HighlightFormatter();
+        List<SnippetHighlights> highlights = new ArrayList<>(hits.length);
+        for (ScoreDoc hit : hits) {
+            String code = storedFields.document(hit.doc, Set.of(CODE)).get(CODE);
+            List<Highlight> codeHighlights = code == null ? List.of() : formatter.format(passages(pattern, code), code);
+            highlights.add(new SnippetHighlights(List.of(), codeHighlights));
+        }
+
+        return highlights;
+    }
+
+    /**
+     * @return the first {@link #MAX_FRAGMENTS} passages which contain a match. A passage consists of the lines of
+     *         a match and contains all further matches which start within these lines.
+     */
+    private static Passage[] passages(Pattern pattern, String code) {
+        List<Passage> passages = new ArrayList<>(MAX_FRAGMENTS);
+        Matcher matcher = pattern.matcher(code);
+        Passage passage = null;
+        while (matcher.find()) {
+            int start = matcher.start();
+            int end = matcher.end();
+            if (start == end)
+                continue;
+
+            if (passage == null || start > passage.getEndOffset()) {
+                if (passages.size() == MAX_FRAGMENTS)
+                    break;
+
+                passage = new Passage();
+                passage.setStartOffset(code.lastIndexOf('\n', start - 1) + 1);
+                passages.add(passage);
+            }
+
+            int lineEnd = code.indexOf('\n', end - 1);
+            passage.setEndOffset(Math.max(passage.getEndOffset(), lineEnd < 0 ? code.length() : lineEnd));
+            passage.addMatch(start, end, null, 1);
+        }
+
+        return passages.toArray(Passage[]::new);
+    }
+
+    @Override
+    protected BreakIterator getBreakIterator(String field) {
+        return CODE.equals(field) ? new CustomSeparatorBreakIterator('\n') : super.getBreakIterator(field);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Highlight> fragments(Object fragments) {
+        return fragments == null ? List.of() : (List<Highlight>) fragments;
+    }
+
+    /**
+     * Converts the passages of a single property into {@link Highlight highlights}.
+     */
+    private static class HighlightFormatter extends PassageFormatter {
+        @Override
+        public List<Highlight> format(Passage[] passages, String content) {
+            List<Highlight> highlights = new ArrayList<>(passages.length);
+            int line = 1;
+            int lineOffset = 0;
+            for (Passage passage : passages) {
+                int start = passage.getStartOffset();
+                int end = passage.getEndOffset();
+                while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+                    end--;
+                }
+
+                // the passages are sorted by their offsets, so the lines are counted only once
+                for (; lineOffset < start; lineOffset++) {
+                    if (content.charAt(lineOffset) == '\n') {
+                        line++;
+                    }
+                }
+
+                // an identifier and its subwords are matched at the same position
+                List<Highlight.Range> matches = new ArrayList<>(passage.getNumMatches());
+                for (int i = 0; i < passage.getNumMatches(); i++) {
+                    var match = new Highlight.Range(passage.getMatchStarts()[i], passage.getMatchEnds()[i]);
+                    if (matches.isEmpty() || !matches.get(matches.size() - 1).equals(match)) {
+                        matches.add(match);
+                    }
+                }
+
+                highlights.add(new Highlight(content.substring(start, end), start, line, matches));
+            }
+
+            return highlights;
+        }
+    }
+}
@@ -2,103 +2,474 @@ package cloud.codestore.core.repositories.snippets;
 
 import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
+import cloud.codestore.core.repositories.RepositoryException;
+import cloud.codestore.core.usecases.listsnippets.Facet;
+import cloud.codestore.core.usecases.listsnippets.SnippetHighlights;
+import cloud.codestore.core.usecases.listsnippets.SnippetSummary;
+import jakarta.annotation.PreDestroy;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.analysis.core.SimpleAnalyzer;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.document.*;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.Term;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
-import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
- * An in-memory index which holds all available code snippets.
+ * A persistent index which holds all available code snippets.
+ * Besides the searchable properties, every document contains the {@link FileFingerprint} of the corresponding
+ * snippet file. Together, these fingerprints form the manifest which allows to update only the changed files
+ * when the application starts.
  */
 @Component
 class SnippetIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetIndex.class);
+
+    /**
+     * The version of the index structure which is stored with every commit.
+     * It must be increased whenever the analyzers or the indexed fields change,
+     * so that existing indexes are rebuilt from scratch.
+     */
+    static final String VERSION = "13";
+    private static final String VERSION_KEY = "version";
+    private static final String MIN_GRAM_KEY = "minGram";
+    private static final String MAX_GRAM_KEY = "maxGram";
+    private static final String INDEX_SORT_KEY = "indexSort";
+
     static final class SnippetField {
         static final String ID = "id";
         static final String LANGUAGE = "language";
+        static final String LANGUAGE_ID = "languageId";
         static final String TITLE = "title";
+        static final String ORIGINAL_TITLE = "originalTitle";
+        static final String TITLE_SORT = "titleSort";
         static final String DESCRIPTION = "description";
         static final String CODE = "code";
+        static final String TITLE_PREFIX = "titlePrefix";
+        static final String DESCRIPTION_PREFIX = "descriptionPrefix";
+        static final String CODE_PREFIX = "codePrefix";
+        static final String CODE_TRIGRAMS = "codeTrigrams";
         static final String TAG = "tag";
         static final String CREATED = "created";
         static final String MODIFIED = "modified";
+        static final String FILE_SIZE = "fileSize";
+        static final String FILE_MODIFIED = "fileModified";
+        static final String FILE_CHECKSUM = "fileChecksum";
     }
 
-    private Directory index;
-    private DirectoryReader reader;
-    private IndexSearcher searcher;
+    /**
+     * The stored fields which make up a {@link SnippetSummary}. The ID and the language are read from the doc values.
+     */
+    private static final Set<String> SUMMARY_FIELDS = Set.of(
+            SnippetField.TITLE,
+            SnippetField.TAG,
+            SnippetField.CREATED,
+            SnippetField.MODIFIED
+    );
+
+    /**
+     * The prefix and trigram fields are only used for matching, so neither frequencies nor norms are indexed.
+     */
+    private static final FieldType MATCHING_FIELD_TYPE = matchingFieldType();
+
+    /**
+     * The description and the code are indexed with the offsets of their terms, so that the matches
+     * can be highlighted without analyzing the texts again. The term vectors allow to match prefixes and
+     * similar terms against the few terms of a single document instead of all terms of the index.
+     */
+    private static final FieldType HIGHLIGHTED_FIELD_TYPE = highlightedFieldType();
+
+    /**
+     * The documents of every segment are sorted by the default order of the listing, the newest code snippet first.
+     * Searches in this order stop collecting the hits of a segment as soon as the page is filled and
+     * {@link #TOTAL_HITS_THRESHOLD} hits were counted. All other orders work as before.
+     */
+    static final Sort INDEX_SORT = new Sort(new SortField(SnippetField.CREATED, SortField.Type.LONG, true));
+
+    /**
+     * The number of hits up to which the hits of a page are counted exactly while they are collected.
+     * Larger results are counted separately, which is cheaper than collecting all of their hits.
+     */
+    private static final int TOTAL_HITS_THRESHOLD = 1000;
+
+    private static final double MAX_STALE_SECONDS = 1.0;
+    private static final double MIN_STALE_SECONDS = 0.001;
+    private static final long COMMIT_INTERVAL_SECONDS = 5;
 
-    SnippetIndex() {
-        closeOnShutdown();
-        index = new ByteBuffersDirectory();
+    private final Directory index;
+    private final EdgeNGrams edgeNGrams;
+    private final Analyzer analyzer;
+    private final IndexWriter writer;
+    private final ParallelSearcherFactory searcherFactory;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final ScheduledExecutorService commitScheduler;
+    private final PageCursors pageCursors = new PageCursors();
+    private final SnippetFacets snippetFacets = new SnippetFacets();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param minGram the length of the shortest prefix of every token which is indexed for search-as-you-type.
+     * @param maxGram the length of the longest prefix of every token which is indexed for search-as-you-type.
+     * @param searchThreads the number of threads which search a large index in parallel
+     *                      or {@code 0} to use one thread per available processor.
+     * @param parallelSearchMinDocs the number of code snippets from which the index is searched in parallel.
+     */
+    @Autowired
+    SnippetIndex(
+            @Qualifier("index") cloud.codestore.core.repositories.Directory indexDirectory,
+            @Value("${codestore.search.minGram:1}") int minGram,
+            @Value("${codestore.search.maxGram:4}") int maxGram,
+            @Value("${codestore.search.threads:0}") int searchThreads,
+            @Value("${codestore.search.parallelMinDocs:" + ParallelSearcherFactory.DEFAULT_MIN_DOCS + "}") int parallelSearchMinDocs
+    ) {
+        this(
+                open(indexDirectory),
+                new EdgeNGrams(minGram, maxGram),
+                new ParallelSearcherFactory(searchThreads, parallelSearchMinDocs)
+        );
+    }
+
+    SnippetIndex(@Nonnull Directory index) {
+        this(index, EdgeNGrams.DEFAULT);
+    }
+
+    SnippetIndex(@Nonnull Directory index, @Nonnull EdgeNGrams edgeNGrams) {
+        this(index, edgeNGrams, new ParallelSearcherFactory(0, ParallelSearcherFactory.DEFAULT_MIN_DOCS));
     }
 
     /**
-     * Searches for code snippets based on the given query.
+     * If the index was created with different gram sizes or a different index sort, it is rebuilt.
      *
-     * @param query the query for searching.
-     * @return a potentially empty list containing the IDs of the found code snippets.
+     * @param searcherFactory creates the searchers of the index. It is closed together with the index.
      */
-    @Nonnull
-    List<String> query(Query query, SortField sortField) {
+    SnippetIndex(
+            @Nonnull Directory index,
+            @Nonnull EdgeNGrams edgeNGrams,
+            @Nonnull ParallelSearcherFactory searcherFactory
+    ) {
+        this.index = index;
+        this.edgeNGrams = edgeNGrams;
+        this.analyzer = createAnalyzer(edgeNGrams);
+        this.searcherFactory = searcherFactory;
+        ensureCompatibility();
+
         try {
-            if (DirectoryReader.indexExists(index)) {
-                if (reader == null) {
-                    reader = DirectoryReader.open(index);
-                    searcher = new IndexSearcher(reader);
-                } else {
-                    DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
-                    if (newReader != null) {
-                        reader.close();
-                        reader = newReader;
-                        searcher = new IndexSearcher(reader);
+            writer = createWriter(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            searcherManager = new SearcherManager(writer, searcherFactory);
+            searcherManager.addListener(new GenerationListener());
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, MAX_STALE_SECONDS, MIN_STALE_SECONDS);
+        reopenThread.setName("snippet-index-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+
+        commitScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("snippet-index-commit").daemon().factory()
+        );
+        commitScheduler.scheduleWithFixedDelay(this::commit, COMMIT_INTERVAL_SECONDS, COMMIT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Searches for code snippets based on the given request and returns a single page of the result.
+     * Only the hits of the requested page are collected. If the previous page was requested before,
+     * the hits are collected after its last hit, so that a page costs the same regardless of its offset.
+     *
+     * @param request the query, the order and the page of the search.
+     * @return the total number of hits and the IDs of the code snippets on the requested page.
+     */
+    @Nonnull
+    SearchHits<String> query(@Nonnull SearchRequest request) {
+        return query(request, SnippetIndex::snippetIds);
+    }
+
+    /**
+     * Same as {@link #query(SearchRequest)} but reads the {@link SnippetSummary summaries}
+     * of the code snippets from the index instead of their IDs.
+     */
+    @Nonnull
+    SearchHits<SnippetSummary> querySummaries(@Nonnull SearchRequest request) {
+        return query(request, SnippetIndex::summaries);
+    }
+
+    private <T> SearchHits<T> query(SearchRequest request, HitReader<T> hitReader) {
+        Query query = request.query();
+        SortField sortField = request.sortField();
+        int offset = request.offset();
+        int limit = request.limit();
+        Set<Facet> facets = request.facets();
+        Query highlightQuery = request.highlightQuery();
+        QueryTimeout timeout = request.timeout();
+        return search(sharedSearcher -> {
+            IndexSearcher searcher = timeout == null ? sharedSearcher : limit(sharedSearcher, timeout);
+            IndexReader reader = searcher.getIndexReader();
+            Sort sort = new Sort(sortField);
+            FieldDoc after = offset == 0 ? null : (FieldDoc) pageCursors.get(reader, query, sort, offset);
+            // expanding fuzzy terms is expensive, so the query is rewritten once for the search and the count
+            Query rewrittenQuery = searcher.rewrite(query);
+
+            // the collector managers collect the slices of a parallel searcher separately and merge their hits,
+            // so that the result is identical to a sequential search
+            int numHits = after != null ? limit : (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            var topDocsManager = new TopFieldCollectorManager(
+                    sort.rewrite(searcher),
+                    Math.min(numHits, Math.max(1, reader.maxDoc())),
+                    after,
+                    // the facets are counted from all hits, so all hits are counted exactly as well
+                    facets.isEmpty() ? TOTAL_HITS_THRESHOLD : Integer.MAX_VALUE,
+                    searcher.getSlices().length > 1
+            );
+
+            TopDocs topDocs;
+            FacetsCollector facetsCollector = null;
+            if (facets.isEmpty()) {
+                topDocs = searcher.search(rewrittenQuery, topDocsManager);
+            } else {
+                Object[] results = searcher.search(
+                        rewrittenQuery,
+                        new MultiCollectorManager(topDocsManager, new FacetsCollectorManager())
+                );
+                topDocs = (TopDocs) results[0];
+                facetsCollector = (FacetsCollector) results[1];
+            }
+
+            ScoreDoc[] hits;
+            if (after != null) {
+                hits = topDocs.scoreDocs;
+            } else {
+                hits = topDocs.scoreDocs.length > offset
+                       ? Arrays.copyOfRange(topDocs.scoreDocs, offset, topDocs.scoreDocs.length)
+                       : new ScoreDoc[0];
+            }
+
+            int totalCount = topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                             ? (int) topDocs.totalHits.value
+                             : searcher.count(rewrittenQuery);
+
+            // the rewritten query may already lack matches, if the timeout exited while rewriting
+            boolean partial = timeout != null && (searcher.timedOut() || timeout.shouldExit());
+            if (hits.length > 0 && !partial) {
+                pageCursors.put(reader, query, sort, offset + hits.length, hits[hits.length - 1]);
+            }
+
+            Map<Facet, Map<String, Integer>> facetCounts = facetsCollector == null
+                                                           ? Map.of()
+                                                           : snippetFacets.count(reader, facetsCollector, facets);
+
+            Map<String, SnippetHighlights> highlights = highlightQuery == null
+                                                        ? Map.of()
+                                                        : highlight(searcher, highlightQuery, hits);
+
+            return new SearchHits<>(totalCount, hitReader.read(reader, hits), facetCounts, highlights, partial);
+        });
+    }
+
+    /**
+     * Creates a searcher for the reader of the given searcher which stops as soon as the given timeout exits.
+     * The timeout cannot be set on the given searcher, as it is shared by all concurrent searches.
+     */
+    private IndexSearcher limit(IndexSearcher searcher, QueryTimeout timeout) {
+        IndexSearcher limitedSearcher = searcherFactory.newSearcher(searcher.getIndexReader());
+        limitedSearcher.setSimilarity(searcher.getSimilarity());
+        limitedSearcher.setQueryCache(searcher.getQueryCache());
+        limitedSearcher.setQueryCachingPolicy(searcher.getQueryCachingPolicy());
+        limitedSearcher.setTimeout(timeout);
+        return limitedSearcher;
+    }
+
+    /**
+     * Returns the generation of the searchable index. The generation increases whenever changes become visible
+     * to searches, so search results of the same generation are identical.
+     * It increases before any modifying method of this index returns.
+     *
+     * @return the current generation of the index.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @return the prefixes which are indexed for search-as-you-type.
+     */
+    @Nonnull
+    EdgeNGrams edgeNGrams() {
+        return edgeNGrams;
+    }
+
+    /**
+     * Reads the manifest of the index.
+     *
+     * @return the fingerprints of the indexed snippet files by the corresponding snippet IDs.
+     */
+    @Nonnull
+    Map<String, FileFingerprint> fingerprints() {
+        return search(searcher -> {
+            Map<String, FileFingerprint> fingerprints = new HashMap<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafReader leafReader = leaf.reader();
+                Bits liveDocs = leafReader.getLiveDocs();
+                SortedDocValues ids = DocValues.getSorted(leafReader, SnippetField.ID);
+                NumericDocValues sizes = DocValues.getNumeric(leafReader, SnippetField.FILE_SIZE);
+                NumericDocValues modificationTimes = DocValues.getNumeric(leafReader, SnippetField.FILE_MODIFIED);
+                NumericDocValues checksums = DocValues.getNumeric(leafReader, SnippetField.FILE_CHECKSUM);
+
+                for (int doc = ids.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = ids.nextDoc()) {
+                    if (liveDocs != null && !liveDocs.get(doc))
+                        continue;
+
+                    if (sizes.advanceExact(doc) && modificationTimes.advanceExact(doc) && checksums.advanceExact(doc)) {
+                        String snippetId = ids.lookupOrd(ids.ordValue()).utf8ToString();
+                        var fingerprint = new FileFingerprint(
+                                sizes.longValue(),
+                                modificationTimes.longValue(),
+                                checksums.longValue()
+                        );
+                        fingerprints.put(snippetId, fingerprint);
+                    }
+                }
+            }
+
+            return fingerprints;
+        });
+    }
+
+    /**
+     * @return all tags of the indexed code snippets.
+     */
+    @Nonnull
+    Set<String> tags() {
+        return search(searcher -> {
+            Set<String> tags = new HashSet<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafReader leafReader = leaf.reader();
+                Bits liveDocs = leafReader.getLiveDocs();
+                SortedSetDocValues tagValues = DocValues.getSortedSet(leafReader, SnippetField.TAG);
+                BitSet usedTags = new BitSet();
+
+                for (int doc = tagValues.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = tagValues.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        for (int i = 0; i < tagValues.docValueCount(); i++) {
+                            usedTags.set((int) tagValues.nextOrd());
+                        }
                     }
                 }
 
-                TopDocs searchResults = searcher.search(query, Integer.MAX_VALUE, new Sort(sortField));
-                return Arrays.stream(searchResults.scoreDocs)
-                             .map(scoreDoc -> getId(scoreDoc.doc))
-                             .toList();
+                for (int ord = usedTags.nextSetBit(0); ord >= 0; ord = usedTags.nextSetBit(ord + 1)) {
+                    tags.add(tagValues.lookupOrd(ord).utf8ToString());
+                }
             }
 
-            return Collections.emptyList();
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
-        }
+            return tags;
+        });
     }
 
     /**
-     * Adds all code snippets of the given stream to this index.
+     * Counts the indexed code snippets per value of the given field.
+     *
+     * @param field a field which is indexed as sorted or sorted set doc values.
+     * @return the number of code snippets by the distinct values of the field.
      */
-    void add(Stream<Snippet> snippets) {
-        try (IndexWriter writer = createWriter()) {
-            snippets.forEach(snippet -> add(snippet, writer));
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
-        }
+    @Nonnull
+    Map<String, Integer> valueCounts(@Nonnull String field) {
+        return search(searcher -> {
+            Map<String, Integer> counts = new HashMap<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafReader leafReader = leaf.reader();
+                Bits liveDocs = leafReader.getLiveDocs();
+                SortedSetDocValues values = DocValues.getSortedSet(leafReader, field);
+                int[] ordCounts = new int[(int) values.getValueCount()];
+
+                for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        for (int i = 0; i < values.docValueCount(); i++) {
+                            ordCounts[(int) values.nextOrd()]++;
+                        }
+                    }
+                }
+
+                for (int ord = 0; ord < ordCounts.length; ord++) {
+                    if (ordCounts[ord] > 0) {
+                        counts.merge(values.lookupOrd(ord).utf8ToString(), ordCounts[ord], Integer::sum);
+                    }
+                }
+            }
+
+            return counts;
+        });
+    }
+
+    /**
+     * Registers a listener which is called whenever changes became visible to searches.
+     * The listener is called by the thread which reopened the index, so it must return quickly.
+     */
+    void onChange(@Nonnull Runnable listener) {
+        searcherManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {}
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    listener.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies several changes to the index and commits them at once.
+     * The changes are visible to subsequent searches when this method returns.
+     *
+     * @param changes a consumer which applies the changes to the given {@link Batch}.
+     */
+    void batch(@Nonnull Consumer<Batch> changes) {
+        Batch batch = new Batch(writer);
+        changes.accept(batch);
+        commit();
+        awaitVisibility(batch.generation.get());
     }
 
     /**
      * Adds the given code snippet to the index.
+     * The snippet is visible to subsequent searches when this method returns.
      */
-    void add(@Nonnull Snippet snippet) {
-        try (IndexWriter writer = createWriter()) {
-            add(snippet, writer);
+    void add(@Nonnull Snippet snippet, @Nonnull FileFingerprint fingerprint) {
+        try {
+            awaitVisibility(writer.addDocument(document(snippet, fingerprint)));
         } catch (IOException exception) {
             throw new RuntimeException(exception);
         }
@@ -106,35 +477,328 @@ class SnippetIndex {
 
     /**
      * Updates the given code snippet in the index.
+     * The changes are visible to subsequent searches when this method returns.
      */
-    void update(@Nonnull Snippet snippet) {
-        try (IndexWriter writer = createWriter()) {
-            writer.updateDocument(new Term(SnippetField.ID, snippet.getId()), document(snippet));
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
-        }
+    void update(@Nonnull Snippet snippet, @Nonnull FileFingerprint fingerprint) {
+        Batch batch = new Batch(writer);
+        batch.put(snippet, fingerprint);
+        awaitVisibility(batch.generation.get());
     }
 
     /**
      * Removes the code snippet with the given ID from the index.
+     * The snippet is no longer found by subsequent searches when this method returns.
      */
     void remove(String snippetId) {
-        try (IndexWriter writer = createWriter()) {
-            writer.deleteDocuments(new Term(SnippetField.ID, snippetId));
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
+        Batch batch = new Batch(writer);
+        batch.remove(snippetId);
+        awaitVisibility(batch.generation.get());
+    }
+
+    /**
+     * Commits all pending changes and releases all resources of this index.
+     * Called by Spring when the application context is closed.
+     */
+    @PreDestroy
+    void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        commitScheduler.shutdown();
+        closeSilently(reopenThread);
+        closeSilently(searcherManager);
+        closeSilently(writer);
+        closeSilently(index);
+        searcherFactory.close();
+    }
+
+    /**
+     * A search for a single page of code snippets.
+     *
+     * @param query the query for searching.
+     * @param sortField the order of the found code snippets.
+     * @param offset the number of hits to skip.
+     * @param limit the maximum number of hits to return.
+     * @param facets the facets whose values are counted over all hits. The facets are counted while collecting
+     *               the page, so the index is only searched once.
+     * @param highlightQuery the query whose matches are highlighted in the description and code of the code
+     *                       snippets on the page or {@code null} to highlight nothing.
+     * @param timeout stops the search as soon as it exits or {@code null} to search without a limit.
+     *                The hits which were found until then are returned as a {@link SearchHits#partial() partial}
+     *                result.
+     */
+    record SearchRequest(
+            @Nonnull Query query,
+            @Nonnull SortField sortField,
+            int offset,
+            int limit,
+            @Nonnull Set<Facet> facets,
+            @Nullable Query highlightQuery,
+            @Nullable QueryTimeout timeout
+    ) {
+        SearchRequest(@Nonnull Query query, @Nonnull SortField sortField, int offset, int limit) {
+            this(query, sortField, offset, limit, Set.of(), null, null);
+        }
+
+        @Nonnull
+        SearchRequest withFacets(@Nonnull Set<Facet> facets) {
+            return new SearchRequest(query, sortField, offset, limit, facets, highlightQuery, timeout);
+        }
+
+        @Nonnull
+        SearchRequest withHighlightQuery(@Nullable Query highlightQuery) {
+            return new SearchRequest(query, sortField, offset, limit, facets, highlightQuery, timeout);
+        }
+
+        @Nonnull
+        SearchRequest withTimeout(@Nullable QueryTimeout timeout) {
+            return new SearchRequest(query, sortField, offset, limit, facets, highlightQuery, timeout);
+        }
+    }
+
+    /**
+     * A page of search results.
+     *
+     * @param totalCount the total number of code snippets which match the query.
+     * @param hits the code snippets on the requested page.
+     * @param facets the number of code snippets per value of the requested facets.
+     * @param highlights the fragments which match the search by the IDs of the code snippets on the page.
+     * @param partial whether the search stopped early, so that the hits and their total count may be incomplete.
+     * @param <T> the type which represents a single code snippet.
+     */
+    record SearchHits<T>(
+            int totalCount,
+            @Nonnull List<T> hits,
+            @Nonnull Map<Facet, Map<String, Integer>> facets,
+            @Nonnull Map<String, SnippetHighlights> highlights,
+            boolean partial
+    ) {
+        SearchHits(int totalCount, @Nonnull List<T> hits) {
+            this(totalCount, hits, Map.of(), Map.of());
+        }
+
+        SearchHits(
+                int totalCount,
+                @Nonnull List<T> hits,
+                @Nonnull Map<Facet, Map<String, Integer>> facets,
+                @Nonnull Map<String, SnippetHighlights> highlights
+        ) {
+            this(totalCount, hits, facets, highlights, false);
         }
     }
 
-    private void add(Snippet snippet, IndexWriter writer) {
+    /**
+     * A set of changes which is applied by {@link #batch(Consumer)}.
+     * The changes are not committed individually. A batch can be used by multiple threads at once,
+     * so that snippets are analyzed in parallel.
+     */
+    static final class Batch {
+        private final IndexWriter writer;
+        private final AtomicLong generation = new AtomicLong();
+
+        private Batch(IndexWriter writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Adds the given code snippet to the index or replaces it if it is already indexed.
+         */
+        void put(@Nonnull Snippet snippet, @Nonnull FileFingerprint fingerprint) {
+            try {
+                track(writer.updateDocument(idTerm(snippet.getId()), document(snippet, fingerprint)));
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        /**
+         * Replaces the fingerprint of an indexed code snippet whose file changed without changing the content.
+         */
+        void updateFingerprint(@Nonnull String snippetId, @Nonnull FileFingerprint fingerprint) {
+            try {
+                track(writer.updateDocValues(idTerm(snippetId), fingerprintFields(fingerprint)));
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        /**
+         * Removes the code snippet with the given ID from the index.
+         */
+        void remove(@Nonnull String snippetId) {
+            try {
+                track(writer.deleteDocuments(idTerm(snippetId)));
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        private void track(long sequenceNumber) {
+            generation.accumulateAndGet(sequenceNumber, Math::max);
+        }
+    }
+
+    /**
+     * Increases the generation of the index whenever the searcher was reopened.
+     * It is registered before the reopen thread, so that it is notified before waiting writers are released.
+     */
+    private class GenerationListener implements ReferenceManager.RefreshListener {
+        @Override
+        public void beforeRefresh() {}
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+            if (didRefresh) {
+                generation.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Executes a search on the most recent {@link IndexSearcher} and releases it afterward.
+     */
+    private <T> T search(SearchAction<T> action) {
         try {
-            writer.addDocument(document(snippet));
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return action.search(searcher);
+            } finally {
+                searcherManager.release(searcher);
+            }
         } catch (IOException exception) {
             throw new RuntimeException(exception);
         }
     }
 
-    private IndexWriter createWriter() throws IOException {
+    /**
+     * Resolves the IDs of the given hits from the doc values, so that no stored fields have to be loaded.
+     */
+    private static List<String> snippetIds(IndexReader reader, ScoreDoc[] hits) throws IOException {
+        List<LeafReaderContext> leaves = reader.leaves();
+        String[] snippetIds = new String[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            snippetIds[i] = snippetId(leaves, hits[i].doc);
+        }
+
+        return Arrays.asList(snippetIds);
+    }
+
+    /**
+     * Reads the summaries of the given hits from the stored fields.
+     */
+    private static List<SnippetSummary> summaries(IndexReader reader, ScoreDoc[] hits) throws IOException {
+        List<LeafReaderContext> leaves = reader.leaves();
+        StoredFields storedFields = reader.storedFields();
+        List<SnippetSummary> summaries = new ArrayList<>(hits.length);
+        for (ScoreDoc hit : hits) {
+            Document document = storedFields.document(hit.doc, SUMMARY_FIELDS);
+            IndexableField modified = document.getField(SnippetField.MODIFIED);
+            summaries.add(new SnippetSummary(
+                    snippetId(leaves, hit.doc),
+                    document.get(SnippetField.TITLE),
+                    languageById(languageId(leaves, hit.doc)),
+                    List.of(document.getValues(SnippetField.TAG)),
+                    dateTime(document.getField(SnippetField.CREATED).numericValue().longValue()),
+                    modified == null ? null : dateTime(modified.numericValue().longValue())
+            ));
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Highlights only the given hits, as the highlighter reads the stored description and code of every document.
+     */
+    private Map<String, SnippetHighlights> highlight(IndexSearcher searcher, Query highlightQuery, ScoreDoc[] hits)
+            throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        List<SnippetHighlights> highlights = new SnippetHighlighter(searcher, analyzer).highlight(highlightQuery, hits);
+        Map<String, SnippetHighlights> highlightsById = new HashMap<>();
+        for (int i = 0; i < hits.length; i++) {
+            highlightsById.put(snippetId(leaves, hits[i].doc), highlights.get(i));
+        }
+
+        return highlightsById;
+    }
+
+    private static String snippetId(List<LeafReaderContext> leaves, int doc) throws IOException {
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        SortedDocValues ids = DocValues.getSorted(leaf.reader(), SnippetField.ID);
+        return ids.advanceExact(doc - leaf.docBase) ? ids.lookupOrd(ids.ordValue()).utf8ToString() : null;
+    }
+
+    private static int languageId(List<LeafReaderContext> leaves, int doc) throws IOException {
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        SortedNumericDocValues languageIds = DocValues.getSortedNumeric(leaf.reader(), SnippetField.LANGUAGE_ID);
+        return languageIds.advanceExact(doc - leaf.docBase) ? (int) languageIds.nextValue() : -1;
+    }
+
+    private static Language languageById(int languageId) {
+        for (Language language : Language.values()) {
+            if (language.getId() == languageId)
+                return language;
+        }
+
+        return Language.getDefault();
+    }
+
+    private static OffsetDateTime dateTime(long epochSecond) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+    }
+
+    @FunctionalInterface
+    private interface HitReader<T> {
+        List<T> read(IndexReader reader, ScoreDoc[] hits) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SearchAction<T> {
+        T search(IndexSearcher searcher) throws IOException;
+    }
+
+    /**
+     * Waits until the background thread reopened the searcher so that it contains the given generation of changes.
+     */
+    private void awaitVisibility(long generation) {
+        try {
+            reopenThread.waitForGeneration(generation);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Persists the pending changes. Called periodically, so that multiple edits share a single commit.
+     * Changes which are lost due to a crash are restored on the next start, as the fingerprints of the
+     * corresponding snippet files no longer match.
+     */
+    private void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException | AlreadyClosedException exception) {
+            LOGGER.error("The snippet index could not be committed.", exception);
+        }
+    }
+
+    private IndexWriter createWriter(IndexWriterConfig.OpenMode openMode) throws IOException {
+        var config = new IndexWriterConfig(analyzer).setOpenMode(openMode).setIndexSort(INDEX_SORT);
+        var writer = new IndexWriter(index, config);
+        writer.setLiveCommitData(commitData().entrySet());
+        return writer;
+    }
+
+    private Map<String, String> commitData() {
+        return Map.of(
+                VERSION_KEY, VERSION,
+                MIN_GRAM_KEY, String.valueOf(edgeNGrams.minGram()),
+                MAX_GRAM_KEY, String.valueOf(edgeNGrams.maxGram()),
+                INDEX_SORT_KEY, INDEX_SORT.toString()
+        );
+    }
+
+    static Analyzer createAnalyzer(EdgeNGrams edgeNGrams) {
         var keywordAnalyzer = new KeywordAnalyzer();
         var simpleAnalyzer = new SimpleAnalyzer();
         var whitespaceAnalyzer = new WhitespaceAnalyzer();
@@ -142,80 +806,187 @@ class SnippetIndex {
         Map<String, Analyzer> analyzerMap = new HashMap<>();
         analyzerMap.put(SnippetField.TITLE, whitespaceAnalyzer);
         analyzerMap.put(SnippetField.DESCRIPTION, simpleAnalyzer);
-        analyzerMap.put(SnippetField.CODE, simpleAnalyzer);
+        analyzerMap.put(SnippetField.CODE, CodeAnalyzer.forAnyLanguage());
         analyzerMap.put(SnippetField.ID, keywordAnalyzer);
         analyzerMap.put(SnippetField.TAG, keywordAnalyzer);
         analyzerMap.put(SnippetField.LANGUAGE, keywordAnalyzer);
+        analyzerMap.put(SnippetField.TITLE_PREFIX, edgeNGrams.analyzer(whitespaceAnalyzer));
+        analyzerMap.put(SnippetField.DESCRIPTION_PREFIX, edgeNGrams.analyzer(simpleAnalyzer));
+        analyzerMap.put(SnippetField.CODE_PREFIX, edgeNGrams.analyzer(CodeAnalyzer.forAnyLanguage()));
+        analyzerMap.put(SnippetField.CODE_TRIGRAMS, new TrigramAnalyzer());
 
-        var analyzer = new PerFieldAnalyzerWrapper(new SimpleAnalyzer(), analyzerMap);
-        return new IndexWriter(index, new IndexWriterConfig(analyzer));
+        return new PerFieldAnalyzerWrapper(simpleAnalyzer, analyzerMap);
     }
 
-    private String getId(int docId) {
-        try {
-            Document document = reader.storedFields().document(docId, Collections.singleton(SnippetField.ID));
-            return document.get(SnippetField.ID);
-        } catch (IOException exception) {
-            throw new RuntimeException(exception);
-        }
+    private static Term idTerm(String snippetId) {
+        return new Term(SnippetField.ID, snippetId);
     }
 
-    private Document document(Snippet snippet) {
+    static Document document(Snippet snippet, FileFingerprint fingerprint) {
         Document document = new Document();
 
-        document.add(new StringField(SnippetField.ID, snippet.getId(), Field.Store.YES));
-        document.add(new TextField(SnippetField.DESCRIPTION, snippet.getDescription(), Field.Store.NO));
-        document.add(new TextField(SnippetField.CODE, snippet.getCode(), Field.Store.NO));
-        document.add(new NumericDocValuesField(SnippetField.CREATED, snippet.getCreated().toEpochSecond()));
-        document.add(new NumericDocValuesField(SnippetField.MODIFIED, snippet.getOptionalModified().orElse(snippet.getCreated()).toEpochSecond()));
+        document.add(new StringField(SnippetField.ID, snippet.getId(), Field.Store.NO));
+        document.add(new SortedDocValuesField(SnippetField.ID, new BytesRef(snippet.getId())));
+        document.add(new Field(SnippetField.DESCRIPTION, snippet.getDescription(), HIGHLIGHTED_FIELD_TYPE));
+        document.add(new StoredField(SnippetField.DESCRIPTION, snippet.getDescription()));
+        document.add(new Field(SnippetField.CODE, codeTokens(snippet), HIGHLIGHTED_FIELD_TYPE));
+        document.add(new StoredField(SnippetField.CODE, snippet.getCode()));
+        document.add(new Field(SnippetField.DESCRIPTION_PREFIX, snippet.getDescription(), MATCHING_FIELD_TYPE));
+        document.add(new Field(SnippetField.CODE_PREFIX, snippet.getCode(), MATCHING_FIELD_TYPE));
+        document.add(new Field(SnippetField.CODE_TRIGRAMS, snippet.getCode(), MATCHING_FIELD_TYPE));
+        addTimestamp(SnippetField.CREATED, snippet.getCreated().toEpochSecond(), document);
+        document.add(new StoredField(SnippetField.CREATED, snippet.getCreated().toEpochSecond()));
+        addTimestamp(SnippetField.MODIFIED, snippet.getOptionalModified().orElse(snippet.getCreated()).toEpochSecond(), document);
+        snippet.getOptionalModified().ifPresent(modified -> document.add(new StoredField(SnippetField.MODIFIED, modified.toEpochSecond())));
         addLanguage(snippet.getLanguage(), document);
 
         String title = snippet.getTitle().toLowerCase();
-        document.add(new SortedDocValuesField(SnippetField.TITLE, new BytesRef(title)));
+        // a separate field without terms, so that sorting by the whole title can skip non-competitive hits
+        document.add(new SortedDocValuesField(SnippetField.TITLE_SORT, new BytesRef(title)));
         document.add(new TextField(SnippetField.TITLE, title, Field.Store.NO));
+        document.add(new Field(SnippetField.TITLE_PREFIX, title, MATCHING_FIELD_TYPE));
+        document.add(new StoredField(SnippetField.TITLE, snippet.getTitle()));
+        document.add(new SortedDocValuesField(SnippetField.ORIGINAL_TITLE, new BytesRef(snippet.getTitle())));
 
         for (String tag : snippet.getTags()) {
             document.add(new StringField(SnippetField.TAG, normalize(tag), Field.Store.NO));
+            document.add(new SortedSetDocValuesField(SnippetField.TAG, new BytesRef(tag)));
+            document.add(new StoredField(SnippetField.TAG, tag));
+        }
+
+        for (Field field : fingerprintFields(fingerprint)) {
+            document.add(field);
         }
 
-        return document;
+        return SnippetFacets.build(document, snippet);
     }
 
-    private void addLanguage(Language language, Document document) {
-        int languageId = language.getId();
-        String languageName = switch (language) {
-            case SHELL -> "shell";
-            case BATCH -> "batch";
-            default -> language.getName().toLowerCase();
+    private static Field[] fingerprintFields(FileFingerprint fingerprint) {
+        return new Field[]{
+                new NumericDocValuesField(SnippetField.FILE_SIZE, fingerprint.size()),
+                new NumericDocValuesField(SnippetField.FILE_MODIFIED, fingerprint.lastModified()),
+                new NumericDocValuesField(SnippetField.FILE_CHECKSUM, fingerprint.checksum())
         };
+    }
+
+    /**
+     * Analyzes the code with the rules of its programming language.
+     * The returned stream is consumed by the {@link IndexWriter} when the document is added.
+     */
+    private static TokenStream codeTokens(Snippet snippet) {
+        Language language = Objects.requireNonNullElse(snippet.getLanguage(), Language.getDefault());
+        return CodeAnalyzer.forLanguage(language).tokenStream(SnippetField.CODE, snippet.getCode());
+    }
+
+    private static FieldType matchingFieldType() {
+        var fieldType = new FieldType();
+        fieldType.setIndexOptions(IndexOptions.DOCS);
+        fieldType.setTokenized(true);
+        fieldType.setOmitNorms(true);
+        fieldType.freeze();
+        return fieldType;
+    }
+
+    private static FieldType highlightedFieldType() {
+        var fieldType = new FieldType(TextField.TYPE_NOT_STORED);
+        fieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        fieldType.setStoreTermVectors(true);
+        fieldType.freeze();
+        return fieldType;
+    }
 
-        document.add(new StringField(SnippetField.LANGUAGE, String.valueOf(languageId), Field.Store.NO));
-        document.add(new StringField(SnippetField.LANGUAGE, languageName, Field.Store.NO));
+    /**
+     * Indexes a timestamp as doc value for sorting and as point, so that ranges are matched through the BKD tree.
+     */
+    private static void addTimestamp(String field, long epochSecond, Document document) {
+        document.add(new NumericDocValuesField(field, epochSecond));
+        document.add(new LongPoint(field, epochSecond));
+    }
+
+    /**
+     * The language is filtered and read by its ID, which is indexed once as a point and as a doc value.
+     * Its name is only indexed as a term, so that the search matches the names of the languages.
+     */
+    private static void addLanguage(Language language, Document document) {
+        document.add(new IntField(SnippetField.LANGUAGE_ID, language.getId(), Field.Store.NO));
+        document.add(new StringField(SnippetField.LANGUAGE, normalizeLanguage(language.getName()), Field.Store.NO));
     }
 
     static String normalize(String tag) {
         return tag.toLowerCase().replace("-", "").replace("_", "");
     }
 
-    private void closeOnShutdown() {
-        Runtime.getRuntime().addShutdownHook(
-                new Thread(() -> {
-                    try {
-                        if (reader != null) {
-                            reader.close();
-                        }
-                    } catch (Exception exception) {
-                        exception.printStackTrace();
-                    }
+    /**
+     * @return the indexed term of the programming language with the given name.
+     */
+    static String normalizeLanguage(String languageName) {
+        languageName = languageName.toLowerCase();
+        return switch (languageName) {
+            case "shell script" -> "shell";
+            case "batch script" -> "batch";
+            default -> languageName;
+        };
+    }
 
-                    try {
-                        if (index != null) {
-                            index.close();
-                        }
-                    } catch (Exception exception) {
-                        exception.printStackTrace();
-                    }
-                })
-        );
+    /**
+     * Makes sure that the index exists and can be used by this version of the application.
+     * Otherwise, the index is recreated and all snippets will be indexed again.
+     */
+    private void ensureCompatibility() {
+        if (isCompatible())
+            return;
+
+        try {
+            for (String fileName : index.listAll()) {
+                if (!fileName.equals(IndexWriter.WRITE_LOCK_NAME)) {
+                    index.deleteFile(fileName);
+                }
+            }
+
+            try (IndexWriter writer = createWriter(IndexWriterConfig.OpenMode.CREATE)) {
+                writer.commit();
+            }
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private boolean isCompatible() {
+        try {
+            SegmentInfos latestCommit = SegmentInfos.readLatestCommit(index);
+            if (!VERSION.equals(latestCommit.getUserData().get(VERSION_KEY))) {
+                LOGGER.info("The snippet index was created by a different version and will be rebuilt.");
+                return false;
+            }
+
+            if (!commitData().equals(latestCommit.getUserData())) {
+                LOGGER.info("The snippet index was created with different settings and will be rebuilt.");
+                return false;
+            }
+
+            DirectoryReader.open(index).close();
+            return true;
+        } catch (IndexNotFoundException exception) {
+            return false;
+        } catch (IOException exception) {
+            LOGGER.warn("The snippet index is corrupt and will be rebuilt.", exception);
+            return false;
+        }
+    }
+
+    private static Directory open(cloud.codestore.core.repositories.Directory indexDirectory) {
+        try {
+            return new MMapDirectory(indexDirectory.path());
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "directory.couldNotAccess", indexDirectory);
+        }
+    }
+
+    private static void closeSilently(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception exception) {
+            LOGGER.warn("{} could not be closed.", closeable, exception);
+        }
     }
 }
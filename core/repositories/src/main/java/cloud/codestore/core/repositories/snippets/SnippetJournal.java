@@ -0,0 +1,458 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.RepositoryException;
+import cloud.codestore.core.repositories.StorageEngine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An append-only log of the changes to the snippet files. It makes creating, updating and deleting a code snippet
+ * durable without writing the snippet file on the calling thread.
+ * <p>
+ * A change is appended to the journal and forced to the storage device before {@link #put} or {@link #delete}
+ * returns. Changes which are appended concurrently are written by a single thread and share a single force
+ * (group commit). Afterward, a second thread applies the changes in their order to the snippet files. Every snippet
+ * file is replaced atomically by a temporary file, so a crash never leaves a partially written snippet file.
+ * Until a change is applied, it is available through {@link #pending(String)}.
+ * <p>
+ * The journal is truncated as soon as all changes were applied and no change was appended for a short time.
+ * A change which still cannot be applied after a few attempts is discarded, so that it does not keep the journal
+ * from being truncated. Changes which were not applied because the application crashed are applied when the journal
+ * is opened again. If the journal cannot be written anymore, it is closed and all changes which were not written
+ * yet fail.
+ * A record which was not written completely is recognized by its checksum and discarded.
+ * <p>
+ * The journal only exists if the code snippets are stored by the {@link StorageEngine#FILES files engine}.
+ *
+ * @see SnippetRecords
+ */
+@Component
+@ConditionalOnProperty(name = "codestore.storage", havingValue = "files", matchIfMissing = true)
+class SnippetJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetJournal.class);
+    static final String FILE_NAME = "snippets.wal";
+
+    private static final int MAX_GROUP_SIZE = 256;
+    private static final long CHECKPOINT_DELAY_MILLIS = 1000;
+    private static final long MAX_JOURNAL_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_APPLY_ATTEMPTS = 3;
+    private static final long APPLY_RETRY_DELAY_MILLIS = 100;
+
+    /**
+     * Appended after the last change when the journal is closed.
+     */
+    private static final Append CLOSE = new Append(null, null);
+    private static final Change CLOSE_CHANGE = new Change("", null, 0);
+
+    private final Path journalFile;
+    private final Directory snippetsDirectory;
+    private final SnippetFileLayout layout;
+    private final Set<Path> changedDirectories = ConcurrentHashMap.newKeySet();
+    private final FileChannel channel;
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Change> unappliedChanges = new LinkedBlockingQueue<>();
+    private final Map<String, Change> pendingChanges = new ConcurrentHashMap<>();
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final Object applied = new Object();
+    private final LongAdder forceCount = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread writer;
+    private final Thread applier;
+
+    /**
+     * Creates a journal for snippet files in the {@link SnippetFileLayout#FLAT flat layout}.
+     */
+    SnippetJournal(@Nonnull Directory journalDirectory, @Nonnull Directory snippetsDirectory) {
+        this(journalDirectory, snippetsDirectory, SnippetFileLayout.FLAT);
+    }
+
+    /**
+     * Applies the changes which remained in the journal and starts the threads which write and apply new changes.
+     *
+     * @param layout the layout of the snippet files the changes are applied to.
+     */
+    @Autowired
+    SnippetJournal(
+            @Qualifier("journal") Directory journalDirectory,
+            @Qualifier("snippets") Directory snippetsDirectory,
+            SnippetFileLayout layout
+    ) {
+        this.journalFile = journalDirectory.path().resolve(FILE_NAME);
+        this.snippetsDirectory = snippetsDirectory;
+        this.layout = layout;
+
+        try {
+            Files.createDirectories(journalDirectory.path());
+            channel = FileChannel.open(
+                    journalFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND
+            );
+            replay();
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.couldNotRead", journalFile);
+        }
+
+        writer = Thread.ofPlatform().name("snippet-journal").daemon().start(this::write);
+        applier = Thread.ofPlatform().name("snippet-journal-applier").daemon().start(this::apply);
+    }
+
+    /**
+     * Durably records the new content of a snippet file.
+     * The file itself is written in the background.
+     *
+     * @param snippetId the ID of the code snippet.
+     * @param content the content of the snippet file.
+     * @throws RepositoryException if the change could not be written to the journal.
+     */
+    void put(@Nonnull String snippetId, @Nonnull byte[] content) throws RepositoryException {
+        append(new Change(snippetId, content, System.currentTimeMillis()));
+    }
+
+    /**
+     * Durably records the deletion of a snippet file.
+     * The file itself is deleted in the background.
+     *
+     * @param snippetId the ID of the code snippet.
+     * @throws RepositoryException if the change could not be written to the journal.
+     */
+    void delete(@Nonnull String snippetId) throws RepositoryException {
+        append(new Change(snippetId, null, System.currentTimeMillis()));
+    }
+
+    /**
+     * @param snippetId the ID of a code snippet.
+     * @return the latest change of the snippet file which was not applied yet or {@code null} if the snippet file
+     * is up to date.
+     */
+    @Nullable
+    Change pending(@Nonnull String snippetId) {
+        return pendingChanges.get(snippetId);
+    }
+
+    /**
+     * @return the number of times the journal was forced to the storage device.
+     * It is lower than the number of changes if concurrent changes shared a force.
+     */
+    long forceCount() {
+        return forceCount.sum();
+    }
+
+    /**
+     * Waits until all changes which were written so far were applied to the snippet files or discarded.
+     */
+    void awaitApplied() throws InterruptedException {
+        long writtenCount = appendedCount.get();
+        synchronized (applied) {
+            while (appliedCount.get() < writtenCount && applier.isAlive()) {
+                applied.wait();
+            }
+        }
+    }
+
+    /**
+     * Applies all changes to the snippet files and truncates the journal.
+     * Changes cannot be appended afterward.
+     * Called by Spring when the application context is closed.
+     */
+    @PreDestroy
+    void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        synchronized (appends) {
+            appends.add(CLOSE);
+        }
+
+        try {
+            writer.join();
+            applier.join();
+            checkpoint();
+            channel.close();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (IOException exception) {
+            LOGGER.warn("The snippet journal could not be closed.", exception);
+        }
+    }
+
+    /**
+     * A change of a single snippet file.
+     *
+     * @param snippetId the ID of the code snippet.
+     * @param content the new content of the snippet file or {@code null} if the file is deleted.
+     * @param lastModified the time of the change in milliseconds since the epoch.
+     *                     It becomes the modification time of the snippet file.
+     */
+    record Change(@Nonnull String snippetId, @Nullable byte[] content, long lastModified) {
+        boolean isDeletion() {
+            return content == null;
+        }
+    }
+
+    private record Append(Change change, CompletableFuture<Void> written) {}
+
+    private void append(Change change) {
+        var append = new Append(change, new CompletableFuture<>());
+        synchronized (appends) {
+            // changes are only appended before the journal is closed, so the writer handles all of them
+            if (closed.get())
+                throw new RepositoryException("file.couldNotSave", journalFile);
+
+            appends.add(append);
+        }
+
+        try {
+            append.written().get();
+        } catch (ExecutionException exception) {
+            throw new RepositoryException(exception.getCause(), "file.couldNotSave", journalFile);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException(exception, "file.couldNotSave", journalFile);
+        }
+    }
+
+    /**
+     * Writes the appended changes in groups. A group contains all changes which were appended while the previous
+     * group was written. The journal is truncated whenever no changes were appended for a short time.
+     * If the journal cannot be written anymore, it is closed and all changes which were not written fail.
+     */
+    private void write() {
+        List<Append> group = new ArrayList<>(MAX_GROUP_SIZE);
+        try {
+            while (true) {
+                Append first = appends.poll(CHECKPOINT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    checkpoint();
+                    continue;
+                }
+
+                group.add(first);
+                appends.drainTo(group, MAX_GROUP_SIZE - 1);
+                boolean close = group.remove(CLOSE);
+                if (!group.isEmpty()) {
+                    write(group);
+                    group.clear();
+                }
+
+                if (close)
+                    return;
+
+                if (channel.size() > MAX_JOURNAL_SIZE) {
+                    checkpoint();
+                }
+            }
+        } catch (InterruptedException | IOException exception) {
+            LOGGER.error("The snippet journal stopped writing.", exception);
+            stopWriting(group, exception);
+        } finally {
+            unappliedChanges.add(CLOSE_CHANGE);
+        }
+    }
+
+    private void write(List<Append> group) throws IOException {
+        long size = channel.size();
+        try {
+            ByteBuffer records = SnippetRecords.encode(group.stream().map(Append::change).toList());
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+
+            channel.force(false);
+            forceCount.increment();
+        } catch (IOException exception) {
+            group.forEach(append -> append.written().completeExceptionally(exception));
+            // an incomplete record would hide all subsequent records when the journal is replayed
+            channel.truncate(size);
+            return;
+        }
+
+        for (Append append : group) {
+            Change change = append.change();
+            pendingChanges.put(change.snippetId(), change);
+            appendedCount.incrementAndGet();
+            unappliedChanges.add(change);
+            append.written().complete(null);
+        }
+    }
+
+    /**
+     * Closes the journal after it could not be written. The changes of the given group and all changes which are
+     * still queued fail, and no change can be appended afterward. The changes which were written before
+     * stay in the journal, so that they are applied again on the next start if they cannot be applied now.
+     */
+    private void stopWriting(List<Append> group, Exception cause) {
+        List<Append> failed = new ArrayList<>(group);
+        synchronized (appends) {
+            closed.set(true);
+            appends.drainTo(failed);
+        }
+
+        for (Append append : failed) {
+            if (append != CLOSE) {
+                append.written().completeExceptionally(cause);
+            }
+        }
+
+        try {
+            channel.close();
+        } catch (IOException exception) {
+            LOGGER.warn("The snippet journal could not be closed.", exception);
+        }
+    }
+
+    /**
+     * Applies the written changes to the snippet files in the order in which they were written.
+     */
+    private void apply() {
+        try {
+            while (true) {
+                Change change = unappliedChanges.take();
+                if (change == CLOSE_CHANGE)
+                    return;
+
+                applyOrDiscard(change);
+                pendingChanges.remove(change.snippetId(), change);
+                synchronized (applied) {
+                    appliedCount.incrementAndGet();
+                    applied.notifyAll();
+                }
+            }
+        } catch (InterruptedException exception) {
+            LOGGER.error("The snippet journal stopped applying changes.", exception);
+        } finally {
+            synchronized (applied) {
+                applied.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Applies a change to its snippet file. A change which cannot be applied is tried again a few times,
+     * because the snippet file may only be locked temporarily. Afterward, it is discarded.
+     */
+    private void applyOrDiscard(Change change) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                apply(change);
+                return;
+            } catch (RuntimeException exception) {
+                if (attempt == MAX_APPLY_ATTEMPTS) {
+                    LOGGER.error("The change of the snippet file {} could not be applied and is discarded.",
+                            change.snippetId(), exception);
+                    return;
+                }
+
+                LOGGER.warn("The change of the snippet file {} could not be applied.", change.snippetId(), exception);
+                Thread.sleep(APPLY_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void apply(Change change) {
+        File file = layout.file(snippetsDirectory, change.snippetId());
+        Path directory = file.path().getParent();
+        if (!directory.equals(snippetsDirectory.path())) {
+            changedDirectories.add(directory);
+        }
+
+        if (change.isDeletion()) {
+            file.delete();
+        } else {
+            file.writeDurably(change.content(), FileTime.fromMillis(change.lastModified()));
+        }
+    }
+
+    /**
+     * Truncates the journal if all written changes were applied. Only called by the writer or after it stopped,
+     * so no change is written concurrently.
+     */
+    private void checkpoint() {
+        try {
+            if (appliedCount.get() == appendedCount.get() && channel.size() > 0) {
+                // the new and deleted directory entries must be durable before the journal is discarded
+                for (Path directory : changedDirectories) {
+                    changedDirectories.remove(directory);
+                    new Directory(directory).force();
+                }
+
+                snippetsDirectory.force();
+                channel.truncate(0);
+                channel.force(true);
+            }
+        } catch (IOException exception) {
+            LOGGER.warn("The snippet journal could not be truncated.", exception);
+        }
+    }
+
+    /**
+     * Applies the changes which are contained in the journal. Everything after the first incomplete record
+     * is discarded.
+     */
+    private void replay() throws IOException {
+        ByteBuffer journal = ByteBuffer.wrap(readJournal());
+        List<Change> changes = SnippetRecords.decode(journal);
+        if (journal.position() < journal.limit()) {
+            LOGGER.warn("The snippet journal ends with an incomplete change, which is discarded.");
+            channel.truncate(journal.position());
+        }
+
+        try {
+            for (Change change : changes) {
+                applyOrDiscard(change);
+                appliedCount.incrementAndGet();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException(exception, "file.couldNotRead", journalFile);
+        }
+
+        if (!changes.isEmpty()) {
+            LOGGER.info("Applied {} changes of the snippet journal.", appliedCount.get());
+        }
+
+        appendedCount.set(changes.size());
+        checkpoint();
+    }
+
+    private byte[] readJournal() throws IOException {
+        try {
+            return Files.readAllBytes(journalFile);
+        } catch (NoSuchFileException exception) {
+            return new byte[0];
+        }
+    }
+}
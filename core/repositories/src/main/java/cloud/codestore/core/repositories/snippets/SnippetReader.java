@@ -2,67 +2,255 @@ package cloud.codestore.core.repositories.snippets;
 
 import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
+import cloud.codestore.core.SnippetBuilder;
 import cloud.codestore.core.repositories.File;
 import cloud.codestore.core.repositories.RepositoryException;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
 import java.time.OffsetDateTime;
-import java.util.Optional;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Reads code snippets from their JSON representation.
+ * The JSON is parsed as a stream of tokens directly from the file, without creating the whole content
+ * or an intermediate object in memory.
+ */
 @Component
 class SnippetReader {
+    private static final Language[] LANGUAGES = languagesById();
+    private static final int MAX_INTERNED_TAGS = 10_000;
+    private static final int[] NANOS_PER_DIGIT = {
+            100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1
+    };
+
     private final ObjectMapper objectMapper;
+    private final Map<String, String> tags = new ConcurrentHashMap<>();
 
     SnippetReader(@Qualifier("snippetMapper") ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
     }
 
     Snippet read(File file) {
-        var dto = readDto(file);
-        return Snippet.builder()
-                      .id(getSnippetId(file))
-                      .title(dto.title())
-                      .description(dto.description())
-                      .code(dto.code())
-                      .tags(dto.tags())
-                      .language(getLanguageById(dto.language()))
-                      .created(parseDateTime(dto.created()))
-                      .modified(parseDateTime(dto.modified()))
-                      .build();
-    }
-
-    private PersistentSnippetDto readDto(File file) {
-        try {
-            String fileContent = file.readOrElse("{}");
-            return objectMapper.readValue(fileContent, PersistentSnippetDto.class);
+        try (InputStream inputStream = file.openOrEmpty();
+             JsonParser parser = objectMapper.createParser(inputStream)) {
+            return read(FileSystemRepository.getSnippetId(file), parser);
         } catch (JsonProcessingException exception) {
             throw new RepositoryException(exception, "file.invalidFormat", file.path());
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.couldNotRead", file.path());
+        }
+    }
+
+    /**
+     * Reads a code snippet whose file content is not written to the file system yet.
+     *
+     * @param snippetId the ID of the code snippet.
+     * @param content the content of the snippet file.
+     * @return the corresponding code snippet.
+     */
+    Snippet read(String snippetId, byte[] content) {
+        try (JsonParser parser = objectMapper.createParser(content)) {
+            return read(snippetId, parser);
+        } catch (IOException exception) {
+            throw new RepositoryException(exception, "file.invalidFormat", snippetId);
         }
     }
 
+    /**
+     * Reads the fields of a snippet file. Unknown fields are skipped and an empty content results
+     * in a code snippet with default values.
+     */
+    private Snippet read(String snippetId, JsonParser parser) throws IOException {
+        SnippetBuilder builder = Snippet.builder().id(snippetId);
+        JsonToken token = parser.nextToken();
+        if (token == null)
+            return builder.build();
+        if (token != JsonToken.START_OBJECT)
+            throw new JsonParseException(parser, "A snippet file must contain a JSON object");
+
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (fieldName) {
+                case "language" -> builder.language(readLanguage(parser));
+                case "title" -> builder.title(readString(parser));
+                case "description" -> builder.description(readString(parser));
+                case "code" -> builder.code(readString(parser));
+                case "tags" -> builder.tags(readTags(parser));
+                case "created" -> builder.created(readDateTime(parser));
+                case "modified" -> builder.modified(readDateTime(parser));
+                default -> parser.skipChildren();
+            }
+        }
+
+        return builder.build();
+    }
+
     @Nullable
-    private Language getLanguageById(int languageId) {
-        for (Language language : Language.values()) {
-            if (language.getId() == languageId)
-                return language;
+    private static Language readLanguage(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL)
+            return null;
+
+        int languageId = parser.getIntValue();
+        return languageId >= 0 && languageId < LANGUAGES.length ? LANGUAGES[languageId] : null;
+    }
+
+    @Nullable
+    private static String readString(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart())
+            throw new JsonParseException(parser, "Expected a text but found " + parser.currentToken());
+
+        return parser.getValueAsString();
+    }
+
+    @Nullable
+    private List<String> readTags(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL)
+            return null;
+        if (parser.currentToken() != JsonToken.START_ARRAY)
+            throw new JsonParseException(parser, "Expected a list of tags but found " + parser.currentToken());
+
+        List<String> tags = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String tag = readString(parser);
+            if (tag != null) {
+                tags.add(intern(tag));
+            }
+        }
+
+        return tags;
+    }
+
+    /**
+     * Tags are shared by many code snippets, so every snippet references the same instance of a tag
+     * instead of keeping its own copy in memory.
+     */
+    private String intern(String tag) {
+        String internedTag = tags.get(tag);
+        if (internedTag != null)
+            return internedTag;
+        if (tags.size() >= MAX_INTERNED_TAGS)
+            return tag;
+
+        internedTag = tags.putIfAbsent(tag, tag);
+        return internedTag == null ? tag : internedTag;
+    }
+
+    @Nullable
+    private static OffsetDateTime readDateTime(JsonParser parser) throws IOException {
+        String timestamp = readString(parser);
+        try {
+            return parseDateTime(timestamp);
+        } catch (DateTimeException exception) {
+            throw new JsonParseException(parser, "Invalid timestamp " + timestamp, exception);
         }
+    }
+
+    /**
+     * Parses an ISO-8601 timestamp. Timestamps in UTC as written by the {@link SnippetWriter},
+     * like {@code 2023-06-24T14:47:28Z}, are parsed directly from their characters.
+     * All other timestamps are parsed by {@link OffsetDateTime#parse(CharSequence)}.
+     *
+     * @param timestamp a timestamp.
+     * @return the corresponding date and time.
+     * @throws DateTimeException if the timestamp is invalid.
+     */
+    @Nullable
+    static OffsetDateTime parseDateTime(@Nullable String timestamp) {
+        if (timestamp == null)
+            return null;
 
-        return null;
+        OffsetDateTime dateTime = parseUtcDateTime(timestamp);
+        return dateTime == null ? OffsetDateTime.parse(timestamp) : dateTime;
     }
 
+    /**
+     * Parses the format {@code uuuu-MM-ddTHH:mm[:ss[.SSSSSSSSS]]Z}.
+     *
+     * @return the corresponding date and time or {@code null} if the timestamp has a different format.
+     */
     @Nullable
-    private OffsetDateTime parseDateTime(@Nullable String timestamp) {
-        return Optional.ofNullable(timestamp)
-                       .map(OffsetDateTime::parse)
-                       .orElse(null);
+    private static OffsetDateTime parseUtcDateTime(String timestamp) {
+        int end = timestamp.length() - 1;
+        if (end < 16 || timestamp.charAt(end) != 'Z' || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-' ||
+            timestamp.charAt(10) != 'T' || timestamp.charAt(13) != ':')
+            return null;
+
+        int year = parseDigits(timestamp, 0, 4, end);
+        int month = parseDigits(timestamp, 5, 2, end);
+        int day = parseDigits(timestamp, 8, 2, end);
+        int hour = parseDigits(timestamp, 11, 2, end);
+        int minute = parseDigits(timestamp, 14, 2, end);
+        int second = 0;
+        int nanos = 0;
+        if (end > 16) {
+            if (timestamp.charAt(16) != ':')
+                return null;
+
+            second = parseDigits(timestamp, 17, 2, end);
+            if (end > 19) {
+                int digits = end - 20;
+                if (timestamp.charAt(19) != '.' || digits < 1 || digits > NANOS_PER_DIGIT.length)
+                    return null;
+
+                nanos = parseDigits(timestamp, 20, digits, end) * NANOS_PER_DIGIT[digits - 1];
+            }
+        }
+
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || nanos < 0)
+            return null;
+
+        try {
+            return OffsetDateTime.of(year, month, day, hour, minute, second, nanos, ZoneOffset.UTC);
+        } catch (DateTimeException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the value of the digits or -1 if the text does not contain only digits at this position.
+     */
+    private static int parseDigits(String text, int start, int length, int end) {
+        if (start + length > end)
+            return -1;
+
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            char character = text.charAt(i);
+            if (character < '0' || character > '9')
+                return -1;
+
+            value = value * 10 + (character - '0');
+        }
+
+        return value;
     }
 
-    private String getSnippetId(File file) {
-        String fileName = file.getName();
-        return fileName.substring(0, fileName.length() - FileSystemRepository.JSON_FILE_EXTENSION.length());
+    private static Language[] languagesById() {
+        int maxId = 0;
+        for (Language language : Language.values()) {
+            maxId = Math.max(maxId, language.getId());
+        }
+
+        Language[] languages = new Language[maxId + 1];
+        for (Language language : Language.values()) {
+            languages[language.getId()] = language;
+        }
+
+        return languages;
     }
 }
@@ -0,0 +1,194 @@
+package cloud.codestore.core.repositories.snippets;
+
+import javax.annotation.Nonnull;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary format of the changes of code snippets, which is shared by the {@link SnippetJournal} and the
+ * {@link SegmentSnippetStorage}. Every change is stored as a record which consists of the length and the CRC32C
+ * checksum of its payload, followed by the payload itself. The payload contains the type of the change, its time,
+ * the snippet ID and the content of the snippet file. A record which was not written completely is recognized
+ * by its checksum.
+ */
+final class SnippetRecords {
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int TYPE_OFFSET = HEADER_SIZE;
+    private static final int TIME_OFFSET = TYPE_OFFSET + 1;
+    private static final int ID_OFFSET = TIME_OFFSET + Long.BYTES;
+
+    private SnippetRecords() {}
+
+    /**
+     * The metadata of a record, which can be read without copying the content.
+     *
+     * @param snippetId the ID of the code snippet.
+     * @param deletion whether the record describes the deletion of the code snippet.
+     * @param lastModified the time of the change in milliseconds since the epoch.
+     * @param contentOffset the offset of the content relative to the start of the record.
+     * @param contentLength the length of the content in bytes.
+     */
+    record Metadata(String snippetId, boolean deletion, long lastModified, int contentOffset, int contentLength) {}
+
+    /**
+     * Encodes the given changes as consecutive records.
+     *
+     * @param changes the changes to encode.
+     * @return a buffer which contains the records between its position and its limit.
+     */
+    @Nonnull
+    static ByteBuffer encode(@Nonnull List<SnippetJournal.Change> changes) {
+        List<byte[]> payloads = new ArrayList<>(changes.size());
+        int size = 0;
+        for (SnippetJournal.Change change : changes) {
+            byte[] payload = payload(change);
+            payloads.add(payload);
+            size += HEADER_SIZE + payload.length;
+        }
+
+        ByteBuffer records = ByteBuffer.allocate(size);
+        for (byte[] payload : payloads) {
+            records.putInt(payload.length);
+            records.putInt(checksum(ByteBuffer.wrap(payload)));
+            records.put(payload);
+        }
+
+        return records.flip();
+    }
+
+    /**
+     * Decodes the records of the given buffer up to the first incomplete or corrupt record.
+     * Afterward, the position of the buffer is the end of the last valid record.
+     *
+     * @param records a buffer which contains records between its position and its limit.
+     * @return the decoded changes.
+     */
+    @Nonnull
+    static List<SnippetJournal.Change> decode(@Nonnull ByteBuffer records) {
+        List<SnippetJournal.Change> changes = new ArrayList<>();
+        int position = records.position();
+        int size;
+        while ((size = recordSize(records, position)) > 0) {
+            changes.add(change(records, position));
+            position += size;
+        }
+
+        records.position(position);
+        return changes;
+    }
+
+    /**
+     * @param records a buffer which contains records.
+     * @param position the absolute position of a record in the buffer.
+     * @return the size of the record including its header, or {@code -1} if there is no complete and valid record
+     * at the given position.
+     */
+    static int recordSize(@Nonnull ByteBuffer records, int position) {
+        if (records.limit() - position < HEADER_SIZE)
+            return -1;
+
+        int length = records.getInt(position);
+        if (length <= ID_OFFSET - HEADER_SIZE || length > records.limit() - position - HEADER_SIZE)
+            return -1;
+
+        if (checksum(records.slice(position + HEADER_SIZE, length)) != checksum(records, position))
+            return -1;
+
+        try {
+            metadata(records, position);
+            return HEADER_SIZE + length;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param records a buffer which contains records.
+     * @param position the absolute position of a valid record in the buffer.
+     * @return the checksum of the record.
+     */
+    static int checksum(@Nonnull ByteBuffer records, int position) {
+        return records.getInt(position + Integer.BYTES);
+    }
+
+    /**
+     * Reads the metadata of a record.
+     *
+     * @param records a buffer which contains records.
+     * @param position the absolute position of a valid record in the buffer.
+     * @return the metadata of the record.
+     */
+    @Nonnull
+    static Metadata metadata(@Nonnull ByteBuffer records, int position) {
+        byte type = records.get(position + TYPE_OFFSET);
+        if (type != PUT && type != DELETE)
+            throw new IllegalArgumentException("Unknown type of change: " + type);
+
+        long lastModified = records.getLong(position + TIME_OFFSET);
+        int idLength = records.getInt(position + ID_OFFSET);
+        if (idLength < 0 || idLength > records.getInt(position))
+            throw new IllegalArgumentException("Invalid length of snippet ID: " + idLength);
+
+        byte[] snippetId = new byte[idLength];
+        records.get(position + ID_OFFSET + Integer.BYTES, snippetId);
+        int contentOffset = ID_OFFSET + Integer.BYTES + idLength + Integer.BYTES;
+        int contentLength = records.getInt(contentOffset - Integer.BYTES + position);
+        if (contentLength < 0 || contentOffset + contentLength != HEADER_SIZE + records.getInt(position))
+            throw new IllegalArgumentException("Invalid length of content: " + contentLength);
+
+        return new Metadata(
+                new String(snippetId, StandardCharsets.UTF_8),
+                type == DELETE,
+                lastModified,
+                contentOffset,
+                contentLength
+        );
+    }
+
+    /**
+     * Reads the content of a record.
+     *
+     * @param records a buffer which contains records.
+     * @param position the absolute position of a valid record in the buffer.
+     * @param metadata the metadata of the record.
+     * @return a copy of the content.
+     */
+    @Nonnull
+    static byte[] content(@Nonnull ByteBuffer records, int position, @Nonnull Metadata metadata) {
+        byte[] content = new byte[metadata.contentLength()];
+        records.get(position + metadata.contentOffset(), content);
+        return content;
+    }
+
+    private static SnippetJournal.Change change(ByteBuffer records, int position) {
+        Metadata metadata = metadata(records, position);
+        byte[] content = metadata.deletion() ? null : content(records, position, metadata);
+        return new SnippetJournal.Change(metadata.snippetId(), content, metadata.lastModified());
+    }
+
+    private static byte[] payload(SnippetJournal.Change change) {
+        byte[] snippetId = change.snippetId().getBytes(StandardCharsets.UTF_8);
+        byte[] content = change.isDeletion() ? new byte[0] : change.content();
+        ByteBuffer payload = ByteBuffer.allocate(1 + Long.BYTES + 2 * Integer.BYTES + snippetId.length + content.length);
+        return payload.put(change.isDeletion() ? DELETE : PUT)
+                      .putLong(change.lastModified())
+                      .putInt(snippetId.length)
+                      .put(snippetId)
+                      .putInt(content.length)
+                      .put(content)
+                      .array();
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
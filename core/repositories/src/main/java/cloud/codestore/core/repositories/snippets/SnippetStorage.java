@@ -0,0 +1,99 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.usecases.createsnippet.CreateSnippetQuery;
+import cloud.codestore.core.usecases.deletesnippet.DeleteSnippetQuery;
+import cloud.codestore.core.usecases.readsnippet.ReadSnippetQuery;
+import cloud.codestore.core.usecases.updatesnippet.UpdateSnippetQuery;
+
+import javax.annotation.Nonnull;
+import java.util.stream.Stream;
+
+/**
+ * A storage engine which persists the code snippets. The {@link IndexedSnippetRepository} keeps the
+ * {@link SnippetIndex} in sync with it by comparing the fingerprints of the stored code snippets with the
+ * fingerprints of the indexed ones. A storage is closed together with the application context.
+ *
+ * @see FileSystemRepository
+ * @see SegmentSnippetStorage
+ */
+interface SnippetStorage extends CreateSnippetQuery, UpdateSnippetQuery, DeleteSnippetQuery, ReadSnippetQuery, AutoCloseable {
+    /**
+     * Enumerates all stored code snippets together with their {@link #attributeFingerprint attribute fingerprints},
+     * which are determined while enumerating, so unchanged code snippets are not accessed again.
+     *
+     * @return the stored code snippets as lazy stream, which must be closed after use.
+     */
+    Stream<StoredSnippet> snippets();
+
+    /**
+     * @param snippetId the ID of a code snippet.
+     * @return whether the code snippet is stored.
+     */
+    boolean contains(@Nonnull String snippetId);
+
+    /**
+     * Checks whether a stored code snippet is unchanged without reading it, if possible.
+     *
+     * @param snippetId the ID of a stored code snippet.
+     * @param fingerprint the fingerprint of the code snippet at the time it was indexed.
+     * @return whether the code snippet is unchanged.
+     */
+    boolean isUnchanged(@Nonnull String snippetId, @Nonnull FileFingerprint fingerprint);
+
+    /**
+     * @param snippetId the ID of a stored code snippet.
+     * @return the current fingerprint of the code snippet.
+     */
+    FileFingerprint fingerprint(@Nonnull String snippetId);
+
+    /**
+     * Determines the fingerprint of a stored code snippet without reading its content, if possible.
+     * The result may lack the checksum, so it is only suitable for {@link #isUnchanged(String, FileFingerprint)}.
+     *
+     * @param snippetId the ID of a stored code snippet.
+     * @return the current fingerprint of the code snippet.
+     */
+    default FileFingerprint attributeFingerprint(@Nonnull String snippetId) {
+        return fingerprint(snippetId);
+    }
+
+    /**
+     * Loads a stored code snippet.
+     *
+     * @param snippetId the ID of a stored code snippet.
+     * @return the corresponding code snippet.
+     */
+    Snippet readSnippet(@Nonnull String snippetId);
+
+    /**
+     * Loads all snippets defined by the given IDs.
+     *
+     * @param snippetIds a stream of snippet IDs.
+     * @return the corresponding code snippets.
+     */
+    Stream<Snippet> readSnippets(@Nonnull Stream<String> snippetIds);
+
+    /**
+     * @param snippetId the ID of a code snippet.
+     * @return whether a change of the code snippet is accepted but not stored yet.
+     * Such a code snippet must not be synchronized with the index until the change is stored.
+     */
+    default boolean hasPendingChange(@Nonnull String snippetId) {
+        return false;
+    }
+
+    /**
+     * Releases the resources of the storage. Code snippets cannot be accessed afterward.
+     */
+    @Override
+    default void close() {}
+
+    /**
+     * A stored code snippet as enumerated by {@link #snippets()}.
+     *
+     * @param snippetId the ID of the code snippet.
+     * @param fingerprint the fingerprint of the code snippet, which may lack the checksum.
+     */
+    record StoredSnippet(@Nonnull String snippetId, @Nonnull FileFingerprint fingerprint) {}
+}
@@ -0,0 +1,118 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.StorageEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+/**
+ * Provides the {@link SnippetStorage} of the configured {@link StorageEngine}, decorated by the {@link SnippetCache}.
+ * When the engine is changed, the code snippets are migrated on startup: the segments engine imports the snippet
+ * files if it does not contain any code snippet yet and deletes them afterward. The files engine exports the
+ * segments to the snippet files and deletes them afterward. So there is always only one copy of the code snippets.
+ * The exported segments are marked before they are deleted, as a mapped segment cannot be deleted on every
+ * operating system. Marked segments are deleted on the next start instead of being loaded again.
+ * <p>
+ * Likewise, the snippet files are moved to the configured {@link SnippetFileLayout} on startup,
+ * before the {@link SnippetJournal} applies any remaining change.
+ */
+@Configuration
+class SnippetStorageConfiguration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetStorageConfiguration.class);
+    private static final String EXPORTED_MARKER = "exported";
+
+    /**
+     * @return the configured {@link SnippetFileLayout}, either {@code flat} or {@code sharded}.
+     * @throws IllegalArgumentException if the configured layout is unknown.
+     */
+    @Bean
+    SnippetFileLayout snippetFileLayout(
+            @Value("${codestore.snippets.layout:flat}") String layout,
+            @Qualifier("snippets") Directory snippetsDirectory
+    ) {
+        SnippetFileLayout snippetFileLayout = SnippetFileLayout.of(layout);
+        snippetFileLayout.migrate(snippetsDirectory);
+        LOGGER.info("Snippet file layout: {}", snippetFileLayout.name().toLowerCase(Locale.ROOT));
+        return snippetFileLayout;
+    }
+
+    @Bean
+    SnippetStorage snippetStorage(
+            StorageEngine storageEngine,
+            @Qualifier("snippets") Directory snippetsDirectory,
+            @Qualifier("segments") Directory segmentsDirectory,
+            SnippetReader snippetReader,
+            SnippetWriter snippetWriter,
+            SnippetFileLayout layout,
+            ObjectProvider<SnippetJournal> journal,
+            SnippetCache snippetCache
+    ) {
+        SnippetStorage storage = switch (storageEngine) {
+            case FILES -> {
+                exportSegments(segmentsDirectory, snippetsDirectory, layout, snippetReader, snippetWriter);
+                yield new FileSystemRepository(snippetsDirectory, snippetReader, snippetWriter, journal.getIfAvailable(), layout);
+            }
+            case SEGMENTS -> {
+                deleteExportedSegments(segmentsDirectory);
+                var segmentStorage = new SegmentSnippetStorage(segmentsDirectory, snippetReader, snippetWriter);
+                if (segmentStorage.isEmpty()) {
+                    int count = segmentStorage.importFrom(snippetsDirectory, layout);
+                    LOGGER.info("Imported {} snippet files into the segments", count);
+                }
+
+                yield segmentStorage;
+            }
+        };
+
+        return new CachedSnippetStorage(storage, snippetCache);
+    }
+
+    private static void exportSegments(
+            Directory segmentsDirectory,
+            Directory snippetsDirectory,
+            SnippetFileLayout layout,
+            SnippetReader snippetReader,
+            SnippetWriter snippetWriter
+    ) {
+        deleteExportedSegments(segmentsDirectory);
+        if (segmentsDirectory.isEmpty())
+            return;
+
+        try (var storage = new SegmentSnippetStorage(segmentsDirectory, snippetReader, snippetWriter)) {
+            if (!storage.isEmpty()) {
+                int count = storage.exportTo(snippetsDirectory, layout);
+                LOGGER.info("Exported {} code snippets from the segments into snippet files", count);
+            }
+        }
+
+        segmentsDirectory.getFile(EXPORTED_MARKER).write("");
+        deleteExportedSegments(segmentsDirectory);
+    }
+
+    /**
+     * Deletes the segments if they were exported. The marker is deleted last, so it remains as long as
+     * any segment remains.
+     */
+    private static void deleteExportedSegments(Directory segmentsDirectory) {
+        File marker = segmentsDirectory.getFile(EXPORTED_MARKER);
+        if (!marker.exists())
+            return;
+
+        segmentsDirectory.getFiles()
+                         .stream()
+                         .filter(file -> !file.equals(marker))
+                         .forEach(File::deleteSilently);
+
+        if (segmentsDirectory.getFiles().size() == 1) {
+            segmentsDirectory.delete();
+        }
+    }
+}
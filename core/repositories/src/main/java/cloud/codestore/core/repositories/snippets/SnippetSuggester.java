@@ -0,0 +1,207 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.usecases.readsuggestions.ReadSuggestionsQuery;
+import cloud.codestore.core.usecases.readsuggestions.Suggestion;
+import org.apache.lucene.search.suggest.InMemorySorter;
+import org.apache.lucene.search.suggest.fst.FSTCompletion;
+import org.apache.lucene.search.suggest.fst.FSTCompletionBuilder;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Suggests titles and tags while the user is typing.
+ * <p>
+ * The suggestions are held in a compact automaton ({@link FSTCompletion}) which answers a lookup within
+ * microseconds. Every title is added once per word, so that a title is also suggested for the beginning of any
+ * later word, and every entry is weighted by the number of code snippets which share the title or tag.
+ * <p>
+ * The automaton cannot be modified. Instead, it is rebuilt in the background shortly after changes of the
+ * {@link SnippetIndex} became visible. Until then, lookups are answered by the previous automaton.
+ */
+@Component
+class SnippetSuggester implements ReadSuggestionsQuery {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnippetSuggester.class);
+
+    /**
+     * Separates the lower case key, which is matched against the prefix, from the suggested text.
+     */
+    private static final char SEPARATOR = '\u001F';
+    private static final char TITLE = 'T';
+    private static final char TAG = '#';
+
+    /**
+     * The maximum number of words of a title at which the title is suggested.
+     * It limits the size of the automaton for very long titles.
+     */
+    private static final int MAX_WORDS = 8;
+
+    /**
+     * Limits the memory which is used to share suffixes while building the automaton.
+     * Unlimited sharing hardly reduces the size of the automaton but takes considerably longer.
+     */
+    private static final double SUFFIX_RAM_LIMIT_MB = 32;
+    private static final long REBUILD_DELAY_MILLIS = 500;
+
+    private final SnippetIndex index;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile FSTCompletion completion;
+
+    SnippetSuggester(@Nonnull SnippetIndex index) {
+        this.index = index;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("snippet-suggester").daemon().factory()
+        );
+        executor.execute(() -> buildInBackground(this::initialize));
+        index.onChange(this::scheduleRebuild);
+    }
+
+    @Nonnull
+    @Override
+    public List<Suggestion> readSuggestions(@Nonnull String prefix, int limit) {
+        FSTCompletion completion = this.completion;
+        if (completion == null) {
+            completion = initialize();
+        }
+
+        String key = normalize(prefix);
+        if (key.isEmpty())
+            return List.of();
+
+        // a title which contains the prefix in several words is found multiple times
+        Set<Suggestion> suggestions = new LinkedHashSet<>();
+        List<FSTCompletion.Completion> completions;
+        int numCompletions = limit;
+        do {
+            suggestions.clear();
+            completions = completion.lookup(key, numCompletions);
+            for (FSTCompletion.Completion entry : completions) {
+                suggestions.add(suggestion(entry.utf8.utf8ToString()));
+            }
+            numCompletions *= 2;
+        } while (suggestions.size() < limit && completions.size() == numCompletions / 2);
+
+        return suggestions.stream().limit(limit).toList();
+    }
+
+    /**
+     * Stops rebuilding the suggestions.
+     */
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Builds the automaton unless it was built already.
+     */
+    private synchronized FSTCompletion initialize() {
+        return completion == null ? rebuild() : completion;
+    }
+
+    /**
+     * Rebuilds the automaton after a short delay, so that a burst of changes causes a single rebuild.
+     */
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                // changes which become visible while rebuilding schedule the next rebuild
+                rebuildScheduled.set(false);
+                buildInBackground(this::rebuild);
+            }, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void buildInBackground(Supplier<FSTCompletion> build) {
+        try {
+            build.get();
+        } catch (RuntimeException exception) {
+            LOGGER.error("The suggestions could not be updated.", exception);
+        }
+    }
+
+    /**
+     * Builds the automaton from the titles and tags of all indexed code snippets and replaces the current one.
+     *
+     * @return the new automaton.
+     */
+    synchronized FSTCompletion rebuild() {
+        Map<String, Integer> weights = new HashMap<>();
+        index.valueCounts(SnippetIndex.SnippetField.ORIGINAL_TITLE).forEach((title, count) -> {
+            List<Integer> wordStarts = wordStarts(title);
+            for (int wordStart : wordStarts.subList(0, Math.min(wordStarts.size(), MAX_WORDS))) {
+                weights.merge(entry(title.substring(wordStart), TITLE, title), count, Integer::sum);
+            }
+        });
+        index.valueCounts(SnippetIndex.SnippetField.TAG).forEach(
+                (tag, count) -> weights.merge(entry(tag, TAG, tag), count, Integer::sum)
+        );
+
+        try {
+            var builder = new FSTCompletionBuilder(
+                    FSTCompletion.DEFAULT_BUCKETS,
+                    new InMemorySorter(Comparator.naturalOrder()),
+                    SUFFIX_RAM_LIMIT_MB
+            );
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                builder.add(new BytesRef(entry.getKey()), bucket(entry.getValue()));
+            }
+
+            completion = new FSTCompletion(builder.build().getFST(), true, false);
+            return completion;
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private static String entry(String key, char type, String text) {
+        return normalize(key) + SEPARATOR + type + text;
+    }
+
+    private static Suggestion suggestion(String entry) {
+        int separator = entry.indexOf(SEPARATOR);
+        var type = entry.charAt(separator + 1) == TAG ? Suggestion.Type.TAG : Suggestion.Type.TITLE;
+        return new Suggestion(entry.substring(separator + 2), type);
+    }
+
+    /**
+     * Lower cases the given text and removes the separator, so that it can neither occur in a key
+     * nor in a prefix.
+     */
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace(String.valueOf(SEPARATOR), "");
+    }
+
+    /**
+     * Maps the number of code snippets to one of the weight buckets of the automaton.
+     * The buckets grow exponentially, so that frequent entries are distinguished as well.
+     */
+    private static int bucket(int count) {
+        int bucket = 31 - Integer.numberOfLeadingZeros(count);
+        return Math.min(bucket, FSTCompletion.DEFAULT_BUCKETS - 1);
+    }
+
+    /**
+     * @return the positions at which a word of the given text begins.
+     */
+    private static List<Integer> wordStarts(String text) {
+        List<Integer> wordStarts = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+                wordStarts.add(i);
+            }
+        }
+
+        return wordStarts;
+    }
+}
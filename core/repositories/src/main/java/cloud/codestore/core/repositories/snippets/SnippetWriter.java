@@ -3,36 +3,87 @@ package cloud.codestore.core.repositories.snippets;
 import cloud.codestore.core.Snippet;
 import cloud.codestore.core.repositories.File;
 import cloud.codestore.core.repositories.RepositoryException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializable;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
 
+/**
+ * Writes code snippets as JSON.
+ * The JSON is generated field by field directly into the output stream, without creating the whole content
+ * or an intermediate object in memory.
+ */
 @Component
 class SnippetWriter {
-    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
 
     SnippetWriter(@Qualifier("snippetMapper") ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     void write(Snippet snippet, File file) {
-        var dto = new PersistentSnippetDto(
-                snippet.getLanguage().getId(),
-                snippet.getTitle(),
-                snippet.getDescription(),
-                snippet.getCode(),
-                snippet.getTags(),
-                snippet.getCreated().toString(),
-                Objects.toString(snippet.getModified(), null)
-        );
+        file.write(outputStream -> objectWriter.writeValue(outputStream, new SnippetJson(snippet)));
+    }
 
+    /**
+     * @param snippet a code snippet.
+     * @return the content of the corresponding snippet file.
+     */
+    byte[] toJson(Snippet snippet) {
         try {
-            file.write(objectMapper.writeValueAsString(dto));
+            return objectWriter.writeValueAsBytes(new SnippetJson(snippet));
         } catch (JsonProcessingException exception) {
-            throw new RepositoryException(exception, "file.couldNotSave", file);
+            throw new RepositoryException(exception, "file.couldNotSave", snippet.getId());
+        }
+    }
+
+    /**
+     * Writes the fields of a code snippet directly to the generator,
+     * so that the object mapper neither introspects the snippet nor needs an intermediate object.
+     */
+    private record SnippetJson(Snippet snippet) implements JsonSerializable {
+        @Override
+        public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("language", snippet.getLanguage().getId());
+            generator.writeStringField("title", snippet.getTitle());
+            generator.writeStringField("description", snippet.getDescription());
+            generator.writeStringField("code", snippet.getCode());
+            generator.writeArrayFieldStart("tags");
+            for (String tag : snippet.getTags()) {
+                generator.writeString(tag);
+            }
+            generator.writeEndArray();
+            generator.writeStringField("created", format(snippet.getCreated()));
+            if (snippet.getModified() != null) {
+                generator.writeStringField("modified", format(snippet.getModified()));
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(
+                JsonGenerator generator,
+                SerializerProvider serializers,
+                TypeSerializer typeSerializer
+        ) throws IOException {
+            serialize(generator, serializers);
+        }
+
+        /**
+         * Unlike {@link OffsetDateTime#toString()}, the seconds are always written, even if they are zero.
+         */
+        private static String format(OffsetDateTime dateTime) {
+            return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(dateTime);
         }
     }
 }
@@ -0,0 +1,48 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Splits a text into all sequences of three consecutive characters, including whitespace and punctuation.
+ * Every substring of at least three characters consists of trigrams which are all contained in the text,
+ * so the trigrams find the candidates for literal and regular expression searches. All trigrams are lower case,
+ * so that the candidates of case-insensitive searches are found as well.
+ */
+class TrigramAnalyzer extends Analyzer {
+    static final int GRAM_SIZE = 3;
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new NGramTokenizer(GRAM_SIZE, GRAM_SIZE);
+        return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+    }
+
+    /**
+     * @return the distinct trigrams of the given text in the order of their occurrence.
+     */
+    @Nonnull
+    Set<String> trigrams(@Nonnull String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        try (var tokenStream = tokenStream("", text)) {
+            CharTermAttribute attribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken())
+                trigrams.add(attribute.toString());
+
+            tokenStream.end();
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        return trigrams;
+    }
+}
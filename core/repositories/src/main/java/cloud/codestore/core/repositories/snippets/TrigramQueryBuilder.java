@@ -0,0 +1,413 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.CODE_TRIGRAMS;
+
+/**
+ * Compiles a literal or a regular expression into a query on the trigrams of the code.
+ * The query finds all code snippets which may contain a match, as every string which matches the search
+ * contains its literal parts. Only these candidates are {@link CodePatternQuery verified} against the
+ * {@link #pattern() pattern}.
+ * <p>
+ * The literal parts of a regular expression are the sequences of characters which are neither optional nor part of
+ * a character class. Alternatives are combined by an {@code OR}, all other parts by an {@code AND}.
+ * Parts which are shorter than a trigram cannot be looked up, so a regular expression without any longer literal
+ * part matches all code snippets.
+ */
+class TrigramQueryBuilder {
+    private static final TrigramAnalyzer ANALYZER = new TrigramAnalyzer();
+
+    /**
+     * The maximum number of trigrams which are looked up for a single literal part.
+     * Further trigrams hardly reduce the candidates but increase the cost of the query.
+     */
+    private static final int MAX_TRIGRAMS_PER_LITERAL = 16;
+
+    /**
+     * The maximum number of trigrams of the whole query. Regular expressions with more alternatives
+     * match all code snippets, so that the query never exceeds the maximum number of clauses.
+     */
+    private static final int MAX_TRIGRAMS = 256;
+
+    private static final Quantifier ONCE = new Quantifier(1, 1);
+    private static final Atom OTHER = new Atom(null, null);
+
+    private final String search;
+    private final SearchMode searchMode;
+    private int position;
+    private int trigramCount;
+    private boolean ignoresWhitespace;
+
+    /**
+     * @param searchMode either {@link SearchMode#LITERAL} or {@link SearchMode#REGEX}.
+     * @throws java.util.regex.PatternSyntaxException if the search is not a valid regular expression.
+     */
+    TrigramQueryBuilder(String search, SearchMode searchMode) {
+        if (searchMode != SearchMode.LITERAL && searchMode != SearchMode.REGEX)
+            throw new IllegalArgumentException("Unsupported search mode " + searchMode);
+
+        this.search = search;
+        this.searchMode = searchMode;
+        pattern();
+    }
+
+    /**
+     * @return the pattern which matches the searched code exactly.
+     */
+    Pattern pattern() {
+        return Pattern.compile(searchMode == SearchMode.LITERAL ? Pattern.quote(search) : search);
+    }
+
+    /**
+     * @return a query which matches all code snippets that may contain the search.
+     */
+    Query build() {
+        Query query;
+        if (searchMode == SearchMode.LITERAL) {
+            query = trigramQuery(search);
+        } else {
+            position = 0;
+            trigramCount = 0;
+            ignoresWhitespace = false;
+            query = parseAlternatives();
+        }
+
+        return query == null || ignoresWhitespace || trigramCount > MAX_TRIGRAMS ? new MatchAllDocsQuery() : query;
+    }
+
+    /**
+     * @return a query which requires any of the alternatives or {@code null} if an alternative may match anything.
+     */
+    private Query parseAlternatives() {
+        List<Query> alternatives = new ArrayList<>();
+        boolean matchesAnything = false;
+        do {
+            Query alternative = parseSequence();
+            if (alternative == null) {
+                matchesAnything = true;
+            } else {
+                alternatives.add(alternative);
+            }
+        } while (consume('|'));
+
+        if (matchesAnything)
+            return null;
+        if (alternatives.size() == 1)
+            return alternatives.get(0);
+
+        var query = new BooleanQuery.Builder();
+        alternatives.forEach(alternative -> query.add(alternative, BooleanClause.Occur.SHOULD));
+        return query.build();
+    }
+
+    /**
+     * @return a query which requires all literal parts of the sequence or {@code null} if there are none.
+     */
+    private Query parseSequence() {
+        List<Query> required = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        while (position < search.length() && search.charAt(position) != '|' && search.charAt(position) != ')') {
+            Atom atom = parseAtom();
+            Quantifier quantifier = parseQuantifier();
+            if (atom.literal() != null && !atom.literal().isEmpty()) {
+                if (quantifier.equals(ONCE)) {
+                    literal.append(atom.literal());
+                } else {
+                    // only the last character of a quoted literal is repeated
+                    String text = atom.literal();
+                    int last = text.offsetByCodePoints(text.length(), -1);
+                    String repeated = text.substring(last);
+                    literal.append(text, 0, last);
+                    literal.append(repeated.repeat(Math.min(quantifier.min(), TrigramAnalyzer.GRAM_SIZE)));
+                    if (quantifier.min() != quantifier.max() || quantifier.min() > TrigramAnalyzer.GRAM_SIZE) {
+                        addLiteral(literal, required);
+                        if (quantifier.min() > 0) {
+                            literal.append(repeated);
+                        }
+                    }
+                }
+            } else {
+                addLiteral(literal, required);
+                if (atom.group() != null && quantifier.min() > 0) {
+                    required.add(atom.group());
+                }
+            }
+        }
+
+        addLiteral(literal, required);
+        if (required.isEmpty())
+            return null;
+        if (required.size() == 1)
+            return required.get(0);
+
+        var query = new BooleanQuery.Builder();
+        required.forEach(part -> query.add(part, BooleanClause.Occur.FILTER));
+        return query.build();
+    }
+
+    private Atom parseAtom() {
+        int codePoint = search.codePointAt(position);
+        position += Character.charCount(codePoint);
+        return switch (codePoint) {
+            case '\\' -> parseEscape();
+            case '[' -> {
+                skipCharacterClass();
+                yield OTHER;
+            }
+            case '(' -> parseGroup();
+            case '{' -> {
+                skipTo('}');
+                yield OTHER;
+            }
+            case '.', '^', '$', '*', '+', '?' -> OTHER;
+            default -> new Atom(Character.toString(codePoint), null);
+        };
+    }
+
+    private Atom parseEscape() {
+        if (position >= search.length())
+            return OTHER;
+
+        int codePoint = search.codePointAt(position);
+        position += Character.charCount(codePoint);
+        if (codePoint == 'Q') {
+            int end = search.indexOf("\\E", position);
+            String quoted = search.substring(position, end < 0 ? search.length() : end);
+            position = end < 0 ? search.length() : end + 2;
+            return new Atom(quoted, null);
+        }
+
+        // any character which is not a letter or digit is escaped to match itself
+        if (!Character.isLetterOrDigit(codePoint))
+            return new Atom(Character.toString(codePoint), null);
+
+        return switch (codePoint) {
+            case 't' -> new Atom("\t", null);
+            case 'n' -> new Atom("\n", null);
+            case 'r' -> new Atom("\r", null);
+            case 'f' -> new Atom("\f", null);
+            case 'a' -> new Atom("\u0007", null);
+            case 'e' -> new Atom("\u001B", null);
+            case 'x', 'p', 'P', 'N', 'b' -> {
+                if (consume('{')) {
+                    skipTo('}');
+                } else if (codePoint == 'x') {
+                    position += 2;
+                } else if (codePoint != 'b') {
+                    position++;
+                }
+                yield OTHER;
+            }
+            case 'u' -> {
+                position += 4;
+                yield OTHER;
+            }
+            case 'c' -> {
+                position++;
+                yield OTHER;
+            }
+            case 'k' -> {
+                skipTo('>');
+                yield OTHER;
+            }
+            default -> {
+                // predefined character classes, boundaries, octal escapes and back references
+                while (position < search.length() && Character.isDigit(search.charAt(position))) {
+                    position++;
+                }
+                yield OTHER;
+            }
+        };
+    }
+
+    private Atom parseGroup() {
+        if (consume('?')) {
+            if (consume(':') || consume('>'))
+                return new Atom(null, parseGroupContent());
+
+            // the content of lookarounds is not part of the match
+            if (consume('=') || consume('!')) {
+                parseGroupContent();
+                return OTHER;
+            }
+
+            if (consume('<')) {
+                if (consume('=') || consume('!')) {
+                    parseGroupContent();
+                    return OTHER;
+                }
+
+                // a named group
+                skipTo('>');
+                return new Atom(null, parseGroupContent());
+            }
+
+            int flagsStart = position;
+            while (position < search.length() && search.charAt(position) != ')' && search.charAt(position) != ':') {
+                position++;
+            }
+
+            // the literal parts cannot be determined if whitespace and comments are ignored
+            if (search.substring(flagsStart, position).indexOf('x') >= 0) {
+                ignoresWhitespace = true;
+            }
+
+            if (consume(':'))
+                return new Atom(null, parseGroupContent());
+
+            consume(')');
+            return OTHER;
+        }
+
+        return new Atom(null, parseGroupContent());
+    }
+
+    private Query parseGroupContent() {
+        Query query = parseAlternatives();
+        consume(')');
+        return query;
+    }
+
+    /**
+     * Skips a character class including nested classes. A closing bracket at the beginning of a class is
+     * part of the class.
+     */
+    private void skipCharacterClass() {
+        int depth = 1;
+        consume('^');
+        consume(']');
+        while (position < search.length() && depth > 0) {
+            char character = search.charAt(position++);
+            if (character == '\\') {
+                if (consume('Q')) {
+                    int end = search.indexOf("\\E", position);
+                    position = end < 0 ? search.length() : end + 2;
+                } else {
+                    position++;
+                }
+            } else if (character == '[') {
+                depth++;
+                consume('^');
+                consume(']');
+            } else if (character == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private Quantifier parseQuantifier() {
+        if (position >= search.length())
+            return ONCE;
+
+        Quantifier quantifier = switch (search.charAt(position)) {
+            case '?' -> new Quantifier(0, 1);
+            case '*' -> new Quantifier(0, Integer.MAX_VALUE);
+            case '+' -> new Quantifier(1, Integer.MAX_VALUE);
+            case '{' -> parseRepetition();
+            default -> null;
+        };
+
+        if (quantifier == null)
+            return ONCE;
+
+        position++;
+        // lazy and possessive quantifiers match the same strings
+        if (!consume('?')) {
+            consume('+');
+        }
+
+        return quantifier;
+    }
+
+    /**
+     * Parses a repetition like {@code {2}}, {@code {2,}} or {@code {2,5}} and stops at the closing brace.
+     */
+    private Quantifier parseRepetition() {
+        position++;
+        int min = parseNumber();
+        int max = min;
+        if (consume(',')) {
+            max = position < search.length() && Character.isDigit(search.charAt(position))
+                  ? parseNumber()
+                  : Integer.MAX_VALUE;
+        }
+
+        return new Quantifier(min, max);
+    }
+
+    private int parseNumber() {
+        long number = 0;
+        while (position < search.length() && Character.isDigit(search.charAt(position))) {
+            number = Math.min(number * 10 + (search.charAt(position++) - '0'), Integer.MAX_VALUE);
+        }
+
+        return (int) number;
+    }
+
+    /**
+     * Adds a query for the given literal part unless it is too short and clears the literal afterward.
+     */
+    private void addLiteral(StringBuilder literal, List<Query> required) {
+        Query query = trigramQuery(literal.toString());
+        if (query != null) {
+            required.add(query);
+        }
+
+        literal.setLength(0);
+    }
+
+    /**
+     * @return a query which requires the trigrams of the given text or {@code null} if it is too short.
+     */
+    private Query trigramQuery(String text) {
+        List<Query> trigrams = ANALYZER.trigrams(text)
+                                       .stream()
+                                       .limit(MAX_TRIGRAMS_PER_LITERAL)
+                                       .<Query>map(trigram -> new TermQuery(new Term(CODE_TRIGRAMS, trigram)))
+                                       .toList();
+        trigramCount += trigrams.size();
+        if (trigrams.isEmpty())
+            return null;
+        if (trigrams.size() == 1)
+            return trigrams.get(0);
+
+        var query = new BooleanQuery.Builder();
+        trigrams.forEach(trigram -> query.add(trigram, BooleanClause.Occur.FILTER));
+        return query.build();
+    }
+
+    private boolean consume(char character) {
+        if (position < search.length() && search.charAt(position) == character) {
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void skipTo(char character) {
+        int index = search.indexOf(character, position);
+        position = index < 0 ? search.length() : index + 1;
+    }
+
+    /**
+     * A single element of a regular expression.
+     *
+     * @param literal the characters which are matched literally or {@code null}.
+     * @param group the query which is required by a group or {@code null}.
+     */
+    private record Atom(String literal, Query group) {}
+
+    /**
+     * @param min the minimum number of repetitions.
+     * @param max the maximum number of repetitions.
+     */
+    private record Quantifier(int min, int max) {}
+}
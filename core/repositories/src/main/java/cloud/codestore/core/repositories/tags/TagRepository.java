@@ -6,12 +6,16 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Holds the tags of all code snippets in memory.
+ * The tags can be added and read concurrently.
+ */
 @Component
 public class TagRepository implements ReadTagsQuery, CreateTagQuery {
-    private final Set<String> tags = new HashSet<>();
+    private final Set<String> tags = ConcurrentHashMap.newKeySet();
 
     @Override
     public Collection<String> read() {
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -79,6 +80,37 @@ class DirectoryTest {
             Assertions.assertThat(files).containsExactlyInAnyOrder(new File(file1), new File(file2), new File(file3));
         }
 
+        @Test
+        @DisplayName("can enumerate the files of its subdirectories")
+        void walkFiles() throws Exception {
+            Path file1 = testPath.resolve("test1.txt");
+            Path file2 = testPath.resolve("sub").resolve("test2.txt");
+            Path file3 = testPath.resolve("sub").resolve("subSub").resolve("test3.txt");
+            Files.createDirectories(file3.getParent());
+
+            Files.writeString(file1, "test");
+            Files.writeString(file2, "test");
+            Files.writeString(file3, "test");
+
+            try (Stream<File> files = new Directory(testPath).walkFiles(2)) {
+                Assertions.assertThat(files).containsExactlyInAnyOrder(new File(file1), new File(file2));
+            }
+        }
+
+        @Test
+        @DisplayName("keeps the attributes of the enumerated files")
+        void walkFilesWithAttributes() throws Exception {
+            Path file = testPath.resolve("sub").resolve("test.txt");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "test");
+
+            try (Stream<File> files = new Directory(testPath).walkFiles(2)) {
+                File walkedFile = files.findFirst().orElseThrow();
+                Files.delete(file);
+                assertThat(walkedFile.attributes().size()).isEqualTo(4);
+            }
+        }
+
         @Test
         @DisplayName("can resolve subdirectories")
         void getDir() {
@@ -124,5 +156,14 @@ class DirectoryTest {
         void emptyNotExistingDirectory() throws RepositoryException {
             assertThat(notExistingDirectory.isEmpty()).isTrue();
         }
+
+        @Test
+        @DisplayName("has no files")
+        void noFiles() throws RepositoryException {
+            assertThat(notExistingDirectory.getFiles()).isEmpty();
+            try (Stream<File> files = notExistingDirectory.walkFiles(2)) {
+                assertThat(files).isEmpty();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -8,9 +8,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -62,6 +72,21 @@ class FileTest {
             assertThat(content).isEqualTo(FILE_CONTENT);
         }
 
+        @Test
+        @DisplayName("can be read as bytes")
+        void readBytesSuccessfully() throws RepositoryException {
+            byte[] content = new File(testFile).readBytes();
+            assertThat(content).isEqualTo(FILE_CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        @DisplayName("provides its attributes")
+        void readAttributes() throws RepositoryException {
+            BasicFileAttributes attributes = new File(testFile).readAttributes();
+            assertThat(attributes.isRegularFile()).isTrue();
+            assertThat(attributes.size()).isEqualTo(FILE_CONTENT.length());
+        }
+
         @Test
         @DisplayName("returns a fallback-content if the file is empty")
         void readFallbackContentWhenEmpty() throws IOException {
@@ -79,6 +104,17 @@ class FileTest {
             assertThat(content).isEqualTo(fallbackContent);
         }
 
+        @Test
+        @DisplayName("can be read as stream")
+        void openSuccessfully() throws IOException {
+            try (InputStream inputStream = new File(testFile).openOrEmpty()) {
+                assertThat(inputStream).hasContent(FILE_CONTENT);
+            }
+            try (InputStream inputStream = notExistingFile().openOrEmpty()) {
+                assertThat(inputStream).isEmpty();
+            }
+        }
+
         @Test
         @DisplayName("can be overridden")
         void overrideOnWrite() throws RepositoryException, IOException {
@@ -92,6 +128,69 @@ class FileTest {
             assertThat(Files.readString(testFile)).isEqualTo(FILE_CONTENT);
         }
 
+        @Test
+        @DisplayName("is replaced by a temporary file when it is written")
+        void replaceOnWrite() throws RepositoryException, IOException {
+            FileTime lastModifiedTime = FileTime.fromMillis(1_000_000);
+            new File(testFile).writeDurably(FILE_CONTENT.getBytes(StandardCharsets.UTF_8), lastModifiedTime);
+
+            assertThat(Files.readString(testFile)).isEqualTo(FILE_CONTENT);
+            assertThat(Files.getLastModifiedTime(testFile)).isEqualTo(lastModifiedTime);
+            try (var files = Files.list(testDir)) {
+                assertThat(files).containsExactly(testFile);
+            }
+        }
+
+        @Test
+        @DisplayName("can be written concurrently")
+        void writeConcurrently() throws Exception {
+            List<String> contents = IntStream.range(0, 8).mapToObj(i -> String.valueOf(i).repeat(1000 * (i + 1))).toList();
+            try (ExecutorService executor = Executors.newFixedThreadPool(contents.size())) {
+                List<Future<?>> writes = new ArrayList<>();
+                for (String content : contents) {
+                    writes.add(executor.submit(() -> {
+                        for (int i = 0; i < 20; i++) {
+                            new File(testFile).write(content);
+                        }
+                    }));
+                }
+
+                for (Future<?> write : writes) {
+                    write.get();
+                }
+            }
+
+            assertThat(contents).contains(Files.readString(testFile));
+            try (var files = Files.list(testDir)) {
+                assertThat(files).containsExactly(testFile);
+            }
+        }
+
+        @Test
+        @DisplayName("can be written as stream")
+        void writeStream() throws RepositoryException, IOException {
+            new File(testFile).write(outputStream -> {
+                outputStream.write(FILE_CONTENT.getBytes(StandardCharsets.UTF_8), 0, 4);
+                outputStream.write(FILE_CONTENT.getBytes(StandardCharsets.UTF_8), 4, FILE_CONTENT.length() - 4);
+            });
+
+            assertThat(Files.readString(testFile)).isEqualTo(FILE_CONTENT);
+        }
+
+        @Test
+        @DisplayName("keeps its content if the stream cannot be written")
+        void keepContentOnFailedWrite() throws IOException {
+            assertThatThrownBy(() -> new File(testFile).write(outputStream -> {
+                outputStream.write(1);
+                throw new IOException("failed");
+            })).isInstanceOf(RepositoryException.class);
+
+            assertThat(Files.readString(testFile)).isEqualTo(FILE_CONTENT);
+            try (var files = Files.list(testDir)) {
+                assertThat(files).containsExactly(testFile);
+            }
+        }
+
         @Test
         @DisplayName("creates not existing parent directories")
         void createParentDirectories() throws RepositoryException, IOException {
@@ -170,6 +269,24 @@ class FileTest {
                     .hasMessageMatching("The file .+ does not exist\\.");
         }
 
+        @Test
+        @DisplayName("cannot be read as bytes")
+        void bytesNotFound() {
+            File file = notExistingFile();
+            assertThatThrownBy(file::readBytes)
+                    .isInstanceOf(RepositoryException.class)
+                    .hasMessageMatching("The file .+ does not exist\\.");
+        }
+
+        @Test
+        @DisplayName("has no attributes")
+        void attributesNotFound() {
+            File file = notExistingFile();
+            assertThatThrownBy(file::readAttributes)
+                    .isInstanceOf(RepositoryException.class)
+                    .hasMessageMatching("The file .+ does not exist\\.");
+        }
+
         @Test
         @DisplayName("can be created")
         void createOnWrite() throws RepositoryException, IOException {
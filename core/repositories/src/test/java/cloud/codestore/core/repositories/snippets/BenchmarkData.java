@@ -0,0 +1,93 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Language;
+import cloud.codestore.core.Snippet;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible code snippets for the benchmarks.
+ */
+final class BenchmarkData {
+    static final FileFingerprint FINGERPRINT = new FileFingerprint(1024, 0, 0);
+
+    private static final String[] WORDS = {
+            "read", "write", "snippet", "query", "index", "file", "stream", "parse", "json", "http",
+            "request", "response", "list", "map", "filter", "sort", "user", "order", "select", "insert",
+            "update", "delete", "docker", "compose", "build", "test", "async", "await", "thread", "lock"
+    };
+    private static final Language[] LANGUAGES = Language.values();
+    private static final OffsetDateTime START = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private BenchmarkData() {}
+
+    /**
+     * @param count the number of snippets to create.
+     * @return a list of code snippets with the IDs {@code 0} to {@code count - 1}.
+     */
+    static List<Snippet> snippets(int count) {
+        Random random = new Random(42);
+        List<Snippet> snippets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            snippets.add(snippet(String.valueOf(i), random));
+        }
+
+        return snippets;
+    }
+
+    /**
+     * @return a new random code snippet with the given ID.
+     */
+    static Snippet snippet(String id, Random random) {
+        return Snippet.builder()
+                      .id(id)
+                      .title(words(random, 4))
+                      .description(words(random, 20))
+                      .code(code(random))
+                      .tags(List.of(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]))
+                      .language(LANGUAGES[random.nextInt(LANGUAGES.length)])
+                      .created(START.plusMinutes(random.nextInt(2_000_000)))
+                      .build();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+
+        return text.toString().trim();
+    }
+
+    /**
+     * @return two random letters which make identifiers unique, so that the index contains many distinct terms.
+     */
+    private static String suffix(Random random) {
+        return "" + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26));
+    }
+
+    private static String code(Random random) {
+        StringBuilder code = new StringBuilder();
+        int lines = 5 + random.nextInt(40);
+        for (int i = 0; i < lines; i++) {
+            String first = WORDS[random.nextInt(WORDS.length)];
+            String second = WORDS[random.nextInt(WORDS.length)];
+            code.append("var ")
+                .append(first)
+                .append(Character.toUpperCase(second.charAt(0)))
+                .append(second.substring(1))
+                .append(suffix(random))
+                .append(" = ")
+                .append(WORDS[random.nextInt(WORDS.length)])
+                .append("(")
+                .append(random.nextInt(1000))
+                .append(");\n");
+        }
+
+        return code.toString();
+    }
+}
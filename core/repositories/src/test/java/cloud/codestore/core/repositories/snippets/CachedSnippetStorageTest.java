@@ -0,0 +1,114 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.SnippetNotExistsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The cached snippet storage")
+class CachedSnippetStorageTest {
+    private static final String SNIPPET_ID = "1";
+    private static final FileFingerprint FINGERPRINT = new FileFingerprint(100, 1000, 0);
+    private static final Snippet SNIPPET = Snippet.builder().id(SNIPPET_ID).code("code").build();
+
+    @Mock
+    private SnippetStorage storage;
+    private SnippetCache cache;
+    private CachedSnippetStorage cachedStorage;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SnippetCache(1000);
+        cachedStorage = new CachedSnippetStorage(storage, cache);
+    }
+
+    @Test
+    @DisplayName("reads an unchanged snippet only once")
+    void readOnce() throws SnippetNotExistsException {
+        when(storage.contains(SNIPPET_ID)).thenReturn(true);
+        when(storage.attributeFingerprint(SNIPPET_ID)).thenReturn(FINGERPRINT);
+        when(storage.readSnippet(SNIPPET_ID)).thenReturn(SNIPPET);
+        when(storage.isUnchanged(SNIPPET_ID, FINGERPRINT)).thenReturn(true);
+
+        assertThat(cachedStorage.read(SNIPPET_ID)).isSameAs(SNIPPET);
+        assertThat(cachedStorage.read(SNIPPET_ID)).isSameAs(SNIPPET);
+        assertThat(cachedStorage.readSnippets(Stream.of(SNIPPET_ID))).containsExactly(SNIPPET);
+
+        verify(storage, times(1)).readSnippet(SNIPPET_ID);
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("reads a snippet again if it was changed externally")
+    void readChangedSnippet() throws SnippetNotExistsException {
+        Snippet changedSnippet = Snippet.builder().id(SNIPPET_ID).code("changed").build();
+        when(storage.contains(SNIPPET_ID)).thenReturn(true);
+        when(storage.attributeFingerprint(SNIPPET_ID)).thenReturn(FINGERPRINT);
+        when(storage.readSnippet(SNIPPET_ID)).thenReturn(SNIPPET, changedSnippet);
+        when(storage.isUnchanged(SNIPPET_ID, FINGERPRINT)).thenReturn(false);
+
+        assertThat(cachedStorage.read(SNIPPET_ID)).isSameAs(SNIPPET);
+        assertThat(cachedStorage.read(SNIPPET_ID)).isSameAs(changedSnippet);
+    }
+
+    @Test
+    @DisplayName("writes created and updated snippets through to the cache")
+    void writeThrough() throws SnippetNotExistsException {
+        when(storage.attributeFingerprint(SNIPPET_ID)).thenReturn(FINGERPRINT);
+        when(storage.isUnchanged(SNIPPET_ID, FINGERPRINT)).thenReturn(true);
+
+        cachedStorage.create(SNIPPET);
+        assertThat(cachedStorage.read(SNIPPET_ID)).isSameAs(SNIPPET);
+
+        Snippet updatedSnippet = Snippet.builder().id(SNIPPET_ID).code("updated").build();
+        cachedStorage.update(updatedSnippet);
+        assertThat(cachedStorage.read(SNIPPET_ID)).isSameAs(updatedSnippet);
+
+        verify(storage).create(SNIPPET);
+        verify(storage).update(updatedSnippet);
+        verify(storage, never()).readSnippet(SNIPPET_ID);
+    }
+
+    @Test
+    @DisplayName("removes deleted snippets from the cache")
+    void invalidateOnDelete() throws SnippetNotExistsException {
+        when(storage.attributeFingerprint(SNIPPET_ID)).thenReturn(FINGERPRINT);
+        cachedStorage.create(SNIPPET);
+
+        cachedStorage.delete(SNIPPET_ID);
+
+        verify(storage).delete(SNIPPET_ID);
+        assertThatThrownBy(() -> cachedStorage.read(SNIPPET_ID)).isInstanceOf(SnippetNotExistsException.class);
+        assertThat(cachedStorage.readSnippets(Stream.of(SNIPPET_ID))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("does not cache snippets which are read for indexing")
+    void readForIndexing() {
+        when(storage.readSnippet(SNIPPET_ID)).thenReturn(SNIPPET);
+
+        cachedStorage.readSnippet(SNIPPET_ID);
+        cachedStorage.readSnippet(SNIPPET_ID);
+
+        verify(storage, times(2)).readSnippet(SNIPPET_ID);
+        assertThat(cache.weight()).isZero();
+    }
+
+    @Test
+    @DisplayName("closes the decorated storage")
+    void closeStorage() {
+        cachedStorage.close();
+        verify(storage).close();
+    }
+}
@@ -0,0 +1,89 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Language;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The code analyzer")
+class CodeAnalyzerTest {
+    @Test
+    @DisplayName("splits camel case identifiers into subwords")
+    void splitCamelCase() {
+        assertThat(tokenize(Language.JAVA, "readSnippetsQuery()"))
+                .containsExactlyInAnyOrder("readsnippetsquery", "read", "snippets", "query");
+    }
+
+    @Test
+    @DisplayName("splits snake case identifiers into subwords")
+    void splitSnakeCase() {
+        assertThat(tokenize(Language.JAVA, "MAX_CODE_LENGTH"))
+                .containsExactlyInAnyOrder("max_code_length", "max", "code", "length");
+    }
+
+    @Test
+    @DisplayName("splits dotted identifiers into subwords")
+    void splitDottedIdentifiers() {
+        assertThat(tokenize(Language.JAVA, "java.util.List"))
+                .containsExactlyInAnyOrder("java.util.list", "java", "util", "list");
+    }
+
+    @Test
+    @DisplayName("keeps digits")
+    void keepDigits() {
+        assertThat(tokenize(Language.PYTHON, "status = 404; utf8")).containsExactly("status", "404", "utf8");
+    }
+
+    @Test
+    @DisplayName("keeps shell flags as a whole")
+    void keepShellFlags() {
+        assertThat(tokenize(Language.SHELL, "docker build --no-cache"))
+                .containsExactlyInAnyOrder("docker", "build", "--no-cache", "no", "cache");
+    }
+
+    @Test
+    @DisplayName("treats hyphens as operators in other languages")
+    void splitAtHyphens() {
+        assertThat(tokenize(Language.JAVA, "a-b")).containsExactly("a", "b");
+    }
+
+    @Test
+    @DisplayName("keeps kebab case names in CSS and HTML")
+    void keepKebabCase() {
+        assertThat(tokenize(Language.CSS, "background-color: red"))
+                .containsExactlyInAnyOrder("background-color", "background", "color", "red");
+        assertThat(tokenize(Language.HTML, "<div data-id=\"1\">"))
+                .containsExactlyInAnyOrder("div", "data-id", "data", "id", "1");
+    }
+
+    @Test
+    @DisplayName("keeps qualified names in C++")
+    void keepQualifiedNames() {
+        assertThat(tokenize(Language.CPP, "std::vector"))
+                .containsExactlyInAnyOrder("std::vector", "std", "vector");
+    }
+
+    private List<String> tokenize(Language language, String code) {
+        Analyzer analyzer = CodeAnalyzer.forLanguage(language);
+        List<String> tokens = new ArrayList<>();
+        try (var tokenStream = analyzer.tokenStream("", code)) {
+            CharTermAttribute attribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken())
+                tokens.add(attribute.toString());
+
+            tokenStream.end();
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        return tokens;
+    }
+}
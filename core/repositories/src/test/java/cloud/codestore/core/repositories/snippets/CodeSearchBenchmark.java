@@ -0,0 +1,71 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of regular expression searches in the code. The trigram query restricts the code snippets
+ * whose code is matched against the regular expression, whereas without it the code of every snippet is matched.
+ * The patterns range from a rare identifier to a pattern which matches about a third of the code snippets.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main CodeSearchBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodeSearchBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"100000"})
+    public int snippetCount;
+    @Param({"lockAwaitqx", "= json\\(99\\d\\)", "select[A-Z]\\w* = (insert|delete)\\("})
+    public String regex;
+    @Param({"trigrams", "none"})
+    public String prefilter;
+
+    private Path indexPath;
+    private SnippetIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(new MMapDirectory(indexPath));
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @Benchmark
+    public SnippetIndex.SearchHits<String> search() {
+        var queryBuilder = new QueryBuilder(regex, SearchMode.REGEX, new FilterProperties(), index.edgeNGrams());
+        Query query = queryBuilder.build();
+        Query highlightQuery = queryBuilder.buildHighlightQuery();
+        if (prefilter.equals("none")) {
+            query = new CodePatternQuery(new MatchAllDocsQuery(), ((CodePatternQuery) highlightQuery).pattern());
+        }
+
+        return index.query(new SnippetIndex.SearchRequest(query, SortField.FIELD_SCORE, 0, PAGE_SIZE)
+                .withHighlightQuery(highlightQuery));
+    }
+}
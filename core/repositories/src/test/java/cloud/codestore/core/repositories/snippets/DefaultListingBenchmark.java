@@ -0,0 +1,66 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the first page of the default listing, which shows the newest code snippets without
+ * a search, optionally filtered by a programming language. The newest modifications show the cost of an order
+ * which does not match the sort of the index.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main DefaultListingBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DefaultListingBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int snippetCount;
+    @Param({"", "java"})
+    public String language;
+    @Param({"created", "modified"})
+    public String order;
+
+    private Path indexPath;
+    private SnippetIndex index;
+    private Query query;
+    private SortField sortField;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(new MMapDirectory(indexPath));
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+        query = new QueryBuilder("", new FilterProperties(language, Set.of()), index.edgeNGrams()).build();
+        String field = order.equals("created") ? SnippetIndex.SnippetField.CREATED : SnippetIndex.SnippetField.MODIFIED;
+        sortField = new SortField(field, SortField.Type.LONG, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @Benchmark
+    public SnippetIndex.SearchHits<String> firstPage() {
+        return index.query(new SnippetIndex.SearchRequest(query, sortField, 0, PAGE_SIZE));
+    }
+}
@@ -0,0 +1,56 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.SimpleAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("The edge n-grams")
+class EdgeNGramsTest {
+    private final EdgeNGrams edgeNGrams = new EdgeNGrams(2, 3);
+
+    @Test
+    @DisplayName("contain tokens whose length lies within the gram sizes")
+    void containTokens() {
+        assertThat(edgeNGrams.contains("a")).isFalse();
+        assertThat(edgeNGrams.contains("ab")).isTrue();
+        assertThat(edgeNGrams.contains("abc")).isTrue();
+        assertThat(edgeNGrams.contains("abcd")).isFalse();
+    }
+
+    @Test
+    @DisplayName("split a text into the prefixes of its tokens")
+    void analyzeText() throws IOException {
+        Analyzer analyzer = edgeNGrams.analyzer(new SimpleAnalyzer());
+        assertThat(tokenize(analyzer, "Read a file")).containsExactly("re", "rea", "fi", "fil");
+    }
+
+    @Test
+    @DisplayName("reject invalid gram sizes")
+    void rejectInvalidSizes() {
+        assertThatThrownBy(() -> new EdgeNGrams(0, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new EdgeNGrams(3, 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<String> tokenize(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (var tokenStream = analyzer.tokenStream("", text)) {
+            CharTermAttribute attribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken())
+                tokens.add(attribute.toString());
+
+            tokenStream.end();
+        }
+
+        return tokens;
+    }
+}
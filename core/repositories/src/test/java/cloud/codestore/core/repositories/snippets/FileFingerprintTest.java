@@ -0,0 +1,65 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.File;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The fingerprint of a file")
+class FileFingerprintTest {
+    @TempDir
+    private Path testDir;
+    private Path testFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testFile = testDir.resolve("snippet.json");
+        Files.writeString(testFile, "{\"title\":\"test\"}");
+    }
+
+    @Test
+    @DisplayName("contains the size and the modification time of the file")
+    void readAttributes() throws IOException {
+        FileFingerprint fingerprint = FileFingerprint.of(new File(testFile));
+
+        assertThat(fingerprint.size()).isEqualTo(Files.size(testFile));
+        assertThat(fingerprint.lastModified()).isEqualTo(Files.getLastModifiedTime(testFile).toMillis());
+    }
+
+    @Test
+    @DisplayName("matches the attributes of the unchanged file")
+    void matchUnchangedFile() throws IOException {
+        FileFingerprint fingerprint = FileFingerprint.of(new File(testFile));
+        assertThat(fingerprint.matches(attributes())).isTrue();
+
+        Files.setLastModifiedTime(testFile, FileTime.fromMillis(fingerprint.lastModified() + 1000));
+        assertThat(fingerprint.matches(attributes())).isFalse();
+    }
+
+    @Test
+    @DisplayName("detects whether the content of a file changed")
+    void compareContent() throws IOException {
+        FileFingerprint fingerprint = FileFingerprint.of(new File(testFile));
+
+        Files.setLastModifiedTime(testFile, FileTime.fromMillis(fingerprint.lastModified() + 1000));
+        FileFingerprint touchedFingerprint = FileFingerprint.of(new File(testFile));
+        assertThat(touchedFingerprint.hasSameContent(fingerprint)).isTrue();
+
+        Files.writeString(testFile, "{\"title\":\"TEST\"}");
+        FileFingerprint changedFingerprint = FileFingerprint.of(new File(testFile));
+        assertThat(changedFingerprint.hasSameContent(fingerprint)).isFalse();
+    }
+
+    private BasicFileAttributes attributes() throws IOException {
+        return Files.readAttributes(testFile, BasicFileAttributes.class);
+    }
+}
@@ -6,11 +6,14 @@ import cloud.codestore.core.repositories.Directory;
 import cloud.codestore.core.repositories.File;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
@@ -65,15 +68,47 @@ class FileSystemRepositoryTest {
     }
 
     @Test
-    @DisplayName("reads all code snippets from the file system")
-    void readAllSnippets() {
-        var files = List.of(mock(File.class), mock(File.class), mock(File.class));
-        when(snippetDirectory.getFiles()).thenReturn(files);
+    @DisplayName("lists all snippet files")
+    void readAllSnippetFiles() {
+        var files = List.of(file("1.json"), file("2.json"), file("3.json"));
+        var temporaryFile = file(".3.json" + File.TEMPORARY_FILE_EXTENSION);
+        when(snippetDirectory.walkFiles(1)).thenReturn(Stream.of(files.get(0), files.get(1), temporaryFile, files.get(2)));
 
-        var snippets = repository.readSnippets();
+        var snippetFiles = repository.readSnippetFiles();
 
-        assertThat(snippets).isNotNull().hasSize(files.size());
-        verify(snippetReader, times(3)).read(any(File.class));
+        assertThat(snippetFiles).containsExactlyElementsOf(files);
+    }
+
+    @Test
+    @DisplayName("reads a snippet from its file without checking its existence")
+    void readSnippetFile() {
+        Snippet snippet = mock(Snippet.class);
+        when(snippetReader.read(snippetFile)).thenReturn(snippet);
+
+        assertThat(repository.readSnippet(SNIPPET_ID)).isSameAs(snippet);
+        verify(snippetFile, never()).exists();
+    }
+
+    @Test
+    @DisplayName("derives the IDs of all snippets from the file names")
+    void readSnippetIds() {
+        var attributes = mock(BasicFileAttributes.class);
+        when(attributes.size()).thenReturn(42L);
+        when(attributes.lastModifiedTime()).thenReturn(FileTime.fromMillis(1000));
+        var files = Stream.of(file("1.json", attributes), file("2.json", attributes));
+        when(snippetDirectory.walkFiles(1)).thenReturn(files);
+
+        assertThat(repository.snippets()).containsExactly(
+                new SnippetStorage.StoredSnippet("1", new FileFingerprint(42, 1000, 0)),
+                new SnippetStorage.StoredSnippet("2", new FileFingerprint(42, 1000, 0))
+        );
+    }
+
+    @Test
+    @DisplayName("derives the snippet ID from the file name")
+    void getSnippetId() {
+        when(snippetFile.getName()).thenReturn(SNIPPET_FILE_NAME);
+        assertThat(FileSystemRepository.getSnippetId(snippetFile)).isEqualTo(SNIPPET_ID);
     }
 
     @Test
@@ -116,4 +151,80 @@ class FileSystemRepositoryTest {
         assertThatThrownBy(() -> repository.update(testSnippet)).isInstanceOf(SnippetNotExistsException.class);
         assertThatThrownBy(() -> repository.delete(SNIPPET_ID)).isInstanceOf(SnippetNotExistsException.class);
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("with a journal")
+    class JournalTest {
+        @Mock
+        private SnippetJournal journal;
+
+        @BeforeEach
+        void setUp() {
+            repository = new FileSystemRepository(snippetDirectory, snippetReader, snippetWriter, journal);
+        }
+
+        @Test
+        @DisplayName("records new and updated snippets in the journal")
+        void saveSnippet() throws SnippetNotExistsException {
+            byte[] content = "{}".getBytes();
+            Snippet testSnippet = mock(Snippet.class);
+            when(testSnippet.getId()).thenReturn(SNIPPET_ID);
+            when(snippetWriter.toJson(testSnippet)).thenReturn(content);
+            when(journal.pending(SNIPPET_ID)).thenReturn(new SnippetJournal.Change(SNIPPET_ID, content, 1000));
+
+            repository.create(testSnippet);
+            repository.update(testSnippet);
+
+            verify(journal, times(2)).put(SNIPPET_ID, content);
+            verify(snippetWriter, never()).write(any(), any());
+        }
+
+        @Test
+        @DisplayName("records deleted snippets in the journal")
+        void deleteSnippet() throws SnippetNotExistsException {
+            when(snippetFile.exists()).thenReturn(true);
+            repository.delete(SNIPPET_ID);
+
+            verify(journal).delete(SNIPPET_ID);
+            verify(snippetFile, never()).delete();
+        }
+
+        @Test
+        @DisplayName("reads snippets whose changes are not written yet from the journal")
+        void readPendingSnippet() throws SnippetNotExistsException {
+            byte[] content = "{}".getBytes();
+            Snippet snippet = mock(Snippet.class);
+            when(journal.pending(SNIPPET_ID)).thenReturn(new SnippetJournal.Change(SNIPPET_ID, content, 1000));
+            when(snippetReader.read(SNIPPET_ID, content)).thenReturn(snippet);
+
+            assertThat(repository.read(SNIPPET_ID)).isSameAs(snippet);
+            assertThat(repository.fingerprint(SNIPPET_ID)).isEqualTo(FileFingerprint.of(content, 1000));
+            assertThat(repository.hasPendingChange(SNIPPET_ID)).isTrue();
+            assertThat(repository.isUnchanged(SNIPPET_ID, repository.attributeFingerprint(SNIPPET_ID))).isTrue();
+            verify(snippetFile, never()).exists();
+            verify(snippetFile, never()).readAttributes();
+        }
+
+        @Test
+        @DisplayName("does not find snippets whose deletion is not written yet")
+        void readPendingDeletion() {
+            when(journal.pending(SNIPPET_ID)).thenReturn(new SnippetJournal.Change(SNIPPET_ID, null, 1000));
+            assertThatThrownBy(() -> repository.read(SNIPPET_ID)).isInstanceOf(SnippetNotExistsException.class);
+        }
+    }
+
+    private static File file(String name) {
+        File file = mock(File.class);
+        when(file.getName()).thenReturn(name);
+        return file;
+    }
+
+    /**
+     * @return an enumerated file whose attributes were read while enumerating its directory.
+     */
+    private static File file(String name, BasicFileAttributes attributes) {
+        File file = file(name);
+        when(file.attributes()).thenReturn(attributes);
+        return file;
+    }
+}
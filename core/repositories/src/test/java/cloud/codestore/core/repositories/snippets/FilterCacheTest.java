@@ -0,0 +1,142 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The filter cache")
+class FilterCacheTest {
+    private static final Query JAVA = IntPoint.newExactQuery(SnippetField.LANGUAGE_ID, 1);
+    private static final Query PYTHON = IntPoint.newExactQuery(SnippetField.LANGUAGE_ID, 2);
+    private static final Query TAG = new TermQuery(new Term(SnippetField.TAG, "docker"));
+
+    private final FilterCache filterCache = new FilterCache(2, 0);
+    private DirectoryReader reader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var directory = new ByteBuffersDirectory();
+        try (var writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int i = 0; i < 100; i++) {
+                var document = new Document();
+                document.add(new IntField(SnippetField.LANGUAGE_ID, i % 2 + 1, Field.Store.NO));
+                document.add(new StringField(SnippetField.TAG, i % 10 == 0 ? "docker" : "other", Field.Store.NO));
+                writer.addDocument(document);
+            }
+        }
+
+        reader = DirectoryReader.open(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("caches the language and tag filters on their first use")
+    void cacheFiltersOnFirstUse() throws IOException {
+        assertThat(filterCache.shouldCache(JAVA)).isTrue();
+        assertThat(filterCache.shouldCache(TAG)).isTrue();
+
+        IndexSearcher searcher = searcher();
+        assertThat(searcher.search(filtered(JAVA, TAG), 100).scoreDocs).hasSize(10);
+        assertThat(filterCache.cacheCount()).isEqualTo(2);
+
+        assertThat(searcher.search(filtered(JAVA, TAG), 100).scoreDocs).hasSize(10);
+        assertThat(filterCache.hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("does not cache term queries of other fields")
+    void doNotCacheOtherTerms() throws IOException {
+        assertThat(filterCache.shouldCache(new TermQuery(new Term(SnippetField.TITLE, "docker")))).isFalse();
+    }
+
+    @Test
+    @DisplayName("provides the most used filters")
+    void mostUsedFilters() throws IOException {
+        IndexSearcher searcher = searcher();
+        searcher.search(filtered(PYTHON), 1);
+        searcher.search(filtered(PYTHON, TAG), 1);
+        searcher.search(filtered(JAVA), 1);
+        searcher.search(filtered(JAVA), 1);
+        searcher.search(filtered(JAVA, TAG), 1);
+
+        assertThat(filterCache.mostUsed(2)).containsExactly(JAVA, PYTHON);
+    }
+
+    @Test
+    @DisplayName("computes the most used filters for a new reader")
+    void warmUp() throws IOException {
+        searcher().search(filtered(JAVA, TAG), 1);
+        long cacheCount = filterCache.cacheCount();
+
+        // the filters are computed for the new segment only
+        filterCache.warm(reopened());
+        assertThat(filterCache.cacheCount()).isGreaterThan(cacheCount);
+        assertThat(filterCache.hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("does not count warming up as usage")
+    void warmUpIsNoUsage() throws IOException {
+        searcher().search(filtered(JAVA), 1);
+        filterCache.warm(reader);
+        filterCache.warm(reader);
+        searcher().search(filtered(PYTHON), 1);
+        searcher().search(filtered(PYTHON), 1);
+
+        assertThat(filterCache.mostUsed(2)).containsExactly(PYTHON, JAVA);
+    }
+
+    private IndexSearcher searcher() {
+        var searcher = new IndexSearcher(reader);
+        filterCache.configure(searcher);
+        return searcher;
+    }
+
+    private DirectoryReader reopened() throws IOException {
+        try (var writer = new IndexWriter(reader.directory(), new IndexWriterConfig())) {
+            var document = new Document();
+            document.add(new IntField(SnippetField.LANGUAGE_ID, 1, Field.Store.NO));
+            writer.addDocument(document);
+        }
+
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        reader = newReader;
+        return newReader;
+    }
+
+    private static Query filtered(Query... filters) {
+        var query = new BooleanQuery.Builder().add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        for (Query filter : filters) {
+            query.add(filter, BooleanClause.Occur.FILTER);
+        }
+
+        return query.build();
+    }
+}
@@ -1,6 +1,7 @@
 package cloud.codestore.core.repositories.snippets;
 
 import cloud.codestore.core.Language;
+import cloud.codestore.core.usecases.listsnippets.DateRange;
 import cloud.codestore.core.usecases.listsnippets.FilterProperties;
 import org.apache.lucene.search.Query;
 import org.junit.jupiter.api.DisplayName;
@@ -9,6 +10,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.time.OffsetDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
@@ -38,18 +40,43 @@ class FilterQueryBuilderTest {
         expectQuery(new FilterProperties(languageName, Collections.emptySet()), expectedQuery);
     }
 
+    @Test
+    @DisplayName("matching no code snippets if the programming language does not exist")
+    void filterByUnknownLanguage() {
+        expectQuery(new FilterProperties("brainfuck", Collections.emptySet()), "#MatchNoDocsQuery");
+    }
+
     @Test
     @DisplayName("which contains the provided tags")
     void filterByLanguage() {
         Set<String> tags = Set.of("Tag-A", "Tag_B", "TagC");
-        String[] expectedQuery = new String[]{"+tag:taga", "+tag:tagb", "+tag:tagc"};
+        String[] expectedQuery = new String[]{"#tag:taga", "#tag:tagb", "#tag:tagc"};
         expectQuery(new FilterProperties("", tags), expectedQuery);
     }
 
+    @Test
+    @DisplayName("which contains the ranges of the creation and modification time")
+    void filterByDateRange() {
+        var from = OffsetDateTime.parse("2023-01-01T00:00:00Z");
+        var until = OffsetDateTime.parse("2023-12-31T23:59:59Z");
+        var filterProperties = new FilterProperties(
+                "",
+                Set.of(),
+                new DateRange(from, until),
+                new DateRange(from, null)
+        );
+
+        expectQuery(
+                filterProperties,
+                "#created:[" + from.toEpochSecond() + " TO " + until.toEpochSecond() + "]",
+                "#modified:[" + from.toEpochSecond() + " TO " + Long.MAX_VALUE + "]"
+        );
+    }
+
     private static Stream<Arguments> queryByLanguageId() {
         return Arrays.stream(Language.values())
                      .map(language -> {
-                         String expectedQuery = "+language:" + language.getId();
+                         String expectedQuery = languageFilter(language);
                          return Arguments.of(language.getId(), expectedQuery);
                      });
     }
@@ -63,11 +90,15 @@ class FilterQueryBuilderTest {
                          else if (languageName.equals("batch script"))
                              languageName = "batch";
 
-                         String expectedQuery = "+language:" + languageName;
+                         String expectedQuery = languageFilter(language);
                          return Arguments.of(languageName, expectedQuery);
                      });
     }
 
+    private static String languageFilter(Language language) {
+        return "#languageId:[" + language.getId() + " TO " + language.getId() + "]";
+    }
+
     private void expectQuery(FilterProperties filterProperties, String... expectedQueryParts) {
         Query query = new FilterQueryBuilder(filterProperties).build();
         assertThat(query.toString()).contains(expectedQueryParts);
@@ -0,0 +1,74 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of searches with typos. The exact search finds nothing, whereas the fuzzy search
+ * additionally matches similar terms. As the fuzzy queries match a bounded number of similar terms only,
+ * the p0.99 percentile of the fuzzy search must stay within a small multiple of the exact search for the
+ * correctly spelled terms, which finds about the same code snippets.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main FuzzySearchBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FuzzySearchBenchmark {
+    private static final int PAGE_SIZE = 50;
+    private static final Map<String, String> CORRECTIONS = Map.of(
+            "dokcer", "docker",
+            "javscript", "javascript",
+            "snipet qeury", "snippet query"
+    );
+
+    @Param({"100000"})
+    public int snippetCount;
+    @Param({"dokcer", "javscript", "snipet qeury"})
+    public String input;
+    @Param({"exact", "fuzzy", "corrected"})
+    public String mode;
+
+    private Path indexPath;
+    private SnippetIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(new MMapDirectory(indexPath));
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @Benchmark
+    public SnippetIndex.SearchHits<String> search() {
+        String search = mode.equals("corrected") ? CORRECTIONS.get(input) : input;
+        var queryBuilder = new QueryBuilder(search, new FilterProperties(), index.edgeNGrams());
+        if (mode.equals("fuzzy")) {
+            queryBuilder.matchSimilarTerms();
+        }
+
+        return index.query(new SnippetIndex.SearchRequest(queryBuilder.build(), SortField.FIELD_SCORE, 0, PAGE_SIZE)
+                .withHighlightQuery(queryBuilder.buildHighlightQuery()));
+    }
+}
@@ -1,15 +1,28 @@
 package cloud.codestore.core.repositories.snippets;
 
+import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
 import cloud.codestore.core.SnippetNotExistsException;
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.RepositoryException;
 import cloud.codestore.core.repositories.tags.TagRepository;
+import cloud.codestore.core.usecases.listsnippets.Facet;
 import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import cloud.codestore.core.usecases.listsnippets.SearchBudget;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import cloud.codestore.core.usecases.listsnippets.SnippetHighlights;
+import cloud.codestore.core.usecases.listsnippets.SnippetListRequest;
+import cloud.codestore.core.usecases.listsnippets.SnippetSummary;
 import cloud.codestore.core.usecases.listsnippets.SortProperties;
+import org.apache.lucene.index.QueryTimeout;
 import org.apache.lucene.search.SortField;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -18,9 +31,13 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static cloud.codestore.core.usecases.listsnippets.SortProperties.SnippetProperty;
@@ -32,52 +49,272 @@ import static org.mockito.Mockito.*;
 @DisplayName("The indexed snippet repository")
 class IndexedSnippetRepositoryTest {
     private static final String SNIPPET_ID = UUID.randomUUID().toString();
+    private static final FileFingerprint FINGERPRINT = new FileFingerprint(100, 1000, 12345);
 
     @Mock
     private SnippetIndex index;
     @Mock
-    private FileSystemRepository localRepo;
+    private SnippetStorage localRepo;
     @Mock
     private TagRepository tagRepository;
     private IndexedSnippetRepository repository;
 
     @BeforeEach
     void setUp() {
-        repository = new IndexedSnippetRepository(index, localRepo, tagRepository);
+        repository = new IndexedSnippetRepository(index, localRepo, tagRepository, new QueryCache(10), 2);
     }
 
-    @Test
-    @DisplayName("indexes all snippets when created")
-    @SuppressWarnings("unchecked")
-    void indexAllSnippets() {
-        Mockito.reset(index);
-        var argument = ArgumentCaptor.forClass(Stream.class);
-        var snippets = List.of(mock(Snippet.class), mock(Snippet.class), mock(Snippet.class));
-        when(localRepo.readSnippets()).thenReturn(snippets.stream());
+    @Nested
+    @DisplayName("synchronizes the index when created")
+    class SynchronizeIndexTest {
+        @TempDir
+        private Path snippetsDirectory;
+        @Mock
+        private SnippetIndex.Batch batch;
+        @Mock
+        private SnippetReader snippetReader;
+
+        @BeforeEach
+        void setUp() {
+            Mockito.reset(index, tagRepository);
+            doAnswer(invocation -> {
+                invocation.<Consumer<SnippetIndex.Batch>>getArgument(0).accept(batch);
+                return null;
+            }).when(index).batch(any());
+        }
+
+        @Test
+        @DisplayName("by indexing new snippet files")
+        void indexNewFiles() throws IOException {
+            File file = snippetFile("new");
+            Snippet snippet = snippetOf(file);
+
+            synchronize(Map.of());
+
+            verify(batch).put(snippet, FileFingerprint.of(file));
+        }
+
+        @Test
+        @DisplayName("by reindexing changed snippet files")
+        void indexChangedFiles() throws IOException {
+            File file = snippetFile("changed");
+            Snippet snippet = snippetOf(file);
+            var outdatedFingerprint = new FileFingerprint(1, 0, 0);
+
+            synchronize(Map.of("changed", outdatedFingerprint));
+
+            verify(batch).put(snippet, FileFingerprint.of(file));
+        }
+
+        @Test
+        @DisplayName("by updating the fingerprint of touched snippet files")
+        void updateTouchedFiles() throws IOException {
+            File file = snippetFile("touched");
+            FileFingerprint fingerprint = FileFingerprint.of(file);
+            var outdatedFingerprint = new FileFingerprint(fingerprint.size(), 0, fingerprint.checksum());
+
+            synchronize(Map.of("touched", outdatedFingerprint));
+
+            verify(batch).updateFingerprint("touched", fingerprint);
+            verify(batch, never()).put(any(), any());
+            verify(snippetReader, never()).read(any(File.class));
+        }
+
+        @Test
+        @DisplayName("by skipping unchanged snippet files")
+        void skipUnchangedFiles() throws IOException {
+            File file = snippetFile("unchanged");
+
+            synchronize(Map.of("unchanged", FileFingerprint.of(file)));
+
+            verifyNoInteractions(batch);
+            verify(snippetReader, never()).read(any(File.class));
+        }
+
+        @Test
+        @DisplayName("by comparing the fingerprints of the enumerated snippets without accessing them again")
+        void compareEnumeratedFingerprints() {
+            var storage = mock(SnippetStorage.class);
+            var storedSnippet = new SnippetStorage.StoredSnippet("unchanged", new FileFingerprint(1, 2, 0));
+            when(storage.snippets()).thenReturn(Stream.of(storedSnippet));
+            when(index.fingerprints()).thenReturn(new HashMap<>(Map.of("unchanged", new FileFingerprint(1, 2, 3))));
+
+            new IndexedSnippetRepository(index, storage, tagRepository, new QueryCache(10), 2);
+
+            verify(storage, never()).isUnchanged(any(), any());
+            verify(storage, never()).fingerprint(any());
+            verifyNoInteractions(batch);
+        }
+
+        @Test
+        @DisplayName("by removing snippets whose files were deleted")
+        void removeDeletedFiles() {
+            synchronize(Map.of("deleted", new FileFingerprint(1, 2, 3)));
+            verify(batch).remove("deleted");
+        }
+
+        @Test
+        @DisplayName("and collects all indexed tags")
+        void collectTags() {
+            var tags = Set.of("tagA", "tagB");
+            when(index.tags()).thenReturn(tags);
+
+            synchronize(Map.of());
+
+            verify(tagRepository).add(tags);
+        }
+
+        private void synchronize(Map<String, FileFingerprint> indexedFiles) {
+            when(index.fingerprints()).thenReturn(new HashMap<>(indexedFiles));
+            var storage = new FileSystemRepository(new Directory(snippetsDirectory), snippetReader, mock(SnippetWriter.class));
+            new IndexedSnippetRepository(index, storage, tagRepository, new QueryCache(10), 2);
+        }
+
+        private File snippetFile(String snippetId) throws IOException {
+            Path path = snippetsDirectory.resolve(snippetId + FileSystemRepository.JSON_FILE_EXTENSION);
+            Files.writeString(path, "{\"title\":\"" + snippetId + "\"}");
+            return new File(path);
+        }
+
+        private Snippet snippetOf(File file) {
+            Snippet snippet = mock(Snippet.class);
+            when(snippetReader.read(file)).thenReturn(snippet);
+            return snippet;
+        }
+    }
+
+    @Nested
+    @DisplayName("applies external changes of snippet files")
+    class ExternalChangesTest {
+        @TempDir
+        private Path snippetsDirectory;
+        @Mock
+        private SnippetIndex.Batch batch;
+        @Mock
+        private SnippetReader snippetReader;
+        @Mock
+        private SnippetJournal journal;
+
+        @BeforeEach
+        void setUp() {
+            doAnswer(invocation -> {
+                invocation.<Consumer<SnippetIndex.Batch>>getArgument(0).accept(batch);
+                return null;
+            }).when(index).batch(any());
+
+            var storage = new FileSystemRepository(
+                    new Directory(snippetsDirectory),
+                    snippetReader,
+                    mock(SnippetWriter.class),
+                    journal
+            );
+            repository = new IndexedSnippetRepository(index, storage, tagRepository, new QueryCache(10), 2);
+        }
+
+        @Test
+        @DisplayName("by indexing the changed files")
+        void indexChangedFiles() throws IOException {
+            File file = snippetFile("changed");
+            Snippet snippet = mock(Snippet.class);
+            when(snippetReader.read(file)).thenReturn(snippet);
+            when(index.fingerprints()).thenReturn(Map.of("changed", new FileFingerprint(1, 0, 0)));
 
-        new IndexedSnippetRepository(index, localRepo, tagRepository);
+            repository.synchronize(List.of(file));
 
-        verify(index).add(argument.capture());
-        assertThat(argument.getValue().toList()).isEqualTo(snippets);
-        verify(tagRepository, times(3)).add(any());
+            verify(batch).put(snippet, FileFingerprint.of(file));
+        }
+
+        @Test
+        @DisplayName("by removing snippets whose files were deleted")
+        void removeDeletedFiles() {
+            File file = new File(snippetsDirectory.resolve("deleted.json"));
+            when(index.fingerprints()).thenReturn(Map.of("deleted", FINGERPRINT));
+
+            repository.synchronize(List.of(file));
+
+            verify(batch).remove("deleted");
+        }
+
+        @Test
+        @DisplayName("by skipping files which cannot be read")
+        void skipInvalidFiles() throws IOException {
+            File invalidFile = snippetFile("invalid");
+            File validFile = snippetFile("valid");
+            Snippet snippet = mock(Snippet.class);
+            when(snippetReader.read(invalidFile)).thenThrow(new RepositoryException("file.invalidFormat", "invalid"));
+            when(snippetReader.read(validFile)).thenReturn(snippet);
+
+            repository.synchronize(List.of(invalidFile, validFile));
+
+            verify(batch).put(snippet, FileFingerprint.of(validFile));
+            verify(batch, never()).remove(any());
+        }
+
+        @Test
+        @DisplayName("by skipping files whose change is not written yet")
+        void skipPendingChanges() throws IOException {
+            File file = snippetFile("pending");
+            var change = new SnippetJournal.Change("pending", "{}".getBytes(), 1000);
+            when(journal.pending("pending")).thenReturn(change);
+            when(index.fingerprints()).thenReturn(Map.of("pending", FINGERPRINT));
+
+            repository.synchronize(List.of(file));
+            Files.delete(file.path());
+            repository.synchronizeDirectory();
+
+            verify(snippetReader, never()).read(any(File.class));
+            verify(batch, never()).remove(any());
+        }
+
+        @Test
+        @DisplayName("by comparing the whole directory with the index if changes were missed")
+        void synchronizeDirectory() throws IOException {
+            File invalidFile = snippetFile("invalid");
+            when(snippetReader.read(invalidFile)).thenThrow(new RepositoryException("file.invalidFormat", "invalid"));
+            when(index.fingerprints()).thenReturn(Map.of("deleted", FINGERPRINT));
+
+            repository.synchronizeDirectory();
+
+            verify(batch).remove("deleted");
+            verify(batch, never()).remove("invalid");
+        }
+
+        @Test
+        @DisplayName("and collects all indexed tags")
+        void collectTags() {
+            var tags = Set.of("tagA", "tagB");
+            when(index.tags()).thenReturn(tags);
+
+            repository.synchronize(List.of());
+
+            verify(tagRepository).add(tags);
+        }
+
+        private File snippetFile(String snippetId) throws IOException {
+            Path path = snippetsDirectory.resolve(snippetId + FileSystemRepository.JSON_FILE_EXTENSION);
+            Files.writeString(path, "{\"title\":\"" + snippetId + "\"}");
+            return new File(path);
+        }
     }
 
     @Test
     @DisplayName("adds a new snippet to the index after saving it on the file system")
     void createSnippet() {
         Snippet snippet = testSnippet();
+        when(localRepo.fingerprint(SNIPPET_ID)).thenReturn(FINGERPRINT);
         repository.create(snippet);
         verify(localRepo).create(snippet);
-        verify(index).add(snippet);
+        verify(index).add(snippet, FINGERPRINT);
     }
 
     @Test
     @DisplayName("updates an existing snippet on the index after updating the corresponding file")
     void updateSnippet() throws SnippetNotExistsException {
         Snippet snippet = testSnippet();
+        when(localRepo.fingerprint(SNIPPET_ID)).thenReturn(FINGERPRINT);
         repository.update(snippet);
         verify(localRepo).update(snippet);
-        verify(index).update(snippet);
+        verify(index).update(snippet, FINGERPRINT);
     }
 
     @Test
@@ -88,26 +325,230 @@ class IndexedSnippetRepositoryTest {
         verify(index).remove(SNIPPET_ID);
     }
 
+    @Test
+    @DisplayName("reads a page of snippets from the file system")
+    void readSnippets() {
+        Snippet snippet = testSnippet();
+        when(index.query(page(50, 50))).thenReturn(new SnippetIndex.SearchHits<>(51, List.of(SNIPPET_ID)));
+        when(localRepo.readSnippets(any())).thenReturn(Stream.of(snippet));
+
+        var result = repository.readSnippets(new SnippetListRequest("", SearchMode.DEFAULT, new FilterProperties(), new SortProperties(), 2, Set.of(), SearchBudget.unlimited()), 50);
+
+        assertThat(result.totalCount()).isEqualTo(51);
+        assertThat(result.snippetStream()).containsExactly(snippet);
+    }
+
+    @Test
+    @DisplayName("reads the summaries of a page of snippets from the index only")
+    void readSnippetSummaries() {
+        var summary = new SnippetSummary(SNIPPET_ID, "title", Language.JAVA, List.of(), OffsetDateTime.now(), null);
+        when(index.querySummaries(page(0, 50))).thenReturn(new SnippetIndex.SearchHits<>(1, List.of(summary)));
+
+        var result = repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+
+        assertThat(result.totalCount()).isEqualTo(1);
+        assertThat(result.snippetStream()).containsExactly(summary);
+        verify(localRepo, never()).readSnippets(any());
+    }
+
+    @Test
+    @DisplayName("passes the counted facets of the index to the search result")
+    void readFacets() {
+        Map<Facet, Map<String, Integer>> facets = Map.of(Facet.LANGUAGE, Map.of("Java", 1));
+        when(index.querySummaries(argThat(request -> request.facets().equals(Set.of(Facet.LANGUAGE)))))
+                .thenReturn(new SnippetIndex.SearchHits<>(1, List.of(), facets, Map.of()));
+
+        var result = repository.readSnippetSummaries(new SnippetListRequest("", SearchMode.DEFAULT, new FilterProperties(), new SortProperties(), 1, Set.of(Facet.LANGUAGE), SearchBudget.unlimited()), 50);
+
+        assertThat(result.facets()).isEqualTo(facets);
+    }
+
+    @Test
+    @DisplayName("highlights the matches of a search")
+    void readHighlights() {
+        var highlights = Map.of(SNIPPET_ID, new SnippetHighlights(List.of(), List.of()));
+        when(index.edgeNGrams()).thenReturn(EdgeNGrams.DEFAULT);
+        when(index.querySummaries(argThat(request -> request.highlightQuery() != null)))
+                .thenReturn(new SnippetIndex.SearchHits<>(1, List.of(), Map.of(), highlights));
+
+        var result = repository.readSnippetSummaries(request("file", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+
+        assertThat(result.highlights()).isEqualTo(highlights);
+    }
+
+    @Test
+    @DisplayName("highlights nothing if nothing is searched")
+    void noHighlightsWithoutSearch() {
+        when(index.querySummaries(page(0, 50))).thenReturn(new SnippetIndex.SearchHits<>(0, List.of()));
+
+        repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+
+        verify(index).querySummaries(argThat(request -> request.highlightQuery() == null));
+    }
+
+    @Test
+    @DisplayName("searches the index only once while it is unchanged")
+    void cacheSearchResults() {
+        when(index.querySummaries(page(0, 50))).thenReturn(new SnippetIndex.SearchHits<>(0, List.of()));
+        when(index.generation()).thenReturn(1L, 1L, 2L);
+
+        repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+        repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+        verify(index, times(1)).querySummaries(page(0, 50));
+
+        repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+        verify(index, times(2)).querySummaries(page(0, 50));
+    }
+
+    @Nested
+    @DisplayName("if a search exhausts its budget")
+    class SearchBudgetTest {
+        private final SnippetIndex.SearchHits<SnippetSummary> partialHits =
+                new SnippetIndex.SearchHits<>(1, List.of(), Map.of(), Map.of(), true);
+
+        @Test
+        @DisplayName("stops the search in the index as soon as the budget is exhausted")
+        void passBudget() {
+            var request = ArgumentCaptor.forClass(SnippetIndex.SearchRequest.class);
+            when(index.querySummaries(request.capture())).thenReturn(partialHits);
+            var budget = SearchBudget.unlimited();
+
+            repository.readSnippetSummaries(request("", SearchMode.DEFAULT, budget), 50);
+
+            QueryTimeout timeout = request.getValue().timeout();
+            assertThat(timeout.shouldExit()).isFalse();
+            budget.cancel();
+            assertThat(timeout.shouldExit()).isTrue();
+        }
+
+        @Test
+        @DisplayName("returns a partial result which is not cached")
+        void partialResult() {
+            when(index.querySummaries(page(0, 50))).thenReturn(partialHits);
+
+            var result = repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.of(Duration.ZERO)), 50);
+            repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.of(Duration.ZERO)), 50);
+
+            assertThat(result.partial()).isTrue();
+            verify(index, times(2)).querySummaries(page(0, 50));
+        }
+
+        @Test
+        @DisplayName("does not search for similar terms")
+        void noFuzzySearch() {
+            when(index.edgeNGrams()).thenReturn(EdgeNGrams.DEFAULT);
+            when(index.querySummaries(page(0, 50))).thenReturn(partialHits);
+
+            repository.readSnippetSummaries(request("dokcer", SearchMode.FUZZY, SearchBudget.of(Duration.ZERO)), 50);
+
+            verify(index, times(1)).querySummaries(page(0, 50));
+        }
+
+        @Test
+        @DisplayName("counts the timed out and the cancelled searches")
+        void countSearches() {
+            when(index.querySummaries(page(0, 50))).thenReturn(partialHits);
+            var cancelledBudget = SearchBudget.unlimited();
+            cancelledBudget.cancel();
+
+            repository.readSnippetSummaries(request("", SearchMode.DEFAULT, SearchBudget.of(Duration.ZERO)), 50);
+            repository.readSnippetSummaries(request("", SearchMode.DEFAULT, cancelledBudget), 50);
+
+            assertThat(repository.timedOutSearches()).isEqualTo(1);
+            assertThat(repository.cancelledSearches()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("in the fuzzy search mode")
+    class FuzzySearchTest {
+        @BeforeEach
+        void setUp() {
+            when(index.edgeNGrams()).thenReturn(EdgeNGrams.DEFAULT);
+        }
+
+        @Test
+        @DisplayName("searches for similar terms if only a few snippets match exactly")
+        void searchSimilarTerms() {
+            var requests = ArgumentCaptor.forClass(SnippetIndex.SearchRequest.class);
+            when(index.querySummaries(requests.capture()))
+                    .thenReturn(new SnippetIndex.SearchHits<>(1, List.of()))
+                    .thenReturn(new SnippetIndex.SearchHits<>(3, List.of()));
+
+            var result = repository.readSnippetSummaries(request("dokcer", SearchMode.FUZZY, SearchBudget.unlimited()), 50);
+
+            assertThat(result.totalCount()).isEqualTo(3);
+            assertThat(requests.getAllValues()).hasSize(2);
+            assertThat(requests.getAllValues().get(0).query().toString()).doesNotContain("dokcer~");
+            assertThat(requests.getAllValues().get(1).query().toString()).contains("dokcer~");
+        }
+
+        @Test
+        @DisplayName("keeps the exact result if enough snippets match")
+        void keepExactResult() {
+            when(index.querySummaries(page(0, 50))).thenReturn(new SnippetIndex.SearchHits<>(5, List.of()));
+
+            repository.readSnippetSummaries(request("docker", SearchMode.FUZZY, SearchBudget.unlimited()), 50);
+
+            verify(index, times(1)).querySummaries(page(0, 50));
+        }
+
+        @Test
+        @DisplayName("is not used by default")
+        void exactByDefault() {
+            when(index.querySummaries(page(0, 50))).thenReturn(new SnippetIndex.SearchHits<>(0, List.of()));
+
+            repository.readSnippetSummaries(request("dokcer", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+
+            verify(index, times(1)).querySummaries(page(0, 50));
+        }
+    }
+
+    @Test
+    @DisplayName("searches the code for a regular expression and highlights its matches")
+    void searchRegex() {
+        var request = ArgumentCaptor.forClass(SnippetIndex.SearchRequest.class);
+        when(index.querySummaries(request.capture()))
+                .thenReturn(new SnippetIndex.SearchHits<>(0, List.of()));
+
+        repository.readSnippetSummaries(request("get[A-Z]\\w*", SearchMode.REGEX, SearchBudget.unlimited()), 50);
+
+        assertThat(request.getValue().query()).isInstanceOf(CodePatternQuery.class);
+        assertThat(((CodePatternQuery) request.getValue().highlightQuery()).pattern().pattern()).isEqualTo("get[A-Z]\\w*");
+    }
+
     @ParameterizedTest
     @MethodSource("sortParams")
     @DisplayName("sorts the requested snippets")
     void sortSnippets(SortProperties sortProperties, String expectedSnippetField, boolean expectedOrder) {
-        var sortFieldArgument = ArgumentCaptor.forClass(SortField.class);
-        when(index.query(any(), any())).thenReturn(Collections.emptyList());
+        var request = ArgumentCaptor.forClass(SnippetIndex.SearchRequest.class);
+        when(index.query(any())).thenReturn(new SnippetIndex.SearchHits<>(0, Collections.emptyList()));
 
-        repository.readSnippets("", new FilterProperties(), sortProperties);
+        repository.readSnippets(new SnippetListRequest("", SearchMode.DEFAULT, new FilterProperties(), sortProperties, 1, Set.of(), SearchBudget.unlimited()), 50);
 
-        verify(index).query(any(), sortFieldArgument.capture());
-        SortField sortField = sortFieldArgument.getValue();
+        verify(index).query(request.capture());
+        SortField sortField = request.getValue().sortField();
         assertThat(sortField.getField()).isEqualTo(expectedSnippetField);
         assertThat(sortField.getReverse()).isEqualTo(!expectedOrder);
     }
 
+    @Test
+    @DisplayName("sorts by default in the order of the index")
+    void sortInIndexOrder() {
+        var request = ArgumentCaptor.forClass(SnippetIndex.SearchRequest.class);
+        when(index.query(request.capture()))
+                .thenReturn(new SnippetIndex.SearchHits<>(0, List.of()));
+
+        repository.readSnippets(request("", SearchMode.DEFAULT, SearchBudget.unlimited()), 50);
+
+        assertThat(request.getValue().sortField()).isEqualTo(SnippetIndex.INDEX_SORT.getSort()[0]);
+    }
+
     private static Stream<Arguments> sortParams() {
         return Stream.of(
                 Arguments.of(new SortProperties(SnippetProperty.RELEVANCE, true), null, true),
-                Arguments.of(new SortProperties(SnippetProperty.TITLE, true), "title", true),
-                Arguments.of(new SortProperties(SnippetProperty.TITLE, false), "title", false),
+                Arguments.of(new SortProperties(SnippetProperty.TITLE, true), "titleSort", true),
+                Arguments.of(new SortProperties(SnippetProperty.TITLE, false), "titleSort", false),
                 Arguments.of(new SortProperties(SnippetProperty.CREATED, true), "created", true),
                 Arguments.of(new SortProperties(SnippetProperty.CREATED, false), "created", false),
                 Arguments.of(new SortProperties(SnippetProperty.MODIFIED, true), "modified", true),
@@ -115,6 +556,17 @@ class IndexedSnippetRepositoryTest {
         );
     }
 
+    private static SnippetListRequest request(String search, SearchMode searchMode, SearchBudget budget) {
+        return new SnippetListRequest(search, searchMode, new FilterProperties(), new SortProperties(), 1, Set.of(), budget);
+    }
+
+    /**
+     * @return a matcher for a search request of the given page.
+     */
+    private static SnippetIndex.SearchRequest page(int offset, int limit) {
+        return argThat(request -> request.offset() == offset && request.limit() == limit);
+    }
+
     private Snippet testSnippet() {
         return Snippet.builder().id(SNIPPET_ID).build();
     }
@@ -0,0 +1,66 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.tags.TagRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to build the index from the snippet files on startup, depending on the number
+ * of indexing workers. The snippet files are written once per trial, every iteration builds a new in-memory index.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main IndexingBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IndexingBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+    @Param({"10000"})
+    public int snippetCount;
+
+    private Directory snippetsDirectory;
+    private FileSystemRepository fileSystemRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                                                      .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        snippetsDirectory = new Directory(Files.createTempDirectory("snippets"));
+        fileSystemRepository = new FileSystemRepository(
+                snippetsDirectory,
+                new SnippetReader(objectMapper),
+                new SnippetWriter(objectMapper)
+        );
+
+        for (Snippet snippet : BenchmarkData.snippets(snippetCount)) {
+            fileSystemRepository.create(snippet);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        snippetsDirectory.delete();
+    }
+
+    @Benchmark
+    public SnippetIndex buildIndex() {
+        SnippetIndex index = new SnippetIndex(new ByteBuffersDirectory());
+        new IndexedSnippetRepository(index, fileSystemRepository, new TagRepository(), new QueryCache(1), workers);
+        index.close();
+        return index;
+    }
+}
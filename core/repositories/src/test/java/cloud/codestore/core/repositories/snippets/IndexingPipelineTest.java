@@ -0,0 +1,73 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.File;
+import cloud.codestore.core.repositories.RepositoryException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("The indexing pipeline")
+class IndexingPipelineTest {
+    private static final int FILE_COUNT = 500;
+
+    @Test
+    @DisplayName("processes every file")
+    void processAllFiles() {
+        Set<String> processedFiles = ConcurrentHashMap.newKeySet();
+
+        new IndexingPipeline(4).process(files(), file -> processedFiles.add(file.getName()));
+
+        assertThat(processedFiles).hasSize(FILE_COUNT);
+    }
+
+    @Test
+    @DisplayName("processes the files on the given number of threads")
+    void limitWorkers() {
+        var activeWorkers = new AtomicInteger();
+        var maxActiveWorkers = new AtomicInteger();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        new IndexingPipeline(3).process(files(), file -> {
+            threads.add(Thread.currentThread());
+            maxActiveWorkers.accumulateAndGet(activeWorkers.incrementAndGet(), Math::max);
+            Thread.yield();
+            activeWorkers.decrementAndGet();
+        });
+
+        assertThat(maxActiveWorkers.get()).isLessThanOrEqualTo(3);
+        assertThat(threads).hasSizeLessThanOrEqualTo(3).doesNotContain(Thread.currentThread());
+    }
+
+    @Test
+    @DisplayName("uses one worker per processor by default")
+    void defaultWorkers() {
+        assertThat(new IndexingPipeline(0).workers()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    @DisplayName("rethrows the first failure and stops handing over files")
+    void stopOnFailure() {
+        var processedFiles = new AtomicInteger();
+        var failure = new RepositoryException("file.invalidFormat", "file");
+
+        assertThatThrownBy(() -> new IndexingPipeline(2).process(files(), file -> {
+            processedFiles.incrementAndGet();
+            throw failure;
+        })).isSameAs(failure);
+
+        assertThat(processedFiles.get()).isLessThan(FILE_COUNT);
+    }
+
+    private Stream<File> files() {
+        return IntStream.range(0, FILE_COUNT).mapToObj(i -> new File(Path.of(i + ".json")));
+    }
+}
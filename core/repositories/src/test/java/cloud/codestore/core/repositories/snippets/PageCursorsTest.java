@@ -0,0 +1,54 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.index.Term;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("The page cursors")
+class PageCursorsTest {
+    private static final Query QUERY = new MatchAllDocsQuery();
+    private static final Sort SORT = new Sort(new SortField("created", SortField.Type.LONG));
+    private static final ScoreDoc LAST_HIT = new ScoreDoc(42, 1f);
+
+    private final PageCursors cursors = new PageCursors();
+    private final IndexReader reader = mock(IndexReader.class);
+
+    @Test
+    @DisplayName("return the last hit before the given offset")
+    void returnCursor() {
+        cursors.put(reader, QUERY, SORT, 50, LAST_HIT);
+        assertThat(cursors.get(reader, new MatchAllDocsQuery(), new Sort(SORT.getSort()), 50)).isSameAs(LAST_HIT);
+    }
+
+    @Test
+    @DisplayName("return nothing for a different query, order or offset")
+    void returnNothingForDifferentPage() {
+        cursors.put(reader, QUERY, SORT, 50, LAST_HIT);
+        assertThat(cursors.get(reader, new TermQuery(new Term("tag", "java")), SORT, 50)).isNull();
+        assertThat(cursors.get(reader, QUERY, Sort.RELEVANCE, 50)).isNull();
+        assertThat(cursors.get(reader, QUERY, SORT, 100)).isNull();
+    }
+
+    @Test
+    @DisplayName("are discarded if the index reader changes")
+    void discardCursorsOfPreviousReader() {
+        IndexReader newReader = mock(IndexReader.class);
+        cursors.put(reader, QUERY, SORT, 50, LAST_HIT);
+
+        assertThat(cursors.get(newReader, QUERY, SORT, 50)).isNull();
+
+        cursors.put(newReader, QUERY, SORT, 100, LAST_HIT);
+        assertThat(cursors.get(reader, QUERY, SORT, 50)).isNull();
+        assertThat(cursors.get(newReader, QUERY, SORT, 50)).isNull();
+    }
+}
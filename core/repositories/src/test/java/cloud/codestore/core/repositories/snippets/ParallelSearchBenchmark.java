@@ -0,0 +1,81 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.Facet;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a single search depending on the number of threads which search the segments of the
+ * index in parallel. One thread searches all segments on the calling thread, as done for indexes below the
+ * configured size threshold. The speedup is limited by the number of available processors, so the benchmark
+ * should be run on a machine with at least as many cores as threads.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main ParallelSearchBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelSearchBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int snippetCount;
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path indexPath;
+    private SnippetIndex index;
+    private Query searchQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(
+                new MMapDirectory(indexPath),
+                EdgeNGrams.DEFAULT,
+                new ParallelSearcherFactory(threads, 0)
+        );
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+        searchQuery = new QueryBuilder("docker compose file", new FilterProperties(), index.edgeNGrams()).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    /**
+     * Ranks the matches of a search with several terms.
+     */
+    @Benchmark
+    public SnippetIndex.SearchHits<String> search() {
+        return index.query(new SnippetIndex.SearchRequest(searchQuery, SortField.FIELD_SCORE, 0, PAGE_SIZE));
+    }
+
+    /**
+     * Counts all facets while collecting the newest code snippets.
+     */
+    @Benchmark
+    public SnippetIndex.SearchHits<String> facets() {
+        var created = new SortField(SnippetIndex.SnippetField.CREATED, SortField.Type.LONG, true);
+        return index.query(new SnippetIndex.SearchRequest(new MatchAllDocsQuery(), created, 0, PAGE_SIZE)
+                .withFacets(Set.of(Facet.values())));
+    }
+}
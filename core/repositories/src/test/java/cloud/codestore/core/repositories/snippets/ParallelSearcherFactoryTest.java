@@ -0,0 +1,104 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The parallel searcher factory")
+class ParallelSearcherFactoryTest {
+    private static final int SEGMENTS = 4;
+    private static final int DOCS_PER_SEGMENT = 10;
+
+    private DirectoryReader reader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var directory = new ByteBuffersDirectory();
+        var config = new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        try (var writer = new IndexWriter(directory, config)) {
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                    var document = new Document();
+                    document.add(new StringField("id", segment + "-" + i, StringField.Store.NO));
+                    writer.addDocument(document);
+                }
+
+                writer.commit();
+            }
+        }
+
+        reader = DirectoryReader.open(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("searches the slices of a large index in parallel")
+    void parallelSearch() throws IOException {
+        try (var factory = new ParallelSearcherFactory(4, SEGMENTS * DOCS_PER_SEGMENT, 1)) {
+            IndexSearcher searcher = factory.newSearcher(reader);
+
+            assertThat(searcher.getSlices()).hasSize(SEGMENTS);
+            assertThat(searcher.count(new MatchAllDocsQuery())).isEqualTo(SEGMENTS * DOCS_PER_SEGMENT);
+        }
+    }
+
+    @Test
+    @DisplayName("searches several small segments in the same slice")
+    void groupSmallSegments() {
+        try (var factory = new ParallelSearcherFactory(4, 0, 2 * DOCS_PER_SEGMENT)) {
+            assertThat(factory.newSearcher(reader).getSlices()).hasSize(SEGMENTS / 2);
+        }
+    }
+
+    @Test
+    @DisplayName("searches a small index on the calling thread")
+    void sequentialSearchOfSmallIndex() {
+        try (var factory = new ParallelSearcherFactory(4, SEGMENTS * DOCS_PER_SEGMENT + 1, 1)) {
+            assertThat(factory.newSearcher(reader).getSlices()).hasSize(1);
+        }
+    }
+
+    @Test
+    @DisplayName("searches on the calling thread if only a single thread is configured")
+    void sequentialSearchWithSingleThread() {
+        try (var factory = new ParallelSearcherFactory(1, 0, 1)) {
+            assertThat(factory.newSearcher(reader).getSlices()).hasSize(1);
+        }
+    }
+
+    @Test
+    @DisplayName("uses one thread per available processor by default")
+    void defaultThreads() {
+        try (var factory = new ParallelSearcherFactory(0, 0)) {
+            assertThat(factory.threads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    @DisplayName("still searches after it was closed")
+    void searchAfterClose() throws IOException {
+        var factory = new ParallelSearcherFactory(4, 0, 1);
+        IndexSearcher searcher = factory.newSearcher(reader);
+        factory.close();
+
+        assertThat(searcher.count(new MatchAllDocsQuery())).isEqualTo(SEGMENTS * DOCS_PER_SEGMENT);
+    }
+}
@@ -0,0 +1,161 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import cloud.codestore.core.usecases.listsnippets.SortProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("The query cache")
+class QueryCacheTest {
+    private static final QueryCache.Key KEY = key("search");
+
+    private final QueryCache cache = new QueryCache(2);
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @Test
+    @DisplayName("returns the cached result of the same search")
+    void returnCachedResult() {
+        assertThat(cache.get(KEY, 1, this::search)).isEqualTo(1);
+        assertThat(cache.get(key("search"), 1, this::search)).isEqualTo(1);
+        assertThat(searches.get()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("ignores the order of the filtered tags")
+    void ignoreTagOrder() {
+        var key = new QueryCache.Key("", SearchMode.DEFAULT, new FilterProperties("", List.of("a", "b")), new SortProperties(), 0, 50, Set.of(), String.class);
+        var sameKey = new QueryCache.Key("", SearchMode.DEFAULT, new FilterProperties("", Set.of("b", "a")), new SortProperties(), 0, 50, Set.of(), String.class);
+        assertThat(key).isEqualTo(sameKey);
+    }
+
+    @Test
+    @DisplayName("discards all results when the index changed")
+    void invalidateByGeneration() {
+        cache.get(KEY, 1, this::search);
+        assertThat(cache.get(KEY, 2, this::search)).isEqualTo(2);
+        assertThat(cache.get(KEY, 2, this::search)).isEqualTo(2);
+        assertThat(searches.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("does not cache results of an outdated generation")
+    void ignoreOutdatedGeneration() {
+        cache.get(KEY, 2, this::search);
+        assertThat(cache.get(KEY, 1, this::search)).isEqualTo(2);
+        assertThat(cache.get(KEY, 2, this::search)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("discards the least recently used result if it is full")
+    void evictLeastRecentlyUsed() {
+        cache.get(key("a"), 1, this::search);
+        cache.get(key("b"), 1, this::search);
+        cache.get(key("a"), 1, this::search);
+        cache.get(key("c"), 1, this::search);
+
+        assertThat(cache.get(key("a"), 1, this::search)).isEqualTo(1);
+        assertThat(cache.get(key("b"), 1, this::search)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("does not cache failed searches")
+    void doNotCacheFailures() {
+        assertThatThrownBy(() -> cache.get(KEY, 1, () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get(KEY, 1, this::search)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("executes concurrent identical searches only once")
+    void coalesceConcurrentSearches() throws Exception {
+        var searchStarted = new CountDownLatch(1);
+        var searchFinished = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            Future<Integer> first = executor.submit(() -> cache.get(KEY, 1, () -> {
+                searchStarted.countDown();
+                await(searchFinished);
+                return search();
+            }));
+            searchStarted.await();
+
+            List<Future<Integer>> others = List.of(
+                    executor.submit(() -> cache.get(KEY, 1, this::search)),
+                    executor.submit(() -> cache.get(KEY, 1, this::search)),
+                    executor.submit(() -> cache.get(KEY, 1, this::search))
+            );
+            searchFinished.countDown();
+
+            assertThat(first.get()).isEqualTo(1);
+            for (Future<Integer> other : others) {
+                assertThat(other.get()).isEqualTo(1);
+            }
+        }
+
+        assertThat(searches.get()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("repeats a search for concurrent identical searches if its result is incomplete")
+    void repeatIncompleteSearch() throws Exception {
+        var searchStarted = new CountDownLatch(1);
+        var searchFinished = new CountDownLatch(1);
+        Predicate<Integer> isComplete = result -> result > 1;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(3)) {
+            Future<Integer> first = executor.submit(() -> cache.get(KEY, 1, () -> {
+                searchStarted.countDown();
+                await(searchFinished);
+                return search();
+            }, isComplete));
+            searchStarted.await();
+
+            List<Future<Integer>> others = List.of(
+                    executor.submit(() -> cache.get(KEY, 1, this::search, isComplete)),
+                    executor.submit(() -> cache.get(KEY, 1, this::search, isComplete))
+            );
+            searchFinished.countDown();
+
+            assertThat(first.get()).isEqualTo(1);
+            for (Future<Integer> other : others) {
+                assertThat(other.get()).isGreaterThan(1);
+            }
+        }
+
+        assertThat(searches.get()).isBetween(2, 3);
+    }
+
+    private int search() {
+        return searches.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private static QueryCache.Key key(String search) {
+        return new QueryCache.Key(search, SearchMode.DEFAULT, new FilterProperties(), new SortProperties(), 0, 50, Set.of(), String.class);
+    }
+}
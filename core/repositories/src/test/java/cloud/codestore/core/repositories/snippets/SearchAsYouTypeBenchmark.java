@@ -0,0 +1,67 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of searches for inputs of one to three characters, as they occur while typing.
+ * The tokens are either looked up in the indexed edge n-grams or expanded by a prefix query, as done before
+ * the edge n-grams were indexed. Compare the p0.99 percentiles of both.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SearchAsYouTypeBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchAsYouTypeBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * Prefixes of at least four characters are never indexed, so shorter inputs fall back to prefix queries.
+     */
+    private static final EdgeNGrams PREFIX_QUERIES = new EdgeNGrams(4, 4);
+
+    @Param({"50000"})
+    public int snippetCount;
+    @Param({"r", "re", "rea"})
+    public String input;
+    @Param({"prefixQuery", "edgeNGrams"})
+    public String lookup;
+
+    private Path indexPath;
+    private SnippetIndex index;
+    private EdgeNGrams edgeNGrams;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(new MMapDirectory(indexPath));
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+        edgeNGrams = lookup.equals("edgeNGrams") ? index.edgeNGrams() : PREFIX_QUERIES;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @Benchmark
+    public SnippetIndex.SearchHits<String> search() {
+        var query = new QueryBuilder(input, new FilterProperties(), edgeNGrams).build();
+        return index.query(new SnippetIndex.SearchRequest(query, SortField.FIELD_SCORE, 0, PAGE_SIZE));
+    }
+}
@@ -1,9 +1,18 @@
 package cloud.codestore.core.repositories.snippets;
 
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DisplayName("The search-query builder returns a query")
@@ -50,15 +59,184 @@ class SearchQueryBuilderTest {
         expectQuery(
                 "a b c",
                 "(language:a)^1.5", "(language:b)^1.5", "(language:c)^1.5",
-                "(title:a*)^1.5", "(title:b*)^1.5", "(title:c*)^1.5",
-                "description:a*", "description:b*", "description:c*",
-                "code:a*", "code:b*", "code:c*",
+                "(ConstantScore(titlePrefix:a))^1.5", "(ConstantScore(titlePrefix:b))^1.5", "(ConstantScore(titlePrefix:c))^1.5",
+                "ConstantScore(descriptionPrefix:a)", "ConstantScore(descriptionPrefix:b)", "ConstantScore(descriptionPrefix:c)",
+                "ConstantScore(codePrefix:a)", "ConstantScore(codePrefix:b)", "ConstantScore(codePrefix:c)",
                 "(tag:a)^1.5", "(tag:b)^1.5", "(tag:c)^1.5"
         );
     }
 
+    @Test
+    @DisplayName("which looks up short terms in the indexed prefixes")
+    void searchForShortTerms() {
+        expectQuery(
+                "que",
+                "(ConstantScore(titlePrefix:que))^1.5",
+                "ConstantScore(descriptionPrefix:que)",
+                "ConstantScore(codePrefix:que)"
+        );
+    }
+
+    @Test
+    @DisplayName("which only uses prefix queries for terms longer than the indexed prefixes")
+    void searchForLongTerms() {
+        Query query = new SearchQueryBuilder("que query", new EdgeNGrams(2, 3)).build();
+        assertThat(query.toString())
+                .contains("ConstantScore(codePrefix:que)", "code:query*")
+                .doesNotContain("code:que*", "codePrefix:query");
+    }
+
+    @Test
+    @DisplayName("which uses prefix queries for terms shorter than the indexed prefixes")
+    void searchForTermsShorterThanPrefixes() {
+        Query query = new SearchQueryBuilder("q", new EdgeNGrams(2, 3)).build();
+        assertThat(query.toString()).contains("code:q*").doesNotContain("codePrefix");
+    }
+
+    @Test
+    @DisplayName("which matches identifiers in the code by their subwords")
+    void searchForIdentifiers() {
+        expectQuery(
+                "readSnippetsQuery 404",
+                "code:readsnippetsquery*", "code:snippets*", "code:query*",
+                "ConstantScore(codePrefix:read)", "ConstantScore(codePrefix:404)"
+        );
+    }
+
+    @Test
+    @DisplayName("which matches similar terms with a lower weight if requested")
+    void searchForSimilarTerms() {
+        var builder = new SearchQueryBuilder("dokcer", EdgeNGrams.DEFAULT);
+        assertThat(builder.build().toString()).doesNotContain("~");
+
+        builder.matchSimilarTerms();
+        assertThat(builder.build().toString()).contains(
+                "code:dokcer*",
+                "(language:dokcer~2)^0.5",
+                "(title:dokcer~2)^0.5",
+                "(description:dokcer~2)^0.5",
+                "(code:dokcer~2)^0.5",
+                "(tag:dokcer~2)^0.5"
+        );
+    }
+
+    @Test
+    @DisplayName("which allows a single edit for short terms and none for very short terms")
+    void limitEditDistance() {
+        var builder = new SearchQueryBuilder("ab java", EdgeNGrams.DEFAULT);
+        builder.matchSimilarTerms();
+
+        assertThat(builder.build().toString()).contains("(code:java~1)^0.5").doesNotContain("ab~");
+    }
+
+    @Test
+    @DisplayName("which matches phrases at consecutive positions")
+    void searchForPhrases() {
+        expectQuery(
+                "\"Read The File\"",
+                "(title:\"read the file\")^1.5",
+                "description:\"read the file\"",
+                "code:\"read the file\"",
+                "(tag:read the file)^1.5"
+        );
+    }
+
+    @Test
+    @DisplayName("which restricts qualified terms to a single property")
+    void searchForQualifiedTerms() {
+        assertThat(build("title:Docker")).isEqualTo("((title:docker*)^1.5)");
+        assertThat(build("tag:Build-Tools")).isEqualTo("((tag:buildtools)^1.5)");
+        assertThat(build("lang:\"Shell Script\"")).isEqualTo("((language:shell)^1.5)");
+        assertThat(build("code:\"getId()\"")).isEqualTo("((code:getid code:\"get id\"))");
+    }
+
+    @Test
+    @DisplayName("which requires and excludes terms")
+    void searchForRequiredAndExcludedTerms() {
+        assertThat(build("title:docker AND tag:compose -lang:yaml"))
+                .isEqualTo("+((title:docker*)^1.5) +((tag:compose)^1.5) -((language:yaml)^1.5)");
+    }
+
+    @Test
+    @DisplayName("which matches all other snippets if all terms are excluded")
+    void searchForExcludedTermsOnly() {
+        assertThat(build("-tag:legacy")).isEqualTo("-((tag:legacy)^1.5) +*:*");
+    }
+
+    @Test
+    @DisplayName("which never matches excluded terms fuzzily")
+    void excludeSimilarTerms() {
+        var builder = new SearchQueryBuilder("-tag:legacy", EdgeNGrams.DEFAULT);
+        builder.matchSimilarTerms();
+        assertThat(builder.build().toString()).doesNotContain("~");
+    }
+
+    @Test
+    @DisplayName("which omits the terms of a very long search exceeding the clause limit")
+    void limitClauses() {
+        String search = IntStream.range(0, 5000).mapToObj(i -> "term" + i).collect(Collectors.joining(" "));
+        var builder = new SearchQueryBuilder(search, EdgeNGrams.DEFAULT);
+        builder.matchSimilarTerms();
+
+        Query query = builder.build();
+        var clauseCounter = new ClauseCounter();
+        query.visit(clauseCounter);
+        assertThat(clauseCounter.clauseCount).isPositive().isLessThanOrEqualTo(IndexSearcher.getMaxClauseCount());
+        assertThat(builder.highlightQuery()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("which keeps the required and excluded terms of a very long search exceeding the clause limit")
+    void keepRequiredClausesBeyondLimit() {
+        String search = IntStream.range(0, 5000).mapToObj(i -> "term" + i).collect(Collectors.joining(" "));
+        var builder = new SearchQueryBuilder(search + " tag:docker AND tag:compose -tag:legacy", EdgeNGrams.DEFAULT);
+        builder.matchSimilarTerms();
+
+        Query query = builder.build();
+        assertThat(query.toString()).contains("+((tag:docker)^1.5", "+((tag:compose)^1.5", "-((tag:legacy)^1.5)");
+        var clauseCounter = new ClauseCounter();
+        query.visit(clauseCounter);
+        assertThat(clauseCounter.clauseCount).isLessThanOrEqualTo(IndexSearcher.getMaxClauseCount());
+    }
+
+    @Test
+    @DisplayName("which highlights the positive terms and phrases in the description and code")
+    void highlightQuery() {
+        var builder = new SearchQueryBuilder("title:docker \"compose file\" -legacy code:run", EdgeNGrams.DEFAULT);
+        assertThat(builder.highlightQuery().toString()).isEqualTo(
+                "description:\"compose file\" code:\"compose file\" code:run*"
+        );
+    }
+
+    private static String build(String searchTerm) {
+        return new SearchQueryBuilder(searchTerm, EdgeNGrams.DEFAULT).build().toString();
+    }
+
     private void expectQuery(String searchTerm, String... expectedQueryParts) {
-        Query query = new SearchQueryBuilder(searchTerm).build();
+        Query query = new SearchQueryBuilder(searchTerm, EdgeNGrams.DEFAULT).build();
         assertThat(query.toString()).contains(expectedQueryParts);
     }
-}
\ No newline at end of file
+
+    /**
+     * Counts the clauses of the rewritten query, assuming that every fuzzy query matches the maximum number of terms.
+     */
+    private static class ClauseCounter extends QueryVisitor {
+        private static final int MAX_FUZZY_EXPANSIONS = 50;
+        private int clauseCount;
+
+        @Override
+        public void consumeTerms(Query query, Term... terms) {
+            clauseCount++;
+        }
+
+        @Override
+        public void consumeTermsMatching(Query query, String field, Supplier<ByteRunAutomaton> automaton) {
+            clauseCount += query instanceof FuzzyQuery ? MAX_FUZZY_EXPANSIONS : 1;
+        }
+
+        @Override
+        public void visitLeaf(Query query) {
+            clauseCount++;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.apache.lucene.search.Query;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time which it takes to parse a search and to build its queries, without searching the index.
+ * The inputs range from a few terms, as typed by the user, to a large piece of code which was pasted into the search.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SearchQueryParserBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchQueryParserBenchmark {
+    private static final Map<String, String> INPUTS = Map.of(
+            "terms", "docker compose file",
+            "structured", "title:docker \"compose file\" -tag:legacy AND lang:yaml code:build",
+            "pasted", BenchmarkData.snippet("0", new Random(42)).getCode().repeat(4)
+    );
+
+    @Param({"terms", "structured", "pasted"})
+    public String input;
+
+    private String search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        search = INPUTS.get(input);
+    }
+
+    @Benchmark
+    public List<SearchQueryParser.Clause> parse() {
+        return SearchQueryParser.parse(search);
+    }
+
+    @Benchmark
+    public Query build() {
+        return new SearchQueryBuilder(search, EdgeNGrams.DEFAULT).build();
+    }
+}
@@ -0,0 +1,117 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.snippets.SearchQueryParser.Clause;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField.*;
+import static org.apache.lucene.search.BooleanClause.Occur.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The search-query parser")
+class SearchQueryParserTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "\"\"", "title:\"\""})
+    @DisplayName("returns no clauses if nothing is searched")
+    void emptySearch(String search) {
+        assertThat(SearchQueryParser.parse(search)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("splits the search into optional terms")
+    void terms() {
+        assertThat(SearchQueryParser.parse(" docker  compose\tfile ")).containsExactly(
+                new Clause(SHOULD, null, "docker", false),
+                new Clause(SHOULD, null, "compose", false),
+                new Clause(SHOULD, null, "file", false)
+        );
+    }
+
+    @Test
+    @DisplayName("parses quoted phrases")
+    void phrases() {
+        assertThat(SearchQueryParser.parse("\"read the file\" java")).containsExactly(
+                new Clause(SHOULD, null, "read the file", true),
+                new Clause(SHOULD, null, "java", false)
+        );
+    }
+
+    @Test
+    @DisplayName("extends a phrase without closing quote to the end of the search")
+    void unclosedPhrase() {
+        assertThat(SearchQueryParser.parse("\"read the file")).containsExactly(
+                new Clause(SHOULD, null, "read the file", true)
+        );
+    }
+
+    @Test
+    @DisplayName("restricts terms and phrases to the qualified property")
+    void qualifiers() {
+        assertThat(SearchQueryParser.parse("title:docker TAG:build-tools lang:\"shell script\" code:getId")).containsExactly(
+                new Clause(SHOULD, TITLE, "docker", false),
+                new Clause(SHOULD, TAG, "build-tools", false),
+                new Clause(SHOULD, LANGUAGE, "shell script", true),
+                new Clause(SHOULD, CODE, "getId", false)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"std::vector", "http://localhost", "author:me", "title:", "title: x"})
+    @DisplayName("keeps unknown or incomplete qualifiers as part of the term")
+    void unknownQualifiers(String search) {
+        assertThat(SearchQueryParser.parse(search)).first()
+                                                   .isEqualTo(new Clause(SHOULD, null, search.split(" ")[0], false));
+    }
+
+    @Test
+    @DisplayName("excludes terms with a leading minus")
+    void exclusions() {
+        assertThat(SearchQueryParser.parse("docker -tag:legacy -\"old version\" a-b")).containsExactly(
+                new Clause(SHOULD, null, "docker", false),
+                new Clause(MUST_NOT, TAG, "legacy", false),
+                new Clause(MUST_NOT, null, "old version", true),
+                new Clause(SHOULD, null, "a-b", false)
+        );
+    }
+
+    @Test
+    @DisplayName("requires the terms on both sides of AND")
+    void and() {
+        assertThat(SearchQueryParser.parse("docker AND compose file")).containsExactly(
+                new Clause(MUST, null, "docker", false),
+                new Clause(MUST, null, "compose", false),
+                new Clause(SHOULD, null, "file", false)
+        );
+    }
+
+    @Test
+    @DisplayName("chains multiple AND operators")
+    void multipleAnd() {
+        assertThat(SearchQueryParser.parse("a AND b AND -c")).containsExactly(
+                new Clause(MUST, null, "a", false),
+                new Clause(MUST, null, "b", false),
+                new Clause(MUST_NOT, null, "c", false)
+        );
+    }
+
+    @Test
+    @DisplayName("ignores AND without a preceding term and treats lower case and as term")
+    void andWithoutOperands() {
+        assertThat(SearchQueryParser.parse("AND java and kotlin AND")).containsExactly(
+                new Clause(SHOULD, null, "java", false),
+                new Clause(SHOULD, null, "and", false),
+                new Clause(MUST, null, "kotlin", false)
+        );
+    }
+
+    @Test
+    @DisplayName("removes duplicate clauses")
+    void duplicates() {
+        assertThat(SearchQueryParser.parse("java java \"java\" java")).containsExactly(
+                new Clause(SHOULD, null, "java", false),
+                new Clause(SHOULD, null, "java", true)
+        );
+    }
+}
@@ -0,0 +1,229 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.SnippetNotExistsException;
+import cloud.codestore.core.repositories.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The segment snippet storage")
+class SegmentSnippetStorageTest {
+    @TempDir
+    private Path dataDirectory;
+    @Mock
+    private SnippetReader snippetReader;
+    @Mock
+    private SnippetWriter snippetWriter;
+    private Directory segmentsDirectory;
+    private SegmentSnippetStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(snippetWriter.toJson(any(Snippet.class)))
+                 .thenAnswer(invocation -> bytes(invocation.<Snippet>getArgument(0).getCode()));
+        lenient().when(snippetReader.read(anyString(), any(byte[].class)))
+                 .thenAnswer(invocation -> snippet(
+                         invocation.getArgument(0),
+                         new String(invocation.<byte[]>getArgument(1), StandardCharsets.UTF_8)
+                 ));
+
+        segmentsDirectory = new Directory(dataDirectory.resolve("segments"));
+        storage = open(Integer.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    @DisplayName("reads a created code snippet")
+    void createAndRead() throws SnippetNotExistsException {
+        storage.create(snippet("1", "first"));
+
+        assertThat(storage.contains("1")).isTrue();
+        assertThat(storage.read("1").getCode()).isEqualTo("first");
+        assertThat(storage.snippets().map(SnippetStorage.StoredSnippet::snippetId)).containsExactly("1");
+    }
+
+    @Test
+    @DisplayName("reads the latest version of an updated code snippet")
+    void update() throws SnippetNotExistsException {
+        storage.create(snippet("1", "first"));
+        FileFingerprint fingerprint = storage.fingerprint("1");
+
+        storage.update(snippet("1", "updated"));
+
+        assertThat(storage.read("1").getCode()).isEqualTo("updated");
+        assertThat(storage.isUnchanged("1", fingerprint)).isFalse();
+        assertThat(storage.isUnchanged("1", storage.fingerprint("1"))).isTrue();
+        assertThat(storage.garbageSize()).isPositive();
+    }
+
+    @Test
+    @DisplayName("does not contain a deleted code snippet")
+    void delete() throws SnippetNotExistsException {
+        storage.create(snippet("1", "first"));
+        storage.create(snippet("2", "second"));
+
+        storage.delete("1");
+
+        assertThat(storage.contains("1")).isFalse();
+        assertThat(storage.readSnippets(Stream.of("1", "2"))).extracting(Snippet::getId).containsExactly("2");
+        assertThatThrownBy(() -> storage.read("1")).isInstanceOf(SnippetNotExistsException.class);
+        assertThatThrownBy(() -> storage.delete("1")).isInstanceOf(SnippetNotExistsException.class);
+        assertThatThrownBy(() -> storage.update(snippet("1", "first"))).isInstanceOf(SnippetNotExistsException.class);
+    }
+
+    @Nested
+    @DisplayName("when reopened")
+    class ReopenTest {
+        @Test
+        @DisplayName("restores the code snippets and their fingerprints")
+        void restore() throws SnippetNotExistsException {
+            storage.create(snippet("1", "first"));
+            storage.create(snippet("2", "second"));
+            storage.update(snippet("1", "updated"));
+            storage.delete("2");
+            FileFingerprint fingerprint = storage.fingerprint("1");
+
+            reopen(Integer.MAX_VALUE);
+
+            assertThat(storage.snippets().map(SnippetStorage.StoredSnippet::snippetId)).containsExactly("1");
+            assertThat(storage.read("1").getCode()).isEqualTo("updated");
+            assertThat(storage.isUnchanged("1", fingerprint)).isTrue();
+        }
+
+        @Test
+        @DisplayName("discards an incomplete record at the end of the last segment")
+        void discardIncompleteRecord() throws IOException, SnippetNotExistsException {
+            storage.create(snippet("1", "complete"));
+            storage.close();
+            Path segment = onlySegment();
+            long size = Files.size(segment);
+            Files.write(segment, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+            storage = open(Integer.MAX_VALUE);
+            storage.create(snippet("2", "appended"));
+            reopen(Integer.MAX_VALUE);
+
+            assertThat(storage.read("1").getCode()).isEqualTo("complete");
+            assertThat(storage.read("2").getCode()).isEqualTo("appended");
+            assertThat(Files.size(segment)).isGreaterThan(size);
+        }
+    }
+
+    @Nested
+    @DisplayName("with small segments")
+    class SmallSegmentsTest {
+        @BeforeEach
+        void setUp() {
+            storage.close();
+            storage = open(1);
+        }
+
+        @Test
+        @DisplayName("starts a new segment when the active segment is full")
+        void rollSegments() throws SnippetNotExistsException {
+            storage.create(snippet("1", "first"));
+            storage.create(snippet("2", "second"));
+
+            assertThat(storage.segmentCount()).isEqualTo(3);
+            assertThat(storage.read("1").getCode()).isEqualTo("first");
+            assertThat(storage.read("2").getCode()).isEqualTo("second");
+        }
+
+        @Test
+        @DisplayName("compacts the segments and keeps the live code snippets")
+        void compact() throws IOException, SnippetNotExistsException {
+            storage.create(snippet("1", "first"));
+            storage.create(snippet("2", "second"));
+            storage.update(snippet("1", "updated"));
+            storage.delete("2");
+            FileFingerprint fingerprint = storage.fingerprint("1");
+
+            storage.compact();
+
+            assertThat(storage.garbageSize()).isZero();
+            assertThat(storage.read("1").getCode()).isEqualTo("updated");
+            assertThat(storage.isUnchanged("1", fingerprint)).isTrue();
+
+            reopen(1);
+            assertThat(storage.snippets().map(SnippetStorage.StoredSnippet::snippetId)).containsExactly("1");
+            assertThat(storage.read("1").getCode()).isEqualTo("updated");
+            try (Stream<Path> files = Files.list(segmentsDirectory.path())) {
+                assertThat(files.filter(file -> file.toString().endsWith(SegmentSnippetStorage.SEGMENT_FILE_EXTENSION)))
+                        .hasSize(storage.segmentCount());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("imports and exports the snippet files with their modification time")
+    void importAndExport(@TempDir Path snippetsPath) throws IOException, SnippetNotExistsException {
+        Path snippetFile = snippetsPath.resolve("1.json");
+        Files.writeString(snippetFile, "imported");
+        Files.setLastModifiedTime(snippetFile, FileTime.fromMillis(1_000_000));
+        Files.writeString(snippetsPath.resolve("2.json"), "deleted");
+        Directory snippetsDirectory = new Directory(snippetsPath);
+
+        assertThat(storage.importFrom(snippetsDirectory, SnippetFileLayout.FLAT)).isEqualTo(2);
+        assertThat(snippetsPath).isEmptyDirectory();
+        storage.delete("2");
+        Files.writeString(snippetsPath.resolve("2.json"), "deleted");
+
+        assertThat(storage.read("1").getCode()).isEqualTo("imported");
+        assertThat(storage.fingerprint("1").lastModified()).isEqualTo(1_000_000);
+        assertThat(storage.exportTo(snippetsDirectory, SnippetFileLayout.FLAT)).isEqualTo(1);
+        assertThat(Files.readString(snippetFile)).isEqualTo("imported");
+        assertThat(Files.getLastModifiedTime(snippetFile).toMillis()).isEqualTo(1_000_000);
+        assertThat(snippetsPath.resolve("2.json")).doesNotExist();
+    }
+
+    private SegmentSnippetStorage open(int maxSegmentSize) {
+        return new SegmentSnippetStorage(segmentsDirectory, snippetReader, snippetWriter, maxSegmentSize, Long.MAX_VALUE);
+    }
+
+    private void reopen(int maxSegmentSize) {
+        storage.close();
+        storage = open(maxSegmentSize);
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(segmentsDirectory.path())) {
+            return files.filter(file -> file.toString().endsWith(SegmentSnippetStorage.SEGMENT_FILE_EXTENSION))
+                        .findFirst()
+                        .orElseThrow();
+        }
+    }
+
+    private static Snippet snippet(String id, String code) {
+        return Snippet.builder().id(id).title(id).code(code).build();
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.repositories.Directory;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of concurrent reads of code snippets with and without the {@link SnippetCache}.
+ * The reads are skewed towards few code snippets, like the code snippets a user works with.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SnippetCacheBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SnippetCacheBenchmark {
+    @Param({"false", "true"})
+    public boolean cached;
+    @Param({"10000"})
+    public int snippetCount;
+
+    private Path snippetsDirectory;
+    private SnippetStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                                                      .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        snippetsDirectory = Files.createTempDirectory("snippets");
+        storage = new FileSystemRepository(
+                new Directory(snippetsDirectory),
+                new SnippetReader(objectMapper),
+                new SnippetWriter(objectMapper)
+        );
+
+        for (Snippet snippet : BenchmarkData.snippets(snippetCount)) {
+            storage.create(snippet);
+        }
+
+        if (cached) {
+            storage = new CachedSnippetStorage(storage, new SnippetCache(4 * 1024 * 1024));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new Directory(snippetsDirectory).delete();
+    }
+
+    @Benchmark
+    public Snippet read() throws Exception {
+        double random = ThreadLocalRandom.current().nextDouble();
+        int index = (int) (snippetCount * random * random * random);
+        return storage.read(String.valueOf(index));
+    }
+}
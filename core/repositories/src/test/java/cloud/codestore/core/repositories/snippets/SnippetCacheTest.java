@@ -0,0 +1,101 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The snippet cache")
+class SnippetCacheTest {
+    private static final FileFingerprint FINGERPRINT = new FileFingerprint(100, 1000, 0);
+
+    private final SnippetCache cache = new SnippetCache(1000);
+
+    @Test
+    @DisplayName("returns a cached snippet whose fingerprint is current")
+    void returnCachedSnippet() {
+        Snippet snippet = snippet("1", 100);
+        cache.put(snippet, FINGERPRINT);
+
+        assertThat(cache.get("1", FINGERPRINT::equals)).isSameAs(snippet);
+        assertThat(cache.get("2", FINGERPRINT::equals)).isNull();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("discards a snippet whose fingerprint is outdated")
+    void discardOutdatedSnippet() {
+        cache.put(snippet("1", 100), FINGERPRINT);
+
+        assertThat(cache.get("1", fingerprint -> false)).isNull();
+        assertThat(cache.get("1", fingerprint -> true)).isNull();
+        assertThat(cache.misses()).isEqualTo(2);
+        assertThat(cache.weight()).isZero();
+    }
+
+    @Test
+    @DisplayName("replaces and invalidates snippets")
+    void replaceAndInvalidate() {
+        Snippet updated = snippet("1", 200);
+        cache.put(snippet("1", 100), FINGERPRINT);
+        cache.put(updated, FINGERPRINT);
+
+        assertThat(cache.get("1", FINGERPRINT::equals)).isSameAs(updated);
+        assertThat(cache.weight()).isEqualTo(200);
+
+        cache.invalidate("1");
+        assertThat(cache.get("1", FINGERPRINT::equals)).isNull();
+        assertThat(cache.weight()).isZero();
+    }
+
+    @Test
+    @DisplayName("does not exceed its maximum weight")
+    void boundedByWeight() {
+        for (int i = 0; i < 100; i++) {
+            cache.put(snippet(String.valueOf(i), 30), FINGERPRINT);
+        }
+
+        assertThat(cache.weight()).isLessThanOrEqualTo(1000);
+        assertThat(cache.evictions()).isPositive();
+    }
+
+    @Test
+    @DisplayName("does not cache a snippet which is heavier than the cache")
+    void rejectHeavySnippet() {
+        cache.put(snippet("1", 1001), FINGERPRINT);
+        assertThat(cache.get("1", FINGERPRINT::equals)).isNull();
+    }
+
+    @Test
+    @DisplayName("keeps frequently read snippets when many snippets are read once")
+    void keepFrequentlyReadSnippets() {
+        for (int i = 0; i < 5; i++) {
+            cache.put(snippet("hot" + i, 100), FINGERPRINT);
+        }
+
+        for (int read = 0; read < 5; read++) {
+            for (int i = 0; i < 5; i++) {
+                cache.get("hot" + i, FINGERPRINT::equals);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(snippet("cold" + i, 100), FINGERPRINT);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("hot" + i, FINGERPRINT::equals)).isNotNull();
+        }
+    }
+
+    private static Snippet snippet(String id, int weight) {
+        return Snippet.builder()
+                      .id(id)
+                      .code("x".repeat(weight / 2))
+                      .description("y".repeat(weight - weight / 2))
+                      .build();
+    }
+}
@@ -0,0 +1,181 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Language;
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time and the allocations per code snippet when reading and writing snippet files,
+ * either with the streaming {@link SnippetReader} and {@link SnippetWriter} or with the previous approach,
+ * which mapped the whole file content from a string to an intermediate object and back.
+ * The allocations are reported as {@code gc.alloc.rate.norm} by the GC profiler.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SnippetCodecBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnippetCodecBenchmark {
+    @Param({"false", "true"})
+    public boolean streaming;
+    @Param({"1000"})
+    public int snippetCount;
+
+    private Path snippetsDirectory;
+    private List<Snippet> snippets;
+    private File[] files;
+    private byte[][] contents;
+    private SnippetReader snippetReader;
+    private SnippetWriter snippetWriter;
+    private DatabindCodec databindCodec;
+    private File outputFile;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                                                      .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                                                      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        snippetReader = new SnippetReader(objectMapper);
+        snippetWriter = new SnippetWriter(objectMapper);
+        databindCodec = new DatabindCodec(objectMapper);
+        snippetsDirectory = Files.createTempDirectory("snippets");
+        outputFile = new File(snippetsDirectory.resolve("output.json"));
+
+        snippets = BenchmarkData.snippets(snippetCount);
+        files = new File[snippetCount];
+        contents = new byte[snippetCount][];
+        for (int i = 0; i < snippetCount; i++) {
+            Snippet snippet = snippets.get(i);
+            files[i] = new File(snippetsDirectory.resolve(snippet.getId() + FileSystemRepository.JSON_FILE_EXTENSION));
+            snippetWriter.write(snippet, files[i]);
+            contents[i] = snippetWriter.toJson(snippet);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new Directory(snippetsDirectory).delete();
+    }
+
+    @Benchmark
+    public Snippet readFile() throws IOException {
+        File file = files[nextIndex()];
+        return streaming ? snippetReader.read(file) : databindCodec.read(file);
+    }
+
+    @Benchmark
+    public Snippet readContent() throws IOException {
+        int index = nextIndex();
+        String snippetId = snippets.get(index).getId();
+        return streaming ? snippetReader.read(snippetId, contents[index]) : databindCodec.read(snippetId, contents[index]);
+    }
+
+    @Benchmark
+    public void writeFile() throws IOException {
+        Snippet snippet = snippets.get(nextIndex());
+        if (streaming) {
+            snippetWriter.write(snippet, outputFile);
+        } else {
+            databindCodec.write(snippet, outputFile);
+        }
+    }
+
+    @Benchmark
+    public byte[] writeContent() throws IOException {
+        Snippet snippet = snippets.get(nextIndex());
+        return streaming ? snippetWriter.toJson(snippet) : databindCodec.toJson(snippet);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % snippetCount;
+        return next;
+    }
+
+    /**
+     * The previous implementation of reading and writing snippet files, as baseline.
+     */
+    private record DatabindCodec(ObjectMapper objectMapper) {
+        Snippet read(File file) throws IOException {
+            return toSnippet(FileSystemRepository.getSnippetId(file), file.readOrElse("{}"));
+        }
+
+        Snippet read(String snippetId, byte[] content) throws IOException {
+            return toSnippet(snippetId, objectMapper.readValue(content, SnippetDto.class));
+        }
+
+        void write(Snippet snippet, File file) throws IOException {
+            file.write(objectMapper.writeValueAsString(toDto(snippet)));
+        }
+
+        byte[] toJson(Snippet snippet) throws IOException {
+            return objectMapper.writeValueAsBytes(toDto(snippet));
+        }
+
+        private Snippet toSnippet(String snippetId, String content) throws IOException {
+            return toSnippet(snippetId, objectMapper.readValue(content, SnippetDto.class));
+        }
+
+        private static Snippet toSnippet(String snippetId, SnippetDto dto) {
+            return Snippet.builder()
+                          .id(snippetId)
+                          .title(dto.title())
+                          .description(dto.description())
+                          .code(dto.code())
+                          .tags(dto.tags())
+                          .language(languageById(dto.language()))
+                          .created(dto.created() == null ? null : OffsetDateTime.parse(dto.created()))
+                          .modified(dto.modified() == null ? null : OffsetDateTime.parse(dto.modified()))
+                          .build();
+        }
+
+        private static SnippetDto toDto(Snippet snippet) {
+            return new SnippetDto(
+                    snippet.getLanguage().getId(),
+                    snippet.getTitle(),
+                    snippet.getDescription(),
+                    snippet.getCode(),
+                    snippet.getTags(),
+                    snippet.getCreated().toString(),
+                    Objects.toString(snippet.getModified(), null)
+            );
+        }
+
+        private static Language languageById(int languageId) {
+            for (Language language : Language.values()) {
+                if (language.getId() == languageId)
+                    return language;
+            }
+
+            return null;
+        }
+    }
+
+    private record SnippetDto(
+            int language,
+            String title,
+            String description,
+            String code,
+            List<String> tags,
+            String created,
+            String modified
+    ) {}
+}
@@ -0,0 +1,116 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The snippet directory watcher")
+class SnippetDirectoryWatcherTest {
+    private static final Duration QUIET_PERIOD = Duration.ofMillis(200);
+    private static final Duration MAX_DELAY = Duration.ofSeconds(2);
+    private static final long TIMEOUT = 5000;
+
+    @TempDir
+    private Path snippetsDirectory;
+    @Mock
+    private IndexedSnippetRepository repository;
+    private SnippetDirectoryWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        watcher = new SnippetDirectoryWatcher(new Directory(snippetsDirectory), repository, QUIET_PERIOD, MAX_DELAY);
+        watcher.start();
+        verify(repository, timeout(TIMEOUT)).synchronizeDirectory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    @DisplayName("synchronizes the whole directory when started")
+    void synchronizeDirectoryOnStart() {
+        verify(repository, never()).synchronize(any());
+    }
+
+    @Test
+    @DisplayName("applies a burst of changes as a single batch")
+    void applyChangesInBatch() throws IOException {
+        Path first = write("first.json");
+        Path second = write("second.json");
+        write("first.json");
+        Files.delete(write("third.json"));
+
+        assertThat(synchronizedFiles()).containsExactlyInAnyOrder(
+                new File(first),
+                new File(second),
+                new File(snippetsDirectory.resolve("third.json"))
+        );
+    }
+
+    @Test
+    @DisplayName("ignores files which are no snippet files")
+    void ignoreOtherFiles() throws IOException {
+        write("notes.txt");
+        Files.createDirectory(snippetsDirectory.resolve("subdirectory.json"));
+        Path snippetFile = write("snippet.json");
+
+        assertThat(synchronizedFiles()).containsExactly(new File(snippetFile));
+    }
+
+    @Test
+    @DisplayName("watches new subdirectories")
+    void watchSubdirectories() throws IOException {
+        Files.createDirectory(snippetsDirectory.resolve("ab"));
+        Path snippetFile = write("ab/abc.json");
+
+        assertThat(synchronizedFiles()).containsExactly(new File(snippetFile));
+    }
+
+    @Test
+    @DisplayName("keeps watching if the changes could not be applied")
+    void continueAfterFailure() throws IOException {
+        doThrow(new RuntimeException()).doNothing().when(repository).synchronize(any());
+        write("first.json");
+        verify(repository, timeout(TIMEOUT)).synchronize(any());
+
+        Path second = write("second.json");
+        verify(repository, timeout(TIMEOUT).times(2)).synchronize(any());
+        assertThat(synchronizedFiles(2).get(1)).containsExactly(new File(second));
+    }
+
+    private Path write(String fileName) throws IOException {
+        return Files.writeString(snippetsDirectory.resolve(fileName), "{}");
+    }
+
+    private Collection<File> synchronizedFiles() {
+        return synchronizedFiles(1).get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Collection<File>> synchronizedFiles(int times) {
+        ArgumentCaptor<Collection<File>> files = ArgumentCaptor.forClass(Collection.class);
+        verify(repository, timeout(TIMEOUT).times(times)).synchronize(files.capture());
+        return files.getAllValues();
+    }
+}
@@ -0,0 +1,98 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.File;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("The snippet file layout")
+class SnippetFileLayoutTest {
+    private static final String SNIPPET_ID = "ab12cd34-0000-4000-8000-000000000000";
+
+    @TempDir
+    private Path snippetsPath;
+    private Directory snippetsDirectory;
+
+    @BeforeEach
+    void setUp() {
+        snippetsDirectory = new Directory(snippetsPath);
+    }
+
+    @Test
+    @DisplayName("is parsed case-insensitively")
+    void parseLayout() {
+        assertThat(SnippetFileLayout.of("flat")).isEqualTo(SnippetFileLayout.FLAT);
+        assertThat(SnippetFileLayout.of(" Sharded ")).isEqualTo(SnippetFileLayout.SHARDED);
+        assertThatThrownBy(() -> SnippetFileLayout.of("nested")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("distributes the snippet files by the first two characters of their ID")
+    void shardedPath() {
+        assertThat(SnippetFileLayout.SHARDED.file(snippetsDirectory, SNIPPET_ID).path())
+                .isEqualTo(snippetsPath.resolve("ab").resolve(SNIPPET_ID + ".json"));
+        assertThat(SnippetFileLayout.FLAT.file(snippetsDirectory, SNIPPET_ID).path())
+                .isEqualTo(snippetsPath.resolve(SNIPPET_ID + ".json"));
+        assertThat(SnippetFileLayout.shard("AB12")).isEqualTo("ab");
+        assertThat(SnippetFileLayout.shard("1")).isEqualTo("_");
+        assertThat(SnippetFileLayout.shard(".hidden")).isEqualTo("_");
+    }
+
+    @Test
+    @DisplayName("only enumerates the snippet files at their location")
+    void enumerateShardedFiles() throws IOException {
+        Path snippetFile = write(snippetsPath.resolve("ab").resolve(SNIPPET_ID + ".json"));
+        write(snippetsPath.resolve("ab").resolve("." + SNIPPET_ID + ".json" + File.TEMPORARY_FILE_EXTENSION));
+        write(snippetsPath.resolve("cd").resolve(SNIPPET_ID + ".json"));
+        write(snippetsPath.resolve("flat.json"));
+
+        try (Stream<File> files = SnippetFileLayout.SHARDED.snippetFiles(snippetsDirectory)) {
+            assertThat(files).containsExactly(new File(snippetFile));
+        }
+    }
+
+    @Test
+    @DisplayName("moves flat snippet files to their shard and back")
+    void migrate() throws IOException {
+        Path flatFile = write(snippetsPath.resolve(SNIPPET_ID + ".json"));
+        FileTime lastModified = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(flatFile, lastModified);
+        Path shardedFile = snippetsPath.resolve("ab").resolve(SNIPPET_ID + ".json");
+
+        assertThat(SnippetFileLayout.SHARDED.migrate(snippetsDirectory)).isEqualTo(1);
+        assertThat(flatFile).doesNotExist();
+        assertThat(Files.getLastModifiedTime(shardedFile)).isEqualTo(lastModified);
+        assertThat(SnippetFileLayout.SHARDED.migrate(snippetsDirectory)).isZero();
+
+        assertThat(SnippetFileLayout.FLAT.migrate(snippetsDirectory)).isEqualTo(1);
+        assertThat(Files.getLastModifiedTime(flatFile)).isEqualTo(lastModified);
+        assertThat(snippetsPath.resolve("ab")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("keeps a snippet file which exists in both layouts")
+    void keepExistingFile() throws IOException {
+        Path flatFile = write(snippetsPath.resolve(SNIPPET_ID + ".json"));
+        Path shardedFile = Files.writeString(write(snippetsPath.resolve("ab").resolve(SNIPPET_ID + ".json")), "sharded");
+
+        assertThat(SnippetFileLayout.SHARDED.migrate(snippetsDirectory)).isZero();
+        assertThat(flatFile).exists();
+        assertThat(Files.readString(shardedFile)).isEqualTo("sharded");
+    }
+
+    private static Path write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "{}");
+    }
+}
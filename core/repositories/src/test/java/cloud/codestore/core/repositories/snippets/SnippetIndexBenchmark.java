@@ -0,0 +1,222 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared {@link IndexWriter} of the {@link SnippetIndex} with an index which opens and commits
+ * a new writer for every modification, as the {@link SnippetIndex} did before.
+ * <p>
+ * Both indexes return the first page of the search result.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SnippetIndexBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnippetIndexBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"shared", "perOperation"})
+    public String writer;
+    @Param({"10000"})
+    public int snippetCount;
+
+    private Path indexPath;
+    private BenchmarkIndex index;
+    private Query query;
+    private SortField sortField;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = writer.equals("shared") ? new SharedWriterIndex(indexPath) : new PerOperationWriterIndex(indexPath);
+        index.addAll(BenchmarkData.snippets(snippetCount));
+        query = new QueryBuilder("read query", new FilterProperties(), EdgeNGrams.DEFAULT).build();
+        sortField = SortField.FIELD_SCORE;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @State(Scope.Thread)
+    public static class Editor {
+        private final Random random = new Random();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void edit(Editor editor) {
+        editSnippet(editor);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> query() {
+        return index.query(query, sortField);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void editWhileQuerying(Editor editor) {
+        editSnippet(editor);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> queryWhileEditing() {
+        return index.query(query, sortField);
+    }
+
+    private void editSnippet(Editor editor) {
+        String snippetId = String.valueOf(editor.random.nextInt(snippetCount));
+        index.update(BenchmarkData.snippet(snippetId, editor.random));
+    }
+
+    private interface BenchmarkIndex {
+        void addAll(List<Snippet> snippets) throws IOException;
+
+        void update(Snippet snippet);
+
+        List<String> query(Query query, SortField sortField);
+
+        void close() throws IOException;
+    }
+
+    private static class SharedWriterIndex implements BenchmarkIndex {
+        private final SnippetIndex index;
+
+        SharedWriterIndex(Path indexPath) throws IOException {
+            index = new SnippetIndex(new MMapDirectory(indexPath));
+        }
+
+        @Override
+        public void addAll(List<Snippet> snippets) {
+            index.batch(batch -> snippets.forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+        }
+
+        @Override
+        public void update(Snippet snippet) {
+            index.update(snippet, BenchmarkData.FINGERPRINT);
+        }
+
+        @Override
+        public List<String> query(Query query, SortField sortField) {
+            return index.query(new SnippetIndex.SearchRequest(query, sortField, 0, PAGE_SIZE)).hits();
+        }
+
+        @Override
+        public void close() {
+            index.close();
+        }
+    }
+
+    /**
+     * The previous implementation: a new analyzer and writer per modification, a commit per modification
+     * and a reader which is reopened by the searching thread. Searches are synchronized, as the unsynchronized
+     * original fails under concurrent access.
+     */
+    private static class PerOperationWriterIndex implements BenchmarkIndex {
+        private final org.apache.lucene.store.Directory directory;
+        private DirectoryReader reader;
+        private IndexSearcher searcher;
+
+        PerOperationWriterIndex(Path indexPath) throws IOException {
+            directory = new MMapDirectory(indexPath);
+        }
+
+        @Override
+        public void addAll(List<Snippet> snippets) throws IOException {
+            try (IndexWriter writer = createWriter()) {
+                for (Snippet snippet : snippets) {
+                    writer.addDocument(SnippetIndex.document(snippet, BenchmarkData.FINGERPRINT));
+                }
+            }
+        }
+
+        @Override
+        public void update(Snippet snippet) {
+            try (IndexWriter writer = createWriter()) {
+                Term idTerm = new Term(SnippetIndex.SnippetField.ID, snippet.getId());
+                writer.updateDocument(idTerm, SnippetIndex.document(snippet, BenchmarkData.FINGERPRINT));
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        @Override
+        public synchronized List<String> query(Query query, SortField sortField) {
+            try {
+                if (reader == null) {
+                    reader = DirectoryReader.open(directory);
+                    searcher = new IndexSearcher(reader);
+                } else {
+                    DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+                    if (newReader != null) {
+                        reader.close();
+                        reader = newReader;
+                        searcher = new IndexSearcher(reader);
+                    }
+                }
+
+                TopDocs searchResults = searcher.search(query, Integer.MAX_VALUE, new Sort(sortField));
+                List<String> snippetIds = new ArrayList<>(PAGE_SIZE);
+                for (ScoreDoc scoreDoc : searchResults.scoreDocs) {
+                    if (snippetIds.size() == PAGE_SIZE)
+                        break;
+
+                    SortedDocValues ids = MultiDocValues.getSortedValues(reader, SnippetIndex.SnippetField.ID);
+                    ids.advanceExact(scoreDoc.doc);
+                    snippetIds.add(ids.lookupOrd(ids.ordValue()).utf8ToString());
+                }
+
+                return snippetIds;
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+            directory.close();
+        }
+
+        private IndexWriter createWriter() throws IOException {
+            return new IndexWriter(directory, new IndexWriterConfig(SnippetIndex.createAnalyzer(EdgeNGrams.DEFAULT)));
+        }
+    }
+}
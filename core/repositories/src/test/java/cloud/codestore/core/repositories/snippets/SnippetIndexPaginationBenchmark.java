@@ -0,0 +1,74 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to read a single page of the snippet list depending on its position.
+ * A page is either requested directly or after the previous page, as done when following the "next" links.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SnippetIndexPaginationBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnippetIndexPaginationBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"100000"})
+    public int snippetCount;
+    @Param({"1", "100", "1999"})
+    public int page;
+    @Param({"direct", "afterPreviousPage"})
+    public String access;
+
+    private Path indexPath;
+    private SnippetIndex index;
+    private Query query;
+    private SortField sortField;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(new MMapDirectory(indexPath));
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+        query = new QueryBuilder("", new FilterProperties(), EdgeNGrams.DEFAULT).build();
+        sortField = new SortField(SnippetIndex.SnippetField.CREATED, SortField.Type.LONG, true);
+    }
+
+    /**
+     * Reads the previous page before every invocation, as background merges may replace the index reader
+     * and thereby discard the cursor of the previous page.
+     */
+    @Setup(Level.Invocation)
+    public void readPreviousPage() {
+        if (access.equals("afterPreviousPage") && page > 1) {
+            index.query(new SnippetIndex.SearchRequest(query, sortField, (page - 2) * PAGE_SIZE, PAGE_SIZE));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @Benchmark
+    public SnippetIndex.SearchHits<String> readPage() {
+        return index.query(new SnippetIndex.SearchRequest(query, sortField, (page - 1) * PAGE_SIZE, PAGE_SIZE));
+    }
+}
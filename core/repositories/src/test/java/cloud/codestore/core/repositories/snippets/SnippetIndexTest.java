@@ -2,52 +2,92 @@ package cloud.codestore.core.repositories.snippets;
 
 import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
+import cloud.codestore.core.usecases.listsnippets.DateRange;
+import cloud.codestore.core.usecases.listsnippets.Facet;
+import cloud.codestore.core.usecases.listsnippets.FilterProperties;
+import cloud.codestore.core.usecases.listsnippets.Highlight;
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import cloud.codestore.core.usecases.listsnippets.SnippetHighlights;
+import cloud.codestore.core.usecases.listsnippets.SnippetSummary;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
 import org.assertj.core.api.ListAssert;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import java.util.UUID;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static cloud.codestore.core.repositories.snippets.SnippetIndex.SearchRequest;
 import static cloud.codestore.core.repositories.snippets.SnippetIndex.SnippetField;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 @DisplayName("The snippet index")
 class SnippetIndexTest {
     private static final String SNIPPET_ID = UUID.randomUUID().toString();
 
-    private SnippetIndex index = new SnippetIndex();
+    private static final FileFingerprint FINGERPRINT = new FileFingerprint(100, 1000, 12345);
+
+    private SnippetIndex index = new SnippetIndex(new ByteBuffersDirectory());
+
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
     private SortField defaultOrder = new SortField(SnippetField.CREATED, SortField.Type.LONG, true);
 
     @Test
     @DisplayName("adds new snippets")
     void addSnippet() {
-        assertThat(index.query(snippetById(), defaultOrder)).isEmpty();
+        assertThat(search(snippetById())).isEmpty();
 
         Snippet snippet = testSnippet(SNIPPET_ID);
-        index.add(snippet);
+        index.add(snippet, FINGERPRINT);
 
-        List<String> searchResult = index.query(snippetById(), defaultOrder);
+        List<String> searchResult = search(snippetById());
         assertThat(searchResult).hasSize(1);
         assertThat(searchResult.get(0)).isEqualTo(snippet.getId());
     }
 
     @Test
-    @DisplayName("adds multiple snippets at once")
+    @DisplayName("adds multiple snippets in a single batch")
     void addMultipleSnippets() {
-        assertThat(index.query(new MatchAllDocsQuery(), defaultOrder)).isEmpty();
-        index.add(Stream.of(testSnippet("1"), testSnippet("2"), testSnippet("3")));
-        assertThat(index.query(new MatchAllDocsQuery(), defaultOrder)).hasSize(3);
+        assertThat(search(new MatchAllDocsQuery())).isEmpty();
+        index.batch(batch -> Stream.of(testSnippet("1"), testSnippet("2"), testSnippet("3"))
+                                   .forEach(snippet -> batch.put(snippet, FINGERPRINT)));
+        assertThat(search(new MatchAllDocsQuery())).hasSize(3);
     }
 
     @Test
@@ -55,29 +95,603 @@ class SnippetIndexTest {
     void updateSnippet() {
         String originalTitle = "original";
         String newTitle = "updated";
-        index.add(snippetWithTitle(originalTitle));
+        index.add(snippetWithTitle(originalTitle), FINGERPRINT);
 
-        assertThat(index.query(snippetByTitle(originalTitle), defaultOrder)).isNotEmpty();
-        assertThat(index.query(snippetByTitle(newTitle), defaultOrder)).isEmpty();
+        assertThat(search(snippetByTitle(originalTitle))).isNotEmpty();
+        assertThat(search(snippetByTitle(newTitle))).isEmpty();
 
-        index.update(snippetWithTitle(newTitle));
+        index.update(snippetWithTitle(newTitle), FINGERPRINT);
 
-        assertThat(index.query(snippetByTitle(newTitle), defaultOrder)).isNotEmpty();
-        assertThat(index.query(snippetByTitle(originalTitle), defaultOrder)).isEmpty();
+        assertThat(search(snippetByTitle(newTitle))).isNotEmpty();
+        assertThat(search(snippetByTitle(originalTitle))).isEmpty();
     }
 
     @Test
     @DisplayName("returns an empty search result when empty")
     void emptySearchResult() {
-        assertThat(index.query(snippetById(), defaultOrder)).isNotNull().isEmpty();
+        assertThat(search(snippetById())).isNotNull().isEmpty();
     }
 
     @Test
     @DisplayName("removes existing snippets")
     void removeSnippet() {
-        index.add(testSnippet(SNIPPET_ID));
+        index.add(testSnippet(SNIPPET_ID), FINGERPRINT);
         index.remove(SNIPPET_ID);
-        assertThat(index.query(snippetById(), defaultOrder)).isEmpty();
+        assertThat(search(snippetById())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("can be searched while snippets are modified concurrently")
+    void concurrentAccess() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int thread = i;
+                tasks.add(executor.submit(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        index.update(testSnippet(thread + "-" + j), FINGERPRINT);
+                        search(new MatchAllDocsQuery());
+                    }
+                }));
+            }
+
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        assertThat(search(new MatchAllDocsQuery())).hasSize(200);
+    }
+
+    @Test
+    @DisplayName("increases its generation when changes become visible")
+    void generation() {
+        long initialGeneration = index.generation();
+
+        index.add(testSnippet(SNIPPET_ID), FINGERPRINT);
+        long generation = index.generation();
+        assertThat(generation).isGreaterThan(initialGeneration);
+
+        search(snippetById());
+        assertThat(index.generation()).isEqualTo(generation);
+
+        index.remove(SNIPPET_ID);
+        assertThat(index.generation()).isGreaterThan(generation);
+    }
+
+    @Test
+    @DisplayName("provides the fingerprints of the indexed snippet files")
+    void fingerprints() {
+        index.add(testSnippet("1"), FINGERPRINT);
+        index.add(testSnippet("2"), new FileFingerprint(1, 2, 3));
+
+        assertThat(index.fingerprints()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "1", FINGERPRINT,
+                "2", new FileFingerprint(1, 2, 3)
+        ));
+    }
+
+    @Test
+    @DisplayName("replaces the fingerprint of a snippet file")
+    void updateFingerprint() {
+        var newFingerprint = new FileFingerprint(100, 2000, 12345);
+        index.add(testSnippet(SNIPPET_ID), FINGERPRINT);
+
+        index.batch(batch -> batch.updateFingerprint(SNIPPET_ID, newFingerprint));
+
+        assertThat(index.fingerprints()).containsExactly(Map.entry(SNIPPET_ID, newFingerprint));
+        assertThat(search(snippetById())).containsExactly(SNIPPET_ID);
+    }
+
+    @Test
+    @DisplayName("provides the tags of all indexed snippets")
+    void tags() {
+        index.add(Snippet.builder().id("1").tags(List.of("Tag-A", "tagB")).build(), FINGERPRINT);
+        index.add(Snippet.builder().id("2").tags(List.of("tagB", "tagC")).build(), FINGERPRINT);
+        index.add(Snippet.builder().id("3").tags(List.of("tagD")).build(), FINGERPRINT);
+        index.remove("3");
+
+        assertThat(index.tags()).containsExactlyInAnyOrder("Tag-A", "tagB", "tagC");
+    }
+
+    @Test
+    @DisplayName("provides the summaries of the found snippets")
+    void summaries() {
+        var created = OffsetDateTime.parse("2024-01-01T10:00:00Z");
+        var modified = OffsetDateTime.parse("2024-02-01T10:00:00Z");
+        index.add(Snippet.builder()
+                         .id("1")
+                         .title("Title")
+                         .language(Language.JAVA)
+                         .tags(List.of("tagB", "Tag-A"))
+                         .created(created)
+                         .modified(modified)
+                         .build(), FINGERPRINT);
+        index.add(Snippet.builder().id("2").title("Other").created(created.minusDays(1)).build(), FINGERPRINT);
+
+        var hits = index.querySummaries(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 10));
+
+        assertThat(hits.totalCount()).isEqualTo(2);
+        assertThat(hits.hits()).containsExactly(
+                new SnippetSummary("1", "Title", Language.JAVA, List.of("tagB", "Tag-A"), created, modified),
+                new SnippetSummary("2", "Other", Language.TEXT, List.of(), created.minusDays(1), null)
+        );
+    }
+
+    @Test
+    @DisplayName("finds snippets by terms which are similar to the searched terms")
+    void searchSimilarTerms() {
+        index.add(Snippet.builder()
+                         .id(SNIPPET_ID)
+                         .language(Language.JAVASCRIPT)
+                         .title("Build a docker image")
+                         .build(), FINGERPRINT);
+
+        for (String typo : new String[]{"dokcer", "javscript", "imgae"}) {
+            var queryBuilder = new QueryBuilder(typo, new FilterProperties(), EdgeNGrams.DEFAULT);
+            assertThat(search(queryBuilder.build())).isEmpty();
+
+            queryBuilder.matchSimilarTerms();
+            assertThat(search(queryBuilder.build())).containsExactly(SNIPPET_ID);
+        }
+    }
+
+    @Test
+    @DisplayName("filters snippets by language and tags")
+    void filter() {
+        index.add(Snippet.builder().id("1").language(Language.JAVA).tags(List.of("Tag-A")).build(), FINGERPRINT);
+        index.add(Snippet.builder().id("2").language(Language.JAVA).build(), FINGERPRINT);
+        index.add(Snippet.builder().id("3").language(Language.SHELL).tags(List.of("tag-a")).build(), FINGERPRINT);
+
+        assertThat(search(filterQuery("java", List.of()))).containsExactlyInAnyOrder("1", "2");
+        assertThat(search(filterQuery(String.valueOf(Language.JAVA.getId()), List.of("taga")))).containsExactly("1");
+        assertThat(search(filterQuery("shell", List.of("Tag-A")))).containsExactly("3");
+        assertThat(search(filterQuery("", List.of("tag_a")))).containsExactlyInAnyOrder("1", "3");
+    }
+
+    @Test
+    @DisplayName("filters snippets by the ranges of their creation and modification time")
+    void filterByDateRange() {
+        var created = OffsetDateTime.parse("2023-06-01T10:00:00Z");
+        index.add(Snippet.builder().id("1").created(created).build(), FINGERPRINT);
+        index.add(Snippet.builder().id("2").created(created.minusYears(1)).modified(created).build(), FINGERPRINT);
+        index.add(Snippet.builder().id("3").created(created.plusYears(1)).build(), FINGERPRINT);
+
+        var year2023 = new DateRange(OffsetDateTime.parse("2023-01-01T00:00:00Z"), OffsetDateTime.parse("2023-12-31T23:59:59Z"));
+        assertThat(search(dateQuery(year2023, DateRange.UNBOUNDED))).containsExactly("1");
+        assertThat(search(dateQuery(DateRange.UNBOUNDED, year2023))).containsExactlyInAnyOrder("1", "2");
+        assertThat(search(dateQuery(new DateRange(created, null), DateRange.UNBOUNDED))).containsExactlyInAnyOrder("1", "3");
+        assertThat(search(dateQuery(new DateRange(null, created), new DateRange(created, created)))).containsExactlyInAnyOrder("1", "2");
+    }
+
+    private Query dateQuery(DateRange created, DateRange modified) {
+        var filterProperties = new FilterProperties("", List.of(), created, modified);
+        return new QueryBuilder("", filterProperties, EdgeNGrams.DEFAULT).build();
+    }
+
+    private Query filterQuery(String languageName, List<String> tags) {
+        return new QueryBuilder("", new FilterProperties(languageName, tags), EdgeNGrams.DEFAULT).build();
+    }
+
+    @Nested
+    @DisplayName("counts facets")
+    class FacetTest {
+        @BeforeEach
+        void setUp() {
+            index.add(Snippet.builder()
+                             .id("1")
+                             .language(Language.JAVA)
+                             .tags(List.of("a", "b"))
+                             .created(OffsetDateTime.parse("2024-01-31T23:00:00Z"))
+                             .modified(OffsetDateTime.parse("2024-03-01T10:00:00Z"))
+                             .build(), FINGERPRINT);
+            index.add(Snippet.builder()
+                             .id("2")
+                             .language(Language.JAVA)
+                             .tags(List.of("b"))
+                             .created(OffsetDateTime.parse("2024-02-01T10:00:00Z"))
+                             .build(), FINGERPRINT);
+            index.add(Snippet.builder()
+                             .id("3")
+                             .language(Language.PYTHON)
+                             .created(OffsetDateTime.parse("2024-02-15T10:00:00Z"))
+                             .build(), FINGERPRINT);
+        }
+
+        @Test
+        @DisplayName("of all hits, not only of the requested page")
+        void countAllHits() {
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 1)
+                    .withFacets(Set.of(Facet.values())));
+
+            assertThat(hits.hits()).hasSize(1);
+            assertThat(hits.facets()).containsOnlyKeys(Facet.values());
+            assertThat(hits.facets().get(Facet.LANGUAGE)).containsExactly(entry("Java", 2), entry("Python", 1));
+            assertThat(hits.facets().get(Facet.TAGS)).containsExactly(entry("b", 2), entry("a", 1));
+            assertThat(hits.facets().get(Facet.CREATED)).containsExactly(entry("2024-01", 1), entry("2024-02", 2));
+            assertThat(hits.facets().get(Facet.MODIFIED)).containsExactly(entry("2024-02", 2), entry("2024-03", 1));
+        }
+
+        @Test
+        @DisplayName("of the hits of the query only")
+        void countMatchingHits() {
+            Query query = new TermQuery(new Term(SnippetField.TAG, "b"));
+            var hits = index.querySummaries(new SearchRequest(query, defaultOrder, 0, 10)
+                    .withFacets(Set.of(Facet.LANGUAGE, Facet.TAGS)));
+
+            assertThat(hits.facets()).containsOnlyKeys(Facet.LANGUAGE, Facet.TAGS);
+            assertThat(hits.facets().get(Facet.LANGUAGE)).containsExactly(entry("Java", 2));
+            assertThat(hits.facets().get(Facet.TAGS)).containsExactly(entry("b", 2), entry("a", 1));
+        }
+
+        @Test
+        @DisplayName("on subsequent pages")
+        void countOnSubsequentPage() {
+            index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 1));
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 1, 1)
+                    .withFacets(Set.of(Facet.LANGUAGE)));
+
+            assertThat(hits.totalCount()).isEqualTo(3);
+            assertThat(hits.facets().get(Facet.LANGUAGE)).containsExactly(entry("Java", 2), entry("Python", 1));
+        }
+
+        @Test
+        @DisplayName("only if requested")
+        void noFacets() {
+            assertThat(index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 10)).facets()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("without any hit")
+        void countWithoutHits() {
+            Query query = new TermQuery(new Term(SnippetField.TAG, "c"));
+            var hits = index.query(new SearchRequest(query, defaultOrder, 0, 10)
+                    .withFacets(Set.of(Facet.LANGUAGE, Facet.CREATED)));
+
+            assertThat(hits.facets().get(Facet.LANGUAGE)).isEmpty();
+            assertThat(hits.facets().get(Facet.CREATED)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("highlights the matches")
+    class HighlightTest {
+        private static final String DESCRIPTION = "Reads a file. Writes nothing.";
+        private static final String CODE = """
+                import java.io.File;
+
+                var file = new File(path);
+                return readAll(file);""";
+
+        @BeforeEach
+        void setUp() {
+            index.add(Snippet.builder()
+                             .id("1")
+                             .language(Language.JAVA)
+                             .description(DESCRIPTION)
+                             .code(CODE)
+                             .build(), FINGERPRINT);
+            index.add(Snippet.builder()
+                             .id("2")
+                             .description("Another file")
+                             .build(), FINGERPRINT);
+        }
+
+        @Test
+        @DisplayName("in the sentences of the description")
+        void highlightDescription() {
+            var highlights = highlight("file", 0, 10).get("1");
+
+            assertThat(highlights.description()).containsExactly(
+                    new Highlight("Reads a file.", 0, 1, List.of(new Highlight.Range(8, 12)))
+            );
+        }
+
+        @Test
+        @DisplayName("in the lines of the code")
+        void highlightCode() {
+            var highlights = highlight("file", 0, 10).get("1");
+
+            assertThat(highlights.code()).extracting(Highlight::line).containsExactly(1, 3, 4);
+            Highlight thirdLine = highlights.code().get(1);
+            int lineOffset = CODE.indexOf("var file");
+            assertThat(thirdLine.text()).isEqualTo("var file = new File(path);");
+            assertThat(thirdLine.startOffset()).isEqualTo(lineOffset);
+            assertThat(thirdLine.matches()).containsExactly(
+                    new Highlight.Range(lineOffset + 4, lineOffset + 8),
+                    new Highlight.Range(lineOffset + 15, lineOffset + 19)
+            );
+        }
+
+        @Test
+        @DisplayName("by a prefix of the terms")
+        void highlightPrefix() {
+            var highlights = highlight("rea", 0, 10).get("1");
+
+            assertThat(highlights.description()).extracting(Highlight::text).containsExactly("Reads a file.");
+            assertThat(highlights.code()).extracting(Highlight::line).containsExactly(4);
+        }
+
+        @Test
+        @DisplayName("of the requested page only")
+        void highlightPage() {
+            assertThat(highlight("file", 0, 1)).hasSize(1);
+            assertThat(highlight("file", 1, 1)).hasSize(1);
+            assertThat(highlight("file", 2, 1)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("without fragments for properties which do not match")
+        void noMatchingFragments() {
+            var highlights = highlight("another", 0, 10);
+
+            assertThat(highlights).containsOnlyKeys("2");
+            assertThat(highlights.get("2").code()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("only if requested")
+        void noHighlights() {
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 10));
+            assertThat(hits.highlights()).isEmpty();
+        }
+
+        private Map<String, SnippetHighlights> highlight(String search, int offset, int limit) {
+            var queryBuilder = new QueryBuilder(search, new FilterProperties(), EdgeNGrams.DEFAULT);
+            var request = new SearchRequest(queryBuilder.build(), defaultOrder, offset, limit)
+                    .withHighlightQuery(queryBuilder.buildHighlightQuery());
+            return index.query(request).highlights();
+        }
+    }
+
+    @Nested
+    @DisplayName("finds snippets by a structured search")
+    class StructuredSearchTest {
+        @BeforeEach
+        void setUp() {
+            index.add(Snippet.builder()
+                             .id("1")
+                             .language(Language.SHELL)
+                             .title("Build a docker image")
+                             .description("Builds the image from the file in the current directory.")
+                             .code("docker build -t image .")
+                             .tags(List.of("Docker"))
+                             .build(), FINGERPRINT);
+            index.add(Snippet.builder()
+                             .id("2")
+                             .language(Language.YAML)
+                             .title("Docker compose file")
+                             .description("The image is built from a file.")
+                             .code("services:\n  app:\n    build: .")
+                             .tags(List.of("docker", "legacy"))
+                             .build(), FINGERPRINT);
+            index.add(Snippet.builder()
+                             .id("3")
+                             .language(Language.JAVA)
+                             .title("Read a file")
+                             .code("Files.readString(path)")
+                             .build(), FINGERPRINT);
+        }
+
+        @Test
+        @DisplayName("with words of a phrase in the given order")
+        void searchPhrase() {
+            assertThat(search("\"from the file\"")).containsExactly("1");
+            assertThat(search("\"the file from\"")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("with terms in the qualified property only")
+        void searchQualifiedTerms() {
+            assertThat(search("title:file")).containsExactlyInAnyOrder("2", "3");
+            assertThat(search("code:build")).containsExactlyInAnyOrder("1", "2");
+            assertThat(search("lang:\"Shell Script\"")).containsExactly("1");
+            assertThat(search("tag:DOCKER")).containsExactlyInAnyOrder("1", "2");
+        }
+
+        @Test
+        @DisplayName("with all required terms")
+        void searchRequiredTerms() {
+            assertThat(search("image AND compose")).containsExactly("2");
+        }
+
+        @Test
+        @DisplayName("without the excluded terms")
+        void excludeTerms() {
+            assertThat(search("docker -tag:legacy")).containsExactly("1");
+            assertThat(search("-docker")).containsExactly("3");
+        }
+
+        private List<String> search(String search) {
+            return SnippetIndexTest.this.search(new QueryBuilder(search, new FilterProperties(), EdgeNGrams.DEFAULT).build());
+        }
+    }
+
+    @Nested
+    @DisplayName("searches the code for patterns")
+    class PatternSearchTest {
+        private static final List<String> CODES = List.of(
+                "$id = $user->getId();",
+                "SELECT name FROM users WHERE id = 1",
+                "String id = user.getId();",
+                "if (a <= b) {\n    return colour;\n}",
+                "select * from Users"
+        );
+
+        @BeforeEach
+        void setUp() {
+            Language[] languages = {Language.PHP, Language.SQL, Language.JAVA, Language.JAVA, Language.SQL};
+            for (int i = 0; i < CODES.size(); i++) {
+                index.add(Snippet.builder()
+                                 .id(String.valueOf(i))
+                                 .language(languages[i])
+                                 .code(CODES.get(i))
+                                 .build(), FINGERPRINT);
+            }
+        }
+
+        @Test
+        @DisplayName("which contain a literal including its case")
+        void searchLiteral() {
+            assertThat(search("->getId()", SearchMode.LITERAL)).containsExactly("0");
+            assertThat(search("getid", SearchMode.LITERAL)).isEmpty();
+            assertThat(search("<=", SearchMode.LITERAL)).containsExactly("3");
+        }
+
+        @Test
+        @DisplayName("which match a regular expression")
+        void searchRegex() {
+            assertThat(search("SELECT .* FROM users", SearchMode.REGEX)).containsExactly("1");
+            assertThat(search("(?i)select .* from users", SearchMode.REGEX)).containsExactlyInAnyOrder("1", "4");
+            assertThat(search("\\bget[A-Z]\\w*\\(", SearchMode.REGEX)).containsExactlyInAnyOrder("0", "2");
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {
+                "id", "colou?r", "colou+r", "(get|set)Id", "return\\s+\\w+;\\n", "[$]user", "\\Q->get\\E",
+                "(?i)USERS", "use(r|rs)", "(?:WHERE|LIMIT) id", "a <= b", "^select", "1$", "u{2}", "x(?=y)|from"
+        })
+        @DisplayName("without missing any code which matches")
+        void findAllMatches(String regex) {
+            var pattern = Pattern.compile(regex);
+            List<String> expectedIds = IntStream.range(0, CODES.size())
+                                                .filter(i -> pattern.matcher(CODES.get(i)).find())
+                                                .mapToObj(String::valueOf)
+                                                .toList();
+
+            assertThat(search(regex, SearchMode.REGEX)).containsExactlyInAnyOrderElementsOf(expectedIds);
+        }
+
+        @Test
+        @DisplayName("of the snippets which match the filters")
+        void filterCandidates() {
+            assertThat(search("getId", SearchMode.LITERAL, new FilterProperties("java", Set.of()))).containsExactly("2");
+        }
+
+        @Test
+        @DisplayName("of the snippets which were not deleted")
+        void ignoreDeletedSnippets() {
+            index.remove("0");
+            assertThat(search("getId", SearchMode.LITERAL)).containsExactly("2");
+        }
+
+        @Test
+        @DisplayName("and highlights the matches in the lines of the code")
+        void highlightMatches() {
+            index.add(Snippet.builder().id("5").code("a\nx.getId();\nb\ny.getId(); z.getId();").build(), FINGERPRINT);
+
+            var queryBuilder = new QueryBuilder("getId", SearchMode.LITERAL, new FilterProperties(), EdgeNGrams.DEFAULT);
+            var request = new SearchRequest(queryBuilder.build(), defaultOrder, 0, 10)
+                    .withHighlightQuery(queryBuilder.buildHighlightQuery());
+            var highlights = index.query(request).highlights().get("5");
+
+            assertThat(highlights.description()).isEmpty();
+            assertThat(highlights.code()).containsExactly(
+                    new Highlight("x.getId();", 2, 2, List.of(new Highlight.Range(4, 9))),
+                    new Highlight("y.getId(); z.getId();", 15, 4, List.of(new Highlight.Range(17, 22), new Highlight.Range(28, 33)))
+            );
+        }
+
+        private List<String> search(String search, SearchMode searchMode) {
+            return search(search, searchMode, new FilterProperties());
+        }
+
+        private List<String> search(String search, SearchMode searchMode, FilterProperties filterProperties) {
+            return SnippetIndexTest.this.search(new QueryBuilder(search, searchMode, filterProperties, EdgeNGrams.DEFAULT).build());
+        }
+    }
+
+    @Nested
+    @DisplayName("when persisted")
+    class PersistentIndexTest {
+        @TempDir
+        private Path indexPath;
+
+        @Test
+        @DisplayName("keeps the snippets after reopening")
+        void reopenIndex() throws IOException {
+            var persistentIndex = new SnippetIndex(new MMapDirectory(indexPath));
+            persistentIndex.add(testSnippet(SNIPPET_ID), FINGERPRINT);
+            persistentIndex.close();
+
+            var reopenedIndex = new SnippetIndex(new MMapDirectory(indexPath));
+            assertThat(search(reopenedIndex, snippetById(), defaultOrder)).containsExactly(SNIPPET_ID);
+            assertThat(reopenedIndex.fingerprints()).containsEntry(SNIPPET_ID, FINGERPRINT);
+            reopenedIndex.close();
+        }
+
+        @Test
+        @DisplayName("is rebuilt if it was created by a different version")
+        void rebuildOutdatedIndex() throws IOException {
+            Directory directory = new MMapDirectory(indexPath);
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                writer.setLiveCommitData(Map.of("version", "outdated").entrySet());
+                writer.addDocument(new Document());
+            }
+
+            var rebuiltIndex = new SnippetIndex(directory);
+            assertThat(search(rebuiltIndex, new MatchAllDocsQuery(), defaultOrder)).isEmpty();
+            rebuiltIndex.close();
+        }
+
+        @Test
+        @DisplayName("is rebuilt if it was created with different prefix sizes")
+        void rebuildIndexWithDifferentPrefixes() throws IOException {
+            var persistentIndex = new SnippetIndex(new MMapDirectory(indexPath), new EdgeNGrams(1, 2));
+            persistentIndex.add(testSnippet(SNIPPET_ID), FINGERPRINT);
+            persistentIndex.close();
+
+            var rebuiltIndex = new SnippetIndex(new MMapDirectory(indexPath), new EdgeNGrams(1, 3));
+            assertThat(search(rebuiltIndex, new MatchAllDocsQuery(), defaultOrder)).isEmpty();
+            rebuiltIndex.close();
+        }
+
+        @Test
+        @DisplayName("sorts its segments by the creation time")
+        void sortSegments() throws IOException {
+            var persistentIndex = new SnippetIndex(new MMapDirectory(indexPath));
+            persistentIndex.add(testSnippet(SNIPPET_ID), FINGERPRINT);
+            persistentIndex.close();
+
+            SegmentInfos segments = SegmentInfos.readLatestCommit(new MMapDirectory(indexPath));
+            assertThat(segments.asList()).isNotEmpty()
+                                         .allSatisfy(segment -> assertThat(segment.info.getIndexSort())
+                                                 .isEqualTo(SnippetIndex.INDEX_SORT));
+        }
+
+        @Test
+        @DisplayName("is rebuilt if it was not sorted by the creation time")
+        void rebuildUnsortedIndex() throws IOException {
+            Directory directory = new MMapDirectory(indexPath);
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                var commitData = Map.of("version", SnippetIndex.VERSION, "minGram", "1", "maxGram", "4");
+                writer.setLiveCommitData(commitData.entrySet());
+                writer.addDocument(new Document());
+            }
+
+            var rebuiltIndex = new SnippetIndex(directory);
+            assertThat(search(rebuiltIndex, new MatchAllDocsQuery(), defaultOrder)).isEmpty();
+            rebuiltIndex.close();
+        }
+
+        @Test
+        @DisplayName("is rebuilt if it is corrupt")
+        void rebuildCorruptIndex() throws IOException {
+            var persistentIndex = new SnippetIndex(new MMapDirectory(indexPath));
+            persistentIndex.add(testSnippet(SNIPPET_ID), FINGERPRINT);
+            persistentIndex.close();
+
+            try (Stream<Path> files = Files.list(indexPath)) {
+                for (Path file : files.filter(file -> file.getFileName().toString().startsWith("segments")).toList()) {
+                    Files.writeString(file, "corrupt");
+                }
+            }
+
+            var rebuiltIndex = new SnippetIndex(new MMapDirectory(indexPath));
+            assertThat(search(rebuiltIndex, new MatchAllDocsQuery(), defaultOrder)).isEmpty();
+            assertThat(rebuiltIndex.fingerprints()).isEmpty();
+            rebuiltIndex.close();
+        }
     }
 
     @Nested
@@ -96,46 +710,80 @@ class SnippetIndexTest {
                             .language(Language.JAVA)
                             .build();
 
-            assertThat(index.query(new MatchAllDocsQuery(), defaultOrder)).isEmpty();
-            index.add(snippt);
+            assertThat(search(new MatchAllDocsQuery())).isEmpty();
+            index.add(snippt, FINGERPRINT);
         }
 
         @Test
         @DisplayName("title")
         void indexTitle() {
-            assertThat(index.query(snippetByTitle("title"), defaultOrder)).isNotEmpty();
+            assertThat(search(snippetByTitle("title"))).isNotEmpty();
         }
 
         @Test
         @DisplayName("description")
         void indexDescription() {
-            assertThat(index.query(snippetByDescription("description"), defaultOrder)).isNotEmpty();
+            assertThat(search(snippetByDescription("description"))).isNotEmpty();
         }
 
         @Test
         @DisplayName("code")
         void indexCode() {
-            assertThat(index.query(snippetByCode("code"), defaultOrder)).isNotEmpty();
+            assertThat(search(snippetByCode("code"))).isNotEmpty();
         }
 
         @Test
         @DisplayName("tags")
         void indexTags() {
-            assertThat(index.query(snippetByTag("tag"), defaultOrder)).isNotEmpty();
+            assertThat(search(snippetByTag("tag"))).isNotEmpty();
+        }
+
+        @Test
+        @DisplayName("identifiers in the code and their subwords")
+        void indexIdentifiers() {
+            Snippet snippet = Snippet.builder()
+                                     .id("identifiers")
+                                     .title("title")
+                                     .description("")
+                                     .code("var readSnippetsQuery = MAX_CODE_LENGTH + 404;")
+                                     .tags(List.of())
+                                     .language(Language.JAVASCRIPT)
+                                     .build();
+            index.add(snippet, FINGERPRINT);
+
+            assertThat(search(snippetByCode("readsnippetsquery"))).containsExactly("identifiers");
+            assertThat(search(snippetByCode("snippets"))).containsExactly("identifiers");
+            assertThat(search(snippetByCode("max_code_length"))).containsExactly("identifiers");
+            assertThat(search(snippetByCode("length"))).containsExactly("identifiers");
+            assertThat(search(snippetByCode("404"))).containsExactly("identifiers");
+        }
+
+        @Test
+        @DisplayName("prefixes of the title, description and code")
+        void indexPrefixes() {
+            assertThat(search(new TermQuery(new Term(SnippetField.TITLE_PREFIX, "titl")))).isNotEmpty();
+            assertThat(search(new TermQuery(new Term(SnippetField.DESCRIPTION_PREFIX, "desc")))).isNotEmpty();
+            assertThat(search(new TermQuery(new Term(SnippetField.CODE_PREFIX, "c")))).isNotEmpty();
+        }
+
+        @Test
+        @DisplayName("prefixes only up to the maximum prefix size")
+        void indexPrefixesUpToMaxGram() {
+            assertThat(search(new TermQuery(new Term(SnippetField.DESCRIPTION_PREFIX, "descr")))).isEmpty();
         }
 
         @Test
         @DisplayName("language id")
         void indexLanguageId() {
-            String languageId = String.valueOf(Language.JAVA.getId());
-            assertThat(index.query(snippetByLanguage(languageId), defaultOrder)).isNotEmpty();
+            Query query = IntPoint.newExactQuery(SnippetField.LANGUAGE_ID, Language.JAVA.getId());
+            assertThat(search(query)).isNotEmpty();
         }
 
         @Test
         @DisplayName("language name")
         void indexLanguageName() {
             String languageName = Language.JAVA.getName().toLowerCase();
-            assertThat(index.query(snippetByLanguage(languageName), defaultOrder)).isNotEmpty();
+            assertThat(search(snippetByLanguage(languageName))).isNotEmpty();
         }
 
         private Query snippetByTitle(String title) {
@@ -170,28 +818,28 @@ class SnippetIndexTest {
                              .title("E")
                              .created(now.minusDays(5))
                              .modified(now.minusSeconds(5))
-                             .build());
+                             .build(), FINGERPRINT);
             index.add(Snippet.builder()
                              .id("2")
                              .title("D")
                              .created(now.minusHours(1))
-                             .build());
+                             .build(), FINGERPRINT);
             index.add(Snippet.builder()
                              .id("3")
                              .title("A")
                              .created(now.minusMonths(10))
                              .modified(now.minusHours(8))
-                             .build());
+                             .build(), FINGERPRINT);
             index.add(Snippet.builder()
                              .id("4")
                              .title("C")
                              .created(now.minusWeeks(1))
-                             .build());
+                             .build(), FINGERPRINT);
             index.add(Snippet.builder()
                              .id("5")
                              .title("B")
                              .created(now.minusMinutes(15))
-                             .build());
+                             .build(), FINGERPRINT);
         }
 
         @Test
@@ -211,13 +859,256 @@ class SnippetIndexTest {
         @Test
         @DisplayName("title")
         void sortByTitle() {
-            assertSortingBy(new SortField(SnippetField.TITLE, SortField.Type.STRING, false))
+            assertSortingBy(new SortField(SnippetField.TITLE_SORT, SortField.Type.STRING, false))
                     .containsExactly("3", "5", "4", "2", "1");
         }
 
         private ListAssert<String> assertSortingBy(SortField sortField) {
-            return assertThat(index.query(new MatchAllDocsQuery(), sortField));
+            return assertThat(search(new MatchAllDocsQuery(), sortField));
+        }
+    }
+
+    @Nested
+    @DisplayName("returns a single page")
+    class PaginationTest {
+        private static final int SNIPPET_COUNT = 120;
+        private static final int PAGE_SIZE = 50;
+
+        private final SortField order = new SortField(SnippetField.CREATED, SortField.Type.LONG, false);
+
+        @BeforeEach
+        void setUp() {
+            addSnippets(0, SNIPPET_COUNT);
         }
+
+        @Test
+        @DisplayName("of the search result")
+        void returnPage() {
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), order, PAGE_SIZE, PAGE_SIZE));
+            assertThat(hits.totalCount()).isEqualTo(SNIPPET_COUNT);
+            assertThat(hits.hits()).containsExactlyElementsOf(ids(PAGE_SIZE, 2 * PAGE_SIZE));
+        }
+
+        @Test
+        @DisplayName("which is empty if the offset exceeds the search result")
+        void returnEmptyPage() {
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), order, SNIPPET_COUNT, PAGE_SIZE));
+            assertThat(hits.totalCount()).isEqualTo(SNIPPET_COUNT);
+            assertThat(hits.hits()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("after the previous page")
+        void returnSubsequentPages() {
+            List<String> snippetIds = new ArrayList<>();
+            for (int offset = 0; offset < SNIPPET_COUNT; offset += PAGE_SIZE) {
+                var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), order, offset, PAGE_SIZE));
+                snippetIds.addAll(hits.hits());
+            }
+
+            assertThat(snippetIds).containsExactlyElementsOf(ids(0, SNIPPET_COUNT));
+        }
+
+        @Test
+        @DisplayName("which reflects changes since the previous page")
+        void returnPageAfterChange() {
+            index.query(new SearchRequest(new MatchAllDocsQuery(), order, 0, PAGE_SIZE));
+            index.remove("0");
+
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), order, PAGE_SIZE, PAGE_SIZE));
+            assertThat(hits.totalCount()).isEqualTo(SNIPPET_COUNT - 1);
+            assertThat(hits.hits()).containsExactlyElementsOf(ids(PAGE_SIZE + 1, 2 * PAGE_SIZE + 1));
+        }
+
+        @Test
+        @DisplayName("of the newest snippets in the order of the index")
+        void returnNewestSnippets() {
+            addSnippets(SNIPPET_COUNT, 2000);
+            var newestFirst = new SortField(SnippetField.CREATED, SortField.Type.LONG, true);
+
+            List<String> snippetIds = new ArrayList<>();
+            for (int offset = 0; offset < 2000; offset += PAGE_SIZE) {
+                var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), newestFirst, offset, PAGE_SIZE));
+                assertThat(hits.totalCount()).isEqualTo(2000);
+                snippetIds.addAll(hits.hits());
+            }
+
+            assertThat(snippetIds).containsExactlyElementsOf(ids(0, 2000).reversed());
+        }
+
+        @Test
+        @DisplayName("of the newest matches with the exact number of hits")
+        void returnNewestMatches() {
+            addSnippets(SNIPPET_COUNT, 2000);
+            index.remove("1999");
+            var newestFirst = new SortField(SnippetField.CREATED, SortField.Type.LONG, true);
+            Query query = new QueryBuilder("", new FilterProperties(), EdgeNGrams.DEFAULT).build();
+
+            var hits = index.query(new SearchRequest(query, newestFirst, PAGE_SIZE, PAGE_SIZE));
+            assertThat(hits.totalCount()).isEqualTo(1999);
+            assertThat(hits.hits()).containsExactlyElementsOf(ids(1999 - 2 * PAGE_SIZE, 1999 - PAGE_SIZE).reversed());
+        }
+
+        @Test
+        @DisplayName("with the exact number of hits for large results")
+        void countAllHits() {
+            addSnippets(SNIPPET_COUNT, 2000);
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), order, 0, PAGE_SIZE));
+            assertThat(hits.totalCount()).isEqualTo(2000);
+            assertThat(hits.hits()).hasSize(PAGE_SIZE);
+        }
+
+        private void addSnippets(int from, int to) {
+            var created = OffsetDateTime.now(ZoneOffset.UTC).minusYears(1);
+            index.batch(batch -> {
+                for (int i = from; i < to; i++) {
+                    Snippet snippet = Snippet.builder().id(String.valueOf(i)).created(created.plusMinutes(i)).build();
+                    batch.put(snippet, FINGERPRINT);
+                }
+            });
+        }
+
+        private List<String> ids(int from, int to) {
+            return IntStream.range(from, to).mapToObj(String::valueOf).toList();
+        }
+    }
+
+    @Nested
+    @DisplayName("when searched in parallel")
+    class ParallelSearchTest {
+        private static final int SEGMENTS = 5;
+        private static final int SNIPPETS_PER_SEGMENT = 40;
+        private static final List<String> WORDS = List.of("read", "write", "file", "docker", "compose", "list");
+
+        private final SnippetIndex parallelIndex = new SnippetIndex(
+                new ByteBuffersDirectory(), EdgeNGrams.DEFAULT, new ParallelSearcherFactory(4, 0, 1)
+        );
+        private final SnippetIndex sequentialIndex = new SnippetIndex(
+                new ByteBuffersDirectory(), EdgeNGrams.DEFAULT, new ParallelSearcherFactory(1, 0)
+        );
+
+        @BeforeEach
+        void setUp() {
+            var created = OffsetDateTime.now(ZoneOffset.UTC).minusYears(1);
+            Language[] languages = {Language.JAVA, Language.PYTHON, Language.SQL};
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                List<Snippet> snippets = new ArrayList<>();
+                for (int i = 0; i < SNIPPETS_PER_SEGMENT; i++) {
+                    int number = segment * SNIPPETS_PER_SEGMENT + i;
+                    snippets.add(Snippet.builder()
+                                        .id(String.valueOf(number))
+                                        .title(WORDS.get(number % WORDS.size()) + " " + WORDS.get(number % 4))
+                                        .language(languages[number % languages.length])
+                                        .tags(List.of("tag" + number % 3))
+                                        // several snippets are created at the same time, so the order depends on ties
+                                        .created(created.plusHours(number / 7))
+                                        .build());
+                }
+
+                // every batch is flushed into a separate segment
+                parallelIndex.batch(batch -> snippets.forEach(snippet -> batch.put(snippet, FINGERPRINT)));
+                sequentialIndex.batch(batch -> snippets.forEach(snippet -> batch.put(snippet, FINGERPRINT)));
+            }
+        }
+
+        @AfterEach
+        void tearDown() {
+            parallelIndex.close();
+            sequentialIndex.close();
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "read", "docker file", "-write lang:sql"})
+        @DisplayName("returns the same pages as a sequential search")
+        void samePages(String search) {
+            Query query = new QueryBuilder(search, SearchMode.DEFAULT, new FilterProperties(), EdgeNGrams.DEFAULT).build();
+            for (SortField order : List.of(defaultOrder, SortField.FIELD_SCORE)) {
+                for (int offset = 0; offset < SEGMENTS * SNIPPETS_PER_SEGMENT; offset += 30) {
+                    var parallelHits = parallelIndex.query(new SearchRequest(query, order, offset, 30));
+                    var sequentialHits = sequentialIndex.query(new SearchRequest(query, order, offset, 30));
+                    assertThat(parallelHits).isEqualTo(sequentialHits);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("counts the same facets as a sequential search")
+        void sameFacets() {
+            Query query = new QueryBuilder("read", SearchMode.DEFAULT, new FilterProperties(), EdgeNGrams.DEFAULT).build();
+            Set<Facet> facets = Set.of(Facet.values());
+
+            var parallelHits = parallelIndex.querySummaries(new SearchRequest(query, defaultOrder, 10, 10)
+                    .withFacets(facets));
+            var sequentialHits = sequentialIndex.querySummaries(new SearchRequest(query, defaultOrder, 10, 10)
+                    .withFacets(facets));
+
+            assertThat(parallelHits.facets()).isNotEmpty().isEqualTo(sequentialHits.facets());
+            assertThat(parallelHits).isEqualTo(sequentialHits);
+        }
+    }
+
+    @Nested
+    @DisplayName("with a timeout")
+    class TimeoutTest {
+        private static final int SNIPPET_COUNT = 100;
+
+        @BeforeEach
+        void setUp() {
+            index.batch(batch -> {
+                for (int i = 0; i < SNIPPET_COUNT; i++) {
+                    batch.put(Snippet.builder().id(String.valueOf(i)).code("int id = " + i + ";").build(), FINGERPRINT);
+                }
+            });
+        }
+
+        @Test
+        @DisplayName("returns the complete result if the timeout does not exit")
+        void completeResult() {
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 10)
+                    .withTimeout(() -> false));
+            assertThat(hits.partial()).isFalse();
+            assertThat(hits.totalCount()).isEqualTo(SNIPPET_COUNT);
+            assertThat(hits.hits()).hasSize(10);
+        }
+
+        @Test
+        @DisplayName("returns a partial result if the timeout exits")
+        void partialResult() {
+            Query query = new QueryBuilder("id", SearchMode.DEFAULT, new FilterProperties(), EdgeNGrams.DEFAULT).build();
+            var hits = index.querySummaries(new SearchRequest(query, defaultOrder, 0, 10).withTimeout(() -> true));
+            assertThat(hits.partial()).isTrue();
+            assertThat(hits.hits()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("stops verifying the candidates of a pattern search")
+        void stopPatternSearch() {
+            Query query = new QueryBuilder("id = \\d+", SearchMode.REGEX, new FilterProperties(), EdgeNGrams.DEFAULT).build();
+            var hits = index.query(new SearchRequest(query, defaultOrder, 0, 10).withTimeout(() -> true));
+            assertThat(hits.partial()).isTrue();
+            assertThat(hits.totalCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("does not limit other searches")
+        void limitSingleSearch() {
+            index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 10).withTimeout(() -> true));
+            var hits = index.query(new SearchRequest(new MatchAllDocsQuery(), defaultOrder, 0, 10));
+            assertThat(hits.partial()).isFalse();
+            assertThat(hits.totalCount()).isEqualTo(SNIPPET_COUNT);
+        }
+    }
+
+    private List<String> search(Query query) {
+        return search(query, defaultOrder);
+    }
+
+    private List<String> search(Query query, SortField sortField) {
+        return search(index, query, sortField);
+    }
+
+    private static List<String> search(SnippetIndex index, Query query, SortField sortField) {
+        return index.query(new SearchRequest(query, sortField, 0, 1000)).hits();
     }
 
     private Snippet testSnippet(String id) {
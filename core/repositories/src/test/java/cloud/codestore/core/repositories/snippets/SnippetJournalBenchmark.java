@@ -0,0 +1,77 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.repositories.Directory;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of concurrent updates of code snippets, either written directly to the snippet files
+ * or recorded in the {@link SnippetJournal}. Both variants survive a crash of the application, but only the journal
+ * also makes the changes durable, by sharing a single force between the concurrent updates.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SnippetJournalBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SnippetJournalBenchmark {
+    @Param({"false", "true"})
+    public boolean journaled;
+    @Param({"1000"})
+    public int snippetCount;
+
+    private Path dataDirectory;
+    private SnippetJournal journal;
+    private FileSystemRepository fileSystemRepository;
+    private List<Snippet> snippets;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                                                      .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        dataDirectory = Files.createTempDirectory("data");
+        Directory snippetsDirectory = new Directory(dataDirectory.resolve("snippets"));
+        journal = journaled ? new SnippetJournal(new Directory(dataDirectory.resolve("journal")), snippetsDirectory) : null;
+        fileSystemRepository = new FileSystemRepository(
+                snippetsDirectory,
+                new SnippetReader(objectMapper),
+                new SnippetWriter(objectMapper),
+                journal
+        );
+
+        snippets = BenchmarkData.snippets(snippetCount);
+        for (Snippet snippet : snippets) {
+            fileSystemRepository.create(snippet);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+
+        new Directory(dataDirectory).delete();
+    }
+
+    @Benchmark
+    public void update() throws Exception {
+        Snippet snippet = snippets.get(ThreadLocalRandom.current().nextInt(snippets.size()));
+        fileSystemRepository.update(snippet);
+    }
+}
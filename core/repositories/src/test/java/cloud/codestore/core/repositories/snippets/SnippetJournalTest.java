@@ -0,0 +1,184 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.repositories.RepositoryException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("The snippet journal")
+class SnippetJournalTest {
+    @TempDir
+    private Path dataDirectory;
+    private Directory journalDirectory;
+    private Directory snippetsDirectory;
+    private SnippetJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journalDirectory = new Directory(dataDirectory.resolve("journal"));
+        snippetsDirectory = new Directory(dataDirectory.resolve("snippets"));
+        journal = new SnippetJournal(journalDirectory, snippetsDirectory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("provides a change until it is written to the snippet file")
+    void pendingChange() throws Exception {
+        journal.put("1", bytes("content"));
+
+        SnippetJournal.Change change = journal.pending("1");
+        assertThat(change == null || new String(change.content(), StandardCharsets.UTF_8).equals("content")).isTrue();
+
+        journal.awaitApplied();
+        assertThat(journal.pending("1")).isNull();
+        assertThat(Files.readString(snippetFile("1"))).isEqualTo("content");
+    }
+
+    @Test
+    @DisplayName("writes the snippet files with the time of the change")
+    void writeSnippetFiles() throws IOException {
+        journal.put("1", bytes("first"));
+        journal.put("2", bytes("second"));
+        journal.put("1", bytes("updated"));
+        journal.delete("2");
+        journal.close();
+
+        assertThat(Files.readString(snippetFile("1"))).isEqualTo("updated");
+        assertThat(snippetFile("2")).doesNotExist();
+        assertThat(Files.getLastModifiedTime(snippetFile("1")).toMillis())
+                .isLessThanOrEqualTo(System.currentTimeMillis());
+        assertThat(journalFile()).isEmptyFile();
+    }
+
+    @Test
+    @DisplayName("applies the remaining changes when it is opened")
+    void replay() throws IOException {
+        journal.close();
+        List<SnippetJournal.Change> changes = List.of(
+                new SnippetJournal.Change("1", bytes("content"), 1_000_000),
+                new SnippetJournal.Change("2", null, 2_000_000)
+        );
+        Files.writeString(snippetFile("2"), "deleted");
+        Files.write(journalFile(), SnippetRecords.encode(changes).array());
+
+        journal = new SnippetJournal(journalDirectory, snippetsDirectory);
+
+        assertThat(Files.readString(snippetFile("1"))).isEqualTo("content");
+        assertThat(Files.getLastModifiedTime(snippetFile("1")).toMillis()).isEqualTo(1_000_000);
+        assertThat(snippetFile("2")).doesNotExist();
+        assertThat(journalFile()).isEmptyFile();
+    }
+
+    @Test
+    @DisplayName("discards an incomplete change at its end")
+    void discardIncompleteChange() throws IOException {
+        journal.close();
+        ByteBuffer complete = SnippetRecords.encode(List.of(new SnippetJournal.Change("1", bytes("complete"), 1000)));
+        ByteBuffer incomplete = SnippetRecords.encode(List.of(new SnippetJournal.Change("2", bytes("incomplete"), 1000)));
+        Files.write(journalFile(), complete.array());
+        Files.write(journalFile(), incomplete.array(), StandardOpenOption.APPEND);
+        truncate(journalFile(), Files.size(journalFile()) - 3);
+
+        journal = new SnippetJournal(journalDirectory, snippetsDirectory);
+
+        assertThat(Files.readString(snippetFile("1"))).isEqualTo("complete");
+        assertThat(snippetFile("2")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("writes concurrent changes with a shared force")
+    void groupCommit() throws Exception {
+        int changeCount = 200;
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < changeCount; i++) {
+                String snippetId = String.valueOf(i);
+                futures.add(executor.submit(() -> journal.put(snippetId, bytes(snippetId))));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        journal.close();
+
+        assertThat(journal.forceCount()).isBetween(1L, (long) changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            assertThat(Files.readString(snippetFile(String.valueOf(i)))).isEqualTo(String.valueOf(i));
+        }
+    }
+
+    @Test
+    @DisplayName("discards a change which cannot be applied")
+    void discardFailedChange() throws Exception {
+        Files.createDirectories(snippetFile("1"));
+
+        journal.put("1", bytes("content"));
+        journal.awaitApplied();
+
+        assertThat(journal.pending("1")).isNull();
+        journal.close();
+        assertThat(journalFile()).isEmptyFile();
+    }
+
+    @Test
+    @DisplayName("rejects changes after it stopped writing")
+    void failWhenStopped() throws Exception {
+        journal.close();
+        Set<Thread> threads = Thread.getAllStackTraces().keySet();
+        journal = new SnippetJournal(journalDirectory, snippetsDirectory);
+        Thread writer = Thread.getAllStackTraces().keySet().stream()
+                              .filter(thread -> !threads.contains(thread))
+                              .filter(thread -> thread.getName().equals("snippet-journal"))
+                              .findFirst()
+                              .orElseThrow();
+
+        writer.interrupt();
+        writer.join();
+
+        assertThatThrownBy(() -> journal.put("1", bytes("content"))).isInstanceOf(RepositoryException.class);
+    }
+
+    private Path snippetFile(String snippetId) throws IOException {
+        Files.createDirectories(snippetsDirectory.path());
+        return snippetsDirectory.path().resolve(snippetId + FileSystemRepository.JSON_FILE_EXTENSION);
+    }
+
+    private Path journalFile() {
+        return journalDirectory.path().resolve(SnippetJournal.FILE_NAME);
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
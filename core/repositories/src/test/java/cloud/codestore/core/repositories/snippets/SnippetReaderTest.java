@@ -10,35 +10,40 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.assertj.core.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
 @ExtendWith(DefaultLocale.class)
-@ExtendWith(MockitoExtension.class)
 @DisplayName("A snippet reader")
 class SnippetReaderTest {
     private static final String SNIPPET_ID = "12345";
 
-    @Mock
+    @TempDir
+    private Path snippetsDirectory;
+    private Path testPath;
     private File testFile;
     private SnippetReader snippetReader;
 
     @BeforeEach
     void setUp() {
         snippetReader = new SnippetReader(new ObjectMapper());
-        lenient().when(testFile.getName()).thenReturn(SNIPPET_ID + FileSystemRepository.JSON_FILE_EXTENSION);
+        testPath = snippetsDirectory.resolve(SNIPPET_ID + FileSystemRepository.JSON_FILE_EXTENSION);
+        testFile = new File(testPath);
     }
 
     @Test
     @DisplayName("reads a snippet from a file")
-    void readSnippet() {
+    void readSnippet() throws IOException {
         String fileContent = """
                 {
                 "title":"Test Snippet",
@@ -49,7 +54,7 @@ class SnippetReaderTest {
                 "created":"2022-06-25T10:55:45Z",
                 "modified":"2022-12-02T14:30:26Z"
                 }""";
-        when(testFile.readOrElse(anyString())).thenReturn(fileContent);
+        Files.writeString(testPath, fileContent);
 
         Snippet snippet = snippetReader.read(testFile);
 
@@ -67,8 +72,6 @@ class SnippetReaderTest {
     @Test
     @DisplayName("sets default values if the file does not exist")
     void readSnippetEmptyFile() {
-        when(testFile.readOrElse(anyString())).thenReturn("{}");
-
         Snippet snippet = snippetReader.read(testFile);
 
         assertThat(snippet).isNotNull();
@@ -84,12 +87,66 @@ class SnippetReaderTest {
 
     @Test
     @DisplayName("throws a RepositoryException if the file content is not JSON")
-    void invalidFormat() {
-        when(testFile.path()).thenReturn(Path.of("test.json"));
-        when(testFile.readOrElse(anyString())).thenReturn("invalid-json");
+    void invalidFormat() throws IOException {
+        Files.writeString(testPath, "invalid-json");
 
         assertThatThrownBy(() -> snippetReader.read(testFile))
                 .isInstanceOf(RepositoryException.class)
-                .hasMessage("The format of the file test.json is invalid.");
+                .hasMessage("The format of the file " + testPath + " is invalid.");
+    }
+
+    @Test
+    @DisplayName("reads a snippet from the content of a file and skips unknown fields")
+    void readContent() {
+        String content = """
+                {
+                "title":"Test Snippet",
+                "unknown":{"nested":[1, 2, {"language":1}]},
+                "description":null,
+                "tags":["test"],
+                "language":99
+                }""";
+
+        Snippet snippet = snippetReader.read(SNIPPET_ID, content.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(snippet.getId()).isEqualTo(SNIPPET_ID);
+        assertThat(snippet.getTitle()).isEqualTo("Test Snippet");
+        assertThat(snippet.getDescription()).isEmpty();
+        assertThat(snippet.getTags()).containsExactly("test");
+        assertThat(snippet.getLanguage()).isEqualTo(Language.TEXT);
+    }
+
+    @Test
+    @DisplayName("shares the tags between the snippets")
+    void internTags() {
+        byte[] content = "{\"tags\":[\"test\"]}".getBytes(StandardCharsets.UTF_8);
+
+        Snippet snippet = snippetReader.read("1", content);
+        Snippet otherSnippet = snippetReader.read("2", content);
+
+        assertThat(otherSnippet.getTags().get(0)).isSameAs(snippet.getTags().get(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2022-06-25T10:55Z",
+            "2022-06-25T10:55:45Z",
+            "2022-06-25T10:55:45.1Z",
+            "2022-06-25T10:55:45.123456789Z",
+            "2022-06-25T12:55:45+02:00",
+            "+12022-06-25T10:55:45Z"
+    })
+    @DisplayName("parses ISO-8601 timestamps")
+    void parseTimestamps(String timestamp) {
+        assertThat(SnippetReader.parseDateTime(timestamp)).isEqualTo(OffsetDateTime.parse(timestamp));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2022-13-25T10:55:45Z", "2022-06-25T10:55:4Z", "2022-06-25 10:55:45Z", "yesterday"})
+    @DisplayName("throws a RepositoryException if a timestamp is invalid")
+    void invalidTimestamp(String timestamp) {
+        byte[] content = ("{\"created\":\"" + timestamp + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> snippetReader.read(SNIPPET_ID, content)).isInstanceOf(RepositoryException.class);
     }
 }
\ No newline at end of file
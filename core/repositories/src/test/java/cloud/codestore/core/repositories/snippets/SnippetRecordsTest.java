@@ -0,0 +1,76 @@
+package cloud.codestore.core.repositories.snippets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The snippet records")
+class SnippetRecordsTest {
+    private static final SnippetJournal.Change PUT = new SnippetJournal.Change("1", bytes("content"), 1000);
+    private static final SnippetJournal.Change DELETE = new SnippetJournal.Change("2", null, 2000);
+
+    @Test
+    @DisplayName("encode and decode changes")
+    void encodeAndDecode() {
+        ByteBuffer records = SnippetRecords.encode(List.of(PUT, DELETE));
+
+        List<SnippetJournal.Change> changes = SnippetRecords.decode(records);
+
+        assertThat(changes).hasSize(2);
+        assertThat(changes.get(0).snippetId()).isEqualTo("1");
+        assertThat(changes.get(0).content()).isEqualTo(bytes("content"));
+        assertThat(changes.get(0).lastModified()).isEqualTo(1000);
+        assertThat(changes.get(1).snippetId()).isEqualTo("2");
+        assertThat(changes.get(1).isDeletion()).isTrue();
+        assertThat(records.hasRemaining()).isFalse();
+    }
+
+    @Test
+    @DisplayName("provide the metadata of a record without its content")
+    void metadata() {
+        ByteBuffer records = SnippetRecords.encode(List.of(DELETE, PUT));
+        int position = SnippetRecords.recordSize(records, 0);
+
+        SnippetRecords.Metadata metadata = SnippetRecords.metadata(records, position);
+
+        assertThat(metadata.snippetId()).isEqualTo("1");
+        assertThat(metadata.deletion()).isFalse();
+        assertThat(metadata.lastModified()).isEqualTo(1000);
+        assertThat(metadata.contentLength()).isEqualTo(7);
+        assertThat(SnippetRecords.content(records, position, metadata)).isEqualTo(bytes("content"));
+        assertThat(position + SnippetRecords.recordSize(records, position)).isEqualTo(records.limit());
+    }
+
+    @Test
+    @DisplayName("recognize an incomplete record")
+    void incompleteRecord() {
+        ByteBuffer records = SnippetRecords.encode(List.of(PUT));
+        records.limit(records.limit() - 1);
+
+        assertThat(SnippetRecords.recordSize(records, 0)).isEqualTo(-1);
+        assertThat(SnippetRecords.decode(records)).isEmpty();
+        assertThat(records.position()).isZero();
+    }
+
+    @Test
+    @DisplayName("stop decoding at a corrupt record")
+    void decodeCorruptRecord() {
+        ByteBuffer records = SnippetRecords.encode(List.of(PUT, new SnippetJournal.Change("2", bytes("corrupt"), 1000)));
+        int end = records.limit();
+        records.put(end - 1, (byte) 'x');
+
+        List<SnippetJournal.Change> changes = SnippetRecords.decode(records);
+
+        assertThat(changes).extracting(SnippetJournal.Change::snippetId).containsExactly("1");
+        assertThat(records.position()).isLessThan(end);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.Snippet;
+import cloud.codestore.core.usecases.readsuggestions.Suggestion;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static cloud.codestore.core.usecases.readsuggestions.Suggestion.Type.TAG;
+import static cloud.codestore.core.usecases.readsuggestions.Suggestion.Type.TITLE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("The snippet suggester")
+class SnippetSuggesterTest {
+    private static final FileFingerprint FINGERPRINT = new FileFingerprint(100, 1000, 12345);
+    private static final long TIMEOUT = 5000;
+
+    private final SnippetIndex index = new SnippetIndex(new ByteBuffersDirectory());
+    private SnippetSuggester suggester;
+
+    @AfterEach
+    void tearDown() {
+        if (suggester != null) {
+            suggester.close();
+        }
+        index.close();
+    }
+
+    @Test
+    @DisplayName("returns no suggestions for an empty index")
+    void emptyIndex() {
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("a", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("suggests titles which start with the prefix regardless of its case")
+    void suggestTitles() {
+        add("1", "Read a file");
+        add("2", "Write a file");
+
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("REA", 10)).containsExactly(new Suggestion("Read a file", TITLE));
+    }
+
+    @Test
+    @DisplayName("suggests titles which contain a word starting with the prefix")
+    void suggestTitlesByAnyWord() {
+        add("1", "Read a file");
+        add("2", "Write a file");
+        add("3", "Profile the application");
+
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("fil", 10)).containsExactlyInAnyOrder(
+                new Suggestion("Read a file", TITLE),
+                new Suggestion("Write a file", TITLE)
+        );
+        assertThat(suggester.readSuggestions("a file", 10)).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("suggests a title only once")
+    void suggestTitleOnce() {
+        add("1", "Copy copy");
+
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("cop", 10)).containsExactly(new Suggestion("Copy copy", TITLE));
+    }
+
+    @Test
+    @DisplayName("suggests tags and prefers frequent ones")
+    void suggestTags() {
+        add("1", "A", "javascript");
+        add("2", "B", "java", "jvm");
+        add("3", "C", "java");
+
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("j", 10)).containsExactly(
+                new Suggestion("java", TAG),
+                new Suggestion("javascript", TAG),
+                new Suggestion("jvm", TAG)
+        );
+    }
+
+    @Test
+    @DisplayName("returns at most the given number of suggestions")
+    void limitSuggestions() {
+        for (int i = 0; i < 20; i++) {
+            add(String.valueOf(i), "Title " + i);
+        }
+
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("title", 5)).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("applies created, updated and deleted snippets")
+    void updateSuggestions() {
+        add("1", "Read a file");
+        suggester = new SnippetSuggester(index);
+        assertThat(suggester.readSuggestions("read", 10)).hasSize(1);
+
+        index.update(Snippet.builder().id("1").title("Write a file").build(), FINGERPRINT);
+        awaitSuggestions(() -> suggester.readSuggestions("write", 10), List.of(new Suggestion("Write a file", TITLE)));
+        assertThat(suggester.readSuggestions("read", 10)).isEmpty();
+
+        index.remove("1");
+        awaitSuggestions(() -> suggester.readSuggestions("write", 10), List.of());
+    }
+
+    private void add(String id, String title, String... tags) {
+        index.add(Snippet.builder().id(id).title(title).tags(List.of(tags)).build(), FINGERPRINT);
+    }
+
+    private static void awaitSuggestions(Supplier<List<Suggestion>> lookup, List<Suggestion> expected) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!lookup.get().equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(lookup.get()).isEqualTo(expected);
+    }
+}
@@ -5,54 +5,91 @@ import cloud.codestore.core.Snippet;
 import cloud.codestore.core.repositories.DefaultLocale;
 import cloud.codestore.core.repositories.File;
 import cloud.codestore.core.repositories.RepositoryException;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.Spy;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.Mockito.*;
 
 @ExtendWith(DefaultLocale.class)
-@ExtendWith(MockitoExtension.class)
 @DisplayName("A snippet writer")
 class SnippetWriterTest {
-    @Mock
-    private File snippetFile;
-    @Spy
-    private ObjectMapper objectMapper = new ObjectMapper();
+    @TempDir
+    private Path snippetsDirectory;
+    private Path snippetPath;
     private SnippetWriter snippetWriter;
 
     @BeforeEach
     void setUp() {
-        snippetWriter = new SnippetWriter(objectMapper);
+        snippetWriter = new SnippetWriter(new ObjectMapper());
+        snippetPath = snippetsDirectory.resolve("test.json");
     }
 
     @Test
     @DisplayName("writes a snippet to a file")
-    void writeSnippet() {
+    void writeSnippet() throws IOException {
         Snippet snippet = testSnippet();
-        snippetWriter.write(snippet, snippetFile);
-        verify(snippetFile).write(expectedOutput());
+        snippetWriter.write(snippet, new File(snippetPath));
+        assertThat(Files.readString(snippetPath)).isEqualTo(expectedOutput());
+    }
+
+    @Test
+    @DisplayName("writes a snippet as JSON")
+    void toJson() {
+        assertThat(new String(snippetWriter.toJson(testSnippet()), StandardCharsets.UTF_8)).isEqualTo(expectedOutput());
+    }
+
+    @Test
+    @DisplayName("writes the seconds of a timestamp even if they are zero")
+    void writeZeroSeconds() {
+        var created = OffsetDateTime.of(2023, 6, 24, 14, 47, 0, 0, ZoneOffset.UTC);
+        Snippet snippet = Snippet.builder().id("1").created(created).build();
+
+        String json = new String(snippetWriter.toJson(snippet), StandardCharsets.UTF_8);
+
+        assertThat(json).contains("\"created\":\"2023-06-24T14:47:00Z\"");
+    }
+
+    @Test
+    @DisplayName("indents the JSON if configured")
+    void indentOutput() {
+        snippetWriter = new SnippetWriter(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+        String json = new String(snippetWriter.toJson(testSnippet()), StandardCharsets.UTF_8);
+        assertThat(json).contains(System.lineSeparator() + "  \"language\" : 10,");
+    }
+
+    @Test
+    @DisplayName("can be read by the snippet reader")
+    void readWrittenSnippet() {
+        Snippet snippet = Snippet.builder().id("1").code("code").build();
+        byte[] json = snippetWriter.toJson(snippet);
+
+        Snippet readSnippet = new SnippetReader(new ObjectMapper()).read("1", json);
+
+        assertThat(readSnippet).usingRecursiveComparison().isEqualTo(snippet);
     }
 
     @Test
     @DisplayName("throws a RepositoryException if the file could not be saved")
-    void throwRepositoryException() throws JsonProcessingException {
-        when(snippetFile.toString()).thenReturn("test.json");
-        when(objectMapper.writeValueAsString(any())).thenThrow(JsonProcessingException.class);
-        assertThatThrownBy(() -> snippetWriter.write(testSnippet(), snippetFile))
+    void throwRepositoryException() throws IOException {
+        Files.writeString(snippetsDirectory.resolve("directory"), "not a directory");
+        Path invalidPath = snippetsDirectory.resolve("directory").resolve("test.json");
+        assertThatThrownBy(() -> snippetWriter.write(testSnippet(), new File(invalidPath)))
                 .isInstanceOf(RepositoryException.class)
-                .hasMessage("The file test.json could not be saved.");
+                .hasMessage("The file " + invalidPath + " could not be saved.");
     }
 
     private Snippet testSnippet() {
@@ -0,0 +1,65 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.repositories.Directory;
+import cloud.codestore.core.usecases.readsuggestions.Suggestion;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of suggestions for inputs of one to three characters, as they occur while typing,
+ * and the time which is needed to rebuild the suggestions after the index changed.
+ * <p>
+ * Run with {@code mvn -pl core/repositories test-compile exec:exec -Dexec.classpathScope=test
+ * -Dexec.executable=java "-Dexec.args=-cp %classpath org.openjdk.jmh.Main SuggestionBenchmark"}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuggestionBenchmark {
+    private static final int LIMIT = 10;
+
+    @Param({"100000"})
+    public int snippetCount;
+    @Param({"r", "re", "rea"})
+    public String input;
+
+    private Path indexPath;
+    private SnippetIndex index;
+    private SnippetSuggester suggester;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("snippet-index");
+        index = new SnippetIndex(new MMapDirectory(indexPath));
+        index.batch(batch -> BenchmarkData.snippets(snippetCount)
+                                          .forEach(snippet -> batch.put(snippet, BenchmarkData.FINGERPRINT)));
+        suggester = new SnippetSuggester(index);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        suggester.close();
+        index.close();
+        new Directory(indexPath).delete();
+    }
+
+    @Benchmark
+    public List<Suggestion> suggest() {
+        return suggester.readSuggestions(input, LIMIT);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object rebuild() {
+        return suggester.rebuild();
+    }
+}
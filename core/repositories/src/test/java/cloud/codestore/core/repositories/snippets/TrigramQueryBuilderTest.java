@@ -0,0 +1,104 @@
+package cloud.codestore.core.repositories.snippets;
+
+import cloud.codestore.core.usecases.listsnippets.SearchMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("The trigram-query builder returns a query")
+class TrigramQueryBuilderTest {
+    @Test
+    @DisplayName("which requires all lower case trigrams of a literal")
+    void literal() {
+        expectQuery("->getId()", SearchMode.LITERAL, all("->g", ">ge", "get", "eti", "tid", "id(", "d()"));
+    }
+
+    @Test
+    @DisplayName("which treats special characters of a literal like any other character")
+    void literalWithSpecialCharacters() {
+        expectQuery("a.*b", SearchMode.LITERAL, all("a.*", ".*b"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ab", "\\w+\\s*=", "foo|.*", "(?:foo)?", "[foo]", "f.o.o", "(?x)foo bar", "(?=foo)"})
+    @DisplayName("matching all snippets if a match does not require any trigram")
+    void matchAll(String regex) {
+        expectQuery(regex, SearchMode.REGEX, "*:*");
+    }
+
+    @Test
+    @DisplayName("which requires the literal parts of a regular expression")
+    void regex() {
+        expectQuery(
+                "SELECT .* FROM users",
+                SearchMode.REGEX,
+                "#(" + all("sel", "ele", "lec", "ect", "ct ") + ") " +
+                "#(" + all(" fr", "fro", "rom", "om ", "m u", " us", "use", "ser", "ers") + ")"
+        );
+    }
+
+    @Test
+    @DisplayName("which requires any of the alternatives")
+    void alternatives() {
+        expectQuery("getId|setId", SearchMode.REGEX, "(" + all("get", "eti", "tid") + ") (" + all("set", "eti", "tid") + ")");
+    }
+
+    @Test
+    @DisplayName("which ignores optional characters and groups")
+    void optionalParts() {
+        expectQuery("colou?r", SearchMode.REGEX, all("col", "olo"));
+        expectQuery("file(Name)*Reader", SearchMode.REGEX, "#(" + all("fil", "ile") + ") #(" + all("rea", "ead", "ade", "der") + ")");
+    }
+
+    @Test
+    @DisplayName("which continues a literal part with the last repetition of a character")
+    void repetitions() {
+        expectQuery("abb+cd", SearchMode.REGEX, all("abb", "bcd"));
+        expectQuery("xa{3}", SearchMode.REGEX, all("xaa", "aaa"));
+    }
+
+    @Test
+    @DisplayName("which respects escaped and quoted characters")
+    void escapedCharacters() {
+        expectQuery("[a-z]+\\.get\\(\\)", SearchMode.REGEX, all(".ge", "get", "et(", "t()"));
+        expectQuery("\\Q->x\\E", SearchMode.REGEX, "codeTrigrams:->x");
+        expectQuery("\\p{Lu}abc\\d", SearchMode.REGEX, "codeTrigrams:abc");
+    }
+
+    @Test
+    @DisplayName("which requires the literal parts of groups")
+    void groups() {
+        expectQuery("(?<name>foo)(?i:bar)", SearchMode.REGEX, all("foo", "bar"));
+    }
+
+    @Test
+    @DisplayName("and fails for an invalid regular expression")
+    void invalidRegex() {
+        assertThatThrownBy(() -> new TrigramQueryBuilder("getId(", SearchMode.REGEX))
+                .isInstanceOf(PatternSyntaxException.class);
+    }
+
+    @Test
+    @DisplayName("and a pattern which matches the literal exactly")
+    void literalPattern() {
+        var pattern = new TrigramQueryBuilder("a.*b", SearchMode.LITERAL).pattern();
+        assertThat(pattern.matcher("a.*b").find()).isTrue();
+        assertThat(pattern.matcher("axxb").find()).isFalse();
+    }
+
+    private static void expectQuery(String search, SearchMode searchMode, String expectedQuery) {
+        assertThat(new TrigramQueryBuilder(search, searchMode).build().toString()).isEqualTo(expectedQuery);
+    }
+
+    private static String all(String... trigrams) {
+        return Arrays.stream(trigrams).map(trigram -> "#codeTrigrams:" + trigram).collect(Collectors.joining(" "));
+    }
+}
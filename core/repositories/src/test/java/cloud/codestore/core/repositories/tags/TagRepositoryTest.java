@@ -3,8 +3,12 @@ package cloud.codestore.core.repositories.tags;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,6 +36,29 @@ class TagRepositoryTest {
         assertThat(repository.read()).hasSize(3);
     }
 
+    @Test
+    @DisplayName("adds tags concurrently")
+    void addTagsConcurrently() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int offset = thread * 1000;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        repository.create(String.valueOf(offset + i));
+                        repository.read().size();
+                    }
+                }));
+            }
+
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        assertThat(repository.read()).hasSize(4000);
+    }
+
     @Test
     @DisplayName("only contains distinct tags")
     void distinctTags() {
@@ -0,0 +1,24 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import javax.annotation.Nullable;
+import java.time.OffsetDateTime;
+
+/**
+ * A range of points in time. Both bounds are inclusive.
+ *
+ * @param from the earliest point in time or {@code null} if the range has no lower bound.
+ * @param until the latest point in time or {@code null} if the range has no upper bound.
+ */
+public record DateRange(@Nullable OffsetDateTime from, @Nullable OffsetDateTime until) {
+    /**
+     * A range which contains all points in time.
+     */
+    public static final DateRange UNBOUNDED = new DateRange(null, null);
+
+    /**
+     * @return whether this range contains all points in time.
+     */
+    public boolean isUnbounded() {
+        return from == null && until == null;
+    }
+}
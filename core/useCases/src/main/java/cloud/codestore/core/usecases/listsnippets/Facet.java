@@ -0,0 +1,26 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+/**
+ * A property of the code snippets by which the found code snippets can be counted.
+ */
+public enum Facet {
+    /**
+     * Counts the code snippets per programming language.
+     */
+    LANGUAGE,
+
+    /**
+     * Counts the code snippets per tag.
+     */
+    TAGS,
+
+    /**
+     * Counts the code snippets per month of their creation.
+     */
+    CREATED,
+
+    /**
+     * Counts the code snippets per month of their last modification or their creation if they were never modified.
+     */
+    MODIFIED
+}
@@ -6,13 +6,26 @@ import java.util.Collections;
 
 /**
  * Provides information about how to filter the list of code snippets.
+ *
+ * @param created the range in which the code snippets were created.
+ * @param modified the range in which the code snippets were last modified.
+ *                 A code snippet which was never modified counts as modified when it was created.
  */
-public record FilterProperties(@Nonnull String languageName, @Nonnull Collection<String> tags) {
+public record FilterProperties(
+        @Nonnull String languageName,
+        @Nonnull Collection<String> tags,
+        @Nonnull DateRange created,
+        @Nonnull DateRange modified
+) {
     public FilterProperties() {
         this("", Collections.emptySet());
     }
 
+    public FilterProperties(@Nonnull String languageName, @Nonnull Collection<String> tags) {
+        this(languageName, tags, DateRange.UNBOUNDED, DateRange.UNBOUNDED);
+    }
+
     public boolean isEmpty() {
-        return languageName.isEmpty() && tags.isEmpty();
+        return languageName.isEmpty() && tags.isEmpty() && created.isUnbounded() && modified.isUnbounded();
     }
 }
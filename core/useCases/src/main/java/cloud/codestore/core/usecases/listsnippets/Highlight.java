@@ -0,0 +1,22 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Represents a fragment of a property of a code snippet which matches the search.
+ *
+ * @param text the text of the fragment.
+ * @param startOffset the position of the first character of the fragment within the whole property.
+ * @param line the number of the line at which the fragment starts, beginning with {@code 1}.
+ * @param matches the positions of the matching terms within the whole property.
+ */
+public record Highlight(@Nonnull String text, int startOffset, int line, @Nonnull List<Range> matches) {
+    /**
+     * Represents a range of characters.
+     *
+     * @param startOffset the position of the first character.
+     * @param endOffset the position after the last character.
+     */
+    public record Range(int startOffset, int endOffset) {}
+}
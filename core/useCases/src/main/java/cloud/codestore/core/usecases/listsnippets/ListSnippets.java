@@ -4,11 +4,7 @@ import cloud.codestore.core.Injectable;
 import cloud.codestore.core.Snippet;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 import java.util.List;
-import java.util.Optional;
-
-import static cloud.codestore.core.usecases.listsnippets.SortProperties.SnippetProperty.RELEVANCE;
 
 /**
  * Use case: read all code snippets.
@@ -24,26 +20,44 @@ public class ListSnippets {
     }
 
     @Nonnull
-    public SnippetListPage list(
-            @Nonnull String search,
-            @Nonnull FilterProperties filterProperties,
-            @Nullable SortProperties sortProperties,
-            int pageNumber
-    ) throws PageNotExistsException {
-        sortProperties = Optional.ofNullable(sortProperties)
-                                 .orElseGet(() -> search.isEmpty() ? new SortProperties() : new SortProperties(RELEVANCE, true));
+    public SnippetListPage<Snippet> list(@Nonnull SnippetListRequest request) throws PageNotExistsException {
+        return list(request, readSnippetsQuery::readSnippets);
+    }
 
-        var searchResult = readSnippetsQuery.readSnippets(search, filterProperties, sortProperties);
+    /**
+     * Same as {@link #list(SnippetListRequest)} but only provides the {@link SnippetSummary summaries} of the code snippets.
+     */
+    @Nonnull
+    public SnippetListPage<SnippetSummary> listSummaries(@Nonnull SnippetListRequest request) throws PageNotExistsException {
+        return list(request, readSnippetsQuery::readSnippetSummaries);
+    }
 
+    private <T> SnippetListPage<T> list(SnippetListRequest request, PageReader<T> pageReader) throws PageNotExistsException {
+        int pageNumber = request.page();
+        if (pageNumber <= 0 || pageNumber > Integer.MAX_VALUE / PAGE_SIZE)
+            throw new PageNotExistsException(pageNumber);
+
+        var searchResult = pageReader.read(request, PAGE_SIZE);
+
+        // a partial result may not have reached the requested page, which does not mean that the page does not exist
         int totalPages = (int) Math.max(1, Math.ceil(searchResult.totalCount() / (double) PAGE_SIZE));
-        if (pageNumber <= 0 || pageNumber > totalPages)
+        if (pageNumber > totalPages && !searchResult.partial())
             throw new PageNotExistsException(pageNumber);
 
-        List<Snippet> snippets = searchResult.snippetStream()
-                                             .skip((long) (pageNumber - 1) * PAGE_SIZE)
-                                             .limit(PAGE_SIZE)
-                                             .toList();
+        List<T> snippets = searchResult.snippetStream().toList();
+
+        return new SnippetListPage<>(
+                pageNumber,
+                Math.max(pageNumber, totalPages),
+                snippets,
+                searchResult.facets(),
+                searchResult.highlights(),
+                searchResult.partial()
+        );
+    }
 
-        return new SnippetListPage(pageNumber, totalPages, snippets);
+    @FunctionalInterface
+    private interface PageReader<T> {
+        SearchResult<T> read(SnippetListRequest request, int pageSize);
     }
 }
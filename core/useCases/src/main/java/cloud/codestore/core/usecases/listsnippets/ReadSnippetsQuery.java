@@ -1,11 +1,23 @@
 package cloud.codestore.core.usecases.listsnippets;
 
+import cloud.codestore.core.Snippet;
+
 import javax.annotation.Nonnull;
 
 public interface ReadSnippetsQuery {
-    SearchResult readSnippets(
-            @Nonnull String search,
-            @Nonnull FilterProperties filterProperties,
-            @Nonnull SortProperties sortProperties
-    );
+    /**
+     * Searches for code snippets and reads a single page of the result.
+     *
+     * @param request  the search, the requested page and the facets to count among all matching code snippets.
+     * @param pageSize the maximum number of code snippets per page.
+     * @return the total number of matching code snippets together with the requested ones and the facet counts.
+     * If the budget of the request is exhausted, the result contains the code snippets which were found so far.
+     */
+    SearchResult<Snippet> readSnippets(@Nonnull SnippetListRequest request, int pageSize);
+
+    /**
+     * Same as {@link #readSnippets(SnippetListRequest, int)} but only reads
+     * the {@link SnippetSummary summaries} of the code snippets.
+     */
+    SearchResult<SnippetSummary> readSnippetSummaries(@Nonnull SnippetListRequest request, int pageSize);
 }
@@ -0,0 +1,62 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+
+/**
+ * Limits the time which a search may take. A search whose time budget is exhausted or which was cancelled,
+ * because its result is no longer needed, stops early and provides the code snippets it found so far.
+ * The budget is checked by the threads which execute the search, so it can be cancelled from any thread.
+ */
+public final class SearchBudget {
+    private static final Duration MAX_TIME_BUDGET = Duration.ofNanos(Long.MAX_VALUE);
+
+    private final long start = System.nanoTime();
+    private final long timeBudgetNanos;
+    private volatile boolean cancelled;
+
+    private SearchBudget(long timeBudgetNanos) {
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    /**
+     * @param timeBudget the time which the search may take, starting now.
+     * @return a new budget for a single search.
+     */
+    @Nonnull
+    public static SearchBudget of(@Nonnull Duration timeBudget) {
+        if (timeBudget.compareTo(MAX_TIME_BUDGET) >= 0)
+            return unlimited();
+
+        return new SearchBudget(Math.max(0, timeBudget.toNanos()));
+    }
+
+    /**
+     * @return a new budget which is only exhausted if it is cancelled.
+     */
+    @Nonnull
+    public static SearchBudget unlimited() {
+        return new SearchBudget(Long.MAX_VALUE);
+    }
+
+    /**
+     * Stops the search as soon as possible.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return whether the search was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return whether the search must stop, because the time budget is exhausted or the search was cancelled.
+     */
+    public boolean isExhausted() {
+        return cancelled || System.nanoTime() - start >= timeBudgetNanos;
+    }
+}
@@ -0,0 +1,29 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+/**
+ * Defines how the search query is matched against the code snippets.
+ */
+public enum SearchMode {
+    /**
+     * Matches whole terms and terms which start with a term of the search query.
+     */
+    DEFAULT,
+
+    /**
+     * Like {@link #DEFAULT} but additionally matches terms which differ slightly from the terms of the search query,
+     * if only a few code snippets match exactly. This way, typos like "javscript" still find code snippets.
+     */
+    FUZZY,
+
+    /**
+     * Matches code which contains the search query exactly, including its case, whitespace and punctuation.
+     * Only the code is searched.
+     */
+    LITERAL,
+
+    /**
+     * Matches code which contains a match of the search query as a Java regular expression.
+     * Only the code is searched.
+     */
+    REGEX
+}
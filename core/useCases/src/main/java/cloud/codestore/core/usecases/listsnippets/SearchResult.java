@@ -1,13 +1,22 @@
 package cloud.codestore.core.usecases.listsnippets;
 
-import cloud.codestore.core.Snippet;
-
 import javax.annotation.Nonnull;
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
  * Represents the result of the repository when searching for code snippets.
  * @param totalCount the total number of snippets found.
- * @param snippetStream a stream providing the corresponding code snippets.
+ * @param snippetStream a stream providing the code snippets of the requested page.
+ * @param facets the number of found snippets per value of the requested {@link Facet facets}.
+ * @param highlights the fragments which match the search by the IDs of the snippets of the requested page.
+ * @param partial whether the search stopped early, so that the result may lack some snippets.
+ * @param <T> the type which represents a single code snippet.
  */
-public record SearchResult(int totalCount, @Nonnull Stream<Snippet> snippetStream) {}
+public record SearchResult<T>(
+        int totalCount,
+        @Nonnull Stream<T> snippetStream,
+        @Nonnull Map<Facet, Map<String, Integer>> facets,
+        @Nonnull Map<String, SnippetHighlights> highlights,
+        boolean partial
+) {}
@@ -0,0 +1,12 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Represents the fragments of a single code snippet which match the search.
+ *
+ * @param description the matching fragments of the description.
+ * @param code the matching lines of the code.
+ */
+public record SnippetHighlights(@Nonnull List<Highlight> description, @Nonnull List<Highlight> code) {}
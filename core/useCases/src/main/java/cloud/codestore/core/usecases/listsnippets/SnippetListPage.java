@@ -1,9 +1,8 @@
 package cloud.codestore.core.usecases.listsnippets;
 
-import cloud.codestore.core.Snippet;
-
 import javax.annotation.Nonnull;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a page which contains a sublist of the list of all available snippets.
@@ -11,5 +10,16 @@ import java.util.List;
  * @param page the number of this page.
  * @param totalPages the number of total pages.
  * @param snippets the list of snippets within this page.
+ * @param facets the number of snippets in the whole list per value of the requested {@link Facet facets}.
+ * @param highlights the fragments which match the search by the IDs of the snippets within this page.
+ * @param partial whether the search stopped early, so that the list may lack some snippets.
+ * @param <T> the type which represents a single code snippet.
  */
-public record SnippetListPage(int page, int totalPages, @Nonnull List<Snippet> snippets) {}
+public record SnippetListPage<T>(
+        int page,
+        int totalPages,
+        @Nonnull List<T> snippets,
+        @Nonnull Map<Facet, Map<String, Integer>> facets,
+        @Nonnull Map<String, SnippetHighlights> highlights,
+        boolean partial
+) {}
@@ -0,0 +1,42 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Set;
+
+import static cloud.codestore.core.usecases.listsnippets.SortProperties.SnippetProperty.RELEVANCE;
+
+/**
+ * Represents a request for a single page of the list of code snippets.
+ *
+ * @param search the search query or an empty string to list all code snippets.
+ * @param searchMode how the search query is matched.
+ * @param filterProperties the properties to filter the code snippets by.
+ * @param sortProperties the order of the code snippets. If {@code null}, the code snippets are sorted by relevance
+ *                       if a search query is provided and by creation time otherwise.
+ * @param page the number of the requested page, starting at 1.
+ * @param facets the facets to count among all matching code snippets.
+ * @param budget limits the time which the search may take.
+ */
+public record SnippetListRequest(
+        @Nonnull String search,
+        @Nonnull SearchMode searchMode,
+        @Nonnull FilterProperties filterProperties,
+        @Nullable SortProperties sortProperties,
+        int page,
+        @Nonnull Set<Facet> facets,
+        @Nonnull SearchBudget budget
+) {
+    public SnippetListRequest {
+        if (sortProperties == null)
+            sortProperties = search.isEmpty() ? new SortProperties() : new SortProperties(RELEVANCE, true);
+    }
+
+    /**
+     * @param pageSize the number of code snippets per page.
+     * @return the number of code snippets on the pages before the requested one.
+     */
+    public int offset(int pageSize) {
+        return (page - 1) * pageSize;
+    }
+}
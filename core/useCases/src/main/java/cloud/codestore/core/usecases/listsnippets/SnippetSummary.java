@@ -0,0 +1,38 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import cloud.codestore.core.Language;
+import cloud.codestore.core.Permission;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Represents the properties of a code snippet which are shown in the list of code snippets.
+ * In contrast to a {@link cloud.codestore.core.Snippet}, it contains neither the description nor the code.
+ *
+ * @param id the id of the code snippet.
+ * @param title the title of the code snippet.
+ * @param language the programming language of the code snippet.
+ * @param tags the tags of the code snippet.
+ * @param created the creation time of the code snippet.
+ * @param modified the modification time of the code snippet or {@code null} if it was never modified.
+ */
+public record SnippetSummary(
+        @Nonnull String id,
+        @Nonnull String title,
+        @Nonnull Language language,
+        @Nonnull List<String> tags,
+        @Nonnull OffsetDateTime created,
+        @Nullable OffsetDateTime modified
+) {
+    /**
+     * @return the operations which can be performed on the code snippet.
+     */
+    @Nonnull
+    public Set<Permission> permissions() {
+        return Set.of(Permission.UPDATE, Permission.DELETE);
+    }
+}
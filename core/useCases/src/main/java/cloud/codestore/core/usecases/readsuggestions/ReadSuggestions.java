@@ -0,0 +1,30 @@
+package cloud.codestore.core.usecases.readsuggestions;
+
+import cloud.codestore.core.Injectable;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Use case: read suggestions for completing a search or a tag while the user is typing.
+ */
+@Injectable
+public class ReadSuggestions {
+    static final int MAX_SUGGESTIONS = 10;
+
+    private final ReadSuggestionsQuery query;
+
+    public ReadSuggestions(ReadSuggestionsQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * @param prefix the text which the user typed so far.
+     * @return the titles and tags which complete the given prefix or an empty list if the prefix is blank.
+     */
+    @Nonnull
+    public List<Suggestion> read(@Nonnull String prefix) {
+        prefix = prefix.strip();
+        return prefix.isEmpty() ? List.of() : query.readSuggestions(prefix, MAX_SUGGESTIONS);
+    }
+}
@@ -0,0 +1,17 @@
+package cloud.codestore.core.usecases.readsuggestions;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+public interface ReadSuggestionsQuery {
+    /**
+     * Reads the titles and tags which contain a word starting with the given prefix.
+     * The case of the prefix is ignored.
+     *
+     * @param prefix the text which the user typed so far.
+     * @param limit the maximum number of suggestions.
+     * @return the suggestions, the most frequent ones first.
+     */
+    @Nonnull
+    List<Suggestion> readSuggestions(@Nonnull String prefix, int limit);
+}
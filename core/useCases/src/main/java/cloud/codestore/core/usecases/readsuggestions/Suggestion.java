@@ -0,0 +1,15 @@
+package cloud.codestore.core.usecases.readsuggestions;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A completion of the text which the user is typing.
+ *
+ * @param text the suggested text.
+ * @param type the property of the code snippets which contains the suggested text.
+ */
+public record Suggestion(@Nonnull String text, @Nonnull Type type) {
+    public enum Type {
+        TITLE, TAG
+    }
+}
@@ -1,5 +1,6 @@
 package cloud.codestore.core.usecases.listsnippets;
 
+import cloud.codestore.core.Language;
 import cloud.codestore.core.Snippet;
 import org.assertj.core.api.ThrowableAssert;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,19 +11,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static cloud.codestore.core.usecases.listsnippets.SortProperties.SnippetProperty.RELEVANCE;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("The list-snippets use case")
 class ListSnippetsTest {
     private static final int SNIPPET_COUNT = 123;
     private static final int TOTAL_PAGES = 3;
+    private static final SearchBudget BUDGET = SearchBudget.unlimited();
 
     @Mock
     private ReadSnippetsQuery readSnippetsQuery;
@@ -32,8 +40,11 @@ class ListSnippetsTest {
     void setUp() {
         useCase = new ListSnippets(readSnippetsQuery);
 
-        var searchResult = new SearchResult(SNIPPET_COUNT, snippets());
-        when(readSnippetsQuery.readSnippets(any(), any(), any())).thenReturn(searchResult);
+        lenient().when(readSnippetsQuery.readSnippets(any(), anyInt())).thenAnswer(invocation -> {
+            SnippetListRequest request = invocation.getArgument(0);
+            int pageSize = invocation.getArgument(1);
+            return searchResult(SNIPPET_COUNT, snippets().skip(request.offset(pageSize)).limit(pageSize));
+        });
     }
 
     @Test
@@ -43,12 +54,14 @@ class ListSnippetsTest {
         var filter = new FilterProperties();
         var sort = new SortProperties();
 
-        var page = useCase.list(search, filter, sort, 1);
+        var request = new SnippetListRequest(search, SearchMode.DEFAULT, filter, sort, 1, Set.of(), BUDGET);
+
+        var page = useCase.list(request);
 
         Snippet[] expectedSnippets = snippets().limit(50).toArray(Snippet[]::new);
         assertThat(page.snippets()).containsExactly(expectedSnippets);
         assertThat(page.totalPages()).isEqualTo(3);
-        verify(readSnippetsQuery).readSnippets(search, filter, sort);
+        verify(readSnippetsQuery).readSnippets(request, 50);
     }
 
     @Test
@@ -56,8 +69,8 @@ class ListSnippetsTest {
     void defaultSorting() throws PageNotExistsException {
         var sortQuery = "";
         var filterProperties = new FilterProperties();
-        useCase.list(sortQuery, filterProperties, null, 1);
-        verify(readSnippetsQuery).readSnippets(sortQuery, filterProperties, new SortProperties());
+        useCase.list(new SnippetListRequest(sortQuery, SearchMode.DEFAULT, filterProperties, null, 1, Set.of(), BUDGET));
+        verify(readSnippetsQuery).readSnippets(argThat(request -> request.sortProperties().equals(new SortProperties())), eq(50));
     }
 
     @Test
@@ -65,17 +78,86 @@ class ListSnippetsTest {
     void sortByRelevance() throws PageNotExistsException {
         var sortQuery = "sort query";
         var filterProperties = new FilterProperties();
-        useCase.list(sortQuery, filterProperties, null, 1);
-        verify(readSnippetsQuery).readSnippets(sortQuery, filterProperties, new SortProperties(RELEVANCE, true));
+        useCase.list(new SnippetListRequest(sortQuery, SearchMode.DEFAULT, filterProperties, null, 1, Set.of(), BUDGET));
+        verify(readSnippetsQuery).readSnippets(argThat(request -> request.sortProperties().equals(new SortProperties(RELEVANCE, true))), eq(50));
     }
 
     @Test
     @DisplayName("returns the snippets of the corresponding page")
     void respectPage() throws PageNotExistsException {
-        SnippetListPage page = useCase.list("", new FilterProperties(), null, 3);
+        var request = request("", 3, Set.of());
+
+        SnippetListPage<Snippet> page = useCase.list(request);
 
         Snippet[] expectedSnippets = snippets().skip(100).limit(50).toArray(Snippet[]::new);
         assertThat(page.snippets()).containsExactly(expectedSnippets);
+        assertThat(request.offset(50)).isEqualTo(100);
+        verify(readSnippetsQuery).readSnippets(request, 50);
+    }
+
+    @Test
+    @DisplayName("returns the summaries of the code snippets on the corresponding page")
+    void returnSummaries() throws PageNotExistsException {
+        var summary = new SnippetSummary("51", "title", Language.JAVA, List.of("tag"), OffsetDateTime.now(), null);
+        when(readSnippetsQuery.readSnippetSummaries(any(), anyInt()))
+                .thenReturn(searchResult(SNIPPET_COUNT, Stream.of(summary)));
+        var request = request("", 2, Set.of());
+
+        SnippetListPage<SnippetSummary> page = useCase.listSummaries(request);
+
+        assertThat(page.snippets()).containsExactly(summary);
+        assertThat(page.page()).isEqualTo(2);
+        assertThat(page.totalPages()).isEqualTo(TOTAL_PAGES);
+        verify(readSnippetsQuery).readSnippetSummaries(request, 50);
+        verify(readSnippetsQuery, never()).readSnippets(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("returns the requested facet counts")
+    void returnFacets() throws PageNotExistsException {
+        Map<Facet, Map<String, Integer>> facets = Map.of(Facet.LANGUAGE, Map.of("Java", 123));
+        when(readSnippetsQuery.readSnippetSummaries(any(), anyInt()))
+                .thenReturn(new SearchResult<>(SNIPPET_COUNT, Stream.empty(), facets, Map.of(), false));
+        var request = request("", 1, Set.of(Facet.LANGUAGE));
+
+        var page = useCase.listSummaries(request);
+
+        assertThat(page.facets()).isEqualTo(facets);
+        verify(readSnippetsQuery).readSnippetSummaries(request, 50);
+    }
+
+    @Test
+    @DisplayName("returns the fragments which match the search")
+    void returnHighlights() throws PageNotExistsException {
+        var highlight = new Highlight("int a = 1;", 20, 3, List.of(new Highlight.Range(24, 25)));
+        Map<String, SnippetHighlights> highlights = Map.of("1", new SnippetHighlights(List.of(), List.of(highlight)));
+        when(readSnippetsQuery.readSnippetSummaries(any(), anyInt()))
+                .thenReturn(new SearchResult<>(SNIPPET_COUNT, Stream.empty(), Map.of(), highlights, false));
+
+        var page = useCase.listSummaries(request("a", 1, Set.of()));
+
+        assertThat(page.highlights()).isEqualTo(highlights);
+    }
+
+    @Test
+    @DisplayName("passes the search mode to the repository")
+    void passSearchMode() throws PageNotExistsException {
+        var request = new SnippetListRequest("javscript", SearchMode.FUZZY, new FilterProperties(), null, 1, Set.of(), BUDGET);
+        useCase.list(request);
+        verify(readSnippetsQuery).readSnippets(request, 50);
+    }
+
+    @Test
+    @DisplayName("returns a partial page if the search stopped early")
+    void returnPartialPage() throws PageNotExistsException {
+        when(readSnippetsQuery.readSnippetSummaries(any(), anyInt()))
+                .thenReturn(new SearchResult<>(20, Stream.empty(), Map.of(), Map.of(), true));
+
+        var page = useCase.listSummaries(request("a", 2, Set.of()));
+
+        assertThat(page.partial()).isTrue();
+        assertThat(page.snippets()).isEmpty();
+        assertThat(page.totalPages()).isEqualTo(2);
     }
 
     @Nested
@@ -95,13 +177,23 @@ class ListSnippetsTest {
             assertThatNoException().isThrownBy(listSnippets(TOTAL_PAGES));
             assertThatThrownBy(listSnippets(TOTAL_PAGES + 1))
                     .isInstanceOf(PageNotExistsException.class);
+            assertThatThrownBy(listSnippets(Integer.MAX_VALUE))
+                    .isInstanceOf(PageNotExistsException.class);
         }
 
         private ThrowableAssert.ThrowingCallable listSnippets(int page) {
-            return () -> useCase.list("", new FilterProperties(), null, page);
+            return () -> useCase.list(request("", page, Set.of()));
         }
     }
 
+    private static SnippetListRequest request(String search, int page, Set<Facet> facets) {
+        return new SnippetListRequest(search, SearchMode.DEFAULT, new FilterProperties(), null, page, facets, BUDGET);
+    }
+
+    private static <T> SearchResult<T> searchResult(int totalCount, Stream<T> snippets) {
+        return new SearchResult<>(totalCount, snippets, Map.of(), Map.of(), false);
+    }
+
     private Stream<Snippet> snippets() {
         String[] snippetIds = new String[SNIPPET_COUNT];
         for (int i = 0; i < SNIPPET_COUNT; i++)
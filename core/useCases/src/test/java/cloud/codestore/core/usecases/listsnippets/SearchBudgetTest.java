@@ -0,0 +1,32 @@
+package cloud.codestore.core.usecases.listsnippets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("A search budget")
+class SearchBudgetTest {
+    @Test
+    @DisplayName("is exhausted after its time budget")
+    void exhaustTimeBudget() {
+        assertThat(SearchBudget.of(Duration.ofMinutes(1)).isExhausted()).isFalse();
+        assertThat(SearchBudget.of(Duration.ZERO).isExhausted()).isTrue();
+        assertThat(SearchBudget.of(Duration.ofMillis(-1)).isExhausted()).isTrue();
+        assertThat(SearchBudget.of(Duration.ofMillis(Long.MAX_VALUE)).isExhausted()).isFalse();
+    }
+
+    @Test
+    @DisplayName("without a time budget is never exhausted unless it is cancelled")
+    void unlimited() {
+        var budget = SearchBudget.unlimited();
+        assertThat(budget.isExhausted()).isFalse();
+        assertThat(budget.isCancelled()).isFalse();
+
+        budget.cancel();
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(budget.isCancelled()).isTrue();
+    }
+}
@@ -0,0 +1,45 @@
+package cloud.codestore.core.usecases.readsuggestions;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("The read-suggestions use case")
+class ReadSuggestionsTest {
+    @Mock
+    private ReadSuggestionsQuery query;
+    @InjectMocks
+    private ReadSuggestions useCase;
+
+    @Test
+    @DisplayName("returns a limited number of suggestions for the stripped prefix")
+    void readSuggestions() {
+        var suggestions = List.of(new Suggestion("java", Suggestion.Type.TAG));
+        when(query.readSuggestions("ja", ReadSuggestions.MAX_SUGGESTIONS)).thenReturn(suggestions);
+
+        assertThat(useCase.read(" ja ")).isEqualTo(suggestions);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "\t"})
+    @DisplayName("returns no suggestions for a blank prefix")
+    void blankPrefix(String prefix) {
+        assertThat(useCase.read(prefix)).isEmpty();
+        verify(query, never()).readSuggestions(anyString(), anyInt());
+    }
+}